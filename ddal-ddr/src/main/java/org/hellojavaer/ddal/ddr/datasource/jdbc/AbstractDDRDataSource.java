@@ -15,25 +15,32 @@
  */
 package org.hellojavaer.ddal.ddr.datasource.jdbc;
 
+import org.hellojavaer.ddal.ddr.datasource.exception.CrossDataSourceException;
 import org.hellojavaer.ddal.ddr.datasource.exception.DataSourceNotFoundException;
 import org.hellojavaer.ddal.ddr.datasource.exception.UninitializedStatusException;
 import org.hellojavaer.ddal.ddr.datasource.exception.UnsupportedConnectionInvocationException;
 import org.hellojavaer.ddal.ddr.datasource.exception.UnsupportedDataSourceInvocationException;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.executor.ShardExecutor;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.executor.ShardFuture;
 import org.hellojavaer.ddal.ddr.datasource.jdbc.init.UninitializedConnectionProcessor;
 import org.hellojavaer.ddal.ddr.datasource.jdbc.init.UninitializedDataSourceProcessor;
 import org.hellojavaer.ddal.ddr.datasource.jdbc.property.ConnectionProperty;
 import org.hellojavaer.ddal.ddr.datasource.jdbc.property.DataSourceProperty;
 import org.hellojavaer.ddal.ddr.datasource.manager.DataSourceParam;
+import org.hellojavaer.ddal.ddr.sqlparse.RoutedSQL;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLHint;
 import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.hellojavaer.ddal.ddr.utils.DDRJSONUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.sql.DataSource;
 import java.io.PrintWriter;
 import java.sql.*;
-import java.util.Map;
-import java.util.Properties;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  *
@@ -41,7 +48,149 @@ import java.util.concurrent.Executor;
  */
 public abstract class AbstractDDRDataSource implements DDRDataSource {
 
-    private Logger logger = LoggerFactory.getLogger(this.getClass());
+    private Logger                   logger             = LoggerFactory.getLogger(this.getClass());
+
+    private volatile ShardExecutor   shardExecutor;
+
+    private boolean                  enableShardedBatch = false;
+
+    private List<StatementListener>  statementListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * engine which is used to execute a sql on multiple shards in parallel.
+     * If no executor is set, a {@link ShardExecutor} with default settings will be created on first use.
+     */
+    public ShardExecutor getShardExecutor() {
+        if (shardExecutor == null) {
+            synchronized (this) {
+                if (shardExecutor == null) {
+                    shardExecutor = new ShardExecutor();
+                }
+            }
+        }
+        return shardExecutor;
+    }
+
+    public void setShardExecutor(ShardExecutor shardExecutor) {
+        this.shardExecutor = shardExecutor;
+    }
+
+    /**
+     * If true, each 'addBatch' of a preparedStatement is routed by its own jdbc parameters and added to the batch of
+     * the physical table it belongs to, and 'executeBatch' executes the batches of different datasources in parallel.
+     * Like multi-shard query, sharded batch uses independent physical connections and only works in auto-commit mode.
+     */
+    public boolean isEnableShardedBatch() {
+        return enableShardedBatch;
+    }
+
+    public void setEnableShardedBatch(boolean enableShardedBatch) {
+        this.enableShardedBatch = enableShardedBatch;
+    }
+
+    /**
+     * listeners which are notified with the phase timings of each execution, see {@link StatementListener}
+     */
+    public List<StatementListener> getStatementListeners() {
+        return statementListeners;
+    }
+
+    public void setStatementListeners(List<StatementListener> statementListeners) {
+        this.statementListeners = new CopyOnWriteArrayList<>();
+        if (statementListeners != null) {
+            this.statementListeners.addAll(statementListeners);
+        }
+    }
+
+    public void addStatementListener(StatementListener statementListener) {
+        this.statementListeners.add(statementListener);
+    }
+
+    /**
+     * 在可写数据源上执行的异步查询
+     *
+     * @param params jdbc parameters, params[0] is bound to the first '?'
+     */
+    public <T> ShardFuture<List<T>> queryAsync(String sql, Object[] params, RowMapper<T> rowMapper)
+                                                                                                 throws SQLException {
+        return queryAsync(sql, params, false, rowMapper);
+    }
+
+    /**
+     * 异步查询:sql的解析和路由在当前线程中完成,物理sql按数据源分组在shardExecutor中执行,执行完成后在执行线程中合并结果集
+     * 并通过rowMapper映射为对象;可以通过ShardFuture.addCallback注册回调或通过ShardFuture.allAsList组合多个查询,不需要阻塞等待
+     *
+     * @param readOnly if true, the sql is executed on read-only datasources
+     */
+    public <T> ShardFuture<List<T>> queryAsync(String sql, Object[] params, boolean readOnly, RowMapper<T> rowMapper)
+                                                                                                                   throws SQLException {
+        if (rowMapper == null) {
+            throw new IllegalArgumentException("rowMapper can't be null");
+        }
+        Map<Object, Object> jdbcParam = new HashMap<>();
+        if (params != null) {
+            for (int i = 0; i < params.length; i++) {
+                jdbcParam.put(i + 1, params[i]);
+            }
+        }
+        SQLParsedResult parsedResult = parseSql0(sql, jdbcParam, null);
+        if (parsedResult.isUpdate()) {
+            throw new UnsupportedDataSourceInvocationException("Routed sqls " + parsedResult.getRoutedSqls()
+                                                               + " don't return result sets and can't be executed by "
+                                                               + "'queryAsync'");
+        }
+        Map<DataSourceWrapper, List<Integer>> groups = new LinkedHashMap<>();
+        if (parsedResult.isMultiRouted()) {
+            List<RoutedSQL> routedSqls = parsedResult.getRoutedSqls();
+            for (int i = 0; i < routedSqls.size(); i++) {
+                DataSourceParam param = new DataSourceParam();
+                param.setReadOnly(readOnly);
+                param.setScNames(routedSqls.get(i).getSchemas());
+                DataSourceWrapper dataSourceWrapper = getDataSource0(param);
+                List<Integer> list = groups.get(dataSourceWrapper);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    groups.put(dataSourceWrapper, list);
+                }
+                list.add(i);
+            }
+        } else {
+            DataSourceParam param = new DataSourceParam();
+            param.setReadOnly(readOnly);
+            param.setScNames(parsedResult.getSchemas());
+            groups.put(getDataSource0(param), Collections.singletonList(0));
+        }
+        AsyncShardQuery<T> query = new AsyncShardQuery<>(parsedResult, params, rowMapper);
+        query.start(getShardExecutor(), groups);
+        return query;
+    }
+
+    /**
+     * 以ddal hint开头的sql(见{@link SQLHint})直接按hint中的路由目标执行,不经过SQLParser和ShardRouter
+     */
+    private SQLParsedResult parseSql0(String sql, Map<Object, Object> jdbcParams, StatementEvent event) {
+        SQLParsedResult parsedResult = SQLHint.parse(sql);
+        if (parsedResult != null) {
+            return parsedResult;
+        }
+        if (event == null) {
+            return parseSql(sql, jdbcParams);
+        } else {
+            return parseSql(sql, jdbcParams, event);
+        }
+    }
+
+    /**
+     * 注册了监听器时使用,解析sql并记录解析和路由的耗时;默认不区分这两个阶段,全部计入解析耗时
+     */
+    protected SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams, StatementEvent event) {
+        long start = System.nanoTime();
+        try {
+            return parseSql(sql, jdbcParams);
+        } finally {
+            event.addParseNanos(System.nanoTime() - start);
+        }
+    }
 
     private DataSourceWrapper getDataSource0(DataSourceParam param) throws SQLException {
         DataSourceWrapper dataSourceWrapper = this.getDataSource(param);
@@ -108,10 +257,8 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
         return new ConnectionWrapper() {
 
             @Override
-            public ConnectionResult getConnection(DataSourceParam param) throws SQLException {
-                DataSourceWrapper dataSourceWrapper = getDataSource0(param);
-                return new ConnectionResult(dataSourceWrapper.getDataSource().getConnection(),
-                                            dataSourceWrapper.getSchemas());
+            public Connection getConnection(DataSourceWrapper dataSourceWrapper) throws SQLException {
+                return dataSourceWrapper.getDataSource().getConnection();
             }
         };
     }
@@ -121,22 +268,26 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
         return new ConnectionWrapper() {
 
             @Override
-            public ConnectionResult getConnection(DataSourceParam param) throws SQLException {
-                DataSourceWrapper dataSourceWrapper = getDataSource0(param);
-                return new ConnectionResult(dataSourceWrapper.getDataSource().getConnection(username, password),
-                                            dataSourceWrapper.getSchemas());
+            public Connection getConnection(DataSourceWrapper dataSourceWrapper) throws SQLException {
+                return dataSourceWrapper.getDataSource().getConnection(username, password);
             }
         };
     }
 
     private class ConnectionResult {
 
-        private Connection  connection;
-        private Set<String> schemas;
+        private Connection        connection;
+        private Set<String>       schemas;
+        private DataSourceWrapper dataSourceWrapper;
 
-        public ConnectionResult(Connection connection, Set<String> schemas) {
+        public ConnectionResult(Connection connection, Set<String> schemas, DataSourceWrapper dataSourceWrapper) {
             this.connection = connection;
             this.schemas = schemas;
+            this.dataSourceWrapper = dataSourceWrapper;
+        }
+
+        public DataSourceWrapper getDataSourceWrapper() {
+            return dataSourceWrapper;
         }
 
         public Connection getConnection() {
@@ -310,24 +461,49 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
             }
         }
 
-        private volatile ConnectionResult       connectionResult;
+        // 保护连接状态;使用ReentrantLock而不是synchronized,在虚拟线程中等待锁或在持有锁时阻塞不会占用载体线程
+        private final ReentrantLock                        lock               = new ReentrantLock();
+        // 当前(最近使用的)物理连接
+        private volatile ConnectionResult                  connectionResult;
+        // 已获取的物理连接,key为物理数据源;自动提交模式下同一数据源的sql复用同一个物理连接
+        private final Map<DataSource, ConnectionResult>    connections        = new LinkedHashMap<>(2);
+        // 未调用setAutoCommit时,第一个物理连接的autoCommit状态,避免每次执行sql都调用getAutoCommit()
+        private Boolean                                    physicalAutoCommit = null;
+        // 是否已调用close(),由lock保护;获取物理连接期间会释放lock,重新获得lock后需要检查
+        private boolean                                    closed             = false;
 
-        private volatile ConnectionPropertyBean prop = new ConnectionPropertyBean();
-        private volatile InvocationTag          tag  = new InvocationTag();
+        private volatile ConnectionPropertyBean            prop               = new ConnectionPropertyBean();
+        private volatile InvocationTag                     tag                = new InvocationTag();
 
         private boolean isReadOnly0() {
             return prop.isReadOnly();
         }
 
+        /**
+         * 自动提交模式下statement不绑定到当前物理连接的schemas,可以路由到任意数据源
+         */
         private Set<String> getSchemas0() {
-            if (connectionResult == null) {
-                return null;
+            lock.lock();
+            try {
+                if (connectionResult == null || isAutoCommit0()) {
+                    return null;
+                } else {
+                    return connectionResult.getSchemas();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean isAutoCommit0() {
+            if (tag.isAutoCommit()) {
+                return prop.isAutoCommit();
             } else {
-                return connectionResult.getSchemas();
+                return physicalAutoCommit == null || physicalAutoCommit;
             }
         }
 
-        public abstract ConnectionResult getConnection(DataSourceParam param) throws SQLException;
+        public abstract Connection getConnection(DataSourceWrapper dataSourceWrapper) throws SQLException;
 
         private Connection getConnection1() {
             if (connectionResult == null) {
@@ -349,97 +525,310 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
             }
         }
 
-        private ConnectionResult getConnection0(DataSourceParam param) throws SQLException {
-            if (this.connectionResult == null || this.connectionResult.getConnection().getAutoCommit()) {
-                if (this.connectionResult != null && this.connectionResult.getConnection() != null) {
-                    closeConnection0(this.connectionResult.getConnection());
+        /**
+         * 1.非自动提交模式下,已有物理连接时直接使用该连接,sql使用的schema不在该连接上时抛出CrossDataSourceException;
+         * 2.自动提交模式下,按路由到的物理数据源复用已获取的连接,没有时从数据源获取并回放连接属性;
+         * 3.调用时需要持有lock;从数据源获取物理连接期间会释放lock,避免连接池阻塞时其他线程无法使用当前连接,
+         *   重新获得lock后如果其他线程已经绑定了连接,则关闭新获取的连接并使用已绑定的连接;
+         *   如果期间连接已被关闭,则关闭新获取的连接并抛出SQLException;
+         */
+        private ConnectionResult getConnection0(DataSourceParam param, StatementEvent event) throws SQLException {
+            checkClosed0();
+            ConnectionResult result = getTransactionConnection0(param);
+            if (result != null) {
+                return result;
+            }
+            long start = event == null ? 0 : System.nanoTime();
+            DataSourceWrapper dataSourceWrapper = getDataSource0(param);
+            if (event != null) {
+                long now = System.nanoTime();
+                event.addDataSourceNanos(now - start);
+                start = now;
+            }
+            result = connections.get(dataSourceWrapper.getDataSource());
+            if (result == null) {
+                Connection connection = null;
+                lock.unlock();
+                try {
+                    connection = getConnection(dataSourceWrapper);
+                } finally {
+                    lock.lock();
                 }
-                ConnectionResult connectionResult = getConnection(param);
-                Connection connection = connectionResult.getConnection();
-                // playback
-                if (tag.isAutoCommit()) {
-                    connection.setAutoCommit(prop.isAutoCommit());
+                if (event != null) {
+                    event.addConnectionNanos(System.nanoTime() - start);
                 }
-                if (tag.isReadOnly()) {
-                    connection.setReadOnly(prop.isReadOnly());
+                try {
+                    checkClosed0();
+                    result = getTransactionConnection0(param);
+                    if (result == null) {
+                        result = connections.get(dataSourceWrapper.getDataSource());
+                    }
+                    if (result == null) {
+                        // playback
+                        playbackInvocation(connection);
+                        if (!tag.isAutoCommit() && physicalAutoCommit == null) {
+                            physicalAutoCommit = connection.getAutoCommit();
+                        }
+                        result = new ConnectionResult(connection, dataSourceWrapper.getSchemas(), dataSourceWrapper);
+                        connections.put(dataSourceWrapper.getDataSource(), result);
+                    } else {
+                        closeConnection0(connection);
+                    }
+                } catch (SQLException | RuntimeException e) {
+                    closeConnection0(connection);
+                    throw e;
                 }
-                if (tag.isSchema()) {
-                    connection.setSchema(prop.getSchema());
+            }
+            this.connectionResult = result;
+            return result;
+        }
+
+        private void checkClosed0() throws SQLException {
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+        }
+
+        private ConnectionResult getTransactionConnection0(DataSourceParam param) {
+            if (this.connectionResult == null || isAutoCommit0()) {
+                return null;
+            }
+            Set<String> schemas = connectionResult.getSchemas();
+            if (schemas != null && param.getScNames() != null && !schemas.containsAll(param.getScNames())) {
+                throw new CrossDataSourceException("Current transaction is bound on schemas:"
+                                                   + DDRJSONUtils.toJSONString(schemas)
+                                                   + ", but current sql is using schemas:"
+                                                   + DDRJSONUtils.toJSONString(param.getScNames()));
+            }
+            return connectionResult;
+        }
+
+        /**
+         * 关闭除当前连接外的其他物理连接,进入事务前调用以保证事务只在一个物理连接上执行
+         */
+        private void closeOtherConnections0() {
+            Iterator<ConnectionResult> it = connections.values().iterator();
+            while (it.hasNext()) {
+                ConnectionResult result = it.next();
+                if (result != connectionResult) {
+                    closeConnection0(result.getConnection());
+                    it.remove();
                 }
-                if (tag.isTypeMap()) {
-                    connection.setTypeMap(prop.getTypeMap());
+            }
+        }
+
+        /**
+         * 事务结束后释放事务所在的物理连接;自动提交模式下复用的其他物理连接保留到close()或setAutoCommit(false)
+         */
+        private void releaseConnection0() {
+            Iterator<ConnectionResult> it = connections.values().iterator();
+            while (it.hasNext()) {
+                if (it.next() == connectionResult) {
+                    it.remove();
                 }
-                if (tag.isTransactionIsolation()) {
-                    connection.setTransactionIsolation(prop.getTransactionIsolation());
+            }
+            closeConnection0(connectionResult.getConnection());
+            connectionResult = null;
+        }
+
+        private void playbackInvocation(Connection connection) throws SQLException {
+            if (tag.isAutoCommit()) {
+                connection.setAutoCommit(prop.isAutoCommit());
+            }
+            if (tag.isReadOnly()) {
+                connection.setReadOnly(prop.isReadOnly());
+            }
+            if (tag.isSchema()) {
+                connection.setSchema(prop.getSchema());
+            }
+            if (tag.isTypeMap()) {
+                connection.setTypeMap(prop.getTypeMap());
+            }
+            if (tag.isTransactionIsolation()) {
+                connection.setTransactionIsolation(prop.getTransactionIsolation());
+            }
+            if (tag.isHoldability()) {
+                connection.setHoldability(prop.getHoldability());
+            }
+            if (tag.isCatalog()) {
+                connection.setCatalog(prop.getCatalog());
+            }
+        }
+
+        /**
+         * 多分片查询时为每个数据源获取独立的物理连接,该连接不绑定在当前ConnectionWrapper上,由调用方负责关闭;
+         * 由于多个物理连接之间无法保证事务,因此只支持自动提交模式
+         */
+        private Connection getShardConnection(DataSourceWrapper dataSourceWrapper) throws SQLException {
+            Connection connection = getConnection(dataSourceWrapper);
+            try {
+                playbackInvocation(connection);
+                if (!connection.getAutoCommit()) {
+                    throw new CrossDataSourceException(
+                                                       "Sql which is routed to multiple shards can only be executed in auto-commit mode");
                 }
-                if (tag.isHoldability()) {
-                    connection.setHoldability(prop.getHoldability());
+                return connection;
+            } catch (SQLException | RuntimeException e) {
+                closeConnection0(connection);
+                throw e;
+            }
+        }
+
+        private StatementWrapper newStatementWrapper(Statement statement, ConnectionResult connectionResult) {
+            StatementWrapper statementWrapper = new StatementWrapper(ConnectionWrapper.this, statement,
+                                                                     connectionResult.getSchemas());
+            statementWrapper.setDataSourceWrapper(connectionResult.getDataSourceWrapper());
+            return statementWrapper;
+        }
+
+        private abstract class InnerDDRStatement extends DDRStatementImpl {
+
+            public InnerDDRStatement() {
+                super(isReadOnly0(), getSchemas0());
+            }
+
+            protected abstract Statement createStatement0(Connection connection) throws SQLException;
+
+            @Override
+            public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) throws SQLException {
+                return parseSql0(sql, jdbcParams, getStatementEvent());
+            }
+
+            @Override
+            protected List<StatementListener> getStatementListeners() {
+                return AbstractDDRDataSource.this.getStatementListeners();
+            }
+
+            @Override
+            public StatementWrapper getStatement(DataSourceParam param, String sql) throws SQLException {
+                StatementEvent event = getStatementEvent();
+                lock.lock();
+                try {
+                    ConnectionResult connectionResult = getConnection0(param, event);
+                    long start = event == null ? 0 : System.nanoTime();
+                    Statement statement = createStatement0(connectionResult.getConnection());
+                    if (event != null) {
+                        event.addPrepareNanos(System.nanoTime() - start);
+                    }
+                    return newStatementWrapper(statement, connectionResult);
+                } finally {
+                    lock.unlock();
                 }
-                if (tag.isCatalog()) {
-                    connection.setCatalog(prop.getCatalog());
+            }
+
+            @Override
+            public DataSourceWrapper getDataSource(DataSourceParam param) throws SQLException {
+                return getDataSource0(param);
+            }
+
+            @Override
+            public Connection getShardConnection(DataSourceWrapper dataSourceWrapper) throws SQLException {
+                return ConnectionWrapper.this.getShardConnection(dataSourceWrapper);
+            }
+
+            @Override
+            public Statement createShardStatement(Connection connection, String sql) throws SQLException {
+                return createStatement0(connection);
+            }
+
+            @Override
+            public ShardExecutor getShardExecutor() {
+                return AbstractDDRDataSource.this.getShardExecutor();
+            }
+        }
+
+        private abstract class InnerDDRPreparedStatement extends DDRPreparedStatementImpl {
+
+            public InnerDDRPreparedStatement(String sql) {
+                super(sql, isReadOnly0(), getSchemas0());
+            }
+
+            protected abstract PreparedStatement prepareStatement0(Connection connection, String routedSql)
+                                                                                                          throws SQLException;
+
+            @Override
+            public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) throws SQLException {
+                return parseSql0(sql, jdbcParams, getStatementEvent());
+            }
+
+            @Override
+            protected List<StatementListener> getStatementListeners() {
+                return AbstractDDRDataSource.this.getStatementListeners();
+            }
+
+            @Override
+            public StatementWrapper getStatement(DataSourceParam param, String routedSql) throws SQLException {
+                StatementEvent event = getStatementEvent();
+                lock.lock();
+                try {
+                    ConnectionResult connectionResult = getConnection0(param, event);
+                    long start = event == null ? 0 : System.nanoTime();
+                    Statement statement = prepareStatement0(connectionResult.getConnection(), routedSql);
+                    if (event != null) {
+                        event.addPrepareNanos(System.nanoTime() - start);
+                    }
+                    return newStatementWrapper(statement, connectionResult);
+                } finally {
+                    lock.unlock();
                 }
-                this.connectionResult = connectionResult;
             }
-            return connectionResult;
+
+            @Override
+            public DataSourceWrapper getDataSource(DataSourceParam param) throws SQLException {
+                return getDataSource0(param);
+            }
+
+            @Override
+            public Connection getShardConnection(DataSourceWrapper dataSourceWrapper) throws SQLException {
+                return ConnectionWrapper.this.getShardConnection(dataSourceWrapper);
+            }
+
+            @Override
+            public Statement createShardStatement(Connection connection, String routedSql) throws SQLException {
+                return prepareStatement0(connection, routedSql);
+            }
+
+            @Override
+            protected boolean isShardedBatchEnabled() {
+                return enableShardedBatch;
+            }
+
+            @Override
+            public ShardExecutor getShardExecutor() {
+                return AbstractDDRDataSource.this.getShardExecutor();
+            }
         }
 
         @Override
         public Statement createStatement() throws SQLException {
-            return new DDRStatementImpl(isReadOnly0(), getSchemas0()) {
+            return new InnerDDRStatement() {
 
                 @Override
-                public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) throws SQLException {
-                    return AbstractDDRDataSource.this.parseSql(sql, jdbcParams);
-                }
-
-                @Override
-                public StatementWrapper getStatement(DataSourceParam param, String sql) throws SQLException {
-                    synchronized (ConnectionWrapper.this) {
-                        ConnectionResult connectionResult = getConnection0(param);
-                        Statement statement = connectionResult.getConnection().createStatement();
-                        return new StatementWrapper(ConnectionWrapper.this, statement, connectionResult.getSchemas());
-                    }
+                protected Statement createStatement0(Connection connection) throws SQLException {
+                    return connection.createStatement();
                 }
             };
         }
 
         @Override
         public PreparedStatement prepareStatement(String sql) throws SQLException {
-            return new DDRPreparedStatementImpl(sql, isReadOnly0(), getSchemas0()) {
+            return new InnerDDRPreparedStatement(sql) {
 
                 @Override
-                public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) throws SQLException {
-                    return AbstractDDRDataSource.this.parseSql(sql, jdbcParams);
-                }
-
-                @Override
-                public StatementWrapper getStatement(DataSourceParam param, String routedSql) throws SQLException {
-                    synchronized (ConnectionWrapper.this) {
-                        ConnectionResult connectionResult = getConnection0(param);
-                        Statement statement = connectionResult.getConnection().prepareStatement(routedSql);
-                        return new StatementWrapper(ConnectionWrapper.this, statement, connectionResult.getSchemas());
-                    }
+                protected PreparedStatement prepareStatement0(Connection connection, String routedSql)
+                                                                                                      throws SQLException {
+                    return connection.prepareStatement(routedSql);
                 }
             };
         }
 
         @Override
         public Statement createStatement(final int resultSetType, final int resultSetConcurrency) throws SQLException {
-            return new DDRStatementImpl(isReadOnly0(), getSchemas0()) {
-
-                @Override
-                public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) throws SQLException {
-                    return AbstractDDRDataSource.this.parseSql(sql, jdbcParams);
-                }
+            return new InnerDDRStatement() {
 
                 @Override
-                public StatementWrapper getStatement(DataSourceParam param, String sql) throws SQLException {
-                    synchronized (ConnectionWrapper.this) {
-                        ConnectionResult connectionResult = getConnection0(param);
-                        Statement statement = connectionResult.getConnection().createStatement(resultSetType,
-                                                                                               resultSetConcurrency);
-                        return new StatementWrapper(ConnectionWrapper.this, statement, connectionResult.getSchemas());
-                    }
+                protected Statement createStatement0(Connection connection) throws SQLException {
+                    return connection.createStatement(resultSetType, resultSetConcurrency);
                 }
             };
         }
@@ -447,22 +836,12 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
         @Override
         public PreparedStatement prepareStatement(String sql, final int resultSetType, final int resultSetConcurrency)
                                                                                                                       throws SQLException {
-            return new DDRPreparedStatementImpl(sql, isReadOnly0(), getSchemas0()) {
-
-                @Override
-                public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) throws SQLException {
-                    return AbstractDDRDataSource.this.parseSql(sql, jdbcParams);
-                }
+            return new InnerDDRPreparedStatement(sql) {
 
                 @Override
-                public StatementWrapper getStatement(DataSourceParam param, String routedSql) throws SQLException {
-                    synchronized (ConnectionWrapper.this) {
-                        ConnectionResult connectionResult = getConnection0(param);
-                        Statement statement = connectionResult.getConnection().prepareStatement(routedSql,
-                                                                                                resultSetType,
-                                                                                                resultSetConcurrency);
-                        return new StatementWrapper(ConnectionWrapper.this, statement, connectionResult.getSchemas());
-                    }
+                protected PreparedStatement prepareStatement0(Connection connection, String routedSql)
+                                                                                                      throws SQLException {
+                    return connection.prepareStatement(routedSql, resultSetType, resultSetConcurrency);
                 }
             };
         }
@@ -470,21 +849,11 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
         @Override
         public Statement createStatement(final int resultSetType, final int resultSetConcurrency,
                                          final int resultSetHoldability) throws SQLException {
-            return new DDRStatementImpl(isReadOnly0(), getSchemas0()) {
+            return new InnerDDRStatement() {
 
                 @Override
-                public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) throws SQLException {
-                    return AbstractDDRDataSource.this.parseSql(sql, jdbcParams);
-                }
-
-                @Override
-                public StatementWrapper getStatement(DataSourceParam param, String sql) throws SQLException {
-                    synchronized (ConnectionWrapper.this) {
-                        ConnectionResult connectionResult = getConnection0(param);
-                        Statement statement = connection.createStatement(resultSetType, resultSetConcurrency,
-                                                                         resultSetHoldability);
-                        return new StatementWrapper(ConnectionWrapper.this, statement, connectionResult.getSchemas());
-                    }
+                protected Statement createStatement0(Connection connection) throws SQLException {
+                    return connection.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
                 }
             };
         }
@@ -492,423 +861,561 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
         @Override
         public PreparedStatement prepareStatement(String sql, final int resultSetType, final int resultSetConcurrency,
                                                   final int resultSetHoldability) throws SQLException {
-            return new DDRPreparedStatementImpl(sql, isReadOnly0(), getSchemas0()) {
-
-                @Override
-                public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) throws SQLException {
-                    return AbstractDDRDataSource.this.parseSql(sql, jdbcParams);
-                }
+            return new InnerDDRPreparedStatement(sql) {
 
                 @Override
-                public StatementWrapper getStatement(DataSourceParam param, String routedSql) throws SQLException {
-                    synchronized (ConnectionWrapper.this) {
-                        ConnectionResult connectionResult = getConnection0(param);
-                        Statement statement = connection.prepareStatement(routedSql, resultSetType,
-                                                                          resultSetConcurrency, resultSetHoldability);
-                        return new StatementWrapper(ConnectionWrapper.this, statement, connectionResult.getSchemas());
-                    }
+                protected PreparedStatement prepareStatement0(Connection connection, String routedSql)
+                                                                                                      throws SQLException {
+                    return connection.prepareStatement(routedSql, resultSetType, resultSetConcurrency,
+                                                       resultSetHoldability);
                 }
             };
         }
 
         @Override
         public PreparedStatement prepareStatement(String sql, final int autoGeneratedKeys) throws SQLException {
-            return new DDRPreparedStatementImpl(sql, isReadOnly0(), getSchemas0()) {
-
-                @Override
-                public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) throws SQLException {
-                    return AbstractDDRDataSource.this.parseSql(sql, jdbcParams);
-                }
+            return new InnerDDRPreparedStatement(sql) {
 
                 @Override
-                public StatementWrapper getStatement(DataSourceParam param, String routedSql) throws SQLException {
-                    synchronized (ConnectionWrapper.this) {
-                        ConnectionResult connectionResult = getConnection0(param);
-                        Statement statement = connection.prepareStatement(routedSql, autoGeneratedKeys);
-                        return new StatementWrapper(ConnectionWrapper.this, statement, connectionResult.getSchemas());
-                    }
+                protected PreparedStatement prepareStatement0(Connection connection, String routedSql)
+                                                                                                      throws SQLException {
+                    return connection.prepareStatement(routedSql, autoGeneratedKeys);
                 }
             };
         }
 
         @Override
         public PreparedStatement prepareStatement(String sql, final int[] columnIndexes) throws SQLException {
-            return new DDRPreparedStatementImpl(sql, isReadOnly0(), getSchemas0()) {
+            return new InnerDDRPreparedStatement(sql) {
 
                 @Override
-                public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) throws SQLException {
-                    return AbstractDDRDataSource.this.parseSql(sql, jdbcParams);
-                }
-
-                @Override
-                public StatementWrapper getStatement(DataSourceParam param, String routedSql) throws SQLException {
-                    synchronized (ConnectionWrapper.this) {
-                        ConnectionResult connectionResult = getConnection0(param);
-                        Statement statement = connectionResult.getConnection().prepareStatement(routedSql,
-                                                                                                columnIndexes);
-                        return new StatementWrapper(ConnectionWrapper.this, statement, connectionResult.getSchemas());
-                    }
+                protected PreparedStatement prepareStatement0(Connection connection, String routedSql)
+                                                                                                      throws SQLException {
+                    return connection.prepareStatement(routedSql, columnIndexes);
                 }
             };
         }
 
         @Override
         public PreparedStatement prepareStatement(String sql, final String[] columnNames) throws SQLException {
-            return new DDRPreparedStatementImpl(sql, isReadOnly0(), getSchemas0()) {
-
-                @Override
-                public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) throws SQLException {
-                    return AbstractDDRDataSource.this.parseSql(sql, jdbcParams);
-                }
+            return new InnerDDRPreparedStatement(sql) {
 
                 @Override
-                public StatementWrapper getStatement(DataSourceParam param, String routedSql) throws SQLException {
-                    synchronized (ConnectionWrapper.this) {
-                        ConnectionResult connectionResult = getConnection0(param);
-                        Statement statement = connectionResult.getConnection().prepareStatement(routedSql, columnNames);
-                        return new StatementWrapper(ConnectionWrapper.this, statement, connectionResult.getSchemas());
-                    }
+                protected PreparedStatement prepareStatement0(Connection connection, String routedSql)
+                                                                                                      throws SQLException {
+                    return connection.prepareStatement(routedSql, columnNames);
                 }
             };
         }
 
         // 未初始化前可以调用的方法
         @Override
-        public synchronized void setAutoCommit(boolean autoCommit) throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                connection.setAutoCommit(autoCommit);
+        public void setAutoCommit(boolean autoCommit) throws SQLException {
+            lock.lock();
+            try {
+                if (!autoCommit) {
+                    closeOtherConnections0();
+                }
+                for (ConnectionResult result : connections.values()) {
+                    result.getConnection().setAutoCommit(autoCommit);
+                }
+                tag.setAutoCommit(true);
+                prop.setAutoCommit(autoCommit);
+            } finally {
+                lock.unlock();
             }
-            tag.setAutoCommit(true);
-            prop.setAutoCommit(autoCommit);
         }
 
         @Override
-        public synchronized void setReadOnly(boolean readOnly) throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                connection.setReadOnly(readOnly);
+        public void setReadOnly(boolean readOnly) throws SQLException {
+            lock.lock();
+            try {
+                for (ConnectionResult result : connections.values()) {
+                    result.getConnection().setReadOnly(readOnly);
+                }
+                tag.setReadOnly(true);
+                prop.setReadOnly(readOnly);
+            } finally {
+                lock.unlock();
             }
-            tag.setReadOnly(true);
-            prop.setReadOnly(readOnly);
         }
 
         @Override
-        public synchronized void setCatalog(String catalog) throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                connection.setCatalog(catalog);
+        public void setCatalog(String catalog) throws SQLException {
+            lock.lock();
+            try {
+                for (ConnectionResult result : connections.values()) {
+                    result.getConnection().setCatalog(catalog);
+                }
+                tag.setCatalog(true);
+                prop.setCatalog(catalog);
+            } finally {
+                lock.unlock();
             }
-            tag.setCatalog(true);
-            prop.setCatalog(catalog);
         }
 
         @Override
-        public synchronized void setTransactionIsolation(int level) throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                connection.setTransactionIsolation(level);
+        public void setTransactionIsolation(int level) throws SQLException {
+            lock.lock();
+            try {
+                for (ConnectionResult result : connections.values()) {
+                    result.getConnection().setTransactionIsolation(level);
+                }
+                tag.setTransactionIsolation(true);
+                prop.setTransactionIsolation(level);
+            } finally {
+                lock.unlock();
             }
-            tag.setTransactionIsolation(true);
-            prop.setTransactionIsolation(level);
         }
 
         @Override
-        public synchronized SQLWarning getWarnings() throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                return connection.getWarnings();
-            } else {
-                throw new UninitializedStatusException("Can't invoke 'getWarnings()' before connection is initialized");
+        public SQLWarning getWarnings() throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    return connection.getWarnings();
+                } else {
+                    throw new UninitializedStatusException("Can't invoke 'getWarnings()' before connection is initialized");
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized void clearWarnings() throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                connection.clearWarnings();
-            } else {
-                throw new UninitializedStatusException(
-                                                       "Can't invoke 'clearWarnings()' before connection is initialized");
+        public void clearWarnings() throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    connection.clearWarnings();
+                } else {
+                    throw new UninitializedStatusException(
+                                                           "Can't invoke 'clearWarnings()' before connection is initialized");
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized void setTypeMap(Map<String, Class<?>> map) throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                connection.setTypeMap(map);
+        public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+            lock.lock();
+            try {
+                for (ConnectionResult result : connections.values()) {
+                    result.getConnection().setTypeMap(map);
+                }
+                tag.setTypeMap(true);
+                prop.setTypeMap(map);
+            } finally {
+                lock.unlock();
             }
-            tag.setTypeMap(true);
-            prop.setTypeMap(map);
         }
 
         @Override
-        public synchronized void setHoldability(int holdability) throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                connection.setHoldability(holdability);
+        public void setHoldability(int holdability) throws SQLException {
+            lock.lock();
+            try {
+                for (ConnectionResult result : connections.values()) {
+                    result.getConnection().setHoldability(holdability);
+                }
+                tag.setHoldability(true);
+                prop.setHoldability(holdability);
+            } finally {
+                lock.unlock();
             }
-            tag.setHoldability(true);
-            prop.setHoldability(holdability);
         }
 
         @Override
-        public synchronized void setSchema(String schema) throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                connection.setSchema(schema);
+        public void setSchema(String schema) throws SQLException {
+            lock.lock();
+            try {
+                for (ConnectionResult result : connections.values()) {
+                    result.getConnection().setSchema(schema);
+                }
+                tag.setSchema(true);
+                prop.setSchema(schema);
+            } finally {
+                lock.unlock();
             }
-            tag.setSchema(true);
-            prop.setSchema(schema);
         }
 
         // 初始化后才能调动的方法
         @Override
-        public synchronized void setClientInfo(String name, String value) throws SQLClientInfoException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                connection.setClientInfo(name, value);
-            } else {
-                throw new UninitializedStatusException(
-                                                       "Can't invoke 'setClientInfo(String name, String value)' before connection is initialized");
+        public void setClientInfo(String name, String value) throws SQLClientInfoException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    connection.setClientInfo(name, value);
+                } else {
+                    throw new UninitializedStatusException(
+                                                           "Can't invoke 'setClientInfo(String name, String value)' before connection is initialized");
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized void setClientInfo(Properties properties) throws SQLClientInfoException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                connection.setClientInfo(properties);
-            } else {
-                throw new UninitializedStatusException(
-                                                       "Can't invoke 'setClientInfo(Properties properties)' before connection is initialized");
+        public void setClientInfo(Properties properties) throws SQLClientInfoException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    connection.setClientInfo(properties);
+                } else {
+                    throw new UninitializedStatusException(
+                                                           "Can't invoke 'setClientInfo(Properties properties)' before connection is initialized");
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized String getClientInfo(String name) throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                return connection.getClientInfo(name);
-            } else {
-                throw new UninitializedStatusException(
-                                                       "Can't invoke 'getClientInfo(String name)' before connection is initialized");
+        public String getClientInfo(String name) throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    return connection.getClientInfo(name);
+                } else {
+                    throw new UninitializedStatusException(
+                                                           "Can't invoke 'getClientInfo(String name)' before connection is initialized");
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized Properties getClientInfo() throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                return connection.getClientInfo();
-            } else {
-                throw new UninitializedStatusException(
-                                                       "Can't invoke 'getClientInfo()' before connection is initialized");
+        public Properties getClientInfo() throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    return connection.getClientInfo();
+                } else {
+                    throw new UninitializedStatusException(
+                                                           "Can't invoke 'getClientInfo()' before connection is initialized");
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                connection.setNetworkTimeout(executor, milliseconds);
-            } else {
-                throw new UninitializedStatusException(
-                                                       "Can't invoke 'setNetworkTimeout(Executor executor, int milliseconds)' before connection is initialized");
+        public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    connection.setNetworkTimeout(executor, milliseconds);
+                } else {
+                    throw new UninitializedStatusException(
+                                                           "Can't invoke 'setNetworkTimeout(Executor executor, int milliseconds)' before connection is initialized");
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized int getNetworkTimeout() throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                return connection.getNetworkTimeout();
-            } else {
-                throw new UninitializedStatusException(
-                                                       "Can't invoke 'getNetworkTimeout()' before connection is initialized");
+        public int getNetworkTimeout() throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    return connection.getNetworkTimeout();
+                } else {
+                    throw new UninitializedStatusException(
+                                                           "Can't invoke 'getNetworkTimeout()' before connection is initialized");
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized Savepoint setSavepoint() throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                return connection.setSavepoint();
-            } else {
-                throw new UninitializedStatusException("Can't invoke 'setSavepoint()' before connection is initialized");
+        public Savepoint setSavepoint() throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    return connection.setSavepoint();
+                } else {
+                    throw new UninitializedStatusException("Can't invoke 'setSavepoint()' before connection is initialized");
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized Savepoint setSavepoint(String name) throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                return connection.setSavepoint(name);
-            } else {
-                throw new UninitializedStatusException(
-                                                       "Can't invoke 'setSavepoint(name)' before connection is initialized");
+        public Savepoint setSavepoint(String name) throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    return connection.setSavepoint(name);
+                } else {
+                    throw new UninitializedStatusException(
+                                                           "Can't invoke 'setSavepoint(name)' before connection is initialized");
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized void rollback(Savepoint savepoint) throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                connection.rollback(savepoint);
-            } else {
-                throw new UninitializedStatusException(
-                                                       "Can't invoke 'rollback(Savepoint savepoint)' before connection is initialized");
+        public void rollback(Savepoint savepoint) throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    connection.rollback(savepoint);
+                } else {
+                    throw new UninitializedStatusException(
+                                                           "Can't invoke 'rollback(Savepoint savepoint)' before connection is initialized");
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized void releaseSavepoint(Savepoint savepoint) throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                connection.releaseSavepoint(savepoint);
-            } else {
-                throw new UninitializedStatusException(
-                                                       "Can't invoke 'releaseSavepoint(Savepoint savepoint)' before connection is initialized");
+        public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    connection.releaseSavepoint(savepoint);
+                } else {
+                    throw new UninitializedStatusException(
+                                                           "Can't invoke 'releaseSavepoint(Savepoint savepoint)' before connection is initialized");
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized Clob createClob() throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                return connection.createClob();
-            } else {
-                throw new UninitializedStatusException("Can't invoke 'createClob()' before connection is initialized");
+        public Clob createClob() throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    return connection.createClob();
+                } else {
+                    throw new UninitializedStatusException("Can't invoke 'createClob()' before connection is initialized");
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized Blob createBlob() throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                return connection.createBlob();
-            } else {
-                throw new UninitializedStatusException("Can't invoke 'createBlob()' before connection is initialized");
+        public Blob createBlob() throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    return connection.createBlob();
+                } else {
+                    throw new UninitializedStatusException("Can't invoke 'createBlob()' before connection is initialized");
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized NClob createNClob() throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                return connection.createNClob();
-            } else {
-                throw new UninitializedStatusException("Can't invoke 'createNClob()' before connection is initialized");
+        public NClob createNClob() throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    return connection.createNClob();
+                } else {
+                    throw new UninitializedStatusException("Can't invoke 'createNClob()' before connection is initialized");
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized SQLXML createSQLXML() throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                return connection.createSQLXML();
-            } else {
-                throw new UninitializedStatusException("Can't invoke 'createSQLXML()' before connection is initialized");
+        public SQLXML createSQLXML() throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    return connection.createSQLXML();
+                } else {
+                    throw new UninitializedStatusException("Can't invoke 'createSQLXML()' before connection is initialized");
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized boolean isValid(int timeout) throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                return connection.isValid(timeout);
-            } else {
-                throw new UninitializedStatusException(
-                                                       "Can't invoke 'isValid(int timeout)' before connection is initialized");
+        public boolean isValid(int timeout) throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    return connection.isValid(timeout);
+                } else {
+                    throw new UninitializedStatusException(
+                                                           "Can't invoke 'isValid(int timeout)' before connection is initialized");
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized Array createArrayOf(String typeName, Object[] elements) throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                return connection.createArrayOf(typeName, elements);
-            } else {
-                throw new UninitializedStatusException(
-                                                       "Can't invoke 'createArrayOf(String typeName, Object[] elements)' before connection is initialized");
+        public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    return connection.createArrayOf(typeName, elements);
+                } else {
+                    throw new UninitializedStatusException(
+                                                           "Can't invoke 'createArrayOf(String typeName, Object[] elements)' before connection is initialized");
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized Struct createStruct(String typeName, Object[] attributes) throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                return connection.createStruct(typeName, attributes);
-            } else {
-                throw new UninitializedStatusException(
-                                                       "Can't invoke 'createStruct(String typeName, Object[] attributes)' before connection is initialized");
+        public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    return connection.createStruct(typeName, attributes);
+                } else {
+                    throw new UninitializedStatusException(
+                                                           "Can't invoke 'createStruct(String typeName, Object[] attributes)' before connection is initialized");
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized void commit() throws SQLException {
-            if (connectionResult != null) {
-                connectionResult.getConnection().commit();
-                closeConnection0(connectionResult.getConnection());
-                connectionResult = null;
-            } else {
-                // ignore
+        public void commit() throws SQLException {
+            lock.lock();
+            try {
+                if (connectionResult != null) {
+                    connectionResult.getConnection().commit();
+                    if (!isAutoCommit0()) {
+                        releaseConnection0();
+                    }
+                } else {
+                    // ignore
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized void rollback() throws SQLException {
-            if (connectionResult != null) {
-                connectionResult.getConnection().rollback();
-                closeConnection0(connectionResult.getConnection());
-                connectionResult = null;
-            } else {
-                // ignore
+        public void rollback() throws SQLException {
+            lock.lock();
+            try {
+                if (connectionResult != null) {
+                    connectionResult.getConnection().rollback();
+                    if (!isAutoCommit0()) {
+                        releaseConnection0();
+                    }
+                } else {
+                    // ignore
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized void close() throws SQLException {
-            if (connectionResult != null) {
-                connectionResult.getConnection().close();
+        public void close() throws SQLException {
+            lock.lock();
+            try {
+                closed = true;
+                SQLException exception = null;
+                for (ConnectionResult result : connections.values()) {
+                    try {
+                        result.getConnection().close();
+                    } catch (SQLException e) {
+                        if (exception == null) {
+                            exception = e;
+                        }
+                    }
+                }
+                connections.clear();
                 connectionResult = null;
-            } else {
-                // ignore
+                if (exception != null) {
+                    throw exception;
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized boolean isClosed() throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {// TODO
-                return connection.isClosed();
-            } else {
-                return false;
+        public boolean isClosed() throws SQLException {
+            lock.lock();
+            try {
+                if (closed) {
+                    return true;
+                }
+                Connection connection = getConnection1();
+                if (connection != null) {// TODO
+                    return connection.isClosed();
+                } else {
+                    return false;
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
         // 需要初始化后才能调用的方法
         @Override
-        public synchronized void abort(Executor executor) throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                connection.abort(executor);
-            } else {
-                throw new UninitializedStatusException(
-                                                       "Can't invoke 'abort(Executor executor)' before connection is initialized");
+        public void abort(Executor executor) throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    connection.abort(executor);
+                } else {
+                    throw new UninitializedStatusException(
+                                                           "Can't invoke 'abort(Executor executor)' before connection is initialized");
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized String nativeSQL(String sql) throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                return connection.nativeSQL(sql);
-            } else {
-                throw new UninitializedStatusException(
-                                                       "Can't invoke 'nativeSQL(String sql)' before connection is initialized");
+        public String nativeSQL(String sql) throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    return connection.nativeSQL(sql);
+                } else {
+                    throw new UninitializedStatusException(
+                                                           "Can't invoke 'nativeSQL(String sql)' before connection is initialized");
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
@@ -945,176 +1452,215 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
         }
 
         @Override
-        public synchronized boolean isReadOnly() throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                return connection.isReadOnly();
-            } else if (tag.isReadOnly()) {
-                return prop.isReadOnly();
-            } else {
-                if (UninitializedConnectionProcessor.isSetDefaultValue(ConnectionProperty.readOnly)) {
-                    boolean val = (boolean) UninitializedConnectionProcessor.getDefaultValue(ConnectionProperty.readOnly);
-                    if (UninitializedConnectionProcessor.isSyncDefaultValue(ConnectionProperty.readOnly)) {
-                        prop.setReadOnly(val);
-                        tag.setReadOnly(true);
-                    }
-                    return val;
+        public boolean isReadOnly() throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    return connection.isReadOnly();
+                } else if (tag.isReadOnly()) {
+                    return prop.isReadOnly();
                 } else {
-                    throw new UninitializedStatusException(
-                                                           "Can't invoke 'isReadOnly()' before 'setReadOnly(boolean readOnly)' is invoked");
+                    if (UninitializedConnectionProcessor.isSetDefaultValue(ConnectionProperty.readOnly)) {
+                        boolean val = (boolean) UninitializedConnectionProcessor.getDefaultValue(ConnectionProperty.readOnly);
+                        if (UninitializedConnectionProcessor.isSyncDefaultValue(ConnectionProperty.readOnly)) {
+                            prop.setReadOnly(val);
+                            tag.setReadOnly(true);
+                        }
+                        return val;
+                    } else {
+                        throw new UninitializedStatusException(
+                                                               "Can't invoke 'isReadOnly()' before 'setReadOnly(boolean readOnly)' is invoked");
+                    }
                 }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized String getCatalog() throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                return connection.getCatalog();
-            } else if (tag.isCatalog()) {
-                return prop.getCatalog();
-            } else {
-                if (UninitializedConnectionProcessor.isSetDefaultValue(ConnectionProperty.catalog)) {
-                    String val = (String) UninitializedConnectionProcessor.getDefaultValue(ConnectionProperty.catalog);
-                    if (UninitializedConnectionProcessor.isSyncDefaultValue(ConnectionProperty.catalog)) {
-                        prop.setCatalog(val);
-                        tag.setCatalog(true);
-                    }
-                    return val;
+        public String getCatalog() throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    return connection.getCatalog();
+                } else if (tag.isCatalog()) {
+                    return prop.getCatalog();
                 } else {
-                    throw new UninitializedStatusException(
-                                                           "Can't invoke 'getCatalog()' before 'setCatalog(String catalog)' is invoked or connection is initialized");
+                    if (UninitializedConnectionProcessor.isSetDefaultValue(ConnectionProperty.catalog)) {
+                        String val = (String) UninitializedConnectionProcessor.getDefaultValue(ConnectionProperty.catalog);
+                        if (UninitializedConnectionProcessor.isSyncDefaultValue(ConnectionProperty.catalog)) {
+                            prop.setCatalog(val);
+                            tag.setCatalog(true);
+                        }
+                        return val;
+                    } else {
+                        throw new UninitializedStatusException(
+                                                               "Can't invoke 'getCatalog()' before 'setCatalog(String catalog)' is invoked or connection is initialized");
+                    }
                 }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized Map<String, Class<?>> getTypeMap() throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                return connection.getTypeMap();
-            } else if (tag.isTypeMap()) {
-                return prop.getTypeMap();
-            } else {
-                if (UninitializedConnectionProcessor.isSetDefaultValue(ConnectionProperty.typeMap)) {
-                    Map<String, Class<?>> val = (Map<String, Class<?>>) UninitializedConnectionProcessor.getDefaultValue(ConnectionProperty.typeMap);
-                    if (UninitializedConnectionProcessor.isSyncDefaultValue(ConnectionProperty.typeMap)) {
-                        prop.setTypeMap(val);
-                        tag.setTypeMap(true);
-                    }
-                    return val;
+        public Map<String, Class<?>> getTypeMap() throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    return connection.getTypeMap();
+                } else if (tag.isTypeMap()) {
+                    return prop.getTypeMap();
                 } else {
-                    throw new UninitializedStatusException(
-                                                           "Can't invoke 'getTypeMap()' before 'setTypeMap(Map<String, Class<?>> map)' is invoked or connection is initialized");
+                    if (UninitializedConnectionProcessor.isSetDefaultValue(ConnectionProperty.typeMap)) {
+                        Map<String, Class<?>> val = (Map<String, Class<?>>) UninitializedConnectionProcessor.getDefaultValue(ConnectionProperty.typeMap);
+                        if (UninitializedConnectionProcessor.isSyncDefaultValue(ConnectionProperty.typeMap)) {
+                            prop.setTypeMap(val);
+                            tag.setTypeMap(true);
+                        }
+                        return val;
+                    } else {
+                        throw new UninitializedStatusException(
+                                                               "Can't invoke 'getTypeMap()' before 'setTypeMap(Map<String, Class<?>> map)' is invoked or connection is initialized");
+                    }
                 }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized int getHoldability() throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                return connection.getHoldability();
-            } else if (tag.isHoldability()) {
-                return prop.getHoldability();
-            } else {
-                if (UninitializedConnectionProcessor.isSetDefaultValue(ConnectionProperty.holdability)) {
-                    int val = ((Number) UninitializedConnectionProcessor.getDefaultValue(ConnectionProperty.holdability)).intValue();
-                    if (UninitializedConnectionProcessor.isSyncDefaultValue(ConnectionProperty.holdability)) {
-                        prop.setHoldability(val);
-                        tag.setHoldability(true);
-                    }
-                    return val;
+        public int getHoldability() throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    return connection.getHoldability();
+                } else if (tag.isHoldability()) {
+                    return prop.getHoldability();
                 } else {
-                    throw new UninitializedStatusException(
-                                                           "Can't invoke 'getHoldability()' before 'setHoldability(int holdability)' is invoked or connection is initialized");
+                    if (UninitializedConnectionProcessor.isSetDefaultValue(ConnectionProperty.holdability)) {
+                        int val = ((Number) UninitializedConnectionProcessor.getDefaultValue(ConnectionProperty.holdability)).intValue();
+                        if (UninitializedConnectionProcessor.isSyncDefaultValue(ConnectionProperty.holdability)) {
+                            prop.setHoldability(val);
+                            tag.setHoldability(true);
+                        }
+                        return val;
+                    } else {
+                        throw new UninitializedStatusException(
+                                                               "Can't invoke 'getHoldability()' before 'setHoldability(int holdability)' is invoked or connection is initialized");
+                    }
                 }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized DatabaseMetaData getMetaData() throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                return connection.getMetaData();
-            } else {
-                if (UninitializedConnectionProcessor.isSetDefaultValue(ConnectionProperty.metaData)) {
-                    DatabaseMetaData val = (DatabaseMetaData) UninitializedConnectionProcessor.getDefaultValue(ConnectionProperty.metaData);
-                    if (UninitializedConnectionProcessor.isSyncDefaultValue(ConnectionProperty.metaData)) {
-                        prop.setMetaData(val);
-                        tag.setMetaData(true);
-                    }
-                    return val;
+        public DatabaseMetaData getMetaData() throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    return connection.getMetaData();
                 } else {
-                    throw new UninitializedStatusException(
-                                                           "Can't invoke 'getMetaData()' before connection is initialized");
+                    if (UninitializedConnectionProcessor.isSetDefaultValue(ConnectionProperty.metaData)) {
+                        DatabaseMetaData val = (DatabaseMetaData) UninitializedConnectionProcessor.getDefaultValue(ConnectionProperty.metaData);
+                        if (UninitializedConnectionProcessor.isSyncDefaultValue(ConnectionProperty.metaData)) {
+                            prop.setMetaData(val);
+                            tag.setMetaData(true);
+                        }
+                        return val;
+                    } else {
+                        throw new UninitializedStatusException(
+                                                               "Can't invoke 'getMetaData()' before connection is initialized");
+                    }
                 }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized String getSchema() throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                return connection.getSchema();
-            } else if (tag.isSchema()) {
-                return prop.getSchema();
-            } else {
-                if (UninitializedConnectionProcessor.isSetDefaultValue(ConnectionProperty.schema)) {
-                    String val = (String) UninitializedConnectionProcessor.getDefaultValue(ConnectionProperty.schema);
-                    if (UninitializedConnectionProcessor.isSyncDefaultValue(ConnectionProperty.schema)) {
-                        prop.setSchema(val);
-                        tag.setSchema(true);
-                    }
-                    return val;
+        public String getSchema() throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    return connection.getSchema();
+                } else if (tag.isSchema()) {
+                    return prop.getSchema();
                 } else {
-                    throw new UninitializedStatusException(
-                                                           "Can't invoke 'getSchema()' before 'setSchema(String schema)' is invoked or connection is initialized");
+                    if (UninitializedConnectionProcessor.isSetDefaultValue(ConnectionProperty.schema)) {
+                        String val = (String) UninitializedConnectionProcessor.getDefaultValue(ConnectionProperty.schema);
+                        if (UninitializedConnectionProcessor.isSyncDefaultValue(ConnectionProperty.schema)) {
+                            prop.setSchema(val);
+                            tag.setSchema(true);
+                        }
+                        return val;
+                    } else {
+                        throw new UninitializedStatusException(
+                                                               "Can't invoke 'getSchema()' before 'setSchema(String schema)' is invoked or connection is initialized");
+                    }
                 }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized int getTransactionIsolation() throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                return connection.getTransactionIsolation();
-            } else if (tag.isTransactionIsolation()) {
-                return prop.getTransactionIsolation();
-            } else {
-                if (UninitializedConnectionProcessor.isSetDefaultValue(ConnectionProperty.transactionIsolation)) {
-                    int val = ((Number) UninitializedConnectionProcessor.getDefaultValue(ConnectionProperty.transactionIsolation)).intValue();
-                    if (UninitializedConnectionProcessor.isSyncDefaultValue(ConnectionProperty.transactionIsolation)) {
-                        prop.setTransactionIsolation(val);
-                        tag.setTransactionIsolation(true);
-                    }
-                    return val;
+        public int getTransactionIsolation() throws SQLException {
+            lock.lock();
+            try {
+                Connection connection = getConnection1();
+                if (connection != null) {
+                    return connection.getTransactionIsolation();
+                } else if (tag.isTransactionIsolation()) {
+                    return prop.getTransactionIsolation();
                 } else {
-                    throw new UninitializedStatusException(
-                                                           "Can't invoke 'getTransactionIsolation()' before 'setTransactionIsolation(int level)' is invoked or connection is initialized");
+                    if (UninitializedConnectionProcessor.isSetDefaultValue(ConnectionProperty.transactionIsolation)) {
+                        int val = ((Number) UninitializedConnectionProcessor.getDefaultValue(ConnectionProperty.transactionIsolation)).intValue();
+                        if (UninitializedConnectionProcessor.isSyncDefaultValue(ConnectionProperty.transactionIsolation)) {
+                            prop.setTransactionIsolation(val);
+                            tag.setTransactionIsolation(true);
+                        }
+                        return val;
+                    } else {
+                        throw new UninitializedStatusException(
+                                                               "Can't invoke 'getTransactionIsolation()' before 'setTransactionIsolation(int level)' is invoked or connection is initialized");
+                    }
                 }
+            } finally {
+                lock.unlock();
             }
         }
 
         @Override
-        public synchronized boolean getAutoCommit() throws SQLException {
-            Connection connection = getConnection1();
-            if (connection != null) {
-                return connection.getAutoCommit();
-            } else if (tag.isAutoCommit()) {
-                return prop.isAutoCommit();
-            } else {
-                if (UninitializedConnectionProcessor.isSetDefaultValue(ConnectionProperty.autoCommit)) {
-                    boolean val = (boolean) UninitializedConnectionProcessor.getDefaultValue(ConnectionProperty.autoCommit);
-                    if (UninitializedConnectionProcessor.isSyncDefaultValue(ConnectionProperty.autoCommit)) {
-                        prop.setAutoCommit(val);
-                        tag.setAutoCommit(true);
-                    }
-                    return val;
+        public boolean getAutoCommit() throws SQLException {
+            lock.lock();
+            try {
+                if (tag.isAutoCommit()) {
+                    return prop.isAutoCommit();
+                } else if (physicalAutoCommit != null) {
+                    return physicalAutoCommit;
                 } else {
-                    throw new UninitializedStatusException(
-                                                           "Can't invoke 'getAutoCommit()' before connection is initialized");
+                    if (UninitializedConnectionProcessor.isSetDefaultValue(ConnectionProperty.autoCommit)) {
+                        boolean val = (boolean) UninitializedConnectionProcessor.getDefaultValue(ConnectionProperty.autoCommit);
+                        if (UninitializedConnectionProcessor.isSyncDefaultValue(ConnectionProperty.autoCommit)) {
+                            prop.setAutoCommit(val);
+                            tag.setAutoCommit(true);
+                        }
+                        return val;
+                    } else {
+                        throw new UninitializedStatusException(
+                                                               "Can't invoke 'getAutoCommit()' before connection is initialized");
+                    }
                 }
+            } finally {
+                lock.unlock();
             }
         }
     }
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc;
+
+import org.hellojavaer.ddal.ddr.datasource.jdbc.executor.ShardCallback;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.executor.ShardExecutor;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.executor.ShardFuture;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.merge.IteratorMergedResultSet;
+import org.hellojavaer.ddal.ddr.sqlparse.RoutedSQL;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * 异步查询:sql的解析和路由在调用线程中完成,物理sql按数据源分组后在shardExecutor中执行(每组使用一个独立的物理连接);
+ * 所有分组执行完成后在最后完成的执行线程中合并结果集并映射为对象,整个过程不阻塞调用线程
+ */
+class AsyncShardQuery<T> extends ShardFuture<List<T>> {
+
+    private SQLParsedResult         parsedResult;
+    private Object[]                params;
+    private RowMapper<T>            rowMapper;
+    private ResultSet[]             resultSets;
+
+    private List<ShardFuture<Void>> futures;
+    private List<AutoCloseable>     resources = new ArrayList<>(); // guarded by resources
+    private boolean                 released  = false;            // guarded by resources
+
+    public AsyncShardQuery(SQLParsedResult parsedResult, Object[] params, RowMapper<T> rowMapper) {
+        this.parsedResult = parsedResult;
+        this.params = params;
+        this.rowMapper = rowMapper;
+        this.resultSets = new ResultSet[parsedResult.isMultiRouted() ? parsedResult.getRoutedSqls().size() : 1];
+    }
+
+    /**
+     * @param groups indexes of routed sqls grouped by datasource, index is 0 if sql isn't multi-routed
+     */
+    public void start(ShardExecutor executor, Map<DataSourceWrapper, List<Integer>> groups) {
+        futures = new ArrayList<>(groups.size());
+        for (Map.Entry<DataSourceWrapper, List<Integer>> entry : groups.entrySet()) {
+            futures.add(executor.submit(entry.getKey(), new GroupTask(entry.getKey(), entry.getValue())));
+        }
+        ShardFuture.allAsList(futures).addCallback(new ShardCallback<List<Void>>() {
+
+            @Override
+            public void onSuccess(List<Void> result) {
+                merge();
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                fail(e);
+                release();
+            }
+        });
+    }
+
+    private void merge() {
+        List<AutoCloseable> list = null;
+        synchronized (resources) {
+            if (released) {
+                return;
+            }
+            released = true;
+            list = new ArrayList<>(resources);
+            resources.clear();
+        }
+        ResultSet resultSet = null;
+        try {
+            if (parsedResult.isMultiRouted()) {
+                resultSet = DDRStatementImpl.mergeResultSets(null, parsedResult, Arrays.asList(resultSets), list);
+            } else {
+                resultSet = new IteratorMergedResultSet(null, Arrays.asList(resultSets), list);
+            }
+            List<T> rows = new ArrayList<>();
+            int rowNum = 0;
+            while (resultSet.next()) {
+                rows.add(rowMapper.mapRow(resultSet, rowNum++));
+            }
+            complete(rows);
+        } catch (Throwable e) {
+            fail(e);
+        } finally {
+            if (resultSet != null) {
+                closeQuietly(resultSet);
+            } else {
+                closeQuietly(list);
+            }
+        }
+    }
+
+    private void release() {
+        List<AutoCloseable> list = null;
+        synchronized (resources) {
+            released = true;
+            list = new ArrayList<>(resources);
+            resources.clear();
+        }
+        closeQuietly(list);
+    }
+
+    @Override
+    protected void done() {
+        if (isCancelled()) {
+            for (ShardFuture<Void> future : futures) {
+                future.cancel(false);
+            }
+            release();
+        }
+        super.done();
+    }
+
+    private static void closeQuietly(List<AutoCloseable> list) {
+        for (AutoCloseable item : list) {
+            closeQuietly(item);
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            // ignore
+        }
+    }
+
+    private class GroupTask implements Callable<Void> {
+
+        private DataSourceWrapper dataSourceWrapper;
+        private List<Integer>     indexes;
+
+        public GroupTask(DataSourceWrapper dataSourceWrapper, List<Integer> indexes) {
+            this.dataSourceWrapper = dataSourceWrapper;
+            this.indexes = indexes;
+        }
+
+        @Override
+        public Void call() throws Exception {
+            List<AutoCloseable> list = new ArrayList<>();
+            Connection connection = null;
+            try {
+                connection = dataSourceWrapper.getDataSource().getConnection();
+                for (Integer index : indexes) {
+                    RoutedSQL routedSql = null;
+                    String sql = parsedResult.getSql();
+                    if (parsedResult.isMultiRouted()) {
+                        routedSql = parsedResult.getRoutedSqls().get(index);
+                        sql = routedSql.getSql();
+                    }
+                    PreparedStatement statement = connection.prepareStatement(sql);
+                    list.add(statement);
+                    bindParams(statement, routedSql);
+                    resultSets[index] = statement.executeQuery();
+                }
+            } catch (Throwable e) {
+                if (connection != null) {
+                    list.add(connection);
+                }
+                closeQuietly(list);
+                throw e;
+            }
+            list.add(connection);
+            synchronized (resources) {
+                if (!released) {
+                    resources.addAll(list);
+                    return null;
+                }
+            }
+            closeQuietly(list);// 已取消
+            return null;
+        }
+
+        private void bindParams(PreparedStatement statement, RoutedSQL routedSql) throws Exception {
+            if (params != null) {
+                for (int i = 0; i < params.length; i++) {
+                    int index = routedSql == null ? i + 1 : routedSql.getPhysicalJdbcParamIndex(i + 1);
+                    if (index > 0) {
+                        statement.setObject(index, params[i]);
+                    }
+                }
+            }
+            if (routedSql != null && parsedResult.getOverriddenJdbcParams() != null) {
+                for (Map.Entry<Integer, Object> entry : parsedResult.getOverriddenJdbcParams().entrySet()) {
+                    int index = routedSql.getPhysicalJdbcParamIndex(entry.getKey());
+                    if (index > 0) {
+                        statement.setObject(index, entry.getValue());
+                    }
+                }
+            }
+        }
+    }
+}
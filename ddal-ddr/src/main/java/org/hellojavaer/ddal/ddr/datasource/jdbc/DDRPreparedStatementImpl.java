@@ -16,10 +16,14 @@
 package org.hellojavaer.ddal.ddr.datasource.jdbc;
 
 import org.hellojavaer.ddal.ddr.datasource.exception.CrossDataSourceException;
+import org.hellojavaer.ddal.ddr.datasource.exception.CrossPreparedStatementException;
 import org.hellojavaer.ddal.ddr.datasource.exception.StatementInitializationException;
 import org.hellojavaer.ddal.ddr.datasource.exception.UninitializedStatusException;
 import org.hellojavaer.ddal.ddr.datasource.exception.UnsupportedPreparedStatementInvocationException;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.JdbcParameterBuffer.JdbcParamSetMethod;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.executor.ShardExecutor;
 import org.hellojavaer.ddal.ddr.datasource.manager.DataSourceParam;
+import org.hellojavaer.ddal.ddr.sqlparse.RoutedSQL;
 import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
 import org.hellojavaer.ddal.ddr.utils.DDRJSONUtils;
 import org.slf4j.Logger;
@@ -27,6 +31,9 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  *
@@ -36,102 +43,143 @@ import java.util.*;
  */
 public abstract class DDRPreparedStatementImpl extends DDRStatementImpl implements DDRPreparedStatement {
 
-    private Logger                    stdLogger               = LoggerFactory.getLogger("org.hellojavaer.ddr.sql");
+    private Logger                             stdLogger               = LoggerFactory.getLogger("org.hellojavaer.ddr.sql");
 
-    private String                    sql                     = null;
-    protected PreparedStatement       preparedStatement       = null;
-    private Map<Object, Object>       jdbcParameter           = new HashMap<Object, Object>();
-    private List<JdbcParamInvocation> jdbcParamInvocationList = null;
+    private String                             sql                     = null;
+    protected PreparedStatement                preparedStatement       = null;
+    private final JdbcParameterBuffer          jdbcParameter           = new JdbcParameterBuffer();
 
-    private SQLParsedResult           sqlParsedResult         = null;
+    private SQLParsedResult                    sqlParsedResult         = null;
+    private StatementWrapper                   statementWrapper        = null;
 
-    public DDRPreparedStatementImpl(String sql, boolean readOnly, Set<String> schemas) {
-        super(readOnly, schemas);
-        this.sql = sql;
-    }
-
-    private class JdbcParamInvocation {
-
-        private JdbcParamSetMethod method;
-        private int                index;
-        private Object[]           params;
-
-        public JdbcParamInvocation(JdbcParamSetMethod method, int index, Object[] params) {
-            this.method = method;
-            this.index = index;
-            this.params = params;
-        }
-
-        public JdbcParamSetMethod getMethod() {
-            return method;
-        }
-
-        public void setMethod(JdbcParamSetMethod method) {
-            this.method = method;
-        }
-
-        public int getIndex() {
-            return index;
-        }
+    // 多目标:jdbc参数路由到其他物理表时,key为物理sql,每个物理sql对应一个物理preparedStatement
+    private Map<String, PreparedTarget>        targets                 = null;
+    // 当前物理preparedStatement中有未执行的batch
+    private boolean                            batchPending            = false;
 
-        public void setIndex(int index) {
-            this.index = index;
-        }
+    // 分片批处理:key为物理sql,每个物理sql对应一个物理preparedStatement
+    private Map<String, BatchTarget>           batchTargets            = null;
+    private Map<DataSourceWrapper, ShardBatch> shardBatches            = null;
+    private int                                batchSize               = 0;
 
-        public Object[] getParams() {
-            return params;
-        }
-
-        public void setParams(Object[] params) {
-            this.params = params;
-        }
-
-        public Class<?> getParamTypes() {
-            return null;
-        }
-
-        public String getMethodName() {
-            return null;
-        }
+    private static final int                   MAX_TARGETS             = 16;
 
+    public DDRPreparedStatementImpl(String sql, boolean readOnly, Set<String> schemas) {
+        super(readOnly, schemas);
+        this.sql = sql;
     }
 
     // ////pre
     @Override
     public ResultSet executeQuery() throws SQLException {
-        initPreparedStatementIfAbsent();
-        return preparedStatement.executeQuery();
+        startEvent(sql, jdbcParameter);
+        try {
+            SQLParsedResult parsedResult = initPreparedStatementIfAbsent();
+            if (parsedResult.isMultiRouted()) {
+                return endEvent(executeMultiRoutedQuery(parsedResult));
+            }
+            long start = startTiming();
+            ResultSet resultSet = preparedStatement.executeQuery();
+            addExecuteNanos(start);
+            return endEvent(resultSet);
+        } catch (SQLException | RuntimeException e) {
+            failEvent(e);
+            throw e;
+        }
     }
 
     @Override
     public int executeUpdate() throws SQLException {
-        initPreparedStatementIfAbsent();
-        return preparedStatement.executeUpdate();
+        startEvent(sql, jdbcParameter);
+        try {
+            SQLParsedResult parsedResult = initPreparedStatementIfAbsent();
+            if (parsedResult.isMultiRouted()) {
+                if (parsedResult.isUpdate()) {
+                    return endEvent(executeMultiRoutedUpdate(parsedResult));
+                }
+                throw new UnsupportedPreparedStatementInvocationException("Sql [" + sql + "] with jdbc parameter "
+                                                                          + DDRJSONUtils.toJSONString(jdbcParameter)
+                                                                          + " is a query routed to multiple shards "
+                                                                          + "and can't be executed by 'executeUpdate'");
+            }
+            long start = startTiming();
+            int updateCount = preparedStatement.executeUpdate();
+            addExecuteNanos(start);
+            return endEvent(updateCount);
+        } catch (SQLException | RuntimeException e) {
+            failEvent(e);
+            throw e;
+        }
     }
 
     @Override
     public boolean execute() throws SQLException {
-        initPreparedStatementIfAbsent();
-        return preparedStatement.execute();
+        startEvent(sql, jdbcParameter);
+        try {
+            SQLParsedResult parsedResult = initPreparedStatementIfAbsent();
+            if (parsedResult.isMultiRouted()) {
+                if (parsedResult.isUpdate()) {
+                    endEvent(executeMultiRoutedUpdate(parsedResult));
+                    return false;
+                }
+                executeMultiRoutedQuery(parsedResult);
+                endEvent();
+                return true;
+            }
+            long start = startTiming();
+            boolean result = preparedStatement.execute();
+            addExecuteNanos(start);
+            endEvent();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            failEvent(e);
+            throw e;
+        }
     }
 
     // PreparedStatement Override
     @Override
     public int[] executeBatch() throws SQLException {
-        initPreparedStatementIfAbsent();
-        return preparedStatement.executeBatch();
+        startEvent(sql, null);
+        try {
+            int[] updateCounts;
+            if (batchTargets != null) {
+                StatementEvent event = getStatementEvent();
+                if (event != null) {
+                    for (DataSourceWrapper dataSourceWrapper : shardBatches.keySet()) {
+                        event.addDataSource(dataSourceWrapper);
+                    }
+                }
+                long start = startTiming();
+                updateCounts = executeShardedBatch();
+                addExecuteNanos(start);
+            } else {
+                initSingleRoutedPreparedStatementIfAbsent();
+                long start = startTiming();
+                try {
+                    updateCounts = preparedStatement.executeBatch();
+                } finally {
+                    batchPending = false;
+                }
+                addExecuteNanos(start);
+            }
+            endEvent();
+            return updateCounts;
+        } catch (SQLException | RuntimeException e) {
+            failEvent(e);
+            throw e;
+        }
     }
 
     @Override
     public void clearParameters() throws SQLException {
         jdbcParameter.clear();
-        if (jdbcParamInvocationList != null) {
-            jdbcParamInvocationList.clear();
-        }
     }
 
     @Override
     public void clearBatch() throws SQLException {
+        releaseShardedBatch();
+        batchPending = false;
         if (preparedStatement != null) {
             preparedStatement.clearBatch();
         }
@@ -139,8 +187,138 @@ public abstract class DDRPreparedStatementImpl extends DDRStatementImpl implemen
 
     @Override
     public void addBatch() throws SQLException {
-        initPreparedStatementIfAbsent();
+        if (isShardedBatchEnabled() && preparedStatement == null) {
+            addShardedBatch();
+            return;
+        }
+        if (batchTargets != null) {
+            throw new UnsupportedPreparedStatementInvocationException("Sql [" + sql + "] has been added to sharded "
+                                                                      + "batch, it can't be added to the batch of a "
+                                                                      + "bound preparedStatement before "
+                                                                      + "'executeBatch' or 'clearBatch'");
+        }
+        initSingleRoutedPreparedStatementIfAbsent();
         preparedStatement.addBatch();
+        batchPending = true;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        releaseShardedBatch();
+        closeTargets();
+        super.close();
+    }
+
+    /**
+     * whether 'addBatch' routes each parameter set to the batch of its own physical table. If false, all parameter
+     * sets are added to the preparedStatement which is bound by the first parameter set.
+     */
+    protected boolean isShardedBatchEnabled() {
+        return false;
+    }
+
+    /**
+     * 分片批处理:按当前jdbc参数路由,将参数添加到对应物理sql的preparedStatement的batch中;
+     * 同一数据源的物理preparedStatement共享一个物理连接
+     */
+    private void addShardedBatch() throws SQLException {
+        SQLParsedResult parsedResult = parseSql(sql, this.jdbcParameter);
+        if (parsedResult.isMultiRouted()) {
+            throw new UnsupportedPreparedStatementInvocationException("Sql [" + sql + "] with jdbc parameter "
+                                                                      + DDRJSONUtils.toJSONString(jdbcParameter)
+                                                                      + " is routed to multiple shards and can't be "
+                                                                      + "added to batch");
+        }
+        if (batchTargets == null) {
+            batchTargets = new HashMap<>();
+            shardBatches = new LinkedHashMap<>();
+        }
+        BatchTarget target = batchTargets.get(parsedResult.getSql());
+        if (target == null) {
+            DataSourceParam param = new DataSourceParam();
+            param.setReadOnly(readOnly);
+            param.setScNames(parsedResult.getSchemas());
+            DataSourceWrapper dataSourceWrapper = getDataSource(param);
+            ShardBatch shardBatch = shardBatches.get(dataSourceWrapper);
+            if (shardBatch == null) {
+                shardBatch = new ShardBatch(dataSourceWrapper, getShardConnection(dataSourceWrapper));
+                shardBatches.put(dataSourceWrapper, shardBatch);
+            }
+            PreparedStatement statement = (PreparedStatement) createShardStatement(shardBatch.getConnection(),
+                                                                                   parsedResult.getSql());
+            target = new BatchTarget(statement);
+            shardBatch.getTargets().add(target);
+            batchTargets.put(parsedResult.getSql(), target);
+            playbackInvocation(statement);
+        }
+        jdbcParameter.playback(target.getStatement(), null);
+        target.getStatement().addBatch();
+        target.getPositions().add(batchSize++);
+    }
+
+    /**
+     * 各数据源的batch在shardExecutor中并行执行;等待所有数据源执行完成后按addBatch的顺序返回影响行数,
+     * 执行失败的参数对应的影响行数为EXECUTE_FAILED
+     */
+    private int[] executeShardedBatch() throws SQLException {
+        try {
+            int[] updateCounts = new int[batchSize];
+            Arrays.fill(updateCounts, EXECUTE_FAILED);
+            List<ShardBatch> tasks = new ArrayList<>(shardBatches.values());
+            for (ShardBatch task : tasks) {
+                task.setUpdateCounts(updateCounts);
+            }
+            List<Future<Void>> futures = new ArrayList<>(tasks.size());
+            Throwable error = null;
+            try {
+                ShardExecutor executor = getShardExecutor();
+                for (ShardBatch task : tasks) {
+                    futures.add(executor.submit(task.getDataSourceWrapper(), task));
+                }
+            } catch (Throwable e) {
+                error = e;
+            }
+            // 写操作需要等待所有数据源执行完成,以便返回完整的影响行数
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (error == null) {
+                        error = e.getCause();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    if (error == null) {
+                        error = e;
+                    }
+                }
+            }
+            if (error != null) {
+                String sqlState = null;
+                int vendorCode = 0;
+                if (error instanceof SQLException) {
+                    sqlState = ((SQLException) error).getSQLState();
+                    vendorCode = ((SQLException) error).getErrorCode();
+                }
+                throw new BatchUpdateException("Execute sharded batch failed for sql [" + sql + "]. "
+                                               + error.getMessage(), sqlState, vendorCode, updateCounts, error);
+            }
+            return updateCounts;
+        } finally {
+            releaseShardedBatch();
+        }
+    }
+
+    private void releaseShardedBatch() {
+        if (batchTargets == null) {
+            return;
+        }
+        for (ShardBatch shardBatch : shardBatches.values()) {
+            shardBatch.close();
+        }
+        batchTargets = null;
+        shardBatches = null;
+        batchSize = 0;
     }
 
     @Override
@@ -165,6 +343,12 @@ public abstract class DDRPreparedStatementImpl extends DDRStatementImpl implemen
 
     @Override
     public int getUpdateCount() throws SQLException {
+        if (getMultiRoutedUpdateCount() >= 0) {
+            return getMultiRoutedUpdateCount();
+        }
+        if (getMultiRoutedResultSet() != null) {
+            return -1;
+        }
         if (preparedStatement != null) {
             return preparedStatement.getUpdateCount();
         } else {
@@ -183,18 +367,41 @@ public abstract class DDRPreparedStatementImpl extends DDRStatementImpl implemen
         }
     }
 
-    private void initPreparedStatementIfAbsent() throws SQLException {
+    private void initSingleRoutedPreparedStatementIfAbsent() throws SQLException {
+        SQLParsedResult parsedResult = initPreparedStatementIfAbsent();
+        if (parsedResult.isMultiRouted()) {
+            throw new UnsupportedPreparedStatementInvocationException("Sql [" + sql + "] with jdbc parameter "
+                                                                      + DDRJSONUtils.toJSONString(jdbcParameter)
+                                                                      + " is routed to multiple shards and can only "
+                                                                      + "be executed by 'executeQuery', "
+                                                                      + "'executeUpdate' or 'execute'");
+        }
+    }
+
+    /**
+     * 绑定物理preparedStatement;如果sql路由到多个分片,则不绑定并返回多分片的解析结果
+     */
+    private SQLParsedResult initPreparedStatementIfAbsent() throws SQLException {
         if (preparedStatement == null) {
             // 1. parse sql
             SQLParsedResult parsedResult = parseSql(sql, this.jdbcParameter);
+            StatementEvent event = getStatementEvent();
+            if (event != null) {
+                event.setParsedResult(parsedResult);
+            }
             if (stdLogger.isDebugEnabled()) {
                 stdLogger.debug(new StringBuilder("[ParseSql] from:")//
                 .append(sql).append(" =>to: ")//
-                .append(parsedResult.getSql()).toString());//
+                .append(parsedResult.isMultiRouted() ? parsedResult.getRoutedSqls() : parsedResult.getSql())//
+                .toString());//
                 if (stdLogger.isTraceEnabled()) {
                     stdLogger.trace("[JdbcParameter] " + DDRJSONUtils.toJSONString(jdbcParameter));
                 }
             }
+            closeMultiRoutedResultSet();
+            if (parsedResult.isMultiRouted()) {// 多分片查询使用独立的物理连接,不绑定当前preparedStatement
+                return parsedResult;
+            }
             this.sqlParsedResult = parsedResult;
             // 2. check if crossing datasource
             if (isCrossDataSource(parsedResult.getSchemas())) {
@@ -221,764 +428,637 @@ public abstract class DDRPreparedStatementImpl extends DDRStatementImpl implemen
             }
             // 动作回放
             super.playbackInvocation(statement);
-            playbackSetJdbcParamInvocation(preparedStatement, jdbcParamInvocationList);
-        } else {// 同一个preparedStatement 以第一次成功创建preparedStatement为限制;
-            this.sqlParsedResult.checkIfCrossPreparedStatement(this.jdbcParameter);
+            jdbcParameter.playback(preparedStatement, null);
+        } else if (targets == null) {
+            try {
+                this.sqlParsedResult.checkIfCrossPreparedStatement(this.jdbcParameter);
+            } catch (CrossPreparedStatementException e) {
+                if (batchPending) {
+                    throw e;
+                }
+                targets = newTargets();
+                targets.put(sqlParsedResult.getSql(), new PreparedTarget(statementWrapper, sqlParsedResult));
+                SQLParsedResult parsedResult = switchPreparedStatement();
+                if (parsedResult != null) {
+                    return parsedResult;
+                }
+            }
+        } else {
+            SQLParsedResult parsedResult = switchPreparedStatement();
+            if (parsedResult != null) {
+                return parsedResult;
+            }
+        }
+        StatementEvent event = getStatementEvent();
+        if (event != null) {
+            event.setParsedResult(this.sqlParsedResult);
+            event.addDataSource(getDataSourceWrapper());
         }
+        return this.sqlParsedResult;
     }
 
-    @Override
-    protected void initStatementIfAbsent(DataSourceParam param, String sql) throws SQLException {
-        super.initStatementIfAbsent(param, sql);
-        preparedStatement = (PreparedStatement) statement;
+    /**
+     * 多目标:按当前jdbc参数重新路由,切换到物理sql对应的物理preparedStatement,没有时在路由到的数据源上创建并回放属性设置;
+     * 切换后回放所有jdbc参数
+     *
+     * @return 路由到多个分片时返回解析结果,不切换;否则返回null
+     */
+    private SQLParsedResult switchPreparedStatement() throws SQLException {
+        SQLParsedResult parsedResult = parseSql(sql, this.jdbcParameter);
+        if (parsedResult.isMultiRouted()) {
+            return parsedResult;
+        }
+        if (parsedResult.getSql().equals(sqlParsedResult.getSql())) {
+            return null;
+        }
+        if (batchPending) {
+            throw new CrossPreparedStatementException("Sql [" + sql + "] with jdbc parameter "
+                                                      + DDRJSONUtils.toJSONString(jdbcParameter)
+                                                      + " is routed to [" + parsedResult.getSql()
+                                                      + "], but the batch added to [" + sqlParsedResult.getSql()
+                                                      + "] hasn't been executed");
+        }
+        PreparedTarget target = targets.get(parsedResult.getSql());
+        if (target == null) {
+            DataSourceParam param = new DataSourceParam();
+            param.setReadOnly(readOnly);
+            param.setScNames(parsedResult.getSchemas());
+            StatementWrapper wrapper = null;
+            try {
+                wrapper = getStatement(param, parsedResult.getSql());
+                super.playbackInvocation(wrapper.getStatement());
+            } catch (Throwable e) {
+                closeQuietly(wrapper);
+                throw new StatementInitializationException("readOnly:" + this.readOnly + " ,jdbc parameter:"
+                                                           + DDRJSONUtils.toJSONString(this.jdbcParameter)
+                                                           + " ,SQLParsedResult:" + parsedResult + " ,original sql:["
+                                                           + sql + "]", e);
+            }
+            target = new PreparedTarget(wrapper, parsedResult);
+            targets.put(parsedResult.getSql(), target);
+        }
+        bindStatement(target.getStatementWrapper());
+        this.sqlParsedResult = target.getParsedResult();
+        jdbcParameter.playback(preparedStatement, null);
+        return null;
+    }
+
+    /**
+     * 按最近使用排序,超过MAX_TARGETS时关闭最久未使用的物理preparedStatement
+     */
+    private Map<String, PreparedTarget> newTargets() {
+        return new LinkedHashMap<String, PreparedTarget>(MAX_TARGETS, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedTarget> eldest) {
+                if (size() > MAX_TARGETS) {
+                    closeQuietly(eldest.getValue().getStatementWrapper());
+                    return true;
+                }
+                return false;
+            }
+        };
     }
 
-    private enum JdbcParamSetMethod {
-
-        setBoolean_boolean,
-
-        setByte_byte,
-
-        setShort_short,
-
-        setInt_int,
-
-        setLong_long,
-
-        setFloat_float,
-
-        setDouble_double,
-
-        setTimestamp_Timestamp,
-
-        setTimestamp_Timestamp_Calendar,
-
-        setURL_URL,
-
-        setTime_Time,
-
-        setTime_Time_Calendar,
-
-        setNull_int_String,
-
-        setNull_int,
-
-        setBigDecimal_BigDecimal,
-
-        setString_String,
-
-        setBytes_bytes,
-
-        setDate_Date_Calendar,
-
-        setDate_Date,
-
-        setAsciiStream_InputStream_int,
-
-        setAsciiStream_InputStream,
-
-        setAsciiStream_InputStream_long,
-
-        setUnicodeStream_InputStream_int,
-
-        setBinaryStream_InputStream_int,
-
-        setBinaryStream_InputStream_long,
-
-        setBinaryStream_InputStream,
-
-        setObject_Object_int_int,
+    private void closeTargets() {
+        if (targets == null) {
+            return;
+        }
+        for (PreparedTarget target : targets.values()) {
+            if (target.getStatementWrapper() != statementWrapper) {
+                closeQuietly(target.getStatementWrapper());
+            }
+        }
+        targets = null;
+    }
 
-        setObject_Object_int,
+    private static void closeQuietly(StatementWrapper wrapper) {
+        if (wrapper != null && wrapper.getStatement() != null) {
+            try {
+                wrapper.getStatement().close();
+            } catch (Exception e) {
+                // ignore
+            }
+        }
+    }
 
-        setObject_Object,
+    @Override
+    protected void prepareShardStatement(Statement statement, SQLParsedResult parsedResult, RoutedSQL routedSql)
+                                                                                                                throws SQLException {
+        super.prepareShardStatement(statement, parsedResult, routedSql);
+        PreparedStatement preparedStatement = (PreparedStatement) statement;
+        jdbcParameter.playback(preparedStatement, routedSql);
+        if (parsedResult.getOverriddenJdbcParams() != null) {
+            for (Map.Entry<Integer, Object> entry : parsedResult.getOverriddenJdbcParams().entrySet()) {
+                int index = routedSql.getPhysicalJdbcParamIndex(entry.getKey());
+                if (index > 0) {
+                    preparedStatement.setObject(index, entry.getValue());
+                }
+            }
+        }
+    }
 
-        setCharacterStream_Reader_long,
+    @Override
+    protected ResultSet executeShardQuery(Statement statement, String sql) throws SQLException {
+        return ((PreparedStatement) statement).executeQuery();
+    }
 
-        setCharacterStream_Reader_int,
+    @Override
+    protected int executeShardUpdate(Statement statement, String sql) throws SQLException {
+        return ((PreparedStatement) statement).executeUpdate();
+    }
 
-        setCharacterStream_Reader,
+    private class PreparedTarget {
 
-        setRef_Ref,
+        private StatementWrapper statementWrapper;
+        private SQLParsedResult  parsedResult;
 
-        setBlob_InputStream_long,
+        public PreparedTarget(StatementWrapper statementWrapper, SQLParsedResult parsedResult) {
+            this.statementWrapper = statementWrapper;
+            this.parsedResult = parsedResult;
+        }
 
-        setBlob_InputStream,
+        public StatementWrapper getStatementWrapper() {
+            return statementWrapper;
+        }
 
-        setBlob_Blob,
+        public SQLParsedResult getParsedResult() {
+            return parsedResult;
+        }
+    }
 
-        setClob_Reader,
+    private class BatchTarget {
 
-        setClob_Clob,
+        private PreparedStatement statement;
+        private List<Integer>     positions = new ArrayList<>(); // 每条参数在addBatch中的顺序
 
-        setClob_Reader_long,
+        public BatchTarget(PreparedStatement statement) {
+            this.statement = statement;
+        }
 
-        setArray_Array,
+        public PreparedStatement getStatement() {
+            return statement;
+        }
 
-        setRowId_RowId,
+        public List<Integer> getPositions() {
+            return positions;
+        }
+    }
 
-        setNString_String,
+    /**
+     * batch of all physical tables in one datasource, which is executed on one physical connection
+     */
+    private class ShardBatch implements Callable<Void> {
 
-        setNCharacterStream_Reader,
+        private DataSourceWrapper dataSourceWrapper;
+        private Connection        connection;
+        private List<BatchTarget> targets = new ArrayList<>();
+        private int[]             updateCounts;
 
-        setNCharacterStream_Reader_long,
+        public ShardBatch(DataSourceWrapper dataSourceWrapper, Connection connection) {
+            this.dataSourceWrapper = dataSourceWrapper;
+            this.connection = connection;
+        }
 
-        setNClob_Reader,
+        public DataSourceWrapper getDataSourceWrapper() {
+            return dataSourceWrapper;
+        }
 
-        setNClob_Reader_long,
+        public Connection getConnection() {
+            return connection;
+        }
 
-        setNClob_NClob,
+        public List<BatchTarget> getTargets() {
+            return targets;
+        }
 
-        setSQLXML_SQLXML;
-    }
+        public void setUpdateCounts(int[] updateCounts) {
+            this.updateCounts = updateCounts;
+        }
 
-    protected void playbackSetJdbcParamInvocation(PreparedStatement preparedStatement,
-                                                  List<JdbcParamInvocation> jdbcParamInvocationList)
-                                                                                                    throws SQLException {
-        if (jdbcParamInvocationList == null || jdbcParamInvocationList.isEmpty()) {
-            return;
+        @Override
+        public Void call() throws Exception {
+            for (BatchTarget target : targets) {
+                int[] counts = null;
+                try {
+                    counts = target.getStatement().executeBatch();
+                } catch (BatchUpdateException e) {
+                    counts = e.getUpdateCounts();
+                    throw e;
+                } finally {
+                    List<Integer> positions = target.getPositions();
+                    for (int i = 0; counts != null && i < counts.length && i < positions.size(); i++) {
+                        updateCounts[positions.get(i)] = counts[i];
+                    }
+                }
+            }
+            return null;
         }
-        for (JdbcParamInvocation item : jdbcParamInvocationList) {
-            JdbcParamSetMethod method = item.getMethod();
-            int index = item.getIndex();
-            Object[] params = item.getParams();
-            switch (method) {
-                case setBoolean_boolean:
-                    preparedStatement.setBoolean(index, (boolean) params[0]);
-                    break;
-                case setByte_byte:
-                    preparedStatement.setByte(index, (byte) params[0]);
-                    break;
-                case setShort_short:
-                    preparedStatement.setShort(index, (short) params[0]);
-                    break;
-                case setInt_int:
-                    preparedStatement.setInt(index, (int) params[0]);
-                    break;
-                case setLong_long:
-                    preparedStatement.setLong(index, (long) params[0]);
-                    break;
-                case setFloat_float:
-                    preparedStatement.setFloat(index, (float) params[0]);
-                    break;
-                case setDouble_double:
-                    preparedStatement.setDouble(index, (double) params[0]);
-                    break;
-                case setTimestamp_Timestamp:
-                    preparedStatement.setTimestamp(index, (java.sql.Timestamp) params[0]);
-                    break;
-                case setTimestamp_Timestamp_Calendar:
-                    preparedStatement.setTimestamp(index, (java.sql.Timestamp) params[0],
-                                                   (java.util.Calendar) params[1]);
-                    break;
-                case setURL_URL:
-                    preparedStatement.setURL(index, (java.net.URL) params[0]);
-                    break;
-                case setTime_Time_Calendar:
-                    preparedStatement.setTime(index, (java.sql.Time) params[0], (java.util.Calendar) params[1]);
-                    break;
-                case setTime_Time:
-                    preparedStatement.setTime(index, (java.sql.Time) params[0]);
-                    break;
-                case setArray_Array:
-                    preparedStatement.setArray(index, (java.sql.Array) params[0]);
-                    break;
-                case setObject_Object_int:
-                    preparedStatement.setObject(index, (java.lang.Object) params[0], (int) params[1]);
-                    break;
-                case setObject_Object_int_int:
-                    preparedStatement.setObject(index, (java.lang.Object) params[0], (int) params[1], (int) params[2]);
-                    break;
-                case setObject_Object:
-                    preparedStatement.setObject(index, (java.lang.Object) params[0]);
-                    break;
-                case setNull_int_String:
-                    preparedStatement.setNull(index, (int) params[0], (java.lang.String) params[1]);
-                    break;
-                case setNull_int:
-                    preparedStatement.setNull(index, (int) params[0]);
-                    break;
-                case setBigDecimal_BigDecimal:
-                    preparedStatement.setBigDecimal(index, (java.math.BigDecimal) params[0]);
-                    break;
-                case setString_String:
-                    preparedStatement.setString(index, (java.lang.String) params[0]);
-                    break;
-                case setBytes_bytes:
-                    preparedStatement.setBytes(index, (byte[]) params[0]);
-                    break;
-                case setDate_Date_Calendar:
-                    preparedStatement.setDate(index, (java.sql.Date) params[0], (java.util.Calendar) params[1]);
-                    break;
-                case setDate_Date:
-                    preparedStatement.setDate(index, (java.sql.Date) params[0]);
-                    break;
-                case setAsciiStream_InputStream_int:
-                    preparedStatement.setAsciiStream(index, (java.io.InputStream) params[0], (int) params[1]);
-                    break;
-                case setAsciiStream_InputStream_long:
-                    preparedStatement.setAsciiStream(index, (java.io.InputStream) params[0], (long) params[1]);
-                    break;
-                case setAsciiStream_InputStream:
-                    preparedStatement.setAsciiStream(index, (java.io.InputStream) params[0]);
-                    break;
-                case setUnicodeStream_InputStream_int:
-                    preparedStatement.setUnicodeStream(index, (java.io.InputStream) params[0], (int) params[1]);
-                    break;
-                case setBinaryStream_InputStream_int:
-                    preparedStatement.setBinaryStream(index, (java.io.InputStream) params[0], (int) params[1]);
-                    break;
-                case setBinaryStream_InputStream_long:
-                    preparedStatement.setBinaryStream(index, (java.io.InputStream) params[0], (long) params[1]);
-                    break;
-                case setBinaryStream_InputStream:
-                    preparedStatement.setBinaryStream(index, (java.io.InputStream) params[0]);
-                    break;
-                case setCharacterStream_Reader_int:
-                    preparedStatement.setCharacterStream(index, (java.io.Reader) params[0], (int) params[1]);
-                    break;
-                case setCharacterStream_Reader_long:
-                    preparedStatement.setCharacterStream(index, (java.io.Reader) params[0], (long) params[1]);
-                    break;
-                case setCharacterStream_Reader:
-                    preparedStatement.setCharacterStream(index, (java.io.Reader) params[0]);
-                    break;
-                case setRef_Ref:
-                    preparedStatement.setRef(index, (java.sql.Ref) params[0]);
-                    break;
-                case setBlob_InputStream_long:
-                    preparedStatement.setBlob(index, (java.io.InputStream) params[0], (long) params[1]);
-                    break;
-                case setBlob_InputStream:
-                    preparedStatement.setBlob(index, (java.io.InputStream) params[0]);
-                    break;
-                case setBlob_Blob:
-                    preparedStatement.setBlob(index, (java.sql.Blob) params[0]);
-                    break;
-                case setClob_Reader:
-                    preparedStatement.setClob(index, (java.io.Reader) params[0]);
-                    break;
-                case setClob_Reader_long:
-                    preparedStatement.setClob(index, (java.io.Reader) params[0], (long) params[1]);
-                    break;
-                case setClob_Clob:
-                    preparedStatement.setClob(index, (java.sql.Clob) params[0]);
-                    break;
-                case setRowId_RowId:
-                    preparedStatement.setRowId(index, (java.sql.RowId) params[0]);
-                    break;
-                case setNString_String:
-                    preparedStatement.setNString(index, (java.lang.String) params[0]);
-                    break;
-                case setNCharacterStream_Reader:
-                    preparedStatement.setNCharacterStream(index, (java.io.Reader) params[0]);
-                    break;
-                case setNCharacterStream_Reader_long:
-                    preparedStatement.setNCharacterStream(index, (java.io.Reader) params[0], (long) params[1]);
-                    break;
-                case setNClob_Reader_long:
-                    preparedStatement.setNClob(index, (java.io.Reader) params[0], (long) params[1]);
-                    break;
-                case setNClob_NClob:
-                    preparedStatement.setNClob(index, (java.sql.NClob) params[0]);
-                    break;
-                case setNClob_Reader:
-                    preparedStatement.setNClob(index, (java.io.Reader) params[0]);
-                    break;
-                case setSQLXML_SQLXML:
-                    preparedStatement.setSQLXML(index, (java.sql.SQLXML) params[0]);
-                    break;
-                default:
-                    throw new UnsupportedPreparedStatementInvocationException("Unknown setter method '" + method + "'");
+
+        public void close() {
+            for (BatchTarget target : targets) {
+                try {
+                    target.getStatement().close();
+                } catch (Exception e) {
+                    // ignore
+                }
+            }
+            try {
+                connection.close();
+            } catch (Exception e) {
+                // ignore
             }
         }
-        jdbcParamInvocationList = null;
     }
 
-    private void addJdbcParamInvokeRecord(JdbcParamSetMethod method, int index, Object[] params) {
-        if (jdbcParamInvocationList == null) {
-            jdbcParamInvocationList = new ArrayList<JdbcParamInvocation>();
-        }
-        jdbcParamInvocationList.add(new JdbcParamInvocation(method, index, params));
+    @Override
+    protected void bindStatement(StatementWrapper statementWrapper) {
+        super.bindStatement(statementWrapper);
+        this.statementWrapper = statementWrapper;
+        this.preparedStatement = (PreparedStatement) statement;
     }
 
     @Override
     public void setBoolean(int x0, boolean x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putLong(x0, JdbcParamSetMethod.setBoolean_boolean, x1 ? 1 : 0);
         if (preparedStatement != null) {
             preparedStatement.setBoolean(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setBoolean_boolean, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setByte(int x0, byte x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putLong(x0, JdbcParamSetMethod.setByte_byte, x1);
         if (preparedStatement != null) {
             preparedStatement.setByte(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setByte_byte, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setShort(int x0, short x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putLong(x0, JdbcParamSetMethod.setShort_short, x1);
         if (preparedStatement != null) {
             preparedStatement.setShort(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setShort_short, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setInt(int x0, int x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putLong(x0, JdbcParamSetMethod.setInt_int, x1);
         if (preparedStatement != null) {
             preparedStatement.setInt(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setInt_int, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setLong(int x0, long x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putLong(x0, JdbcParamSetMethod.setLong_long, x1);
         if (preparedStatement != null) {
             preparedStatement.setLong(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setLong_long, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setFloat(int x0, float x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putDouble(x0, JdbcParamSetMethod.setFloat_float, x1);
         if (preparedStatement != null) {
             preparedStatement.setFloat(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setFloat_float, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setDouble(int x0, double x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putDouble(x0, JdbcParamSetMethod.setDouble_double, x1);
         if (preparedStatement != null) {
             preparedStatement.setDouble(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setDouble_double, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setTimestamp(int x0, java.sql.Timestamp x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setTimestamp_Timestamp, x1);
         if (preparedStatement != null) {
             preparedStatement.setTimestamp(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setTimestamp_Timestamp, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setTimestamp(int x0, java.sql.Timestamp x1, java.util.Calendar x2) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setTimestamp_Timestamp_Calendar, x1, x2);
         if (preparedStatement != null) {
             preparedStatement.setTimestamp(x0, x1, x2);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setTimestamp_Timestamp_Calendar, x0, new Object[] { x1, x2 });
         }
     }
 
     @Override
     public void setURL(int x0, java.net.URL x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setURL_URL, x1);
         if (preparedStatement != null) {
             preparedStatement.setURL(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setURL_URL, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setTime(int x0, java.sql.Time x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setTime_Time, x1);
         if (preparedStatement != null) {
             preparedStatement.setTime(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setTime_Time, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setTime(int x0, java.sql.Time x1, java.util.Calendar x2) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setTime_Time_Calendar, x1, x2);
         if (preparedStatement != null) {
             preparedStatement.setTime(x0, x1, x2);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setTime_Time_Calendar, x0, new Object[] { x1, x2 });
         }
     }
 
     @Override
     public void setNull(int x0, int x1, java.lang.String x2) throws SQLException {
-        jdbcParameter.put(x0, null);
+        jdbcParameter.putNull(x0, JdbcParamSetMethod.setNull_int_String, x1, x2);
         if (preparedStatement != null) {
             preparedStatement.setNull(x0, x1, x2);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setNull_int_String, x0, new Object[] { x1, x2 });
         }
     }
 
     @Override
     public void setNull(int x0, int x1) throws SQLException {
-        jdbcParameter.put(x0, null);
+        jdbcParameter.putNull(x0, JdbcParamSetMethod.setNull_int, x1, null);
         if (preparedStatement != null) {
             preparedStatement.setNull(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setNull_int, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setBigDecimal(int x0, java.math.BigDecimal x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setBigDecimal_BigDecimal, x1);
         if (preparedStatement != null) {
             preparedStatement.setBigDecimal(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setBigDecimal_BigDecimal, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setString(int x0, java.lang.String x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setString_String, x1);
         if (preparedStatement != null) {
             preparedStatement.setString(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setString_String, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setBytes(int x0, byte[] x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setBytes_bytes, x1);
         if (preparedStatement != null) {
             preparedStatement.setBytes(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setBytes_bytes, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setDate(int x0, java.sql.Date x1, java.util.Calendar x2) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setDate_Date_Calendar, x1, x2);
         if (preparedStatement != null) {
             preparedStatement.setDate(x0, x1, x2);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setDate_Date_Calendar, x0, new Object[] { x1, x2 });
         }
     }
 
     @Override
     public void setDate(int x0, java.sql.Date x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setDate_Date, x1);
         if (preparedStatement != null) {
             preparedStatement.setDate(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setDate_Date, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setAsciiStream(int x0, java.io.InputStream x1, int x2) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setAsciiStream_InputStream_int, x1, x2);
         if (preparedStatement != null) {
             preparedStatement.setAsciiStream(x0, x1, x2);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setAsciiStream_InputStream_int, x0, new Object[] { x1, x2 });
         }
     }
 
     @Override
     public void setAsciiStream(int x0, java.io.InputStream x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setAsciiStream_InputStream, x1);
         if (preparedStatement != null) {
             preparedStatement.setAsciiStream(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setAsciiStream_InputStream, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setAsciiStream(int x0, java.io.InputStream x1, long x2) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setAsciiStream_InputStream_long, x1, x2);
         if (preparedStatement != null) {
             preparedStatement.setAsciiStream(x0, x1, x2);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setAsciiStream_InputStream_long, x0, new Object[] { x1, x2 });
         }
     }
 
     @Override
     public void setUnicodeStream(int x0, java.io.InputStream x1, int x2) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setUnicodeStream_InputStream_int, x1, x2);
         if (preparedStatement != null) {
             preparedStatement.setUnicodeStream(x0, x1, x2);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setUnicodeStream_InputStream_int, x0, new Object[] { x1, x2 });
         }
     }
 
     @Override
     public void setBinaryStream(int x0, java.io.InputStream x1, int x2) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setBinaryStream_InputStream_int, x1, x2);
         if (preparedStatement != null) {
             preparedStatement.setBinaryStream(x0, x1, x2);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setBinaryStream_InputStream_int, x0, new Object[] { x1, x2 });
         }
     }
 
     @Override
     public void setBinaryStream(int x0, java.io.InputStream x1, long x2) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setBinaryStream_InputStream_long, x1, x2);
         if (preparedStatement != null) {
             preparedStatement.setBinaryStream(x0, x1, x2);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setBinaryStream_InputStream_long, x0, new Object[] { x1, x2 });
         }
     }
 
     @Override
     public void setBinaryStream(int x0, java.io.InputStream x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setBinaryStream_InputStream, x1);
         if (preparedStatement != null) {
             preparedStatement.setBinaryStream(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setBinaryStream_InputStream, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setObject(int x0, java.lang.Object x1, int x2, int x3) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setObject_Object_int_int, x1, x2, x3);
         if (preparedStatement != null) {
             preparedStatement.setObject(x0, x1, x2, x3);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setObject_Object_int_int, x0, new Object[] { x1, x2, x3 });
         }
     }
 
     @Override
     public void setObject(int x0, java.lang.Object x1, int x2) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setObject_Object_int, x1, x2);
         if (preparedStatement != null) {
             preparedStatement.setObject(x0, x1, x2);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setObject_Object_int, x0, new Object[] { x1, x2 });
         }
     }
 
     @Override
     public void setObject(int x0, java.lang.Object x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setObject_Object, x1);
         if (preparedStatement != null) {
             preparedStatement.setObject(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setObject_Object, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setCharacterStream(int x0, java.io.Reader x1, long x2) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setCharacterStream_Reader_long, x1, x2);
         if (preparedStatement != null) {
             preparedStatement.setCharacterStream(x0, x1, x2);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setCharacterStream_Reader_long, x0, new Object[] { x1, x2 });
         }
     }
 
     @Override
     public void setCharacterStream(int x0, java.io.Reader x1, int x2) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setCharacterStream_Reader_int, x1, x2);
         if (preparedStatement != null) {
             preparedStatement.setCharacterStream(x0, x1, x2);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setCharacterStream_Reader_int, x0, new Object[] { x1, x2 });
         }
     }
 
     @Override
     public void setCharacterStream(int x0, java.io.Reader x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setCharacterStream_Reader, x1);
         if (preparedStatement != null) {
             preparedStatement.setCharacterStream(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setCharacterStream_Reader, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setRef(int x0, java.sql.Ref x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setRef_Ref, x1);
         if (preparedStatement != null) {
             preparedStatement.setRef(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setRef_Ref, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setBlob(int x0, java.io.InputStream x1, long x2) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setBlob_InputStream_long, x1, x2);
         if (preparedStatement != null) {
             preparedStatement.setBlob(x0, x1, x2);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setBlob_InputStream_long, x0, new Object[] { x1, x2 });
         }
     }
 
     @Override
     public void setBlob(int x0, java.io.InputStream x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setBlob_InputStream, x1);
         if (preparedStatement != null) {
             preparedStatement.setBlob(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setBlob_InputStream, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setBlob(int x0, java.sql.Blob x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setBlob_Blob, x1);
         if (preparedStatement != null) {
             preparedStatement.setBlob(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setBlob_Blob, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setClob(int x0, java.io.Reader x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setClob_Reader, x1);
         if (preparedStatement != null) {
             preparedStatement.setClob(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setClob_Reader, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setClob(int x0, java.sql.Clob x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setClob_Clob, x1);
         if (preparedStatement != null) {
             preparedStatement.setClob(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setClob_Clob, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setClob(int x0, java.io.Reader x1, long x2) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setClob_Reader_long, x1, x2);
         if (preparedStatement != null) {
             preparedStatement.setClob(x0, x1, x2);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setClob_Reader_long, x0, new Object[] { x1, x2 });
         }
     }
 
     @Override
     public void setArray(int x0, java.sql.Array x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setArray_Array, x1);
         if (preparedStatement != null) {
             preparedStatement.setArray(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setArray_Array, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setRowId(int x0, java.sql.RowId x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setRowId_RowId, x1);
         if (preparedStatement != null) {
             preparedStatement.setRowId(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setRowId_RowId, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setNString(int x0, java.lang.String x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setNString_String, x1);
         if (preparedStatement != null) {
             preparedStatement.setNString(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setNString_String, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setNCharacterStream(int x0, java.io.Reader x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setNCharacterStream_Reader, x1);
         if (preparedStatement != null) {
             preparedStatement.setNCharacterStream(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setNCharacterStream_Reader, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setNCharacterStream(int x0, java.io.Reader x1, long x2) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setNCharacterStream_Reader_long, x1, x2);
         if (preparedStatement != null) {
             preparedStatement.setNCharacterStream(x0, x1, x2);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setNCharacterStream_Reader_long, x0, new Object[] { x1, x2 });
         }
     }
 
     @Override
     public void setNClob(int x0, java.io.Reader x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setNClob_Reader, x1);
         if (preparedStatement != null) {
             preparedStatement.setNClob(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setNClob_Reader, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setNClob(int x0, java.io.Reader x1, long x2) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setNClob_Reader_long, x1, x2);
         if (preparedStatement != null) {
             preparedStatement.setNClob(x0, x1, x2);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setNClob_Reader_long, x0, new Object[] { x1, x2 });
         }
     }
 
     @Override
     public void setNClob(int x0, java.sql.NClob x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setNClob_NClob, x1);
         if (preparedStatement != null) {
             preparedStatement.setNClob(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setNClob_NClob, x0, new Object[] { x1 });
         }
     }
 
     @Override
     public void setSQLXML(int x0, java.sql.SQLXML x1) throws SQLException {
-        jdbcParameter.put(x0, x1);
+        jdbcParameter.putObject(x0, JdbcParamSetMethod.setSQLXML_SQLXML, x1);
         if (preparedStatement != null) {
             preparedStatement.setSQLXML(x0, x1);
-        } else {
-            addJdbcParamInvokeRecord(JdbcParamSetMethod.setSQLXML_SQLXML, x0, new Object[] { x1 });
         }
     }
 
@@ -15,9 +15,11 @@
  */
 package org.hellojavaer.ddal.ddr.datasource.jdbc;
 
+import org.hellojavaer.ddal.ddr.datasource.jdbc.executor.ShardExecutor;
 import org.hellojavaer.ddal.ddr.datasource.manager.DataSourceParam;
 import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
 
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Map;
@@ -32,4 +34,16 @@ public interface DDRStatement extends Statement {
 
     StatementWrapper getStatement(DataSourceParam param, String sql) throws SQLException;
 
+    // 以下方法用于一条sql路由到多个分片时的并行查询
+    DataSourceWrapper getDataSource(DataSourceParam param) throws SQLException;
+
+    /**
+     * get a new physical connection which is not bound on current statement, caller should close it after use
+     */
+    Connection getShardConnection(DataSourceWrapper dataSourceWrapper) throws SQLException;
+
+    Statement createShardStatement(Connection connection, String sql) throws SQLException;
+
+    ShardExecutor getShardExecutor();
+
 }
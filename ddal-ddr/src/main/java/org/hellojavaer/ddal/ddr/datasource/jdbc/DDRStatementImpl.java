@@ -15,18 +15,27 @@
  */
 package org.hellojavaer.ddal.ddr.datasource.jdbc;
 
-import org.hellojavaer.ddal.ddr.datasource.exception.CrossDataSourceException;
-import org.hellojavaer.ddal.ddr.datasource.exception.StatementInitializationException;
-import org.hellojavaer.ddal.ddr.datasource.exception.UninitializedStatusException;
+import org.hellojavaer.ddal.ddr.datasource.exception.*;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.executor.ShardExecutor;
 import org.hellojavaer.ddal.ddr.datasource.jdbc.init.UninitializedStatementProcessor;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.merge.AbstractMergedResultSet;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.merge.GroupByMergedResultSet;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.merge.IteratorMergedResultSet;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.merge.OrderByMergedResultSet;
 import org.hellojavaer.ddal.ddr.datasource.jdbc.property.StatementProperty;
 import org.hellojavaer.ddal.ddr.datasource.manager.DataSourceParam;
+import org.hellojavaer.ddal.ddr.sqlparse.RoutedSQL;
 import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  *
@@ -34,12 +43,23 @@ import java.util.Set;
  */
 public abstract class DDRStatementImpl implements DDRStatement {
 
-    private Logger        stdLogger  = LoggerFactory.getLogger("org.hellojavaer.ddr.sql");
+    private Logger                   stdLogger              = LoggerFactory.getLogger("org.hellojavaer.ddr.sql");
 
-    protected Set<String> schemas    = null;
-    protected Statement   statement  = null;
-    protected Connection  connection = null;
-    protected boolean     readOnly   = false;
+    protected Set<String>            schemas                = null;
+    protected Statement              statement              = null;
+    protected Connection             connection             = null;
+    protected boolean                readOnly               = false;
+    // 当前物理statement所在的数据源
+    private DataSourceWrapper        dataSourceWrapper      = null;
+
+    // 最近一次多分片查询的合并结果
+    private ResultSet                multiRoutedResultSet   = null;
+    // 最近一次多分片写操作的影响行数之和,-1表示没有
+    private int                      multiRoutedUpdateCount = -1;
+    // 当前执行的监听事件,只在注册了监听器时创建
+    private StatementEvent           event                  = null;
+    // 正在执行的多分片任务,cancel()时取消其中正在执行的物理sql
+    private volatile List<ShardTask> shardTasks             = null;
 
     public DDRStatementImpl(boolean readOnly, Set<String> schemas) {
         this.readOnly = readOnly;
@@ -210,14 +230,32 @@ public abstract class DDRStatementImpl implements DDRStatement {
     }
 
     private String initStatementAndConvertSql(String sql) throws SQLException {
+        SQLParsedResult parsedResult = initStatementAndParseSql(sql);
+        if (parsedResult.isMultiRouted()) {
+            throw new UnsupportedStatementInvocationException("Sql '" + sql
+                                                              + "' is routed to multiple shards and can only be "
+                                                              + "executed by 'executeQuery', 'executeUpdate(String)' "
+                                                              + "or 'execute(String)'");
+        }
+        return parsedResult.getSql();
+    }
+
+    private SQLParsedResult initStatementAndParseSql(String sql) throws SQLException {
         // 1. parse sql
         SQLParsedResult parsedResult = parseSql(sql, null);
+        if (event != null) {
+            event.setParsedResult(parsedResult);
+        }
         if (stdLogger.isDebugEnabled()) {
             stdLogger.debug(new StringBuilder("[ParseSql] from:")//
             .append(sql).append(" =>to: ")//
-            .append(parsedResult.getSql())//
+            .append(parsedResult.isMultiRouted() ? parsedResult.getRoutedSqls() : parsedResult.getSql())//
             .toString());
         }
+        closeMultiRoutedResultSet();
+        if (parsedResult.isMultiRouted()) {// 多分片查询使用独立的物理连接,不初始化当前statement
+            return parsedResult;
+        }
         // 2. check if crossing datasource
         if (isCrossDataSource(parsedResult.getSchemas())) {
             throw new CrossDataSourceException("Sql '" + sql + "'");
@@ -234,11 +272,493 @@ public abstract class DDRStatementImpl implements DDRStatement {
             }
             playbackInvocation(statement);
         }
-        return parsedResult.getSql();
+        if (event != null) {
+            event.addDataSource(dataSourceWrapper);
+        }
+        return parsedResult;
+    }
+
+    /**
+     * datasource of the bound physical statement, null if not initialized
+     */
+    protected DataSourceWrapper getDataSourceWrapper() {
+        return dataSourceWrapper;
+    }
+
+    /**
+     * listeners which are notified after each execution, null or empty if none
+     */
+    protected List<StatementListener> getStatementListeners() {
+        return null;
+    }
+
+    /**
+     * 当前执行的监听事件,没有注册监听器时为null
+     */
+    protected StatementEvent getStatementEvent() {
+        return event;
+    }
+
+    /**
+     * 开始一次执行,完成上一次执行中未完成(结果集未关闭)的事件
+     */
+    protected void startEvent(String sql, Map<Object, Object> jdbcParams) {
+        completeEvent(event);
+        List<StatementListener> listeners = getStatementListeners();
+        if (listeners == null || listeners.isEmpty()) {
+            event = null;
+        } else {
+            event = new StatementEvent(sql, jdbcParams == null ? null : new HashMap<>(jdbcParams), readOnly);
+        }
+    }
+
+    protected long startTiming() {
+        return event == null ? 0 : System.nanoTime();
+    }
+
+    protected void addExecuteNanos(long start) {
+        if (event != null) {
+            event.addExecuteNanos(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 返回结果集的执行在结果集关闭时完成事件
+     */
+    protected ResultSet endEvent(ResultSet resultSet) {
+        if (event == null || resultSet == null) {
+            endEvent();
+            return resultSet;
+        }
+        return ListenedResultSet.wrap(resultSet, this, event);
+    }
+
+    protected int endEvent(int updateCount) {
+        if (event != null) {
+            event.setUpdateCount(updateCount);
+            endEvent();
+        }
+        return updateCount;
+    }
+
+    protected void endEvent() {
+        completeEvent(event);
+    }
+
+    protected void failEvent(Throwable error) {
+        if (event != null) {
+            event.setError(error);
+            completeEvent(event);
+        }
+    }
+
+    void completeEvent(StatementEvent event) {
+        if (event == null || !event.complete()) {
+            return;
+        }
+        List<StatementListener> listeners = getStatementListeners();
+        if (listeners != null) {
+            for (StatementListener listener : listeners) {
+                try {
+                    listener.onCompleted(event);
+                } catch (Throwable e) {
+                    if (stdLogger.isWarnEnabled()) {
+                        stdLogger.warn("[StatementListener] " + listener.getClass().getName() + " failed", e);
+                    }
+                }
+            }
+        }
+    }
+
+    protected ResultSet getMultiRoutedResultSet() {
+        return multiRoutedResultSet;
+    }
+
+    protected int getMultiRoutedUpdateCount() {
+        return multiRoutedUpdateCount;
+    }
+
+    protected void closeMultiRoutedResultSet() throws SQLException {
+        multiRoutedUpdateCount = -1;
+        if (multiRoutedResultSet != null) {
+            ResultSet resultSet = multiRoutedResultSet;
+            multiRoutedResultSet = null;
+            resultSet.close();
+        }
+    }
+
+    /**
+     * 并行查询:按数据源对路由结果分组,每组使用一个物理连接在shardExecutor中串行执行,各组之间并行执行
+     * (受shardExecutor中数据源并发上限的限制);所有分组执行完成后合并结果集;
+     * 设置了queryTimeout时,等待所有分组执行完成的总时间不超过queryTimeout
+     */
+    protected ResultSet executeMultiRoutedQuery(SQLParsedResult parsedResult) throws SQLException {
+        if (parsedResult.isUpdate()) {
+            throw new UnsupportedStatementInvocationException("Routed sqls " + parsedResult.getRoutedSqls()
+                                                              + " don't return result sets and can't be executed by "
+                                                              + "'executeQuery'");
+        }
+        List<RoutedSQL> routedSqls = parsedResult.getRoutedSqls();
+        ResultSet[] resultSets = new ResultSet[routedSqls.size()];
+        List<ShardTask> tasks = executeShardTasks(parsedResult, resultSets, null);
+        List<AutoCloseable> resources = new ArrayList<>();
+        for (ShardTask task : tasks) {
+            resources.addAll(task.getResources());
+        }
+        multiRoutedResultSet = mergeResultSets(this, parsedResult, Arrays.asList(resultSets), resources);
+        return multiRoutedResultSet;
+    }
+
+    /**
+     * 多分片写操作(如按物理表拆分后的多行insert):与多分片查询相同,各数据源之间并行执行;
+     * 由于分片连接只支持自动提交模式,各分片之间不保证原子性
+     *
+     * @return sum of the update counts of all routed sqls
+     */
+    protected int executeMultiRoutedUpdate(SQLParsedResult parsedResult) throws SQLException {
+        int[] updateCounts = new int[parsedResult.getRoutedSqls().size()];
+        List<ShardTask> tasks = executeShardTasks(parsedResult, null, updateCounts);
+        for (ShardTask task : tasks) {
+            task.abort();
+        }
+        int sum = 0;
+        for (int updateCount : updateCounts) {
+            sum += updateCount;
+        }
+        multiRoutedUpdateCount = sum;
+        return sum;
+    }
+
+    /**
+     * @param resultSets output parameter for query, null for update
+     * @param updateCounts output parameter for update, null for query
+     */
+    private List<ShardTask> executeShardTasks(SQLParsedResult parsedResult, ResultSet[] resultSets,
+                                              int[] updateCounts) throws SQLException {
+        List<RoutedSQL> routedSqls = parsedResult.getRoutedSqls();
+        Map<DataSourceWrapper, List<Integer>> groups = groupRoutedSqlsByDataSource(routedSqls);
+        List<ShardTask> tasks = new ArrayList<>(groups.size());
+        for (Map.Entry<DataSourceWrapper, List<Integer>> entry : groups.entrySet()) {
+            tasks.add(new ShardTask(entry.getKey(), entry.getValue(), parsedResult, resultSets, updateCounts,
+                                    event != null));
+            if (event != null) {
+                event.addDataSource(entry.getKey());
+            }
+        }
+        shardTasks = tasks;
+        try {
+            return executeShardTasks0(routedSqls, tasks);
+        } finally {
+            shardTasks = null;
+        }
+    }
+
+    private List<ShardTask> executeShardTasks0(List<RoutedSQL> routedSqls, List<ShardTask> tasks)
+                                                                                                  throws SQLException {
+        // 1. scatter
+        List<Future<Void>> futures = new ArrayList<>(tasks.size());
+        Throwable error = null;
+        try {
+            ShardExecutor executor = getShardExecutor();
+            for (ShardTask task : tasks) {
+                futures.add(executor.submit(task.getDataSourceWrapper(), task));
+            }
+        } catch (Throwable e) {
+            error = e;
+        }
+        // 2. gather
+        int timeout = getShardQueryTimeout();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeout);
+        for (Future<Void> future : futures) {
+            if (error != null) {
+                future.cancel(false);
+                continue;
+            }
+            try {
+                if (timeout > 0) {
+                    future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                } else {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                error = e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error = e;
+            } catch (TimeoutException e) {
+                error = new SQLTimeoutException("Execute sql on multiple shards exceeded query timeout " + timeout
+                                                + "s. routed sqls:" + routedSqls);
+                future.cancel(false);
+            }
+        }
+        if (event != null) {
+            for (ShardTask task : tasks) {
+                event.addConnectionNanos(task.connectionNanos);
+                event.addPrepareNanos(task.prepareNanos);
+                event.addExecuteNanos(task.executeNanos);
+            }
+        }
+        if (error != null) {
+            for (ShardTask task : tasks) {
+                task.cancel();
+                task.abort();
+            }
+            if (error instanceof SQLException) {
+                throw (SQLException) error;
+            } else if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            } else {
+                throw new ShardExecutionException("Execute sql on multiple shards failed. routed sqls:" + routedSqls,
+                                                  error);
+            }
+        }
+        return tasks;
+    }
+
+    static ResultSet mergeResultSets(Statement statement, SQLParsedResult parsedResult, List<ResultSet> resultSets,
+                                     List<AutoCloseable> resources) {
+        AbstractMergedResultSet resultSet = null;
+        if (parsedResult.isAggregated()) {
+            resultSet = new GroupByMergedResultSet(statement, resultSets, resources,
+                                                   parsedResult.getGroupByColumnIndexes(),
+                                                   parsedResult.getAggregateColumns(),
+                                                   parsedResult.getHiddenColumnCount(),
+                                                   parsedResult.getOrderByColumns());
+        } else if (parsedResult.getOrderByColumns() != null && !parsedResult.getOrderByColumns().isEmpty()) {
+            resultSet = new OrderByMergedResultSet(statement, resultSets, resources, parsedResult.getOrderByColumns());
+        } else {
+            resultSet = new IteratorMergedResultSet(statement, resultSets, resources);
+        }
+        if (parsedResult.getOffset() != null || parsedResult.getRowCount() != null) {
+            long offset = parsedResult.getOffset() == null ? 0 : parsedResult.getOffset();
+            long rowCount = parsedResult.getRowCount() == null ? -1 : parsedResult.getRowCount();
+            resultSet.setLimit(offset, rowCount);
+        }
+        return resultSet;
+    }
+
+    private Map<DataSourceWrapper, List<Integer>> groupRoutedSqlsByDataSource(List<RoutedSQL> routedSqls)
+                                                                                                           throws SQLException {
+        Map<DataSourceWrapper, List<Integer>> result = new LinkedHashMap<>();
+        Map<String, DataSourceWrapper> dataSourceWrapperMap = new HashMap<>();
+        // schemas为null的数据源不限定schema,可以执行所有物理sql
+        DataSourceWrapper anySchemaDataSourceWrapper = null;
+        for (int i = 0; i < routedSqls.size(); i++) {
+            RoutedSQL routedSql = routedSqls.get(i);
+            DataSourceWrapper dataSourceWrapper = anySchemaDataSourceWrapper;
+            if (dataSourceWrapper == null) {
+                for (String scName : routedSql.getSchemas()) {
+                    DataSourceWrapper item = dataSourceWrapperMap.get(scName);
+                    if (item == null || dataSourceWrapper != null && dataSourceWrapper != item) {
+                        dataSourceWrapper = null;
+                        break;
+                    }
+                    dataSourceWrapper = item;
+                }
+            }
+            if (dataSourceWrapper == null) {
+                DataSourceParam param = new DataSourceParam();
+                param.setReadOnly(readOnly);
+                param.setScNames(routedSql.getSchemas());
+                long start = startTiming();
+                dataSourceWrapper = getDataSource(param);
+                if (event != null) {
+                    event.addDataSourceNanos(System.nanoTime() - start);
+                }
+                if (dataSourceWrapper.getSchemas() == null) {
+                    anySchemaDataSourceWrapper = dataSourceWrapper;
+                } else {
+                    for (String scName : dataSourceWrapper.getSchemas()) {
+                        if (!dataSourceWrapperMap.containsKey(scName)) {
+                            dataSourceWrapperMap.put(scName, dataSourceWrapper);
+                        }
+                    }
+                }
+            }
+            List<Integer> list = result.get(dataSourceWrapper);
+            if (list == null) {
+                list = new ArrayList<>();
+                result.put(dataSourceWrapper, list);
+            }
+            list.add(i);
+        }
+        return result;
+    }
+
+    /**
+     * 在分片statement执行前回放当前statement上的设置
+     */
+    protected void prepareShardStatement(Statement statement, SQLParsedResult parsedResult, RoutedSQL routedSql)
+                                                                                                                throws SQLException {
+        playbackInvocation(statement);
+    }
+
+    protected ResultSet executeShardQuery(Statement statement, String sql) throws SQLException {
+        return statement.executeQuery(sql);
+    }
+
+    protected int executeShardUpdate(Statement statement, String sql) throws SQLException {
+        return statement.executeUpdate(sql);
+    }
+
+    private class ShardTask implements Callable<Void> {
+
+        private DataSourceWrapper dataSourceWrapper;
+        private List<Integer>     indexes;
+        private SQLParsedResult   parsedResult;
+        private ResultSet[]       resultSets;
+        private int[]             updateCounts;
+
+        private Connection        connection;
+        private List<Statement>   statements      = new ArrayList<>();
+        private boolean           finished        = false;
+        private boolean           aborted         = false;
+        private boolean           cancelled       = false;
+
+        // 注册了监听器时记录各阶段耗时
+        private boolean           timed;
+        private long              connectionNanos = 0;
+        private long              prepareNanos    = 0;
+        private long              executeNanos    = 0;
+
+        public ShardTask(DataSourceWrapper dataSourceWrapper, List<Integer> indexes, SQLParsedResult parsedResult,
+                         ResultSet[] resultSets, int[] updateCounts, boolean timed) {
+            this.dataSourceWrapper = dataSourceWrapper;
+            this.indexes = indexes;
+            this.parsedResult = parsedResult;
+            this.resultSets = resultSets;
+            this.updateCounts = updateCounts;
+            this.timed = timed;
+        }
+
+        public DataSourceWrapper getDataSourceWrapper() {
+            return dataSourceWrapper;
+        }
+
+        @Override
+        public Void call() throws Exception {
+            try {
+                long time = timed ? System.nanoTime() : 0;
+                connection = getShardConnection(dataSourceWrapper);
+                if (timed) {
+                    connectionNanos = System.nanoTime() - time;
+                }
+                for (Integer index : indexes) {
+                    time = timed ? System.nanoTime() : 0;
+                    RoutedSQL routedSql = parsedResult.getRoutedSqls().get(index);
+                    String sql = routedSql.getSql();
+                    Statement statement = createShardStatement(connection, sql);
+                    synchronized (this) {
+                        statements.add(statement);
+                        if (cancelled) {
+                            throw new SQLException("Statement was cancelled before executing sql:" + sql);
+                        }
+                    }
+                    prepareShardStatement(statement, parsedResult, routedSql);
+                    if (timed) {
+                        long now = System.nanoTime();
+                        prepareNanos += now - time;
+                        time = now;
+                    }
+                    if (updateCounts != null) {
+                        updateCounts[index] = executeShardUpdate(statement, sql);
+                    } else {
+                        resultSets[index] = executeShardQuery(statement, sql);
+                    }
+                    if (timed) {
+                        executeNanos += System.nanoTime() - time;
+                    }
+                }
+            } finally {
+                finish();
+            }
+            return null;
+        }
+
+        /**
+         * 只在监视器内交换状态,关闭物理连接在监视器外执行,避免虚拟线程在持有监视器时阻塞
+         */
+        private void finish() {
+            boolean release;
+            synchronized (this) {
+                finished = true;
+                release = aborted;
+            }
+            if (release) {
+                close();
+            }
+        }
+
+        /**
+         * 取消正在执行的物理sql,尚未执行的物理sql不再执行
+         */
+        public void cancel() {
+            List<Statement> list = null;
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                cancelled = true;
+                list = new ArrayList<>(statements);
+            }
+            for (Statement statement : list) {
+                try {
+                    statement.cancel();
+                } catch (Exception e) {
+                    // ignore
+                }
+            }
+        }
+
+        /**
+         * 任务已执行完成时立即释放资源,否则在任务执行完成时释放
+         */
+        public void abort() {
+            boolean release;
+            synchronized (this) {
+                aborted = true;
+                release = finished;
+            }
+            if (release) {
+                close();
+            }
+        }
+
+        public List<AutoCloseable> getResources() {
+            List<AutoCloseable> resources = new ArrayList<AutoCloseable>(statements);
+            if (connection != null) {
+                resources.add(connection);
+            }
+            return resources;
+        }
+
+        private void close() {
+            List<AutoCloseable> resources = new ArrayList<>();
+            for (Integer index : indexes) {
+                if (resultSets != null && resultSets[index] != null) {
+                    resources.add(resultSets[index]);
+                }
+            }
+            resources.addAll(getResources());
+            for (AutoCloseable resource : resources) {
+                try {
+                    resource.close();
+                } catch (Exception e) {
+                    // ignore
+                }
+            }
+        }
     }
 
     protected void initStatementIfAbsent(DataSourceParam param, String sql) throws SQLException {
-        StatementWrapper statementWrapper = getStatement(param, sql);
+        bindStatement(getStatement(param, sql));
+    }
+
+    /**
+     * 将物理statement绑定为当前statement,之后的调用都作用在该statement上
+     */
+    protected void bindStatement(StatementWrapper statementWrapper) {
+        this.dataSourceWrapper = statementWrapper.getDataSourceWrapper();
         this.statement = statementWrapper.getStatement();
         this.connection = statementWrapper.getConnection();
         this.schemas = statementWrapper.getSchemas();
@@ -277,20 +797,67 @@ public abstract class DDRStatementImpl implements DDRStatement {
 
     @Override
     public boolean execute(String sql) throws SQLException {
-        sql = initStatementAndConvertSql(sql);
-        return statement.execute(sql);
+        startEvent(sql, null);
+        try {
+            SQLParsedResult parsedResult = initStatementAndParseSql(sql);
+            if (parsedResult.isMultiRouted()) {
+                if (parsedResult.isUpdate()) {
+                    endEvent(executeMultiRoutedUpdate(parsedResult));
+                    return false;
+                }
+                executeMultiRoutedQuery(parsedResult);
+                endEvent();
+                return true;
+            }
+            long start = startTiming();
+            boolean result = statement.execute(parsedResult.getSql());
+            addExecuteNanos(start);
+            endEvent();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            failEvent(e);
+            throw e;
+        }
     }
 
     @Override
     public ResultSet executeQuery(String sql) throws SQLException {
-        sql = initStatementAndConvertSql(sql);
-        return statement.executeQuery(sql);
+        startEvent(sql, null);
+        try {
+            SQLParsedResult parsedResult = initStatementAndParseSql(sql);
+            if (parsedResult.isMultiRouted()) {
+                return endEvent(executeMultiRoutedQuery(parsedResult));
+            }
+            long start = startTiming();
+            ResultSet resultSet = statement.executeQuery(parsedResult.getSql());
+            addExecuteNanos(start);
+            return endEvent(resultSet);
+        } catch (SQLException | RuntimeException e) {
+            failEvent(e);
+            throw e;
+        }
     }
 
     @Override
     public int executeUpdate(String sql) throws SQLException {
-        sql = initStatementAndConvertSql(sql);
-        return statement.executeUpdate(sql);
+        startEvent(sql, null);
+        try {
+            SQLParsedResult parsedResult = initStatementAndParseSql(sql);
+            if (parsedResult.isMultiRouted()) {
+                if (parsedResult.isUpdate()) {
+                    return endEvent(executeMultiRoutedUpdate(parsedResult));
+                }
+                throw new UnsupportedStatementInvocationException("Sql '" + sql + "' is a query routed to multiple "
+                                                                  + "shards and can't be executed by 'executeUpdate'");
+            }
+            long start = startTiming();
+            int updateCount = statement.executeUpdate(parsedResult.getSql());
+            addExecuteNanos(start);
+            return endEvent(updateCount);
+        } catch (SQLException | RuntimeException e) {
+            failEvent(e);
+            throw e;
+        }
     }
 
     @Override
@@ -360,10 +927,9 @@ public abstract class DDRStatementImpl implements DDRStatement {
     public void setMaxFieldSize(int max) throws SQLException {
         if (statement != null) {
             statement.setMaxFieldSize(max);
-        } else {
-            tag.setMaxFieldSize(true);
-            prop.setMaxFieldSize(max);
         }
+        tag.setMaxFieldSize(true);
+        prop.setMaxFieldSize(max);
     }
 
     @Override
@@ -412,20 +978,18 @@ public abstract class DDRStatementImpl implements DDRStatement {
     public void setMaxRows(int max) throws SQLException {
         if (statement != null) {
             statement.setMaxRows(max);
-        } else {
-            tag.setMaxRows(true);
-            prop.setMaxRows(max);
         }
+        tag.setMaxRows(true);
+        prop.setMaxRows(max);
     }
 
     @Override
     public void setFetchDirection(int direction) throws SQLException {
         if (statement != null) {
             statement.setFetchDirection(direction);
-        } else {
-            tag.setFetchDirection(true);
-            prop.setFetchDirection(direction);
         }
+        tag.setFetchDirection(true);
+        prop.setFetchDirection(direction);
     }
 
     @Override
@@ -453,10 +1017,9 @@ public abstract class DDRStatementImpl implements DDRStatement {
     public void setFetchSize(int rows) throws SQLException {
         if (statement != null) {
             statement.setFetchSize(rows);
-        } else {
-            tag.setFetchSize(true);
-            prop.setFetchSize(rows);
         }
+        tag.setFetchSize(true);
+        prop.setFetchSize(rows);
     }
 
     @Override
@@ -484,10 +1047,17 @@ public abstract class DDRStatementImpl implements DDRStatement {
     public void setQueryTimeout(int seconds) throws SQLException {
         if (statement != null) {
             statement.setQueryTimeout(seconds);
-        } else {
-            tag.setQueryTimeout(true);
-            prop.setQueryTimeout(seconds);
         }
+        // 多分片执行时使用独立的物理statement,因此总是记录超时时间
+        tag.setQueryTimeout(true);
+        prop.setQueryTimeout(seconds);
+    }
+
+    /**
+     * query timeout in seconds which is applied to multi-shard execution, 0 means no limit
+     */
+    protected int getShardQueryTimeout() {
+        return tag.isQueryTimeout() ? prop.getQueryTimeout() : 0;
     }
 
     @Override
@@ -515,10 +1085,9 @@ public abstract class DDRStatementImpl implements DDRStatement {
     public void closeOnCompletion() throws SQLException {
         if (statement != null) {
             statement.closeOnCompletion();
-        } else {
-            tag.setCloseOnCompletion(true);
-            prop.setCloseOnCompletion(true);
         }
+        tag.setCloseOnCompletion(true);
+        prop.setCloseOnCompletion(true);
     }
 
     @Override
@@ -546,10 +1115,9 @@ public abstract class DDRStatementImpl implements DDRStatement {
     public void setPoolable(boolean poolable) throws SQLException {
         if (statement != null) {
             statement.setPoolable(poolable);
-        } else {
-            tag.setPoolable(true);
-            prop.setPoolable(poolable);
         }
+        tag.setPoolable(true);
+        prop.setPoolable(poolable);
     }
 
     @Override
@@ -577,10 +1145,9 @@ public abstract class DDRStatementImpl implements DDRStatement {
     public void setEscapeProcessing(boolean enable) throws SQLException {
         if (statement != null) {
             statement.setEscapeProcessing(enable);
-        } else {
-            tag.setEscapeProcessing(true);
-            prop.setEscapeProcessing(enable);
         }
+        tag.setEscapeProcessing(true);
+        prop.setEscapeProcessing(enable);
     }
 
     @Override
@@ -613,6 +1180,8 @@ public abstract class DDRStatementImpl implements DDRStatement {
 
     @Override
     public void close() throws SQLException {
+        completeEvent(event);
+        closeMultiRoutedResultSet();
         if (statement != null) {
             statement.close();
         } else {// TODO
@@ -622,6 +1191,12 @@ public abstract class DDRStatementImpl implements DDRStatement {
 
     @Override
     public void cancel() throws SQLException {
+        List<ShardTask> tasks = shardTasks;
+        if (tasks != null) {
+            for (ShardTask task : tasks) {
+                task.cancel();
+            }
+        }
         if (statement != null) {
             statement.cancel();
         } else {// TODO
@@ -640,6 +1215,18 @@ public abstract class DDRStatementImpl implements DDRStatement {
 
     @Override
     public boolean getMoreResults(int current) throws SQLException {
+        if (multiRoutedUpdateCount >= 0) {
+            multiRoutedUpdateCount = -1;
+            return false;
+        }
+        if (multiRoutedResultSet != null) {
+            if (current != KEEP_CURRENT_RESULT) {
+                closeMultiRoutedResultSet();
+            } else {
+                multiRoutedResultSet = null;
+            }
+            return false;
+        }
         if (statement != null) {
             return statement.getMoreResults(current);
         } else {
@@ -650,6 +1237,14 @@ public abstract class DDRStatementImpl implements DDRStatement {
 
     @Override
     public boolean getMoreResults() throws SQLException {
+        if (multiRoutedUpdateCount >= 0) {
+            multiRoutedUpdateCount = -1;
+            return false;
+        }
+        if (multiRoutedResultSet != null) {
+            closeMultiRoutedResultSet();
+            return false;
+        }
         if (statement != null) {
             return statement.getMoreResults();
         } else {
@@ -669,6 +1264,12 @@ public abstract class DDRStatementImpl implements DDRStatement {
 
     @Override
     public ResultSet getResultSet() throws SQLException {
+        if (multiRoutedResultSet != null) {
+            return multiRoutedResultSet;
+        }
+        if (multiRoutedUpdateCount >= 0) {
+            return null;
+        }
         if (statement != null) {
             return statement.getResultSet();
         } else {
@@ -678,6 +1279,12 @@ public abstract class DDRStatementImpl implements DDRStatement {
 
     @Override
     public int getUpdateCount() throws SQLException {
+        if (multiRoutedUpdateCount >= 0) {
+            return multiRoutedUpdateCount;
+        }
+        if (multiRoutedResultSet != null) {
+            return -1;
+        }
         if (statement != null) {
             return statement.getUpdateCount();
         } else {
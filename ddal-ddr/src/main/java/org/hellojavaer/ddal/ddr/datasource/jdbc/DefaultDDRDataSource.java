@@ -22,7 +22,9 @@ import org.hellojavaer.ddal.ddr.datasource.jdbc.property.DataSourceProperty;
 import org.hellojavaer.ddal.ddr.datasource.manager.DataSourceManager;
 import org.hellojavaer.ddal.ddr.datasource.manager.DataSourceParam;
 import org.hellojavaer.ddal.ddr.shard.ShardParser;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardParser;
 import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedState;
 
 import java.util.Collections;
 import java.util.Map;
@@ -78,6 +80,31 @@ public class DefaultDDRDataSource extends AbstractDDRDataSource {
         }
     }
 
+    /**
+     * SimpleShardParser分别记录解析和路由的耗时
+     */
+    @Override
+    protected SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParam, StatementEvent event) {
+        if (!(shardParser instanceof SimpleShardParser)) {
+            return super.parseSql(sql, jdbcParam, event);
+        }
+        SimpleShardParser simpleShardParser = (SimpleShardParser) shardParser;
+        long start = System.nanoTime();
+        SQLParsedState sqlParsedState;
+        try {
+            sqlParsedState = simpleShardParser.parseState(sql);
+        } finally {
+            long now = System.nanoTime();
+            event.addParseNanos(now - start);
+            start = now;
+        }
+        try {
+            return simpleShardParser.route(sqlParsedState, jdbcParam);
+        } finally {
+            event.addRouteNanos(System.nanoTime() - start);
+        }
+    }
+
     @Override
     public DataSourceWrapper getDataSource(DataSourceParam param) {
         return dataSourceManager.getDataSource(param);
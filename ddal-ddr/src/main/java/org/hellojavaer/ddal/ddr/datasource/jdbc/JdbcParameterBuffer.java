@@ -0,0 +1,520 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc;
+
+import org.hellojavaer.ddal.ddr.datasource.exception.UnsupportedPreparedStatementInvocationException;
+import org.hellojavaer.ddal.ddr.sqlparse.RoutedSQL;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * preparedStatement的jdbc参数缓冲区
+ *   1.按参数索引寻址,每个索引一个槽位,记录setter类型和参数;基本类型参数保存在long/double槽位中,设置参数时不装箱也不分配对象;
+ *   2.同一索引重复设置时覆盖原槽位,回放时每个索引只设置一次;
+ *   3.clear只重置类型标记和对象引用,数组在clearParameters后复用;
+ *   4.作为Map(key为参数索引)提供给sql路由,只有读取到的参数才会装箱;
+ */
+class JdbcParameterBuffer extends AbstractMap<Object, Object> {
+
+    private static final int     INITIAL_CAPACITY = 16;
+
+    private JdbcParamSetMethod[] methods          = new JdbcParamSetMethod[INITIAL_CAPACITY];
+    private long[]               longs            = new long[INITIAL_CAPACITY];
+    private double[]             doubles          = new double[INITIAL_CAPACITY];
+    private int[]                ints             = new int[INITIAL_CAPACITY];
+    private Object[]             objects          = new Object[INITIAL_CAPACITY];
+    private Object[]             extras           = new Object[INITIAL_CAPACITY];
+    private int                  count            = 0;
+    // 已设置的最大索引 + 1
+    private int                  limit            = 1;
+
+    private Set<Entry<Object, Object>> entrySet = null;
+
+    /**
+     * boolean, byte, short, int, long
+     */
+    public void putLong(int index, JdbcParamSetMethod method, long value) throws SQLException {
+        mark(index, method);
+        longs[index] = value;
+        objects[index] = null;
+        extras[index] = null;
+    }
+
+    /**
+     * float, double
+     */
+    public void putDouble(int index, JdbcParamSetMethod method, double value) throws SQLException {
+        mark(index, method);
+        doubles[index] = value;
+        objects[index] = null;
+        extras[index] = null;
+    }
+
+    public void putObject(int index, JdbcParamSetMethod method, Object value) throws SQLException {
+        mark(index, method);
+        objects[index] = value;
+        extras[index] = null;
+    }
+
+    /**
+     * @param extra Calendar of date/time
+     */
+    public void putObject(int index, JdbcParamSetMethod method, Object value, Object extra) throws SQLException {
+        mark(index, method);
+        objects[index] = value;
+        extras[index] = extra;
+    }
+
+    /**
+     * @param length length of stream, or targetSqlType of 'setObject'
+     */
+    public void putObject(int index, JdbcParamSetMethod method, Object value, long length) throws SQLException {
+        mark(index, method);
+        objects[index] = value;
+        extras[index] = null;
+        longs[index] = length;
+    }
+
+    public void putObject(int index, JdbcParamSetMethod method, Object value, int targetSqlType,
+                          int scaleOrLength) throws SQLException {
+        mark(index, method);
+        objects[index] = value;
+        extras[index] = null;
+        longs[index] = targetSqlType;
+        ints[index] = scaleOrLength;
+    }
+
+    public void putNull(int index, JdbcParamSetMethod method, int sqlType, String typeName) throws SQLException {
+        mark(index, method);
+        objects[index] = null;
+        extras[index] = typeName;
+        longs[index] = sqlType;
+    }
+
+    private void mark(int index, JdbcParamSetMethod method) throws SQLException {
+        if (index <= 0) {
+            throw new SQLException("Parameter index " + index + " is out of range");
+        }
+        if (index >= methods.length) {
+            grow(index + 1);
+        }
+        if (methods[index] == null) {
+            count++;
+            if (index >= limit) {
+                limit = index + 1;
+            }
+        }
+        methods[index] = method;
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = methods.length;
+        while (capacity < minCapacity) {
+            capacity <<= 1;
+        }
+        methods = Arrays.copyOf(methods, capacity);
+        longs = Arrays.copyOf(longs, capacity);
+        doubles = Arrays.copyOf(doubles, capacity);
+        ints = Arrays.copyOf(ints, capacity);
+        objects = Arrays.copyOf(objects, capacity);
+        extras = Arrays.copyOf(extras, capacity);
+    }
+
+    /**
+     * 将所有参数设置到物理preparedStatement
+     *
+     * @param routedSql if not null, parameter indexes are converted to the indexes in the physical sql, and the
+     *            parameters which are removed from the physical sql are skipped
+     */
+    public void playback(PreparedStatement preparedStatement, RoutedSQL routedSql) throws SQLException {
+        for (int i = 1; i < limit; i++) {
+            JdbcParamSetMethod method = methods[i];
+            if (method == null) {
+                continue;
+            }
+            int index = i;
+            if (routedSql != null) {
+                index = routedSql.getPhysicalJdbcParamIndex(index);
+                if (index <= 0) {
+                    continue;
+                }
+            }
+            Object value = objects[i];
+            switch (method) {
+                case setBoolean_boolean:
+                    preparedStatement.setBoolean(index, longs[i] != 0);
+                    break;
+                case setByte_byte:
+                    preparedStatement.setByte(index, (byte) longs[i]);
+                    break;
+                case setShort_short:
+                    preparedStatement.setShort(index, (short) longs[i]);
+                    break;
+                case setInt_int:
+                    preparedStatement.setInt(index, (int) longs[i]);
+                    break;
+                case setLong_long:
+                    preparedStatement.setLong(index, longs[i]);
+                    break;
+                case setFloat_float:
+                    preparedStatement.setFloat(index, (float) doubles[i]);
+                    break;
+                case setDouble_double:
+                    preparedStatement.setDouble(index, doubles[i]);
+                    break;
+                case setTimestamp_Timestamp:
+                    preparedStatement.setTimestamp(index, (java.sql.Timestamp) value);
+                    break;
+                case setTimestamp_Timestamp_Calendar:
+                    preparedStatement.setTimestamp(index, (java.sql.Timestamp) value, (Calendar) extras[i]);
+                    break;
+                case setURL_URL:
+                    preparedStatement.setURL(index, (java.net.URL) value);
+                    break;
+                case setTime_Time_Calendar:
+                    preparedStatement.setTime(index, (java.sql.Time) value, (Calendar) extras[i]);
+                    break;
+                case setTime_Time:
+                    preparedStatement.setTime(index, (java.sql.Time) value);
+                    break;
+                case setArray_Array:
+                    preparedStatement.setArray(index, (java.sql.Array) value);
+                    break;
+                case setObject_Object_int:
+                    preparedStatement.setObject(index, value, (int) longs[i]);
+                    break;
+                case setObject_Object_int_int:
+                    preparedStatement.setObject(index, value, (int) longs[i], ints[i]);
+                    break;
+                case setObject_Object:
+                    preparedStatement.setObject(index, value);
+                    break;
+                case setNull_int_String:
+                    preparedStatement.setNull(index, (int) longs[i], (String) extras[i]);
+                    break;
+                case setNull_int:
+                    preparedStatement.setNull(index, (int) longs[i]);
+                    break;
+                case setBigDecimal_BigDecimal:
+                    preparedStatement.setBigDecimal(index, (java.math.BigDecimal) value);
+                    break;
+                case setString_String:
+                    preparedStatement.setString(index, (String) value);
+                    break;
+                case setBytes_bytes:
+                    preparedStatement.setBytes(index, (byte[]) value);
+                    break;
+                case setDate_Date_Calendar:
+                    preparedStatement.setDate(index, (java.sql.Date) value, (Calendar) extras[i]);
+                    break;
+                case setDate_Date:
+                    preparedStatement.setDate(index, (java.sql.Date) value);
+                    break;
+                case setAsciiStream_InputStream_int:
+                    preparedStatement.setAsciiStream(index, (java.io.InputStream) value, (int) longs[i]);
+                    break;
+                case setAsciiStream_InputStream_long:
+                    preparedStatement.setAsciiStream(index, (java.io.InputStream) value, longs[i]);
+                    break;
+                case setAsciiStream_InputStream:
+                    preparedStatement.setAsciiStream(index, (java.io.InputStream) value);
+                    break;
+                case setUnicodeStream_InputStream_int:
+                    preparedStatement.setUnicodeStream(index, (java.io.InputStream) value, (int) longs[i]);
+                    break;
+                case setBinaryStream_InputStream_int:
+                    preparedStatement.setBinaryStream(index, (java.io.InputStream) value, (int) longs[i]);
+                    break;
+                case setBinaryStream_InputStream_long:
+                    preparedStatement.setBinaryStream(index, (java.io.InputStream) value, longs[i]);
+                    break;
+                case setBinaryStream_InputStream:
+                    preparedStatement.setBinaryStream(index, (java.io.InputStream) value);
+                    break;
+                case setCharacterStream_Reader_int:
+                    preparedStatement.setCharacterStream(index, (java.io.Reader) value, (int) longs[i]);
+                    break;
+                case setCharacterStream_Reader_long:
+                    preparedStatement.setCharacterStream(index, (java.io.Reader) value, longs[i]);
+                    break;
+                case setCharacterStream_Reader:
+                    preparedStatement.setCharacterStream(index, (java.io.Reader) value);
+                    break;
+                case setRef_Ref:
+                    preparedStatement.setRef(index, (java.sql.Ref) value);
+                    break;
+                case setBlob_InputStream_long:
+                    preparedStatement.setBlob(index, (java.io.InputStream) value, longs[i]);
+                    break;
+                case setBlob_InputStream:
+                    preparedStatement.setBlob(index, (java.io.InputStream) value);
+                    break;
+                case setBlob_Blob:
+                    preparedStatement.setBlob(index, (java.sql.Blob) value);
+                    break;
+                case setClob_Reader:
+                    preparedStatement.setClob(index, (java.io.Reader) value);
+                    break;
+                case setClob_Reader_long:
+                    preparedStatement.setClob(index, (java.io.Reader) value, longs[i]);
+                    break;
+                case setClob_Clob:
+                    preparedStatement.setClob(index, (java.sql.Clob) value);
+                    break;
+                case setRowId_RowId:
+                    preparedStatement.setRowId(index, (java.sql.RowId) value);
+                    break;
+                case setNString_String:
+                    preparedStatement.setNString(index, (String) value);
+                    break;
+                case setNCharacterStream_Reader:
+                    preparedStatement.setNCharacterStream(index, (java.io.Reader) value);
+                    break;
+                case setNCharacterStream_Reader_long:
+                    preparedStatement.setNCharacterStream(index, (java.io.Reader) value, longs[i]);
+                    break;
+                case setNClob_Reader_long:
+                    preparedStatement.setNClob(index, (java.io.Reader) value, longs[i]);
+                    break;
+                case setNClob_NClob:
+                    preparedStatement.setNClob(index, (java.sql.NClob) value);
+                    break;
+                case setNClob_Reader:
+                    preparedStatement.setNClob(index, (java.io.Reader) value);
+                    break;
+                case setSQLXML_SQLXML:
+                    preparedStatement.setSQLXML(index, (java.sql.SQLXML) value);
+                    break;
+                default:
+                    throw new UnsupportedPreparedStatementInvocationException("Unknown setter method '" + method + "'");
+            }
+        }
+    }
+
+    /**
+     * 参数值,基本类型在读取时装箱;setNull的参数值为null
+     */
+    private Object getValue(int i) {
+        switch (methods[i]) {
+            case setBoolean_boolean:
+                return longs[i] != 0;
+            case setByte_byte:
+                return (byte) longs[i];
+            case setShort_short:
+                return (short) longs[i];
+            case setInt_int:
+                return (int) longs[i];
+            case setLong_long:
+                return longs[i];
+            case setFloat_float:
+                return (float) doubles[i];
+            case setDouble_double:
+                return doubles[i];
+            case setNull_int_String:
+            case setNull_int:
+                return null;
+            default:
+                return objects[i];
+        }
+    }
+
+    private int slotOf(Object key) {
+        if (key instanceof Integer) {
+            int i = (Integer) key;
+            if (i > 0 && i < limit && methods[i] != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int i = slotOf(key);
+        return i < 0 ? null : getValue(i);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return slotOf(key) > 0;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(methods, 0, limit, null);
+        Arrays.fill(objects, 0, limit, null);
+        Arrays.fill(extras, 0, limit, null);
+        count = 0;
+        limit = 1;
+    }
+
+    @Override
+    public Set<Entry<Object, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<Object, Object>>() {
+
+                @Override
+                public Iterator<Entry<Object, Object>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return count;
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private class EntryIterator implements Iterator<Entry<Object, Object>> {
+
+        private int next = advance(1);
+
+        private int advance(int i) {
+            while (i < limit && methods[i] == null) {
+                i++;
+            }
+            return i;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < limit;
+        }
+
+        @Override
+        public Entry<Object, Object> next() {
+            if (next >= limit) {
+                throw new NoSuchElementException();
+            }
+            int i = next;
+            next = advance(i + 1);
+            return new SimpleImmutableEntry<Object, Object>(i, getValue(i));
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    enum JdbcParamSetMethod {
+
+        setBoolean_boolean,
+
+        setByte_byte,
+
+        setShort_short,
+
+        setInt_int,
+
+        setLong_long,
+
+        setFloat_float,
+
+        setDouble_double,
+
+        setTimestamp_Timestamp,
+
+        setTimestamp_Timestamp_Calendar,
+
+        setURL_URL,
+
+        setTime_Time,
+
+        setTime_Time_Calendar,
+
+        setNull_int_String,
+
+        setNull_int,
+
+        setBigDecimal_BigDecimal,
+
+        setString_String,
+
+        setBytes_bytes,
+
+        setDate_Date_Calendar,
+
+        setDate_Date,
+
+        setAsciiStream_InputStream_int,
+
+        setAsciiStream_InputStream,
+
+        setAsciiStream_InputStream_long,
+
+        setUnicodeStream_InputStream_int,
+
+        setBinaryStream_InputStream_int,
+
+        setBinaryStream_InputStream_long,
+
+        setBinaryStream_InputStream,
+
+        setObject_Object_int_int,
+
+        setObject_Object_int,
+
+        setObject_Object,
+
+        setCharacterStream_Reader_long,
+
+        setCharacterStream_Reader_int,
+
+        setCharacterStream_Reader,
+
+        setRef_Ref,
+
+        setBlob_InputStream_long,
+
+        setBlob_InputStream,
+
+        setBlob_Blob,
+
+        setClob_Reader,
+
+        setClob_Clob,
+
+        setClob_Reader_long,
+
+        setArray_Array,
+
+        setRowId_RowId,
+
+        setNString_String,
+
+        setNCharacterStream_Reader,
+
+        setNCharacterStream_Reader_long,
+
+        setNClob_Reader,
+
+        setNClob_Reader_long,
+
+        setNClob_NClob,
+
+        setSQLXML_SQLXML;
+    }
+}
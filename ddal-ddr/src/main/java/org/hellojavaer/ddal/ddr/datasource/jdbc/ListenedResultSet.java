@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+
+/**
+ * 注册了监听器时包装executeQuery返回的结果集,统计遍历的行数,并在结果集关闭时完成监听事件
+ */
+class ListenedResultSet implements InvocationHandler {
+
+    private final ResultSet        resultSet;
+    private final DDRStatementImpl statement;
+    private final StatementEvent   event;
+
+    private ListenedResultSet(ResultSet resultSet, DDRStatementImpl statement, StatementEvent event) {
+        this.resultSet = resultSet;
+        this.statement = statement;
+        this.event = event;
+    }
+
+    static ResultSet wrap(ResultSet resultSet, DDRStatementImpl statement, StatementEvent event) {
+        event.setResultSetOpened();
+        return (ResultSet) Proxy.newProxyInstance(ListenedResultSet.class.getClassLoader(),
+                                                  new Class[] { ResultSet.class },
+                                                  new ListenedResultSet(resultSet, statement, event));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if ("equals".equals(name) && args != null && args.length == 1) {
+            return proxy == args[0];
+        }
+        if ("hashCode".equals(name) && args == null) {
+            return System.identityHashCode(proxy);
+        }
+        try {
+            Object result = method.invoke(resultSet, args);
+            if ("next".equals(name) && Boolean.TRUE.equals(result)) {
+                event.incrementRowCount();
+            }
+            return result;
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        } finally {
+            if ("close".equals(name)) {
+                statement.completeEvent(event);
+            }
+        }
+    }
+}
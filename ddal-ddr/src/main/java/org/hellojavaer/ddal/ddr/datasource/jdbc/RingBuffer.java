@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界的多生产者单消费者环形缓冲区
+ *   1.生产者通过CAS占用tail位置后写入槽位,缓冲区满时offer直接返回false,不会阻塞;
+ *   2.只有一个消费者线程调用poll,读取后清空槽位再推进head;生产者已占位但尚未写入的槽位会使poll暂时返回null;
+ */
+class RingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int                     mask;
+    private final AtomicLong              tail = new AtomicLong();
+    private volatile long                 head = 0;
+
+    public RingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be greater than 0");
+        }
+        int size = 1;
+        while (size < capacity && size < (1 << 30)) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public boolean offer(E e) {
+        while (true) {
+            long t = tail.get();
+            if (t - head >= slots.length()) {
+                return false;
+            }
+            if (tail.compareAndSet(t, t + 1)) {
+                slots.lazySet((int) t & mask, e);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 只能由消费者线程调用
+     */
+    public E poll() {
+        long h = head;
+        int index = (int) h & mask;
+        E e = slots.get(index);
+        if (e != null) {
+            slots.lazySet(index, null);
+            head = h + 1;
+        }
+        return e;
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+}
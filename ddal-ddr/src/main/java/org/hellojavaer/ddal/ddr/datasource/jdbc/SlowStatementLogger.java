@@ -0,0 +1,263 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc;
+
+import org.hellojavaer.ddal.ddr.utils.DDRJSONUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 慢sql记录器,通过{@link AbstractDDRDataSource#addStatementListener}注册
+ *   1.耗时(从开始执行到结果集关闭)不小于thresholdMillis的sql放入有界环形缓冲区,由后台线程写出,执行线程不会被阻塞;
+ *   2.缓冲区满时丢弃并计入droppedCount;
+ *   3.默认以warn级别写入名为org.hellojavaer.ddal.ddr.slow的日志,内容包括原始sql,物理sql,jdbc参数,数据源和各阶段耗时,
+ *     可覆盖write方法写到其他地方;
+ */
+public class SlowStatementLogger implements StatementListener {
+
+    private Logger logger = LoggerFactory.getLogger("org.hellojavaer.ddal.ddr.slow");
+
+    private long                                thresholdMillis;
+    private long                                thresholdNanos;
+    private int                                 bufferSize    = 1024;
+    private volatile boolean                    closed        = false;
+
+    private volatile RingBuffer<StatementEvent> buffer;
+    private volatile Thread                     writer;
+    private final AtomicBoolean                 started       = new AtomicBoolean(false);
+    private final AtomicLong                    recordedCount = new AtomicLong();
+    private final AtomicLong                    droppedCount  = new AtomicLong();
+
+    public SlowStatementLogger() {
+        this(1000);
+    }
+
+    public SlowStatementLogger(long thresholdMillis) {
+        setThresholdMillis(thresholdMillis);
+    }
+
+    @Override
+    public void onCompleted(StatementEvent event) {
+        if (event.getElapsedNanos() < thresholdNanos || closed) {
+            return;
+        }
+        RingBuffer<StatementEvent> buffer = this.buffer;
+        if (buffer == null) {
+            buffer = start();
+        }
+        if (buffer.offer(event)) {
+            recordedCount.incrementAndGet();
+            LockSupport.unpark(writer);
+        } else {
+            droppedCount.incrementAndGet();
+        }
+    }
+
+    private RingBuffer<StatementEvent> start() {
+        if (started.compareAndSet(false, true)) {
+            RingBuffer<StatementEvent> buffer = new RingBuffer<>(bufferSize);
+            Thread thread = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    while (!closed) {
+                        if (!drain()) {
+                            LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+                        }
+                    }
+                    drain();
+                }
+            }, "ddal-slow-statement-writer");
+            thread.setDaemon(true);
+            this.writer = thread;
+            this.buffer = buffer;
+            thread.start();
+            return buffer;
+        } else {
+            RingBuffer<StatementEvent> buffer;
+            while ((buffer = this.buffer) == null) {
+                Thread.yield();
+            }
+            return buffer;
+        }
+    }
+
+    /**
+     * @return 是否写出了记录
+     */
+    private boolean drain() {
+        List<StatementEvent> events = null;
+        StatementEvent event;
+        while ((event = buffer.poll()) != null) {
+            if (events == null) {
+                events = new ArrayList<>();
+            }
+            events.add(event);
+        }
+        if (events == null) {
+            return false;
+        }
+        for (StatementEvent item : events) {
+            try {
+                write(item);
+            } catch (Throwable e) {
+                if (logger.isErrorEnabled()) {
+                    logger.error("[SlowStatementLogger] write failed", e);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 在后台线程中调用
+     */
+    protected void write(StatementEvent event) {
+        if (logger.isWarnEnabled()) {
+            logger.warn(format(event));
+        }
+    }
+
+    protected String format(StatementEvent event) {
+        StringBuilder sb = new StringBuilder("[SlowStatement] elapsed:");
+        appendMillis(sb, event.getElapsedNanos());
+        sb.append(" sql:").append(event.getSql());
+        sb.append(" routedSqls:").append(event.getRoutedSqls());
+        if (event.getJdbcParams() != null && !event.getJdbcParams().isEmpty()) {
+            sb.append(" jdbcParams:").append(DDRJSONUtils.toJSONString(event.getJdbcParams()));
+        }
+        sb.append(" dataSources:[");
+        boolean first = true;
+        for (DataSourceWrapper dataSource : event.getDataSources()) {
+            if (!first) {
+                sb.append(',');
+            }
+            sb.append(dataSource.getSchemas());
+            first = false;
+        }
+        sb.append("] readOnly:").append(event.isReadOnly());
+        sb.append(" phases:{parse:");
+        appendMillis(sb, event.getParseNanos());
+        sb.append(",route:");
+        appendMillis(sb, event.getRouteNanos());
+        sb.append(",dataSource:");
+        appendMillis(sb, event.getDataSourceNanos());
+        sb.append(",connection:");
+        appendMillis(sb, event.getConnectionNanos());
+        sb.append(",prepare:");
+        appendMillis(sb, event.getPrepareNanos());
+        sb.append(",execute:");
+        appendMillis(sb, event.getExecuteNanos());
+        sb.append(",result:");
+        appendMillis(sb, event.getResultNanos());
+        sb.append('}');
+        if (event.getRowCount() >= 0) {
+            sb.append(" rowCount:").append(event.getRowCount());
+        }
+        if (event.getUpdateCount() >= 0) {
+            sb.append(" updateCount:").append(event.getUpdateCount());
+        }
+        if (event.getError() != null) {
+            sb.append(" error:").append(event.getError());
+        }
+        return sb.toString();
+    }
+
+    private static void appendMillis(StringBuilder sb, long nanos) {
+        long micros = nanos / 1000;
+        sb.append(micros / 1000).append('.');
+        long fraction = micros % 1000;
+        if (fraction < 100) {
+            sb.append('0');
+        }
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        sb.append(fraction).append("ms");
+    }
+
+    /**
+     * 停止后台线程,缓冲区中剩余的记录在线程退出前写出
+     */
+    public void close() {
+        closed = true;
+        Thread thread = writer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public long getThresholdMillis() {
+        return thresholdMillis;
+    }
+
+    public void setThresholdMillis(long thresholdMillis) {
+        if (thresholdMillis < 0) {
+            throw new IllegalArgumentException("thresholdMillis can't be negative");
+        }
+        this.thresholdMillis = thresholdMillis;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * 只能在第一条慢sql出现之前设置
+     */
+    public void setBufferSize(int bufferSize) {
+        if (started.get()) {
+            throw new IllegalStateException("bufferSize can't be changed after started");
+        }
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be greater than 0");
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    public void setLoggerName(String loggerName) {
+        this.logger = LoggerFactory.getLogger(loggerName);
+    }
+
+    public long getRecordedCount() {
+        return recordedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * 缓冲区中等待写出的记录数
+     */
+    public int getPendingCount() {
+        RingBuffer<StatementEvent> buffer = this.buffer;
+        return buffer == null ? 0 : buffer.size();
+    }
+}
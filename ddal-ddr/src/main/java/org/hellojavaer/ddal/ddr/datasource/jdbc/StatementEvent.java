@@ -0,0 +1,258 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc;
+
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.sqlparse.RoutedSQL;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.hellojavaer.ddal.ddr.utils.DDRToStringBuilder;
+
+import java.util.*;
+
+/**
+ * 一次sql执行的信息及各阶段耗时(纳秒)
+ *   1.parse:sql解析(命中解析缓存时为查找缓存的耗时);
+ *   2.route:根据jdbc参数计算物理表;
+ *   3.dataSource:选择数据源;
+ *   4.connection:获取物理连接;
+ *   5.prepare:创建物理statement并回放设置和jdbc参数;
+ *   6.execute:执行物理sql;
+ *   7.result:从执行完成到结果集关闭,即结果集的遍历耗时;
+ *   多分片执行时,connection,prepare和execute为各分片耗时之和;复用已初始化的物理statement时,dataSource,connection和prepare为0
+ */
+public class StatementEvent {
+
+    private final String              sql;
+    private final Map<Object, Object> jdbcParams;
+    private final boolean             readOnly;
+    private final long                startTime;
+    private final long                startNanos;
+
+    private SQLParsedResult           parsedResult;
+    private Set<DataSourceWrapper>    dataSources = new LinkedHashSet<>(2);
+    private long                      parseNanos;
+    private long                      routeNanos;
+    private long                      dataSourceNanos;
+    private long                      connectionNanos;
+    private long                      prepareNanos;
+    private long                      executeNanos;
+    private long                      resultNanos;
+    private long                      elapsedNanos;
+    private int                       updateCount = -1;
+    private int                       rowCount    = -1;
+    private Throwable                 error;
+
+    private long                      executedNanos;
+    private boolean                   completed   = false;
+
+    StatementEvent(String sql, Map<Object, Object> jdbcParams, boolean readOnly) {
+        this.sql = sql;
+        this.jdbcParams = jdbcParams;
+        this.readOnly = readOnly;
+        this.startTime = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * original sql
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * copy of the jdbc parameters(key is the parameter index) of a preparedStatement, null for a statement
+     */
+    public Map<Object, Object> getJdbcParams() {
+        return jdbcParams;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * start time in milliseconds
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * null if the sql failed to be parsed or the event is of a sharded batch
+     */
+    public SQLParsedResult getParsedResult() {
+        return parsedResult;
+    }
+
+    public List<String> getRoutedSqls() {
+        if (parsedResult == null) {
+            return Collections.emptyList();
+        } else if (parsedResult.isMultiRouted()) {
+            List<String> list = new ArrayList<>(parsedResult.getRoutedSqls().size());
+            for (RoutedSQL routedSql : parsedResult.getRoutedSqls()) {
+                list.add(routedSql.getSql());
+            }
+            return list;
+        } else {
+            return Collections.singletonList(parsedResult.getSql());
+        }
+    }
+
+    public Set<ShardRouteInfo> getRouteInfos() {
+        return parsedResult == null ? null : parsedResult.getRouteInfos();
+    }
+
+    public Set<DataSourceWrapper> getDataSources() {
+        return dataSources;
+    }
+
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    public long getRouteNanos() {
+        return routeNanos;
+    }
+
+    public long getDataSourceNanos() {
+        return dataSourceNanos;
+    }
+
+    public long getConnectionNanos() {
+        return connectionNanos;
+    }
+
+    public long getPrepareNanos() {
+        return prepareNanos;
+    }
+
+    public long getExecuteNanos() {
+        return executeNanos;
+    }
+
+    public long getResultNanos() {
+        return resultNanos;
+    }
+
+    /**
+     * total time from the beginning of the execution to the completion of the event
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * -1 if the statement isn't an update or the update count is unknown
+     */
+    public int getUpdateCount() {
+        return updateCount;
+    }
+
+    /**
+     * number of rows which are iterated by 'ResultSet.next()', -1 if the statement doesn't return a result set or
+     * the result set isn't obtained from 'executeQuery'
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * exception thrown by the execution, null if succeeded
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    void setParsedResult(SQLParsedResult parsedResult) {
+        this.parsedResult = parsedResult;
+    }
+
+    void addDataSource(DataSourceWrapper dataSourceWrapper) {
+        if (dataSourceWrapper != null) {
+            dataSources.add(dataSourceWrapper);
+        }
+    }
+
+    void addParseNanos(long nanos) {
+        parseNanos += nanos;
+    }
+
+    void addRouteNanos(long nanos) {
+        routeNanos += nanos;
+    }
+
+    void addDataSourceNanos(long nanos) {
+        dataSourceNanos += nanos;
+    }
+
+    void addConnectionNanos(long nanos) {
+        connectionNanos += nanos;
+    }
+
+    void addPrepareNanos(long nanos) {
+        prepareNanos += nanos;
+    }
+
+    void addExecuteNanos(long nanos) {
+        executeNanos += nanos;
+        executedNanos = System.nanoTime();
+    }
+
+    void setUpdateCount(int updateCount) {
+        this.updateCount = updateCount;
+    }
+
+    void incrementRowCount() {
+        rowCount++;
+    }
+
+    void setResultSetOpened() {
+        rowCount = 0;
+    }
+
+    void setError(Throwable error) {
+        this.error = error;
+    }
+
+    /**
+     * @return false if the event has been completed
+     */
+    synchronized boolean complete() {
+        if (completed) {
+            return false;
+        }
+        completed = true;
+        long now = System.nanoTime();
+        if (executedNanos != 0 && rowCount >= 0) {
+            resultNanos = now - executedNanos;
+        }
+        elapsedNanos = now - startNanos;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return new DDRToStringBuilder().append("sql", sql).append("jdbcParams", jdbcParams)//
+        .append("routedSqls", getRoutedSqls()).append("routeInfos", getRouteInfos())//
+        .append("dataSources", dataSources).append("readOnly", readOnly).append("parseNanos", parseNanos)//
+        .append("routeNanos", routeNanos).append("dataSourceNanos", dataSourceNanos)//
+        .append("connectionNanos", connectionNanos).append("prepareNanos", prepareNanos)//
+        .append("executeNanos", executeNanos).append("resultNanos", resultNanos)//
+        .append("elapsedNanos", elapsedNanos).append("updateCount", updateCount).append("rowCount", rowCount)//
+        .append("error", error).toString();
+    }
+}
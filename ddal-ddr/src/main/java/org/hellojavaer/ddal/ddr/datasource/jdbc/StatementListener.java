@@ -0,0 +1,29 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc;
+
+/**
+ * sql执行的监听器,通过{@link AbstractDDRDataSource#setStatementListeners}注册
+ *   1.每次执行(execute,executeQuery,executeUpdate,executeBatch)完成后在执行线程中回调一次,
+ *     返回结果集的查询在结果集关闭(或statement再次执行,关闭)时回调,以便统计结果集的遍历耗时;
+ *   2.回调中抛出的异常被忽略,不影响sql的执行;
+ *   3.没有注册监听器时不记录任何耗时;
+ */
+public interface StatementListener {
+
+    void onCompleted(StatementEvent event);
+
+}
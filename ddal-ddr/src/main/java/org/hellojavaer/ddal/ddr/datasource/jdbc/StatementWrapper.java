@@ -25,9 +25,10 @@ import java.util.Set;
  */
 public class StatementWrapper {
 
-    private Statement   statement;
-    private Connection  connection;
-    private Set<String> schemas;
+    private Statement         statement;
+    private Connection        connection;
+    private Set<String>       schemas;
+    private DataSourceWrapper dataSourceWrapper;
 
     public StatementWrapper(Connection connection, Statement statement, Set<String> schemas) {
         this.connection = connection;
@@ -58,4 +59,12 @@ public class StatementWrapper {
     public void setSchemas(Set<String> schemas) {
         this.schemas = schemas;
     }
+
+    public DataSourceWrapper getDataSourceWrapper() {
+        return dataSourceWrapper;
+    }
+
+    public void setDataSourceWrapper(DataSourceWrapper dataSourceWrapper) {
+        this.dataSourceWrapper = dataSourceWrapper;
+    }
 }
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc.executor;
+
+/**
+ * 异步任务完成时的回调,在完成任务的线程中执行
+ */
+public interface ShardCallback<T> {
+
+    void onSuccess(T result);
+
+    /**
+     * @param e the cause of the failure, or a CancellationException if the task was cancelled
+     */
+    void onFailure(Throwable e);
+
+}
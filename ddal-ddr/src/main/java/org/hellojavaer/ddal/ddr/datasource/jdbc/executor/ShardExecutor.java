@@ -0,0 +1,342 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc.executor;
+
+import org.hellojavaer.ddal.ddr.datasource.jdbc.DataSourceWrapper;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedList;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多分片执行引擎
+ *   1.每个数据源有独立的并发上限(maxConcurrencyPerDataSource),超出上限的任务在该数据源的队列中等待,不占用执行线程,
+ *     避免一个慢分片耗尽执行线程和连接池而影响其他数据源;并发上限按物理DataSource计算,多个DataSourceWrapper共享同一个
+ *     DataSource时共用一个上限,没有任务的数据源不保留状态;
+ *   2.所有数据源的任务总并发不超过maxConcurrency,超出上限的任务同样在队列中等待;
+ *   3.任务在平台线程池或虚拟线程(需要JDK21及以上,不支持时使用平台线程池)中执行,也可以通过executorService指定;
+ *   4.提交任务时捕获当前线程的ShardRouteContext,并在执行线程中恢复;
+ *   5.提交任务返回ShardFuture,可以注册完成回调,不需要阻塞等待任务完成;
+ */
+public class ShardExecutor {
+
+    private static final Logger                   logger                      = LoggerFactory.getLogger(ShardExecutor.class);
+
+    private int                                   maxConcurrency              = Runtime.getRuntime().availableProcessors() * 2;
+    private int                                   maxConcurrencyPerDataSource = 0;
+    private boolean                               useVirtualThreads           = false;
+    private ExecutorService                       executorService;
+
+    private volatile ExecutorService              executor;
+    private final ConcurrentHashMap<Object, Lane> lanes                       = new ConcurrentHashMap<>();
+    // 等待全局并发许可的任务
+    private final LinkedList<LaneTask<?>>         globalPending               = new LinkedList<>();
+    private int                                   globalRunning               = 0;
+
+    /**
+     * global concurrency of all datasources, default is 'availableProcessors * 2'
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be greater than 0");
+        }
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * concurrency of each datasource, default is half of 'maxConcurrency'
+     */
+    public int getMaxConcurrencyPerDataSource() {
+        if (maxConcurrencyPerDataSource > 0) {
+            return maxConcurrencyPerDataSource;
+        } else {
+            return Math.max(1, maxConcurrency / 2);
+        }
+    }
+
+    public void setMaxConcurrencyPerDataSource(int maxConcurrencyPerDataSource) {
+        this.maxConcurrencyPerDataSource = maxConcurrencyPerDataSource;
+    }
+
+    public boolean isUseVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    public void setUseVirtualThreads(boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    /**
+     * executor which runs the tasks, if it is set 'useVirtualThreads' is ignored
+     */
+    public void setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    /**
+     * 提交任务,任务在dataSourceWrapper的并发上限内执行
+     */
+    public <T> ShardFuture<T> submit(DataSourceWrapper dataSourceWrapper, Callable<T> task) {
+        Object key = dataSourceWrapper.getDataSource() != null ? dataSourceWrapper.getDataSource() : dataSourceWrapper;
+        LaneTask<T> laneTask = new LaneTask<>(new ContextCallable<>(task, ShardRouteContext.captureContext()));
+        while (true) {
+            Lane lane = lanes.get(key);
+            if (lane == null) {
+                lane = new Lane(key, getMaxConcurrencyPerDataSource());
+                Lane old = lanes.putIfAbsent(key, lane);
+                if (old != null) {
+                    lane = old;
+                }
+            }
+            Boolean dispatchable = lane.offer(laneTask);
+            if (dispatchable == null) {// lane已移除,重新获取
+                continue;
+            }
+            if (dispatchable) {
+                dispatch(laneTask);
+            }
+            return laneTask;
+        }
+    }
+
+    /**
+     * number of datasources which have running or pending tasks
+     */
+    int getLaneCount() {
+        return lanes.size();
+    }
+
+    public void shutdown() {
+        ExecutorService executor = this.executor;
+        if (executor != null && executor != executorService) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 获取全局并发许可后执行,否则进入全局队列
+     */
+    private void dispatch(LaneTask<?> task) {
+        synchronized (globalPending) {
+            if (globalRunning >= maxConcurrency) {
+                globalPending.add(task);
+                return;
+            }
+            globalRunning++;
+            task.running = true;
+        }
+        execute(task);
+    }
+
+    /**
+     * @return next task which should be executed, null if there is no pending task
+     */
+    private LaneTask<?> release(LaneTask<?> task) {
+        synchronized (globalPending) {
+            if (!task.running) {// 排队中被取消的任务
+                globalPending.remove(task);
+                return null;
+            }
+            LaneTask<?> next = null;
+            while ((next = globalPending.poll()) != null) {
+                if (!next.isCancelled()) {
+                    next.running = true;
+                    return next;
+                }
+            }
+            globalRunning--;
+            return null;
+        }
+    }
+
+    private void execute(LaneTask<?> task) {
+        try {
+            getExecutor().execute(task);
+        } catch (RejectedExecutionException e) {
+            task.reject(e);
+        }
+    }
+
+    private ExecutorService getExecutor() {
+        if (executor == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    if (executorService != null) {
+                        executor = executorService;
+                    } else if (useVirtualThreads) {
+                        executor = createVirtualThreadExecutor();
+                    } else {
+                        executor = createPlatformThreadExecutor();
+                    }
+                }
+            }
+        }
+        return executor;
+    }
+
+    private ExecutorService createPlatformThreadExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+                                                             new LinkedBlockingQueue<Runnable>(),
+                                                             new ShardThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() is available since JDK 21
+     */
+    private ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception e) {
+            if (logger.isWarnEnabled()) {
+                logger.warn("[ShardExecutor] virtual threads are not supported by current JVM, "
+                            + "platform thread pool is used instead");
+            }
+            return createPlatformThreadExecutor();
+        }
+    }
+
+    private static class ShardThreadFactory implements ThreadFactory {
+
+        private AtomicInteger count = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "ddal-shard-executor-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * 数据源的并发控制:未达到上限时直接执行,否则进入队列,在该数据源的任务完成时依次执行;
+     * 所有任务完成后从lanes中移除
+     */
+    private class Lane {
+
+        private Object                  key;
+        private int                     limit;
+        private int                     running = 0;
+        private LinkedList<LaneTask<?>> pending = new LinkedList<>();
+        private boolean                 removed = false;
+
+        public Lane(Object key, int limit) {
+            this.key = key;
+            this.limit = limit;
+        }
+
+        /**
+         * @return true if the task can be dispatched immediately, null if the lane has been removed
+         */
+        public synchronized Boolean offer(LaneTask<?> task) {
+            if (removed) {
+                return null;
+            }
+            task.lane = this;
+            if (running < limit) {
+                running++;
+                task.dispatched = true;
+                return true;
+            } else {
+                pending.add(task);
+                return false;
+            }
+        }
+
+        /**
+         * @return next task which should be dispatched, null if there is no pending task
+         */
+        public synchronized LaneTask<?> release(LaneTask<?> task) {
+            if (!task.dispatched) {// 排队中被取消的任务
+                return null;
+            }
+            LaneTask<?> next = null;
+            while ((next = pending.poll()) != null) {
+                if (!next.isCancelled()) {
+                    next.dispatched = true;
+                    return next;
+                }
+            }
+            running--;
+            if (running == 0) {
+                removed = true;
+                lanes.remove(key, this);
+            }
+            return null;
+        }
+    }
+
+    private class LaneTask<T> extends ShardFuture<T> {
+
+        private volatile Lane lane;
+        private boolean       dispatched = false; // guarded by lane
+        private boolean       running    = false; // guarded by globalPending
+
+        public LaneTask(Callable<T> callable) {
+            super(callable);
+        }
+
+        public void reject(Throwable e) {
+            fail(e);
+        }
+
+        @Override
+        protected void done() {
+            LaneTask<?> next = release(this);
+            if (next != null) {
+                execute(next);
+            }
+            next = lane.release(this);
+            if (next != null) {
+                dispatch(next);
+            }
+            super.done();
+        }
+    }
+
+    private class ContextCallable<T> implements Callable<T> {
+
+        private Callable<T> task;
+        private Object      context;
+
+        public ContextCallable(Callable<T> task, Object context) {
+            this.task = task;
+            this.context = context;
+        }
+
+        @Override
+        public T call() throws Exception {
+            Object previous = ShardRouteContext.restoreContext(context);
+            try {
+                return task.call();
+            } finally {
+                ShardRouteContext.restoreContext(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc.executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 支持完成回调的Future
+ *   1.通过addCallback注册回调,任务完成时在完成任务的线程中执行,如果注册时任务已完成则在当前线程中立即执行;
+ *   2.通过allAsList组合多个Future,组合时不占用等待线程;
+ */
+public class ShardFuture<T> extends FutureTask<T> {
+
+    private static final Logger            logger    = LoggerFactory.getLogger(ShardFuture.class);
+
+    private List<ShardCallback<? super T>> callbacks = new ArrayList<>();
+
+    public ShardFuture(Callable<T> callable) {
+        super(callable);
+    }
+
+    /**
+     * create a future which is completed by 'complete' or 'fail' instead of being run
+     */
+    protected ShardFuture() {
+        super(new Callable<T>() {
+
+            @Override
+            public T call() throws Exception {
+                throw new IllegalStateException("ShardFuture is completed by 'complete' or 'fail' and can't be run");
+            }
+        });
+    }
+
+    protected void complete(T value) {
+        set(value);
+    }
+
+    protected void fail(Throwable e) {
+        setException(e);
+    }
+
+    public void addCallback(ShardCallback<? super T> callback) {
+        if (callback == null) {
+            throw new IllegalArgumentException("callback can't be null");
+        }
+        synchronized (this) {
+            if (callbacks != null) {
+                callbacks.add(callback);
+                return;
+            }
+        }
+        invokeCallback(callback);
+    }
+
+    @Override
+    protected void done() {
+        List<ShardCallback<? super T>> list = null;
+        synchronized (this) {
+            list = callbacks;
+            callbacks = null;
+        }
+        for (ShardCallback<? super T> callback : list) {
+            invokeCallback(callback);
+        }
+    }
+
+    private void invokeCallback(ShardCallback<? super T> callback) {
+        T result = null;
+        Throwable error = null;
+        try {
+            result = get();
+        } catch (ExecutionException e) {
+            error = e.getCause();
+        } catch (CancellationException e) {
+            error = e;
+        } catch (InterruptedException e) {// 任务已完成,不会发生
+            Thread.currentThread().interrupt();
+            error = e;
+        }
+        try {
+            if (error == null) {
+                callback.onSuccess(result);
+            } else {
+                callback.onFailure(error);
+            }
+        } catch (Throwable e) {
+            if (logger.isErrorEnabled()) {
+                logger.error("[ShardFuture] callback " + callback + " failed", e);
+            }
+        }
+    }
+
+    /**
+     * 组合多个Future:所有Future完成后返回的Future才完成,结果按输入顺序排列;
+     * 任意一个Future失败时,返回的Future以第一个失败原因失败;取消返回的Future时会取消所有输入的Future
+     */
+    public static <T> ShardFuture<List<T>> allAsList(final List<? extends ShardFuture<? extends T>> futures) {
+        final ShardFuture<List<T>> result = new ShardFuture<List<T>>() {
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    for (ShardFuture<? extends T> future : futures) {
+                        future.cancel(false);
+                    }
+                }
+                super.done();
+            }
+        };
+        if (futures.isEmpty()) {
+            result.complete(Collections.<T> emptyList());
+            return result;
+        }
+        final List<T> values = new ArrayList<>(Collections.<T> nCopies(futures.size(), null));
+        final Throwable[] error = new Throwable[1];
+        final AtomicInteger remaining = new AtomicInteger(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            final int index = i;
+            futures.get(i).addCallback(new ShardCallback<T>() {
+
+                @Override
+                public void onSuccess(T value) {
+                    synchronized (values) {
+                        values.set(index, value);
+                    }
+                    onComplete();
+                }
+
+                @Override
+                public void onFailure(Throwable e) {
+                    synchronized (values) {
+                        if (error[0] == null) {
+                            error[0] = e;
+                        }
+                    }
+                    onComplete();
+                }
+
+                private void onComplete() {
+                    if (remaining.decrementAndGet() == 0) {
+                        synchronized (values) {
+                            if (error[0] != null) {
+                                result.fail(error[0]);
+                            } else {
+                                result.complete(values);
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        return result;
+    }
+}
@@ -0,0 +1,1162 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc.merge;
+
+import org.hellojavaer.ddal.ddr.datasource.exception.UnsupportedResultSetInvocationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.util.List;
+
+/**
+ * A forward-only and read-only result set which merges the result sets of several physical statements.
+ * Sub classes decide which physical result set holds the current row.
+ */
+public abstract class AbstractMergedResultSet implements ResultSet {
+
+    private Logger              logger    = LoggerFactory.getLogger(this.getClass());
+
+    private Statement           statement;
+    private List<ResultSet>     resultSets;
+    private List<AutoCloseable> resources;
+
+    private int                 row       = 0;
+    private boolean             afterLast = false;
+    private volatile boolean    closed    = false;
+
+    private long                offset    = 0;
+    private long                rowCount  = -1;
+
+    /**
+     *
+     * @param statement the logical statement which produced this result set
+     * @param resultSets physical result sets
+     * @param resources physical statements and connections which are closed after result sets are closed
+     */
+    public AbstractMergedResultSet(Statement statement, List<ResultSet> resultSets, List<AutoCloseable> resources) {
+        if (resultSets == null || resultSets.isEmpty()) {
+            throw new IllegalArgumentException("resultSets can't be empty");
+        }
+        this.statement = statement;
+        this.resultSets = resultSets;
+        this.resources = resources;
+    }
+
+    protected List<ResultSet> getResultSets() {
+        return resultSets;
+    }
+
+    /**
+     * skip the first 'offset' rows and return at most 'rowCount' rows, a negative 'rowCount' means no limit.
+     * When the limit is reached, physical statements are cancelled.
+     */
+    public void setLimit(long offset, long rowCount) {
+        this.offset = offset;
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * move to the next row of merged result
+     */
+    protected abstract boolean next0() throws SQLException;
+
+    /**
+     * physical result set which holds the current row
+     */
+    protected abstract ResultSet getCurrentResultSet() throws SQLException;
+
+    @Override
+    public final boolean next() throws SQLException {
+        checkClosed();
+        if (afterLast) {
+            return false;
+        }
+        if (row == 0) {
+            for (; offset > 0; offset--) {
+                if (!next0()) {
+                    afterLast = true;
+                    return false;
+                }
+            }
+        }
+        if (rowCount >= 0 && row >= rowCount) {
+            afterLast = true;
+            cancelStatements();
+            return false;
+        }
+        if (next0()) {
+            row++;
+            return true;
+        } else {
+            afterLast = true;
+            return false;
+        }
+    }
+
+    /**
+     * stop physical statements which may be still transferring rows that are not needed any more
+     */
+    private void cancelStatements() {
+        if (resources == null) {
+            return;
+        }
+        for (AutoCloseable resource : resources) {
+            if (resource instanceof Statement) {
+                try {
+                    ((Statement) resource).cancel();
+                } catch (Exception e) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("[cancelStatements] cancel statement failed", e);
+                    }
+                }
+            }
+        }
+    }
+
+    protected void checkClosed() throws SQLException {
+        if (closed) {
+            throw new SQLException("ResultSet is closed");
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        SQLException exception = null;
+        for (ResultSet resultSet : resultSets) {
+            try {
+                resultSet.close();
+            } catch (SQLException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.setNextException(e);
+                }
+            }
+        }
+        if (resources != null) {
+            for (AutoCloseable resource : resources) {
+                try {
+                    resource.close();
+                } catch (Exception e) {
+                    if (logger.isWarnEnabled()) {
+                        logger.warn("[close] close resource failed", e);
+                    }
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return closed;
+    }
+
+    @Override
+    public Statement getStatement() throws SQLException {
+        return statement;
+    }
+
+    @Override
+    public ResultSetMetaData getMetaData() throws SQLException {
+        return resultSets.get(0).getMetaData();
+    }
+
+    @Override
+    public int findColumn(String columnLabel) throws SQLException {
+        return resultSets.get(0).findColumn(columnLabel);
+    }
+
+    @Override
+    public boolean wasNull() throws SQLException {
+        return getCurrentResultSet().wasNull();
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        SQLWarning warning = null;
+        for (ResultSet resultSet : resultSets) {
+            SQLWarning w = resultSet.getWarnings();
+            if (w != null) {
+                if (warning == null) {
+                    warning = w;
+                } else {
+                    warning.setNextWarning(w);
+                }
+            }
+        }
+        return warning;
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        for (ResultSet resultSet : resultSets) {
+            resultSet.clearWarnings();
+        }
+    }
+
+    @Override
+    public String getCursorName() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("getCursorName");
+    }
+
+    // cursor
+    @Override
+    public int getRow() throws SQLException {
+        return afterLast ? 0 : row;
+    }
+
+    @Override
+    public boolean isBeforeFirst() throws SQLException {
+        return row == 0 && !afterLast;
+    }
+
+    @Override
+    public boolean isAfterLast() throws SQLException {
+        return row > 0 && afterLast;
+    }
+
+    @Override
+    public boolean isFirst() throws SQLException {
+        return row == 1 && !afterLast;
+    }
+
+    @Override
+    public boolean isLast() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("isLast");
+    }
+
+    @Override
+    public void beforeFirst() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("beforeFirst");
+    }
+
+    @Override
+    public void afterLast() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("afterLast");
+    }
+
+    @Override
+    public boolean first() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("first");
+    }
+
+    @Override
+    public boolean last() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("last");
+    }
+
+    @Override
+    public boolean absolute(int row) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("absolute");
+    }
+
+    @Override
+    public boolean relative(int rows) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("relative");
+    }
+
+    @Override
+    public boolean previous() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("previous");
+    }
+
+    @Override
+    public void setFetchDirection(int direction) throws SQLException {
+        if (direction != FETCH_FORWARD) {
+            throw new UnsupportedResultSetInvocationException("setFetchDirection");
+        }
+    }
+
+    @Override
+    public int getFetchDirection() throws SQLException {
+        return FETCH_FORWARD;
+    }
+
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        for (ResultSet resultSet : resultSets) {
+            resultSet.setFetchSize(rows);
+        }
+    }
+
+    @Override
+    public int getFetchSize() throws SQLException {
+        return resultSets.get(0).getFetchSize();
+    }
+
+    @Override
+    public int getType() throws SQLException {
+        return TYPE_FORWARD_ONLY;
+    }
+
+    @Override
+    public int getConcurrency() throws SQLException {
+        return CONCUR_READ_ONLY;
+    }
+
+    @Override
+    public int getHoldability() throws SQLException {
+        return resultSets.get(0).getHoldability();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        throw new SQLException("ResultSet of type [" + getClass().getName() + "] cannot be unwrapped as ["
+                               + iface.getName() + "]");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+
+    // getter
+    @Override
+    public Array getArray(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getArray(columnLabel);
+    }
+
+    @Override
+    public Array getArray(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getArray(columnIndex);
+    }
+
+    @Override
+    public java.io.InputStream getAsciiStream(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getAsciiStream(columnLabel);
+    }
+
+    @Override
+    public java.io.InputStream getAsciiStream(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getAsciiStream(columnIndex);
+    }
+
+    @Deprecated
+    @Override
+    public java.math.BigDecimal getBigDecimal(String columnLabel, int x1) throws SQLException {
+        return getCurrentResultSet().getBigDecimal(columnLabel, x1);
+    }
+
+    @Override
+    public java.math.BigDecimal getBigDecimal(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getBigDecimal(columnLabel);
+    }
+
+    @Deprecated
+    @Override
+    public java.math.BigDecimal getBigDecimal(int columnIndex, int x1) throws SQLException {
+        return getCurrentResultSet().getBigDecimal(columnIndex, x1);
+    }
+
+    @Override
+    public java.math.BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getBigDecimal(columnIndex);
+    }
+
+    @Override
+    public java.io.InputStream getBinaryStream(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getBinaryStream(columnLabel);
+    }
+
+    @Override
+    public java.io.InputStream getBinaryStream(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getBinaryStream(columnIndex);
+    }
+
+    @Override
+    public Blob getBlob(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getBlob(columnLabel);
+    }
+
+    @Override
+    public Blob getBlob(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getBlob(columnIndex);
+    }
+
+    @Override
+    public boolean getBoolean(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getBoolean(columnLabel);
+    }
+
+    @Override
+    public boolean getBoolean(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getBoolean(columnIndex);
+    }
+
+    @Override
+    public byte getByte(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getByte(columnLabel);
+    }
+
+    @Override
+    public byte getByte(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getByte(columnIndex);
+    }
+
+    @Override
+    public byte[] getBytes(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getBytes(columnLabel);
+    }
+
+    @Override
+    public byte[] getBytes(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getBytes(columnIndex);
+    }
+
+    @Override
+    public java.io.Reader getCharacterStream(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getCharacterStream(columnLabel);
+    }
+
+    @Override
+    public java.io.Reader getCharacterStream(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getCharacterStream(columnIndex);
+    }
+
+    @Override
+    public Clob getClob(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getClob(columnLabel);
+    }
+
+    @Override
+    public Clob getClob(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getClob(columnIndex);
+    }
+
+    @Override
+    public Date getDate(String columnLabel, java.util.Calendar x1) throws SQLException {
+        return getCurrentResultSet().getDate(columnLabel, x1);
+    }
+
+    @Override
+    public Date getDate(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getDate(columnLabel);
+    }
+
+    @Override
+    public Date getDate(int columnIndex, java.util.Calendar x1) throws SQLException {
+        return getCurrentResultSet().getDate(columnIndex, x1);
+    }
+
+    @Override
+    public Date getDate(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getDate(columnIndex);
+    }
+
+    @Override
+    public double getDouble(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getDouble(columnLabel);
+    }
+
+    @Override
+    public double getDouble(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getDouble(columnIndex);
+    }
+
+    @Override
+    public float getFloat(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getFloat(columnLabel);
+    }
+
+    @Override
+    public float getFloat(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getFloat(columnIndex);
+    }
+
+    @Override
+    public int getInt(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getInt(columnLabel);
+    }
+
+    @Override
+    public int getInt(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getInt(columnIndex);
+    }
+
+    @Override
+    public long getLong(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getLong(columnLabel);
+    }
+
+    @Override
+    public long getLong(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getLong(columnIndex);
+    }
+
+    @Override
+    public java.io.Reader getNCharacterStream(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getNCharacterStream(columnLabel);
+    }
+
+    @Override
+    public java.io.Reader getNCharacterStream(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getNCharacterStream(columnIndex);
+    }
+
+    @Override
+    public NClob getNClob(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getNClob(columnLabel);
+    }
+
+    @Override
+    public NClob getNClob(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getNClob(columnIndex);
+    }
+
+    @Override
+    public String getNString(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getNString(columnLabel);
+    }
+
+    @Override
+    public String getNString(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getNString(columnIndex);
+    }
+
+    @Override
+    public <T> T getObject(String columnLabel, Class<T> x1) throws SQLException {
+        return getCurrentResultSet().getObject(columnLabel, x1);
+    }
+
+    @Override
+    public Object getObject(String columnLabel, java.util.Map<String, Class<?>> x1) throws SQLException {
+        return getCurrentResultSet().getObject(columnLabel, x1);
+    }
+
+    @Override
+    public Object getObject(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getObject(columnLabel);
+    }
+
+    @Override
+    public <T> T getObject(int columnIndex, Class<T> x1) throws SQLException {
+        return getCurrentResultSet().getObject(columnIndex, x1);
+    }
+
+    @Override
+    public Object getObject(int columnIndex, java.util.Map<String, Class<?>> x1) throws SQLException {
+        return getCurrentResultSet().getObject(columnIndex, x1);
+    }
+
+    @Override
+    public Object getObject(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getObject(columnIndex);
+    }
+
+    @Override
+    public Ref getRef(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getRef(columnLabel);
+    }
+
+    @Override
+    public Ref getRef(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getRef(columnIndex);
+    }
+
+    @Override
+    public RowId getRowId(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getRowId(columnLabel);
+    }
+
+    @Override
+    public RowId getRowId(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getRowId(columnIndex);
+    }
+
+    @Override
+    public SQLXML getSQLXML(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getSQLXML(columnLabel);
+    }
+
+    @Override
+    public SQLXML getSQLXML(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getSQLXML(columnIndex);
+    }
+
+    @Override
+    public short getShort(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getShort(columnLabel);
+    }
+
+    @Override
+    public short getShort(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getShort(columnIndex);
+    }
+
+    @Override
+    public String getString(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getString(columnLabel);
+    }
+
+    @Override
+    public String getString(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getString(columnIndex);
+    }
+
+    @Override
+    public Time getTime(String columnLabel, java.util.Calendar x1) throws SQLException {
+        return getCurrentResultSet().getTime(columnLabel, x1);
+    }
+
+    @Override
+    public Time getTime(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getTime(columnLabel);
+    }
+
+    @Override
+    public Time getTime(int columnIndex, java.util.Calendar x1) throws SQLException {
+        return getCurrentResultSet().getTime(columnIndex, x1);
+    }
+
+    @Override
+    public Time getTime(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getTime(columnIndex);
+    }
+
+    @Override
+    public Timestamp getTimestamp(String columnLabel, java.util.Calendar x1) throws SQLException {
+        return getCurrentResultSet().getTimestamp(columnLabel, x1);
+    }
+
+    @Override
+    public Timestamp getTimestamp(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getTimestamp(columnLabel);
+    }
+
+    @Override
+    public Timestamp getTimestamp(int columnIndex, java.util.Calendar x1) throws SQLException {
+        return getCurrentResultSet().getTimestamp(columnIndex, x1);
+    }
+
+    @Override
+    public Timestamp getTimestamp(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getTimestamp(columnIndex);
+    }
+
+    @Override
+    public java.net.URL getURL(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getURL(columnLabel);
+    }
+
+    @Override
+    public java.net.URL getURL(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getURL(columnIndex);
+    }
+
+    @Deprecated
+    @Override
+    public java.io.InputStream getUnicodeStream(String columnLabel) throws SQLException {
+        return getCurrentResultSet().getUnicodeStream(columnLabel);
+    }
+
+    @Deprecated
+    @Override
+    public java.io.InputStream getUnicodeStream(int columnIndex) throws SQLException {
+        return getCurrentResultSet().getUnicodeStream(columnIndex);
+    }
+
+    // update
+    @Override
+    public boolean rowUpdated() throws SQLException {
+        return false;
+    }
+
+    @Override
+    public boolean rowInserted() throws SQLException {
+        return false;
+    }
+
+    @Override
+    public boolean rowDeleted() throws SQLException {
+        return false;
+    }
+
+    @Override
+    public void insertRow() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("insertRow");
+    }
+
+    @Override
+    public void updateRow() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateRow");
+    }
+
+    @Override
+    public void deleteRow() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("deleteRow");
+    }
+
+    @Override
+    public void refreshRow() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("refreshRow");
+    }
+
+    @Override
+    public void cancelRowUpdates() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("cancelRowUpdates");
+    }
+
+    @Override
+    public void moveToInsertRow() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("moveToInsertRow");
+    }
+
+    @Override
+    public void moveToCurrentRow() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("moveToCurrentRow");
+    }
+
+    @Override
+    public void updateArray(String columnLabel, Array x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateArray");
+    }
+
+    @Override
+    public void updateArray(int columnIndex, Array x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateArray");
+    }
+
+    @Override
+    public void updateAsciiStream(String columnLabel, java.io.InputStream x1, int x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateAsciiStream");
+    }
+
+    @Override
+    public void updateAsciiStream(String columnLabel, java.io.InputStream x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateAsciiStream");
+    }
+
+    @Override
+    public void updateAsciiStream(String columnLabel, java.io.InputStream x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateAsciiStream");
+    }
+
+    @Override
+    public void updateAsciiStream(int columnIndex, java.io.InputStream x1, int x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateAsciiStream");
+    }
+
+    @Override
+    public void updateAsciiStream(int columnIndex, java.io.InputStream x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateAsciiStream");
+    }
+
+    @Override
+    public void updateAsciiStream(int columnIndex, java.io.InputStream x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateAsciiStream");
+    }
+
+    @Override
+    public void updateBigDecimal(String columnLabel, java.math.BigDecimal x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBigDecimal");
+    }
+
+    @Override
+    public void updateBigDecimal(int columnIndex, java.math.BigDecimal x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBigDecimal");
+    }
+
+    @Override
+    public void updateBinaryStream(String columnLabel, java.io.InputStream x1, int x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBinaryStream");
+    }
+
+    @Override
+    public void updateBinaryStream(String columnLabel, java.io.InputStream x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBinaryStream");
+    }
+
+    @Override
+    public void updateBinaryStream(String columnLabel, java.io.InputStream x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBinaryStream");
+    }
+
+    @Override
+    public void updateBinaryStream(int columnIndex, java.io.InputStream x1, int x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBinaryStream");
+    }
+
+    @Override
+    public void updateBinaryStream(int columnIndex, java.io.InputStream x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBinaryStream");
+    }
+
+    @Override
+    public void updateBinaryStream(int columnIndex, java.io.InputStream x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBinaryStream");
+    }
+
+    @Override
+    public void updateBlob(String columnLabel, java.io.InputStream x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBlob");
+    }
+
+    @Override
+    public void updateBlob(String columnLabel, java.io.InputStream x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBlob");
+    }
+
+    @Override
+    public void updateBlob(String columnLabel, Blob x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBlob");
+    }
+
+    @Override
+    public void updateBlob(int columnIndex, java.io.InputStream x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBlob");
+    }
+
+    @Override
+    public void updateBlob(int columnIndex, java.io.InputStream x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBlob");
+    }
+
+    @Override
+    public void updateBlob(int columnIndex, Blob x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBlob");
+    }
+
+    @Override
+    public void updateBoolean(String columnLabel, boolean x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBoolean");
+    }
+
+    @Override
+    public void updateBoolean(int columnIndex, boolean x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBoolean");
+    }
+
+    @Override
+    public void updateByte(String columnLabel, byte x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateByte");
+    }
+
+    @Override
+    public void updateByte(int columnIndex, byte x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateByte");
+    }
+
+    @Override
+    public void updateBytes(String columnLabel, byte[] x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBytes");
+    }
+
+    @Override
+    public void updateBytes(int columnIndex, byte[] x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBytes");
+    }
+
+    @Override
+    public void updateCharacterStream(String columnLabel, java.io.Reader x1, int x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateCharacterStream");
+    }
+
+    @Override
+    public void updateCharacterStream(String columnLabel, java.io.Reader x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateCharacterStream");
+    }
+
+    @Override
+    public void updateCharacterStream(String columnLabel, java.io.Reader x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateCharacterStream");
+    }
+
+    @Override
+    public void updateCharacterStream(int columnIndex, java.io.Reader x1, int x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateCharacterStream");
+    }
+
+    @Override
+    public void updateCharacterStream(int columnIndex, java.io.Reader x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateCharacterStream");
+    }
+
+    @Override
+    public void updateCharacterStream(int columnIndex, java.io.Reader x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateCharacterStream");
+    }
+
+    @Override
+    public void updateClob(String columnLabel, java.io.Reader x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateClob");
+    }
+
+    @Override
+    public void updateClob(String columnLabel, java.io.Reader x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateClob");
+    }
+
+    @Override
+    public void updateClob(String columnLabel, Clob x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateClob");
+    }
+
+    @Override
+    public void updateClob(int columnIndex, java.io.Reader x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateClob");
+    }
+
+    @Override
+    public void updateClob(int columnIndex, java.io.Reader x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateClob");
+    }
+
+    @Override
+    public void updateClob(int columnIndex, Clob x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateClob");
+    }
+
+    @Override
+    public void updateDate(String columnLabel, Date x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateDate");
+    }
+
+    @Override
+    public void updateDate(int columnIndex, Date x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateDate");
+    }
+
+    @Override
+    public void updateDouble(String columnLabel, double x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateDouble");
+    }
+
+    @Override
+    public void updateDouble(int columnIndex, double x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateDouble");
+    }
+
+    @Override
+    public void updateFloat(String columnLabel, float x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateFloat");
+    }
+
+    @Override
+    public void updateFloat(int columnIndex, float x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateFloat");
+    }
+
+    @Override
+    public void updateInt(String columnLabel, int x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateInt");
+    }
+
+    @Override
+    public void updateInt(int columnIndex, int x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateInt");
+    }
+
+    @Override
+    public void updateLong(String columnLabel, long x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateLong");
+    }
+
+    @Override
+    public void updateLong(int columnIndex, long x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateLong");
+    }
+
+    @Override
+    public void updateNCharacterStream(String columnLabel, java.io.Reader x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNCharacterStream");
+    }
+
+    @Override
+    public void updateNCharacterStream(String columnLabel, java.io.Reader x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNCharacterStream");
+    }
+
+    @Override
+    public void updateNCharacterStream(int columnIndex, java.io.Reader x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNCharacterStream");
+    }
+
+    @Override
+    public void updateNCharacterStream(int columnIndex, java.io.Reader x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNCharacterStream");
+    }
+
+    @Override
+    public void updateNClob(String columnLabel, java.io.Reader x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNClob");
+    }
+
+    @Override
+    public void updateNClob(String columnLabel, java.io.Reader x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNClob");
+    }
+
+    @Override
+    public void updateNClob(String columnLabel, NClob x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNClob");
+    }
+
+    @Override
+    public void updateNClob(int columnIndex, java.io.Reader x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNClob");
+    }
+
+    @Override
+    public void updateNClob(int columnIndex, java.io.Reader x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNClob");
+    }
+
+    @Override
+    public void updateNClob(int columnIndex, NClob x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNClob");
+    }
+
+    @Override
+    public void updateNString(String columnLabel, String x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNString");
+    }
+
+    @Override
+    public void updateNString(int columnIndex, String x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNString");
+    }
+
+    @Override
+    public void updateNull(String columnLabel) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNull");
+    }
+
+    @Override
+    public void updateNull(int columnIndex) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNull");
+    }
+
+    @Override
+    public void updateObject(String columnLabel, Object x1, int x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateObject");
+    }
+
+    @Override
+    public void updateObject(String columnLabel, Object x1, SQLType x2, int x3) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateObject");
+    }
+
+    @Override
+    public void updateObject(String columnLabel, Object x1, SQLType x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateObject");
+    }
+
+    @Override
+    public void updateObject(String columnLabel, Object x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateObject");
+    }
+
+    @Override
+    public void updateObject(int columnIndex, Object x1, int x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateObject");
+    }
+
+    @Override
+    public void updateObject(int columnIndex, Object x1, SQLType x2, int x3) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateObject");
+    }
+
+    @Override
+    public void updateObject(int columnIndex, Object x1, SQLType x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateObject");
+    }
+
+    @Override
+    public void updateObject(int columnIndex, Object x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateObject");
+    }
+
+    @Override
+    public void updateRef(String columnLabel, Ref x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateRef");
+    }
+
+    @Override
+    public void updateRef(int columnIndex, Ref x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateRef");
+    }
+
+    @Override
+    public void updateRowId(String columnLabel, RowId x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateRowId");
+    }
+
+    @Override
+    public void updateRowId(int columnIndex, RowId x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateRowId");
+    }
+
+    @Override
+    public void updateSQLXML(String columnLabel, SQLXML x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateSQLXML");
+    }
+
+    @Override
+    public void updateSQLXML(int columnIndex, SQLXML x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateSQLXML");
+    }
+
+    @Override
+    public void updateShort(String columnLabel, short x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateShort");
+    }
+
+    @Override
+    public void updateShort(int columnIndex, short x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateShort");
+    }
+
+    @Override
+    public void updateString(String columnLabel, String x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateString");
+    }
+
+    @Override
+    public void updateString(int columnIndex, String x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateString");
+    }
+
+    @Override
+    public void updateTime(String columnLabel, Time x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateTime");
+    }
+
+    @Override
+    public void updateTime(int columnIndex, Time x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateTime");
+    }
+
+    @Override
+    public void updateTimestamp(String columnLabel, Timestamp x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateTimestamp");
+    }
+
+    @Override
+    public void updateTimestamp(int columnIndex, Timestamp x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateTimestamp");
+    }
+}
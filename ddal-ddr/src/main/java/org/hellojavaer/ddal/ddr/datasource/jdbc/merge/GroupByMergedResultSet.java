@@ -0,0 +1,303 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc.merge;
+
+import org.hellojavaer.ddal.ddr.sqlparse.AggregateColumn;
+import org.hellojavaer.ddal.ddr.sqlparse.OrderByColumn;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+/**
+ * Merge the partial aggregate results of physical result sets by 'group by' columns.
+ *
+ * Each physical result set holds at most one row per group, so all groups are combined in memory by a hash
+ * aggregation. When there is only one 'group by' column and its value is integral, groups are looked up by a
+ * primitive long key without boxing. The aggregated rows keep the order in which each group first appears, and are
+ * sorted by 'order by' columns if there are.
+ *
+ * 'count' and 'sum' are added up, 'min' and 'max' are compared, and 'avg' is computed by the 'sum' and 'count'
+ * columns which are appended to each physical sql.
+ */
+public class GroupByMergedResultSet extends AbstractMergedResultSet {
+
+    // mysql 'div_precision_increment'
+    private static final int      AVG_SCALE_INCREMENT = 4;
+
+    private int[]                 groupByColumnIndexes;
+    private List<AggregateColumn> aggregateColumns;
+    private int                   hiddenColumnCount;
+    private List<OrderByColumn>   orderByColumns;
+
+    private List<Object[]>        rows;
+    private int                   cursor              = -1;
+    private RowResultSet          current;
+
+    /**
+     *
+     * @param groupByColumnIndexes null or empty means all rows are aggregated into one group
+     * @param aggregateColumns can be null
+     * @param hiddenColumnCount number of trailing columns which are invisible in merged result
+     * @param orderByColumns can be null
+     */
+    public GroupByMergedResultSet(Statement statement, List<ResultSet> resultSets, List<AutoCloseable> resources,
+                                  List<Integer> groupByColumnIndexes, List<AggregateColumn> aggregateColumns,
+                                  int hiddenColumnCount, List<OrderByColumn> orderByColumns) {
+        super(statement, resultSets, resources);
+        if (groupByColumnIndexes == null) {
+            this.groupByColumnIndexes = new int[0];
+        } else {
+            this.groupByColumnIndexes = new int[groupByColumnIndexes.size()];
+            for (int i = 0; i < groupByColumnIndexes.size(); i++) {
+                this.groupByColumnIndexes[i] = groupByColumnIndexes.get(i);
+            }
+        }
+        this.aggregateColumns = aggregateColumns == null ? Collections.<AggregateColumn> emptyList() : aggregateColumns;
+        this.hiddenColumnCount = hiddenColumnCount;
+        this.orderByColumns = orderByColumns;
+    }
+
+    @Override
+    protected boolean next0() throws SQLException {
+        if (rows == null) {
+            init();
+        }
+        cursor++;
+        if (cursor < rows.size()) {
+            current.setRow(rows.get(cursor));
+            return true;
+        } else {
+            current.setRow(null);
+            return false;
+        }
+    }
+
+    @Override
+    protected ResultSet getCurrentResultSet() throws SQLException {
+        if (current == null) {
+            throw new SQLException("No current row");
+        }
+        return current;
+    }
+
+    @Override
+    public ResultSetMetaData getMetaData() throws SQLException {
+        ResultSetMetaData metaData = super.getMetaData();
+        if (hiddenColumnCount > 0) {
+            return new VisibleColumnsMetaData(metaData, metaData.getColumnCount() - hiddenColumnCount);
+        } else {
+            return metaData;
+        }
+    }
+
+    private void init() throws SQLException {
+        List<ResultSet> resultSets = getResultSets();
+        ResultSet first = resultSets.get(0);
+        int columnCount = first.getMetaData().getColumnCount();
+        rows = aggregate(resultSets, columnCount);
+        for (Object[] row : rows) {
+            computeAvg(row);
+        }
+        if (orderByColumns != null && !orderByColumns.isEmpty()) {
+            sort(first);
+        }
+        current = new RowResultSet(first);
+    }
+
+    private List<Object[]> aggregate(List<ResultSet> resultSets, int columnCount) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        LongIntHashMap longKeyGroups = null;
+        Map<Object, Integer> groups = new HashMap<>();
+        if (groupByColumnIndexes.length == 1) {
+            longKeyGroups = new LongIntHashMap();
+        }
+        for (ResultSet resultSet : resultSets) {
+            while (resultSet.next()) {
+                int rowIndex = -1;
+                long longKey = 0;
+                Object key = null;
+                boolean useLongKey = false;
+                if (groupByColumnIndexes.length == 0) {
+                    rowIndex = rows.isEmpty() ? -1 : 0;
+                } else if (groupByColumnIndexes.length == 1) {
+                    key = resultSet.getObject(groupByColumnIndexes[0]);
+                    if (isIntegral(key)) {
+                        useLongKey = true;
+                        longKey = ((Number) key).longValue();
+                        rowIndex = longKeyGroups.get(longKey);
+                    } else {
+                        key = new GroupKey(new Object[] { key });
+                        rowIndex = getRowIndex(groups, key);
+                    }
+                } else {
+                    Object[] values = new Object[groupByColumnIndexes.length];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = resultSet.getObject(groupByColumnIndexes[i]);
+                    }
+                    key = new GroupKey(values);
+                    rowIndex = getRowIndex(groups, key);
+                }
+                if (rowIndex < 0) {// new group
+                    Object[] row = new Object[columnCount];
+                    for (int i = 0; i < columnCount; i++) {
+                        row[i] = resultSet.getObject(i + 1);
+                    }
+                    rowIndex = rows.size();
+                    rows.add(row);
+                    if (useLongKey) {
+                        longKeyGroups.put(longKey, rowIndex);
+                    } else if (key != null) {
+                        groups.put(key, rowIndex);
+                    }
+                } else {
+                    Object[] row = rows.get(rowIndex);
+                    for (AggregateColumn aggregateColumn : aggregateColumns) {
+                        int index = aggregateColumn.getColumnIndex();
+                        row[index - 1] = combine(aggregateColumn.getType(), row[index - 1], resultSet.getObject(index));
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static int getRowIndex(Map<Object, Integer> groups, Object key) {
+        Integer index = groups.get(key);
+        return index == null ? -1 : index;
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+    }
+
+    private void computeAvg(Object[] row) {
+        for (AggregateColumn aggregateColumn : aggregateColumns) {
+            if (aggregateColumn.getType() == AggregateColumn.Type.AVG) {
+                Object sum = row[aggregateColumn.getSumColumnIndex() - 1];
+                Object count = row[aggregateColumn.getCountColumnIndex() - 1];
+                row[aggregateColumn.getColumnIndex() - 1] = avg(sum, count);
+            }
+        }
+    }
+
+    static Object avg(Object sum, Object count) {
+        if (sum == null || count == null || ((Number) count).longValue() == 0) {
+            return null;
+        }
+        long n = ((Number) count).longValue();
+        if (sum instanceof Double || sum instanceof Float) {
+            return ((Number) sum).doubleValue() / n;
+        }
+        BigDecimal bigDecimal = OrderByMergedResultSet.toBigDecimal((Number) sum);
+        int scale = Math.max(bigDecimal.scale(), 0) + AVG_SCALE_INCREMENT;
+        return bigDecimal.divide(BigDecimal.valueOf(n), scale, RoundingMode.HALF_UP);
+    }
+
+    static Object combine(AggregateColumn.Type type, Object value1, Object value2) {
+        if (value1 == null) {
+            return value2;
+        } else if (value2 == null) {
+            return value1;
+        }
+        switch (type) {
+            case COUNT:
+            case SUM:
+                return add((Number) value1, (Number) value2);
+            case MIN:
+                return OrderByMergedResultSet.compareValue(value1, value2) <= 0 ? value1 : value2;
+            case MAX:
+                return OrderByMergedResultSet.compareValue(value1, value2) >= 0 ? value1 : value2;
+            default:// avg is computed after all rows are combined
+                return value1;
+        }
+    }
+
+    private static Number add(Number n1, Number n2) {
+        if (isIntegral(n1) && isIntegral(n2)) {
+            long l1 = n1.longValue();
+            long l2 = n2.longValue();
+            long r = l1 + l2;
+            // overflow iff both arguments have the opposite sign of the result
+            if (((l1 ^ r) & (l2 ^ r)) >= 0) {
+                return r;
+            } else {
+                return BigDecimal.valueOf(l1).add(BigDecimal.valueOf(l2));
+            }
+        } else if (n1 instanceof Double || n1 instanceof Float || n2 instanceof Double || n2 instanceof Float) {
+            return n1.doubleValue() + n2.doubleValue();
+        } else {
+            BigDecimal result = OrderByMergedResultSet.toBigDecimal(n1).add(OrderByMergedResultSet.toBigDecimal(n2));
+            if (n1 instanceof BigInteger && n2 instanceof BigInteger) {
+                return result.toBigInteger();
+            }
+            return result;
+        }
+    }
+
+    private void sort(ResultSet first) throws SQLException {
+        final int[] columnIndexes = new int[orderByColumns.size()];
+        for (int i = 0; i < columnIndexes.length; i++) {
+            OrderByColumn orderByColumn = orderByColumns.get(i);
+            if (orderByColumn.getColumnIndex() > 0) {
+                columnIndexes[i] = orderByColumn.getColumnIndex();
+            } else {
+                columnIndexes[i] = first.findColumn(orderByColumn.getColumnLabel());
+            }
+        }
+        // stable sort, equal rows keep the order of groups
+        Collections.sort(rows, new Comparator<Object[]>() {
+
+            @Override
+            public int compare(Object[] o1, Object[] o2) {
+                for (int i = 0; i < columnIndexes.length; i++) {
+                    int result = OrderByMergedResultSet.compareValue(o1[columnIndexes[i] - 1],
+                                                                     o2[columnIndexes[i] - 1]);
+                    if (result != 0) {
+                        return orderByColumns.get(i).isAsc() ? result : -result;
+                    }
+                }
+                return 0;
+            }
+        });
+    }
+
+    private static class GroupKey {
+
+        private Object[] values;
+        private int      hashCode;
+
+        public GroupKey(Object[] values) {
+            this.values = values;
+            this.hashCode = Arrays.deepHashCode(values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof GroupKey && Arrays.deepEquals(values, ((GroupKey) obj).values);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc.merge;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Concatenate physical result sets one after another
+ */
+public class IteratorMergedResultSet extends AbstractMergedResultSet {
+
+    private int index = 0;
+
+    public IteratorMergedResultSet(Statement statement, List<ResultSet> resultSets, List<AutoCloseable> resources) {
+        super(statement, resultSets, resources);
+    }
+
+    @Override
+    protected boolean next0() throws SQLException {
+        List<ResultSet> resultSets = getResultSets();
+        while (index < resultSets.size()) {
+            if (resultSets.get(index).next()) {
+                return true;
+            }
+            index++;
+        }
+        return false;
+    }
+
+    @Override
+    protected ResultSet getCurrentResultSet() throws SQLException {
+        List<ResultSet> resultSets = getResultSets();
+        if (index < resultSets.size()) {
+            return resultSets.get(index);
+        } else {
+            throw new SQLException("No current row");
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc.merge;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing hash map from primitive long to primitive int, which avoids boxing keys when grouping rows by
+ * an integral column.
+ */
+class LongIntHashMap {
+
+    private static final int   NO_VALUE = -1;
+
+    private long[]             keys;
+    private int[]              values;
+    private int                size     = 0;
+    private int                mask;
+
+    public LongIntHashMap() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize the number of keys which can be put without resizing
+     */
+    public LongIntHashMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        init(capacity);
+    }
+
+    private void init(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, NO_VALUE);
+        mask = capacity - 1;
+    }
+
+    /**
+     * @return value of the key, or -1 if the key doesn't exist
+     */
+    public int get(long key) {
+        int i = indexOf(key);
+        return values[i];
+    }
+
+    /**
+     * @param value must not be negative
+     */
+    public void put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value can't be negative");
+        }
+        int i = indexOf(key);
+        if (values[i] == NO_VALUE) {
+            keys[i] = key;
+            size++;
+            values[i] = value;
+            if (size * 2 > keys.length) {
+                resize();
+            }
+        } else {
+            values[i] = value;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // linear probing, returns the slot of the key or the empty slot where the key should be put
+    private int indexOf(long key) {
+        int i = hash(key) & mask;
+        while (values[i] != NO_VALUE && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        init(oldKeys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != NO_VALUE) {
+                int j = indexOf(oldKeys[i]);
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
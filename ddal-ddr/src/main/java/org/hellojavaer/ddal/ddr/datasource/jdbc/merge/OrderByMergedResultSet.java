@@ -0,0 +1,182 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc.merge;
+
+import org.hellojavaer.ddal.ddr.sqlparse.OrderByColumn;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Merge physical result sets which are already sorted by the same 'order by' clause.
+ *
+ * A heap holds the current row of each physical result set, so only one row per result set(plus the rows prefetched
+ * by jdbc driver) is kept in memory, and the first row is available as soon as each result set returns its first row.
+ *
+ * String values are compared by {@link String#compareTo(String)}, i.e. case-sensitively by UTF-16 code unit, which
+ * matches binary collations only. With a case-insensitive collation (e.g. mysql's default utf8mb4_general_ci or
+ * utf8mb4_0900_ai_ci) each physical result set is sorted differently from this comparison, so rows whose 'order by'
+ * strings differ only in case or accent may be merged out of order. Use a binary collation in the 'order by' clause
+ * (eg:'order by name collate utf8mb4_bin') or order by non-string columns when the exact order matters.
+ */
+public class OrderByMergedResultSet extends AbstractMergedResultSet {
+
+    private List<OrderByColumn>   orderByColumns;
+    private int[]                 columnIndexes;
+    private PriorityQueue<Cursor> queue;
+    private Cursor                current;
+
+    public OrderByMergedResultSet(Statement statement, List<ResultSet> resultSets, List<AutoCloseable> resources,
+                                  List<OrderByColumn> orderByColumns) {
+        super(statement, resultSets, resources);
+        if (orderByColumns == null || orderByColumns.isEmpty()) {
+            throw new IllegalArgumentException("orderByColumns can't be empty");
+        }
+        this.orderByColumns = orderByColumns;
+    }
+
+    @Override
+    protected boolean next0() throws SQLException {
+        if (queue == null) {
+            init();
+        } else if (current != null) {
+            if (current.getResultSet().next()) {
+                current.load();
+                queue.add(current);
+            }
+        }
+        current = queue.poll();
+        return current != null;
+    }
+
+    private void init() throws SQLException {
+        List<ResultSet> resultSets = getResultSets();
+        ResultSet first = resultSets.get(0);
+        columnIndexes = new int[orderByColumns.size()];
+        for (int i = 0; i < columnIndexes.length; i++) {
+            OrderByColumn orderByColumn = orderByColumns.get(i);
+            if (orderByColumn.getColumnIndex() > 0) {
+                columnIndexes[i] = orderByColumn.getColumnIndex();
+            } else {
+                columnIndexes[i] = first.findColumn(orderByColumn.getColumnLabel());
+            }
+        }
+        queue = new PriorityQueue<>(resultSets.size(), new CursorComparator());
+        for (int i = 0; i < resultSets.size(); i++) {
+            ResultSet resultSet = resultSets.get(i);
+            if (resultSet.next()) {
+                Cursor cursor = new Cursor(i, resultSet);
+                cursor.load();
+                queue.add(cursor);
+            }
+        }
+    }
+
+    @Override
+    protected ResultSet getCurrentResultSet() throws SQLException {
+        if (current == null) {
+            throw new SQLException("No current row");
+        }
+        return current.getResultSet();
+    }
+
+    private class Cursor {
+
+        private int       index;
+        private ResultSet resultSet;
+        private Object[]  values;
+
+        public Cursor(int index, ResultSet resultSet) {
+            this.index = index;
+            this.resultSet = resultSet;
+            this.values = new Object[columnIndexes.length];
+        }
+
+        public void load() throws SQLException {
+            for (int i = 0; i < columnIndexes.length; i++) {
+                values[i] = resultSet.getObject(columnIndexes[i]);
+            }
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public ResultSet getResultSet() {
+            return resultSet;
+        }
+
+        public Object[] getValues() {
+            return values;
+        }
+    }
+
+    private class CursorComparator implements Comparator<Cursor> {
+
+        @Override
+        public int compare(Cursor o1, Cursor o2) {
+            Object[] values1 = o1.getValues();
+            Object[] values2 = o2.getValues();
+            for (int i = 0; i < values1.length; i++) {
+                int result = compareValue(values1[i], values2[i]);
+                if (result != 0) {
+                    return orderByColumns.get(i).isAsc() ? result : -result;
+                }
+            }
+            // keep the order of physical result sets for equal rows
+            return o1.getIndex() < o2.getIndex() ? -1 : (o1.getIndex() == o2.getIndex() ? 0 : 1);
+        }
+    }
+
+    /**
+     * null is regarded as the smallest value, which is consistent with mysql
+     */
+    static int compareValue(Object o1, Object o2) {
+        if (o1 == o2) {
+            return 0;
+        } else if (o1 == null) {
+            return -1;
+        } else if (o2 == null) {
+            return 1;
+        }
+        if (o1 instanceof Number && o2 instanceof Number && o1.getClass() != o2.getClass()) {
+            return toBigDecimal((Number) o1).compareTo(toBigDecimal((Number) o2));
+        }
+        if (o1 instanceof Comparable) {
+            @SuppressWarnings("unchecked")
+            int result = ((Comparable<Object>) o1).compareTo(o2);
+            return result;
+        }
+        throw new ClassCastException("Value of type [" + o1.getClass().getName() + "] is not comparable");
+    }
+
+    static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        } else if (number instanceof Double || number instanceof Float) {
+            return new BigDecimal(number.doubleValue());
+        } else if (number instanceof java.math.BigInteger) {
+            return new BigDecimal((java.math.BigInteger) number);
+        } else {
+            return BigDecimal.valueOf(number.longValue());
+        }
+    }
+}
@@ -0,0 +1,1147 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc.merge;
+
+import org.hellojavaer.ddal.ddr.datasource.exception.UnsupportedResultSetInvocationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+
+/**
+ * A read-only view of one in-memory row, which is used to expose the rows computed during merging(eg:aggregated
+ * rows) through the getters of {@link ResultSet}. Column labels and meta data are resolved by a physical result set
+ * which has the same columns.
+ */
+class RowResultSet implements ResultSet {
+
+    private ResultSet metaResultSet;
+    private Object[]  row;
+    private boolean   wasNull = false;
+
+    public RowResultSet(ResultSet metaResultSet) {
+        this.metaResultSet = metaResultSet;
+    }
+
+    public void setRow(Object[] row) {
+        this.row = row;
+        this.wasNull = false;
+    }
+
+    private <T> T getValue(int columnIndex, Class<T> type) throws SQLException {
+        Object value = getObject(columnIndex);
+        if (value == null || type.isInstance(value)) {
+            return type.cast(value);
+        }
+        throw new SQLException("Value of column " + columnIndex + " is " + value.getClass() + ", but required " + type);
+    }
+
+    private BigDecimal parseNumber(int columnIndex, Object value) throws SQLException {
+        try {
+            return new BigDecimal(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new SQLException("Value '" + value + "' of column " + columnIndex + " is not a number", e);
+        }
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Can't unwrap " + this.getClass() + " to " + iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+
+    @Override
+    public boolean absolute(int row) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("absolute");
+    }
+
+    @Override
+    public void afterLast() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("afterLast");
+    }
+
+    @Override
+    public void beforeFirst() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("beforeFirst");
+    }
+
+    @Override
+    public void cancelRowUpdates() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("cancelRowUpdates");
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("clearWarnings");
+    }
+
+    @Override
+    public void close() throws SQLException {
+        row = null;
+    }
+
+    @Override
+    public void deleteRow() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("deleteRow");
+    }
+
+    @Override
+    public int findColumn(String columnLabel) throws SQLException {
+        return metaResultSet.findColumn(columnLabel);
+    }
+
+    @Override
+    public boolean first() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("first");
+    }
+
+    @Override
+    public Array getArray(String columnLabel) throws SQLException {
+        return getArray(findColumn(columnLabel));
+    }
+
+    @Override
+    public Array getArray(int columnIndex) throws SQLException {
+        return getValue(columnIndex, Array.class);
+    }
+
+    @Override
+    public InputStream getAsciiStream(String columnLabel) throws SQLException {
+        return getAsciiStream(findColumn(columnLabel));
+    }
+
+    @Override
+    public InputStream getAsciiStream(int columnIndex) throws SQLException {
+        String value = getString(columnIndex);
+        return value == null ? null : new ByteArrayInputStream(value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Deprecated
+    @Override
+    public BigDecimal getBigDecimal(String columnLabel, int x1) throws SQLException {
+        return getBigDecimal(findColumn(columnLabel), x1);
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(String columnLabel) throws SQLException {
+        return getBigDecimal(findColumn(columnLabel));
+    }
+
+    @Deprecated
+    @Override
+    public BigDecimal getBigDecimal(int columnIndex, int x1) throws SQLException {
+        BigDecimal value = getBigDecimal(columnIndex);
+        return value == null ? null : value.setScale(x1, RoundingMode.HALF_UP);
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+        Object value = getObject(columnIndex);
+        if (value == null || value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        } else if (value instanceof Double || value instanceof Float) {
+            return new BigDecimal(value.toString());
+        } else if (value instanceof BigInteger) {
+            return new BigDecimal((BigInteger) value);
+        } else if (value instanceof Number) {
+            return BigDecimal.valueOf(((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? BigDecimal.ONE : BigDecimal.ZERO;
+        } else {
+            return parseNumber(columnIndex, value);
+        }
+    }
+
+    @Override
+    public InputStream getBinaryStream(String columnLabel) throws SQLException {
+        return getBinaryStream(findColumn(columnLabel));
+    }
+
+    @Override
+    public InputStream getBinaryStream(int columnIndex) throws SQLException {
+        byte[] value = getBytes(columnIndex);
+        return value == null ? null : new ByteArrayInputStream(value);
+    }
+
+    @Override
+    public Blob getBlob(String columnLabel) throws SQLException {
+        return getBlob(findColumn(columnLabel));
+    }
+
+    @Override
+    public Blob getBlob(int columnIndex) throws SQLException {
+        return getValue(columnIndex, Blob.class);
+    }
+
+    @Override
+    public boolean getBoolean(String columnLabel) throws SQLException {
+        return getBoolean(findColumn(columnLabel));
+    }
+
+    @Override
+    public boolean getBoolean(int columnIndex) throws SQLException {
+        Object value = getObject(columnIndex);
+        if (value == null) {
+            return false;
+        } else if (value instanceof Boolean) {
+            return (Boolean) value;
+        } else if (value instanceof Number) {
+            return ((Number) value).intValue() != 0;
+        } else {
+            String str = value.toString().trim();
+            return "1".equals(str) || "true".equalsIgnoreCase(str);
+        }
+    }
+
+    @Override
+    public byte getByte(String columnLabel) throws SQLException {
+        return getByte(findColumn(columnLabel));
+    }
+
+    @Override
+    public byte getByte(int columnIndex) throws SQLException {
+        return (byte) getLong(columnIndex);
+    }
+
+    @Override
+    public byte[] getBytes(String columnLabel) throws SQLException {
+        return getBytes(findColumn(columnLabel));
+    }
+
+    @Override
+    public byte[] getBytes(int columnIndex) throws SQLException {
+        Object value = getObject(columnIndex);
+        if (value == null || value instanceof byte[]) {
+            return (byte[]) value;
+        } else {
+            return value.toString().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Override
+    public Reader getCharacterStream(String columnLabel) throws SQLException {
+        return getCharacterStream(findColumn(columnLabel));
+    }
+
+    @Override
+    public Reader getCharacterStream(int columnIndex) throws SQLException {
+        String value = getString(columnIndex);
+        return value == null ? null : new StringReader(value);
+    }
+
+    @Override
+    public Clob getClob(String columnLabel) throws SQLException {
+        return getClob(findColumn(columnLabel));
+    }
+
+    @Override
+    public Clob getClob(int columnIndex) throws SQLException {
+        return getValue(columnIndex, Clob.class);
+    }
+
+    @Override
+    public int getConcurrency() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("getConcurrency");
+    }
+
+    @Override
+    public String getCursorName() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("getCursorName");
+    }
+
+    @Override
+    public Date getDate(String columnLabel, java.util.Calendar x1) throws SQLException {
+        return getDate(findColumn(columnLabel), x1);
+    }
+
+    @Override
+    public Date getDate(String columnLabel) throws SQLException {
+        return getDate(findColumn(columnLabel));
+    }
+
+    @Override
+    public Date getDate(int columnIndex, java.util.Calendar x1) throws SQLException {
+        return getDate(columnIndex);
+    }
+
+    @Override
+    public Date getDate(int columnIndex) throws SQLException {
+        Object value = getObject(columnIndex);
+        if (value == null || value instanceof Date) {
+            return (Date) value;
+        } else if (value instanceof java.util.Date) {
+            return new Date(((java.util.Date) value).getTime());
+        } else {
+            return Date.valueOf(value.toString());
+        }
+    }
+
+    @Override
+    public double getDouble(String columnLabel) throws SQLException {
+        return getDouble(findColumn(columnLabel));
+    }
+
+    @Override
+    public double getDouble(int columnIndex) throws SQLException {
+        Object value = getObject(columnIndex);
+        if (value == null) {
+            return 0;
+        } else if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        } else {
+            return getBigDecimal(columnIndex).doubleValue();
+        }
+    }
+
+    @Override
+    public int getFetchDirection() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("getFetchDirection");
+    }
+
+    @Override
+    public int getFetchSize() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("getFetchSize");
+    }
+
+    @Override
+    public float getFloat(String columnLabel) throws SQLException {
+        return getFloat(findColumn(columnLabel));
+    }
+
+    @Override
+    public float getFloat(int columnIndex) throws SQLException {
+        return (float) getDouble(columnIndex);
+    }
+
+    @Override
+    public int getHoldability() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("getHoldability");
+    }
+
+    @Override
+    public int getInt(String columnLabel) throws SQLException {
+        return getInt(findColumn(columnLabel));
+    }
+
+    @Override
+    public int getInt(int columnIndex) throws SQLException {
+        return (int) getLong(columnIndex);
+    }
+
+    @Override
+    public long getLong(String columnLabel) throws SQLException {
+        return getLong(findColumn(columnLabel));
+    }
+
+    @Override
+    public long getLong(int columnIndex) throws SQLException {
+        Object value = getObject(columnIndex);
+        if (value == null) {
+            return 0;
+        } else if (value instanceof Number) {
+            return ((Number) value).longValue();
+        } else {
+            return getBigDecimal(columnIndex).longValue();
+        }
+    }
+
+    @Override
+    public ResultSetMetaData getMetaData() throws SQLException {
+        return metaResultSet.getMetaData();
+    }
+
+    @Override
+    public Reader getNCharacterStream(String columnLabel) throws SQLException {
+        return getNCharacterStream(findColumn(columnLabel));
+    }
+
+    @Override
+    public Reader getNCharacterStream(int columnIndex) throws SQLException {
+        return getCharacterStream(columnIndex);
+    }
+
+    @Override
+    public NClob getNClob(String columnLabel) throws SQLException {
+        return getNClob(findColumn(columnLabel));
+    }
+
+    @Override
+    public NClob getNClob(int columnIndex) throws SQLException {
+        return getValue(columnIndex, NClob.class);
+    }
+
+    @Override
+    public String getNString(String columnLabel) throws SQLException {
+        return getNString(findColumn(columnLabel));
+    }
+
+    @Override
+    public String getNString(int columnIndex) throws SQLException {
+        return getString(columnIndex);
+    }
+
+    @Override
+    public <T> T getObject(String columnLabel, Class<T> x1) throws SQLException {
+        return getObject(findColumn(columnLabel), x1);
+    }
+
+    @Override
+    public Object getObject(String columnLabel, java.util.Map<String, Class<?>> x1) throws SQLException {
+        return getObject(findColumn(columnLabel), x1);
+    }
+
+    @Override
+    public Object getObject(String columnLabel) throws SQLException {
+        return getObject(findColumn(columnLabel));
+    }
+
+    @Override
+    public <T> T getObject(int columnIndex, Class<T> x1) throws SQLException {
+        Object value = getObject(columnIndex);
+        if (value == null || x1.isInstance(value)) {
+            return x1.cast(value);
+        } else if (x1 == String.class) {
+            return x1.cast(getString(columnIndex));
+        } else if (x1 == Long.class) {
+            return x1.cast(getLong(columnIndex));
+        } else if (x1 == Integer.class) {
+            return x1.cast(getInt(columnIndex));
+        } else if (x1 == BigDecimal.class) {
+            return x1.cast(getBigDecimal(columnIndex));
+        } else if (x1 == Double.class) {
+            return x1.cast(getDouble(columnIndex));
+        } else {
+            throw new SQLException("Can't convert value of column " + columnIndex + " from " + value.getClass() + " to "
+                                   + x1);
+        }
+    }
+
+    @Override
+    public Object getObject(int columnIndex, java.util.Map<String, Class<?>> x1) throws SQLException {
+        return getObject(columnIndex);
+    }
+
+    @Override
+    public Object getObject(int columnIndex) throws SQLException {
+        if (row == null) {
+            throw new SQLException("No current row");
+        }
+        if (columnIndex < 1 || columnIndex > row.length) {
+            throw new SQLException("Column index " + columnIndex + " is out of range [1, " + row.length + "]");
+        }
+        Object value = row[columnIndex - 1];
+        wasNull = value == null;
+        return value;
+    }
+
+    @Override
+    public Ref getRef(String columnLabel) throws SQLException {
+        return getRef(findColumn(columnLabel));
+    }
+
+    @Override
+    public Ref getRef(int columnIndex) throws SQLException {
+        return getValue(columnIndex, Ref.class);
+    }
+
+    @Override
+    public int getRow() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("getRow");
+    }
+
+    @Override
+    public RowId getRowId(String columnLabel) throws SQLException {
+        return getRowId(findColumn(columnLabel));
+    }
+
+    @Override
+    public RowId getRowId(int columnIndex) throws SQLException {
+        return getValue(columnIndex, RowId.class);
+    }
+
+    @Override
+    public SQLXML getSQLXML(String columnLabel) throws SQLException {
+        return getSQLXML(findColumn(columnLabel));
+    }
+
+    @Override
+    public SQLXML getSQLXML(int columnIndex) throws SQLException {
+        return getValue(columnIndex, SQLXML.class);
+    }
+
+    @Override
+    public short getShort(String columnLabel) throws SQLException {
+        return getShort(findColumn(columnLabel));
+    }
+
+    @Override
+    public short getShort(int columnIndex) throws SQLException {
+        return (short) getLong(columnIndex);
+    }
+
+    @Override
+    public Statement getStatement() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("getStatement");
+    }
+
+    @Override
+    public String getString(String columnLabel) throws SQLException {
+        return getString(findColumn(columnLabel));
+    }
+
+    @Override
+    public String getString(int columnIndex) throws SQLException {
+        Object value = getObject(columnIndex);
+        if (value == null) {
+            return null;
+        } else if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        } else if (value instanceof byte[]) {
+            return new String((byte[]) value, StandardCharsets.UTF_8);
+        } else {
+            return value.toString();
+        }
+    }
+
+    @Override
+    public Time getTime(String columnLabel, java.util.Calendar x1) throws SQLException {
+        return getTime(findColumn(columnLabel), x1);
+    }
+
+    @Override
+    public Time getTime(String columnLabel) throws SQLException {
+        return getTime(findColumn(columnLabel));
+    }
+
+    @Override
+    public Time getTime(int columnIndex, java.util.Calendar x1) throws SQLException {
+        return getTime(columnIndex);
+    }
+
+    @Override
+    public Time getTime(int columnIndex) throws SQLException {
+        Object value = getObject(columnIndex);
+        if (value == null || value instanceof Time) {
+            return (Time) value;
+        } else if (value instanceof java.util.Date) {
+            return new Time(((java.util.Date) value).getTime());
+        } else {
+            return Time.valueOf(value.toString());
+        }
+    }
+
+    @Override
+    public Timestamp getTimestamp(String columnLabel, java.util.Calendar x1) throws SQLException {
+        return getTimestamp(findColumn(columnLabel), x1);
+    }
+
+    @Override
+    public Timestamp getTimestamp(String columnLabel) throws SQLException {
+        return getTimestamp(findColumn(columnLabel));
+    }
+
+    @Override
+    public Timestamp getTimestamp(int columnIndex, java.util.Calendar x1) throws SQLException {
+        return getTimestamp(columnIndex);
+    }
+
+    @Override
+    public Timestamp getTimestamp(int columnIndex) throws SQLException {
+        Object value = getObject(columnIndex);
+        if (value == null || value instanceof Timestamp) {
+            return (Timestamp) value;
+        } else if (value instanceof java.util.Date) {
+            return new Timestamp(((java.util.Date) value).getTime());
+        } else {
+            return Timestamp.valueOf(value.toString());
+        }
+    }
+
+    @Override
+    public int getType() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("getType");
+    }
+
+    @Override
+    public java.net.URL getURL(String columnLabel) throws SQLException {
+        return getURL(findColumn(columnLabel));
+    }
+
+    @Override
+    public java.net.URL getURL(int columnIndex) throws SQLException {
+        return getValue(columnIndex, java.net.URL.class);
+    }
+
+    @Deprecated
+    @Override
+    public InputStream getUnicodeStream(String columnLabel) throws SQLException {
+        return getUnicodeStream(findColumn(columnLabel));
+    }
+
+    @Deprecated
+    @Override
+    public InputStream getUnicodeStream(int columnIndex) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("getUnicodeStream");
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("getWarnings");
+    }
+
+    @Override
+    public void insertRow() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("insertRow");
+    }
+
+    @Override
+    public boolean isAfterLast() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("isAfterLast");
+    }
+
+    @Override
+    public boolean isBeforeFirst() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("isBeforeFirst");
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return false;
+    }
+
+    @Override
+    public boolean isFirst() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("isFirst");
+    }
+
+    @Override
+    public boolean isLast() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("isLast");
+    }
+
+    @Override
+    public boolean last() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("last");
+    }
+
+    @Override
+    public void moveToCurrentRow() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("moveToCurrentRow");
+    }
+
+    @Override
+    public void moveToInsertRow() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("moveToInsertRow");
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("next");
+    }
+
+    @Override
+    public boolean previous() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("previous");
+    }
+
+    @Override
+    public void refreshRow() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("refreshRow");
+    }
+
+    @Override
+    public boolean relative(int rows) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("relative");
+    }
+
+    @Override
+    public boolean rowDeleted() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("rowDeleted");
+    }
+
+    @Override
+    public boolean rowInserted() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("rowInserted");
+    }
+
+    @Override
+    public boolean rowUpdated() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("rowUpdated");
+    }
+
+    @Override
+    public void setFetchDirection(int direction) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("setFetchDirection");
+    }
+
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("setFetchSize");
+    }
+
+    @Override
+    public boolean wasNull() throws SQLException {
+        return wasNull;
+    }
+
+    @Override
+    public void updateArray(String columnLabel, Array x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateArray");
+    }
+
+    @Override
+    public void updateArray(int columnIndex, Array x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateArray");
+    }
+
+    @Override
+    public void updateAsciiStream(String columnLabel, InputStream x1, int x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateAsciiStream");
+    }
+
+    @Override
+    public void updateAsciiStream(String columnLabel, InputStream x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateAsciiStream");
+    }
+
+    @Override
+    public void updateAsciiStream(String columnLabel, InputStream x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateAsciiStream");
+    }
+
+    @Override
+    public void updateAsciiStream(int columnIndex, InputStream x1, int x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateAsciiStream");
+    }
+
+    @Override
+    public void updateAsciiStream(int columnIndex, InputStream x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateAsciiStream");
+    }
+
+    @Override
+    public void updateAsciiStream(int columnIndex, InputStream x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateAsciiStream");
+    }
+
+    @Override
+    public void updateBigDecimal(String columnLabel, BigDecimal x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBigDecimal");
+    }
+
+    @Override
+    public void updateBigDecimal(int columnIndex, BigDecimal x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBigDecimal");
+    }
+
+    @Override
+    public void updateBinaryStream(String columnLabel, InputStream x1, int x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBinaryStream");
+    }
+
+    @Override
+    public void updateBinaryStream(String columnLabel, InputStream x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBinaryStream");
+    }
+
+    @Override
+    public void updateBinaryStream(String columnLabel, InputStream x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBinaryStream");
+    }
+
+    @Override
+    public void updateBinaryStream(int columnIndex, InputStream x1, int x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBinaryStream");
+    }
+
+    @Override
+    public void updateBinaryStream(int columnIndex, InputStream x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBinaryStream");
+    }
+
+    @Override
+    public void updateBinaryStream(int columnIndex, InputStream x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBinaryStream");
+    }
+
+    @Override
+    public void updateBlob(String columnLabel, InputStream x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBlob");
+    }
+
+    @Override
+    public void updateBlob(String columnLabel, InputStream x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBlob");
+    }
+
+    @Override
+    public void updateBlob(String columnLabel, Blob x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBlob");
+    }
+
+    @Override
+    public void updateBlob(int columnIndex, InputStream x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBlob");
+    }
+
+    @Override
+    public void updateBlob(int columnIndex, InputStream x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBlob");
+    }
+
+    @Override
+    public void updateBlob(int columnIndex, Blob x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBlob");
+    }
+
+    @Override
+    public void updateBoolean(String columnLabel, boolean x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBoolean");
+    }
+
+    @Override
+    public void updateBoolean(int columnIndex, boolean x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBoolean");
+    }
+
+    @Override
+    public void updateByte(String columnLabel, byte x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateByte");
+    }
+
+    @Override
+    public void updateByte(int columnIndex, byte x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateByte");
+    }
+
+    @Override
+    public void updateBytes(String columnLabel, byte[] x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBytes");
+    }
+
+    @Override
+    public void updateBytes(int columnIndex, byte[] x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateBytes");
+    }
+
+    @Override
+    public void updateCharacterStream(String columnLabel, Reader x1, int x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateCharacterStream");
+    }
+
+    @Override
+    public void updateCharacterStream(String columnLabel, Reader x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateCharacterStream");
+    }
+
+    @Override
+    public void updateCharacterStream(String columnLabel, Reader x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateCharacterStream");
+    }
+
+    @Override
+    public void updateCharacterStream(int columnIndex, Reader x1, int x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateCharacterStream");
+    }
+
+    @Override
+    public void updateCharacterStream(int columnIndex, Reader x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateCharacterStream");
+    }
+
+    @Override
+    public void updateCharacterStream(int columnIndex, Reader x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateCharacterStream");
+    }
+
+    @Override
+    public void updateClob(String columnLabel, Reader x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateClob");
+    }
+
+    @Override
+    public void updateClob(String columnLabel, Reader x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateClob");
+    }
+
+    @Override
+    public void updateClob(String columnLabel, Clob x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateClob");
+    }
+
+    @Override
+    public void updateClob(int columnIndex, Reader x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateClob");
+    }
+
+    @Override
+    public void updateClob(int columnIndex, Reader x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateClob");
+    }
+
+    @Override
+    public void updateClob(int columnIndex, Clob x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateClob");
+    }
+
+    @Override
+    public void updateDate(String columnLabel, Date x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateDate");
+    }
+
+    @Override
+    public void updateDate(int columnIndex, Date x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateDate");
+    }
+
+    @Override
+    public void updateDouble(String columnLabel, double x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateDouble");
+    }
+
+    @Override
+    public void updateDouble(int columnIndex, double x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateDouble");
+    }
+
+    @Override
+    public void updateFloat(String columnLabel, float x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateFloat");
+    }
+
+    @Override
+    public void updateFloat(int columnIndex, float x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateFloat");
+    }
+
+    @Override
+    public void updateInt(String columnLabel, int x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateInt");
+    }
+
+    @Override
+    public void updateInt(int columnIndex, int x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateInt");
+    }
+
+    @Override
+    public void updateLong(String columnLabel, long x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateLong");
+    }
+
+    @Override
+    public void updateLong(int columnIndex, long x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateLong");
+    }
+
+    @Override
+    public void updateNCharacterStream(String columnLabel, Reader x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNCharacterStream");
+    }
+
+    @Override
+    public void updateNCharacterStream(String columnLabel, Reader x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNCharacterStream");
+    }
+
+    @Override
+    public void updateNCharacterStream(int columnIndex, Reader x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNCharacterStream");
+    }
+
+    @Override
+    public void updateNCharacterStream(int columnIndex, Reader x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNCharacterStream");
+    }
+
+    @Override
+    public void updateNClob(String columnLabel, Reader x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNClob");
+    }
+
+    @Override
+    public void updateNClob(String columnLabel, Reader x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNClob");
+    }
+
+    @Override
+    public void updateNClob(String columnLabel, NClob x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNClob");
+    }
+
+    @Override
+    public void updateNClob(int columnIndex, Reader x1, long x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNClob");
+    }
+
+    @Override
+    public void updateNClob(int columnIndex, Reader x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNClob");
+    }
+
+    @Override
+    public void updateNClob(int columnIndex, NClob x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNClob");
+    }
+
+    @Override
+    public void updateNString(String columnLabel, String x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNString");
+    }
+
+    @Override
+    public void updateNString(int columnIndex, String x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNString");
+    }
+
+    @Override
+    public void updateNull(String columnLabel) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNull");
+    }
+
+    @Override
+    public void updateNull(int columnIndex) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateNull");
+    }
+
+    @Override
+    public void updateObject(String columnLabel, Object x1, int x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateObject");
+    }
+
+    @Override
+    public void updateObject(String columnLabel, Object x1, SQLType x2, int x3) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateObject");
+    }
+
+    @Override
+    public void updateObject(String columnLabel, Object x1, SQLType x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateObject");
+    }
+
+    @Override
+    public void updateObject(String columnLabel, Object x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateObject");
+    }
+
+    @Override
+    public void updateObject(int columnIndex, Object x1, int x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateObject");
+    }
+
+    @Override
+    public void updateObject(int columnIndex, Object x1, SQLType x2, int x3) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateObject");
+    }
+
+    @Override
+    public void updateObject(int columnIndex, Object x1, SQLType x2) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateObject");
+    }
+
+    @Override
+    public void updateObject(int columnIndex, Object x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateObject");
+    }
+
+    @Override
+    public void updateRef(String columnLabel, Ref x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateRef");
+    }
+
+    @Override
+    public void updateRef(int columnIndex, Ref x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateRef");
+    }
+
+    @Override
+    public void updateRow() throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateRow");
+    }
+
+    @Override
+    public void updateRowId(String columnLabel, RowId x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateRowId");
+    }
+
+    @Override
+    public void updateRowId(int columnIndex, RowId x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateRowId");
+    }
+
+    @Override
+    public void updateSQLXML(String columnLabel, SQLXML x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateSQLXML");
+    }
+
+    @Override
+    public void updateSQLXML(int columnIndex, SQLXML x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateSQLXML");
+    }
+
+    @Override
+    public void updateShort(String columnLabel, short x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateShort");
+    }
+
+    @Override
+    public void updateShort(int columnIndex, short x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateShort");
+    }
+
+    @Override
+    public void updateString(String columnLabel, String x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateString");
+    }
+
+    @Override
+    public void updateString(int columnIndex, String x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateString");
+    }
+
+    @Override
+    public void updateTime(String columnLabel, Time x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateTime");
+    }
+
+    @Override
+    public void updateTime(int columnIndex, Time x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateTime");
+    }
+
+    @Override
+    public void updateTimestamp(String columnLabel, Timestamp x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateTimestamp");
+    }
+
+    @Override
+    public void updateTimestamp(int columnIndex, Timestamp x1) throws SQLException {
+        throw new UnsupportedResultSetInvocationException("updateTimestamp");
+    }
+}
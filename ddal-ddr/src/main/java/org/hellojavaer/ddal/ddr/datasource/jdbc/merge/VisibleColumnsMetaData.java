@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc.merge;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Meta data of a merged result set which hides the trailing columns that are only used for merging.
+ */
+class VisibleColumnsMetaData implements ResultSetMetaData {
+
+    private ResultSetMetaData metaData;
+    private int               columnCount;
+
+    public VisibleColumnsMetaData(ResultSetMetaData metaData, int columnCount) {
+        this.metaData = metaData;
+        this.columnCount = columnCount;
+    }
+
+    @Override
+    public String getCatalogName(int column) throws SQLException {
+        return metaData.getCatalogName(column);
+    }
+
+    @Override
+    public String getColumnClassName(int column) throws SQLException {
+        return metaData.getColumnClassName(column);
+    }
+
+    @Override
+    public int getColumnCount() throws SQLException {
+        return columnCount;
+    }
+
+    @Override
+    public int getColumnDisplaySize(int column) throws SQLException {
+        return metaData.getColumnDisplaySize(column);
+    }
+
+    @Override
+    public String getColumnLabel(int column) throws SQLException {
+        return metaData.getColumnLabel(column);
+    }
+
+    @Override
+    public String getColumnName(int column) throws SQLException {
+        return metaData.getColumnName(column);
+    }
+
+    @Override
+    public int getColumnType(int column) throws SQLException {
+        return metaData.getColumnType(column);
+    }
+
+    @Override
+    public String getColumnTypeName(int column) throws SQLException {
+        return metaData.getColumnTypeName(column);
+    }
+
+    @Override
+    public int getPrecision(int column) throws SQLException {
+        return metaData.getPrecision(column);
+    }
+
+    @Override
+    public int getScale(int column) throws SQLException {
+        return metaData.getScale(column);
+    }
+
+    @Override
+    public String getSchemaName(int column) throws SQLException {
+        return metaData.getSchemaName(column);
+    }
+
+    @Override
+    public String getTableName(int column) throws SQLException {
+        return metaData.getTableName(column);
+    }
+
+    @Override
+    public boolean isAutoIncrement(int column) throws SQLException {
+        return metaData.isAutoIncrement(column);
+    }
+
+    @Override
+    public boolean isCaseSensitive(int column) throws SQLException {
+        return metaData.isCaseSensitive(column);
+    }
+
+    @Override
+    public boolean isCurrency(int column) throws SQLException {
+        return metaData.isCurrency(column);
+    }
+
+    @Override
+    public boolean isDefinitelyWritable(int column) throws SQLException {
+        return metaData.isDefinitelyWritable(column);
+    }
+
+    @Override
+    public int isNullable(int column) throws SQLException {
+        return metaData.isNullable(column);
+    }
+
+    @Override
+    public boolean isReadOnly(int column) throws SQLException {
+        return metaData.isReadOnly(column);
+    }
+
+    @Override
+    public boolean isSearchable(int column) throws SQLException {
+        return metaData.isSearchable(column);
+    }
+
+    @Override
+    public boolean isSigned(int column) throws SQLException {
+        return metaData.isSigned(column);
+    }
+
+    @Override
+    public boolean isWritable(int column) throws SQLException {
+        return metaData.isWritable(column);
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return metaData.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || metaData.isWrapperFor(iface);
+    }
+}
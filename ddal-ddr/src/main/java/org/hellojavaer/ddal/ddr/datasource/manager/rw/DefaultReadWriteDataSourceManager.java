@@ -27,8 +27,8 @@ import org.hellojavaer.ddal.ddr.datasource.security.metadata.DefaultMetaDataChec
 import org.hellojavaer.ddal.ddr.datasource.security.metadata.MetaDataChecker;
 import org.hellojavaer.ddal.ddr.expression.range.RangeExpressionItemVisitor;
 import org.hellojavaer.ddal.ddr.expression.range.RangeExpressionParser;
+import org.hellojavaer.ddal.ddr.lb.random.AliasWeightedRandom;
 import org.hellojavaer.ddal.ddr.lb.random.WeightItem;
-import org.hellojavaer.ddal.ddr.lb.random.WeightedRandom;
 import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
 import org.hellojavaer.ddal.ddr.shard.ShardRouter;
 import org.hellojavaer.ddal.ddr.utils.DDRJSONUtils;
@@ -61,8 +61,8 @@ public class DefaultReadWriteDataSourceManager implements ReadWriteDataSourceMan
     private ShardRouter                                            shardRouter                                = null;
     private MetaDataChecker                                        metaDataChecker                            = null;
 
-    // cache
-    private Map<String, WeightedRandom>                            readOnlyDataSourceQueryCache               = null;
+    // cache, 不可变,权重变更时整体替换
+    private volatile Map<String, AliasWeightedRandom>              readOnlyDataSourceQueryCache               = null;
     private Map<String, DataSourceWrapper>                         writeOnlyDataSourceQueryCache              = null;
 
     // backup {physical schema name <-> datasources}
@@ -464,12 +464,20 @@ public class DefaultReadWriteDataSourceManager implements ReadWriteDataSourceMan
                 return DDRJSONUtils.toJSONString(readOnlyDataSourceIndexCacheCurrentValues);
             }
 
+            /**
+             * 复制后替换整个查询缓存,读线程总是看到完整的别名表
+             */
             private void refreshReadDataSourceQueryCache(String schema,
                                                          List<WeightedDataSourceWrapper> weightedDataSourceWrappers) {
-                DefaultReadWriteDataSourceManager.this.refreshReadDataSourceQueryCache(readOnlyDataSourceQueryCache,
-                                                                                       schema,
-                                                                                       weightedDataSourceWrappers);
-
+                synchronized (DefaultReadWriteDataSourceManager.this) {
+                    Map<String, AliasWeightedRandom> map = new HashMap<>();
+                    if (readOnlyDataSourceQueryCache != null) {
+                        map.putAll(readOnlyDataSourceQueryCache);
+                    }
+                    DefaultReadWriteDataSourceManager.this.refreshReadDataSourceQueryCache(map, schema,
+                                                                                           weightedDataSourceWrappers);
+                    readOnlyDataSourceQueryCache = map;
+                }
             }
         };
     }
@@ -695,7 +703,7 @@ public class DefaultReadWriteDataSourceManager implements ReadWriteDataSourceMan
         if (readOnlyDataSourceIndexCacheOriginalValues == null || readOnlyDataSourceIndexCacheOriginalValues.isEmpty()) {
             this.readOnlyDataSourceQueryCache = null;
         } else {
-            Map<String, WeightedRandom> map = new HashMap<>();
+            Map<String, AliasWeightedRandom> map = new HashMap<>();
             for (Map.Entry<String, List<WeightedDataSourceWrapper>> entry : readOnlyDataSourceIndexCacheOriginalValues.entrySet()) {
                 List<WeightedDataSourceWrapper> weightedDataSourceWrappers = entry.getValue();
                 if (weightedDataSourceWrappers == null || weightedDataSourceWrappers.isEmpty()) {
@@ -707,7 +715,7 @@ public class DefaultReadWriteDataSourceManager implements ReadWriteDataSourceMan
         }
     }
 
-    private void refreshReadDataSourceQueryCache(Map<String, WeightedRandom> map, String schema,
+    private void refreshReadDataSourceQueryCache(Map<String, AliasWeightedRandom> map, String schema,
                                                  List<WeightedDataSourceWrapper> weightedDataSourceWrappers) {
         List<WeightItem> dataSourceSchemasBindings = new ArrayList<WeightItem>();
         for (WeightedDataSourceWrapper weightedDataSourceWrapper : weightedDataSourceWrappers) {
@@ -717,7 +725,7 @@ public class DefaultReadWriteDataSourceManager implements ReadWriteDataSourceMan
             }
         }
         if (!dataSourceSchemasBindings.isEmpty()) {
-            map.put(schema, new WeightedRandom(System.currentTimeMillis(), dataSourceSchemasBindings));
+            map.put(schema, new AliasWeightedRandom(dataSourceSchemasBindings));
         } else {
             map.put(schema, null);
         }
@@ -812,13 +820,14 @@ public class DefaultReadWriteDataSourceManager implements ReadWriteDataSourceMan
         }
         boolean readOnly = param.isReadOnly();
         if (readOnly) {
-            if (this.readOnlyDataSourceQueryCache == null) {
+            Map<String, AliasWeightedRandom> readOnlyDataSourceQueryCache = this.readOnlyDataSourceQueryCache;
+            if (readOnlyDataSourceQueryCache == null) {
                 throw new DataSourceNotFoundException("No 'readOnlyDataSource' is configured");
             } else {
                 WeightedDataSourceWrapper weightedDataSourceWrapper = null;
                 for (String scName : param.getScNames()) {
                     if (weightedDataSourceWrapper == null) {
-                        WeightedRandom weightedRandom = this.readOnlyDataSourceQueryCache.get(scName);
+                        AliasWeightedRandom weightedRandom = readOnlyDataSourceQueryCache.get(scName);
                         if (weightedRandom == null) {
                             throw new DataSourceNotFoundException("schema:'" + scName
                                                                   + "' isn't configured in 'readOnlyDataSource' list ");
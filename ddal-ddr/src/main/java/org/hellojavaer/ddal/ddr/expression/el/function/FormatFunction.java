@@ -15,10 +15,8 @@
  */
 package org.hellojavaer.ddal.ddr.expression.el.function;
 
-import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
-import com.googlecode.concurrentlinkedhashmap.Weighers;
-
 import java.text.SimpleDateFormat;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -31,10 +29,15 @@ public class FormatFunction {
 
                                                         @Override
                                                         protected Map initialValue() {
-                                                            return new ConcurrentLinkedHashMap.Builder<String, Map>()//
-                                                            .maximumWeightedCapacity(100)//
-                                                            .weigher(Weighers.singleton())//
-                                                            .build();
+                                                            return new LinkedHashMap<String, SimpleDateFormat>(16,
+                                                                                                               0.75f,
+                                                                                                               true) {
+
+                                                                @Override
+                                                                protected boolean removeEldestEntry(Map.Entry<String, SimpleDateFormat> eldest) {
+                                                                    return size() > 100;
+                                                                }
+                                                            };
                                                         }
                                                     };
 
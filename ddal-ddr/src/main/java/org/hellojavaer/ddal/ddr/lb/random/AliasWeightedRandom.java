@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.lb.random;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 基于别名表(Walker/Vose alias method)的加权随机,不可变,可以被多个线程共享
+ *   1.构造时按权重生成别名表,每一列包含一个原始元素和一个别名元素,阈值为原始元素在该列中所占的比例;
+ *   2.nextValue先等概率选择一列,再按阈值在原始元素和别名元素中选择,时间复杂度为O(1);
+ *   3.阈值使用整数表示,选择的概率与权重严格成比例;随机数来自ThreadLocalRandom,线程之间没有竞争;
+ *   4.权重变更时创建新的实例替换旧实例;
+ */
+public class AliasWeightedRandom {
+
+    private final Object[] values;
+    private final int[]    aliases;
+    private final long[]   thresholds;
+    private final long     allWeight;
+
+    public AliasWeightedRandom(List<WeightItem> itemList) {
+        if (itemList == null || itemList.isEmpty()) {
+            throw new IllegalArgumentException("WeightItem list can't be empty");
+        }
+        int n = itemList.size();
+        values = new Object[n];
+        aliases = new int[n];
+        thresholds = new long[n];
+        long count = 0;
+        for (int i = 0; i < n; i++) {
+            WeightItem item = itemList.get(i);
+            if (item.getWeight() < 0) {
+                throw new IllegalArgumentException("weight can't be negative, but it is " + item.getWeight()
+                                                   + " for value " + item.getValue());
+            }
+            values[i] = item.getValue();
+            // 放大n倍后每列的平均权重为allWeight
+            thresholds[i] = (long) item.getWeight() * n;
+            count += item.getWeight();
+        }
+        if (count <= 0) {
+            throw new IllegalArgumentException("Sum of weights must be greater than 0");
+        }
+        allWeight = count;
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallSize = 0;
+        int largeSize = 0;
+        for (int i = 0; i < n; i++) {
+            aliases[i] = i;
+            if (thresholds[i] < allWeight) {
+                small[smallSize++] = i;
+            } else {
+                large[largeSize++] = i;
+            }
+        }
+        // 用权重大于平均值的元素填满权重小于平均值的列
+        while (smallSize > 0 && largeSize > 0) {
+            int s = small[--smallSize];
+            int l = large[--largeSize];
+            aliases[s] = l;
+            thresholds[l] -= allWeight - thresholds[s];
+            if (thresholds[l] < allWeight) {
+                small[smallSize++] = l;
+            } else {
+                large[largeSize++] = l;
+            }
+        }
+        // 剩余的列正好等于平均值
+        while (largeSize > 0) {
+            thresholds[large[--largeSize]] = allWeight;
+        }
+        while (smallSize > 0) {
+            thresholds[small[--smallSize]] = allWeight;
+        }
+    }
+
+    public Object nextValue() {
+        if (values.length == 1) {
+            return values[0];
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(values.length);
+        if (random.nextLong(allWeight) < thresholds[i]) {
+            return values[i];
+        } else {
+            return values[aliases[i]];
+        }
+    }
+
+    public long getAllWeight() {
+        return allWeight;
+    }
+
+    public int size() {
+        return values.length;
+    }
+}
@@ -232,6 +232,31 @@ public class ShardRouteContext {
         return getCurContext().getExactRouteContext().containsKey(fullTableName);
     }
 
+    /**
+     * 复制当前线程的路由上下文(包括所有层级),用于在其他线程中通过restoreContext恢复
+     */
+    public static Object captureContext() {
+        LinkedList<Context> stack = new LinkedList<>();
+        for (Context context : STACK.get()) {
+            stack.add(context.copy());
+        }
+        return stack;
+    }
+
+    /**
+     * 使用captureContext返回的上下文替换当前线程的路由上下文
+     *
+     * @return the replaced context of current thread, which can be restored after use
+     */
+    public static Object restoreContext(Object context) {
+        if (!(context instanceof LinkedList)) {
+            throw new IllegalArgumentException("context must be the result of 'captureContext()'");
+        }
+        LinkedList<Context> previous = STACK.get();
+        STACK.set((LinkedList<Context>) context);
+        return previous;
+    }
+
     private static String buildQueryKey(String scName, String tbName) {
         if (scName == null) {
             return tbName;
@@ -302,6 +327,16 @@ public class ShardRouteContext {
         public void setAmbiguousRouteContext(Map<String, Map<String, Object>> ambiguousRouteContext) {
             this.ambiguousRouteContext = ambiguousRouteContext;
         }
+
+        public Context copy() {
+            Context context = new Context();
+            context.getDefaultRouteContext().putAll(defaultRouteContext);
+            context.getExactRouteContext().putAll(exactRouteContext);
+            for (Map.Entry<String, Map<String, Object>> entry : ambiguousRouteContext.entrySet()) {
+                context.getAmbiguousRouteContext().put(entry.getKey(), new HashMap<>(entry.getValue()));
+            }
+            return context;
+        }
     }
 
 }
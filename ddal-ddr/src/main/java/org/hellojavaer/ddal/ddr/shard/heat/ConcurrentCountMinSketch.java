@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard.heat;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 线程安全的count-min sketch,用于估计分表值的访问频率
+ *   1.depth行,每行width个计数器,更新时每行对应的计数器原子加1,估计值取各行的最小值,只会高估不会低估;
+ *   2.decay()将所有计数器右移,使频率随时间衰减;与更新并发执行时,个别更新可能被合并到衰减前或衰减后的值中;
+ */
+class ConcurrentCountMinSketch {
+
+    private static final int[]    SEEDS     = { 0x97cb3127, 0xb0b5ee17, 0x4ad1c7f1, 0xc6d2b5b3 };
+    private static final int      MAX_WIDTH = 1 << 20;
+
+    private final int             width;
+    private final AtomicLongArray table;
+
+    public ConcurrentCountMinSketch(int width) {
+        if (width <= 0) {
+            throw new IllegalArgumentException("width must be greater than 0");
+        }
+        int w = 1;
+        while (w < width && w < MAX_WIDTH) {
+            w <<= 1;
+        }
+        this.width = w;
+        this.table = new AtomicLongArray(w * SEEDS.length);
+    }
+
+    /**
+     * @return 更新后的估计值
+     */
+    public long increment(int hash) {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < SEEDS.length; i++) {
+            min = Math.min(min, table.incrementAndGet(indexOf(hash, i)));
+        }
+        return min;
+    }
+
+    public long estimate(int hash) {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < SEEDS.length; i++) {
+            min = Math.min(min, table.get(indexOf(hash, i)));
+        }
+        return min;
+    }
+
+    public void decay(int shift) {
+        for (int i = 0; i < table.length(); i++) {
+            while (true) {
+                long val = table.get(i);
+                if (val == 0 || table.compareAndSet(i, val, val >>> shift)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < table.length(); i++) {
+            table.set(i, 0);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    private int indexOf(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * 0x9e3779b9;
+        h ^= h >>> 16;
+        return row * width + (h & (width - 1));
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard.heat;
+
+/**
+ * 热点分表值
+ */
+public class HotKey {
+
+    private String scName;
+    private String tbName;
+    private Object sdValue;
+    private long   count;
+
+    public HotKey(String scName, String tbName, Object sdValue, long count) {
+        this.scName = scName;
+        this.tbName = tbName;
+        this.sdValue = sdValue;
+        this.count = count;
+    }
+
+    /**
+     * 逻辑库名
+     */
+    public String getScName() {
+        return scName;
+    }
+
+    /**
+     * 逻辑表名
+     */
+    public String getTbName() {
+        return tbName;
+    }
+
+    public Object getSdValue() {
+        return sdValue;
+    }
+
+    /**
+     * 衰减后的估计访问次数
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return (scName == null ? "" : scName + ".") + tbName + "[" + sdValue + "]:" + count;
+    }
+}
@@ -0,0 +1,398 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard.heat;
+
+import org.hellojavaer.ddal.ddr.datasource.jdbc.StatementEvent;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.StatementListener;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.shard.heat.monitor.ShardHeatMonitor;
+import org.hellojavaer.ddal.ddr.shard.heat.monitor.ShardHeatMonitorServer;
+import org.hellojavaer.ddal.ddr.sqlparse.cache.StripedCounter;
+import org.hellojavaer.ddal.ddr.utils.DDRJSONUtils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 分表访问热度统计,用于发现热点物理表和热点分表值,可在生产环境常开
+ *   1.物理表热度在每次执行完成后按执行的路由结果计数,需作为StatementListener注册到数据源;每个物理表一组原子计数器,
+ *     物理表数量超过maxTables后的访问只计入overflowedCount,内存占用固定;
+ *   2.分表值热度按SimpleShardRouter.getRouteInfo的路由次数计数,需设置到SimpleShardRouter;访问频率由count-min sketch估计,
+ *     估计值较高的分表值进入固定大小的候选槽,按估计值排序后取前topK个作为热点;
+ *   3.每经过windowMillis,物理表的recentCount和sketch中的计数减半,使热度随时间衰减,衰减由记录或查询线程通过CAS触发;
+ *   4.所有更新都是无锁的,统计结果是近似值;
+ */
+public class ShardHeatMap implements ShardHeatMonitor, StatementListener {
+
+    private static final int                                      PROBES          = 4;
+
+    private long                                                  windowMillis    = 60000;
+    private int                                                   maxTables       = 4096;
+    private int                                                   topK            = 20;
+    private int                                                   sketchWidth     = 2048;
+    private ShardHeatMonitorServer                                monitorServer;
+
+    private final ConcurrentHashMap<ShardRouteInfo, TableCounter> tables          = new ConcurrentHashMap<>();
+    private final StripedCounter                                  recordCount     = new StripedCounter();
+    private final AtomicLong                                      overflowedCount = new AtomicLong();
+    private final AtomicLong                                      nextDecayTime   = new AtomicLong();
+    private volatile ConcurrentCountMinSketch                     sketch;
+    private volatile AtomicReferenceArray<Candidate>              candidates;
+
+    public ShardHeatMap() {
+        sketch = new ConcurrentCountMinSketch(sketchWidth);
+        candidates = newCandidates(topK);
+    }
+
+    public ShardHeatMap(long windowMillis, int topK) {
+        this();
+        setWindowMillis(windowMillis);
+        setTopK(topK);
+    }
+
+    @Override
+    public void onCompleted(StatementEvent event) {
+        Set<ShardRouteInfo> routeInfos = event.getRouteInfos();
+        if (routeInfos != null) {
+            for (ShardRouteInfo routeInfo : routeInfos) {
+                record(routeInfo);
+            }
+        }
+    }
+
+    /**
+     * 记录一次物理表访问
+     */
+    public void record(ShardRouteInfo routeInfo) {
+        recordCount.increment();
+        decayIfNecessary(System.currentTimeMillis());
+        TableCounter counter = tables.get(routeInfo);
+        if (counter == null) {
+            if (tables.size() >= maxTables) {
+                overflowedCount.incrementAndGet();
+                return;
+            }
+            counter = new TableCounter();
+            TableCounter old = tables.putIfAbsent(new ShardRouteInfo(routeInfo.getScName(), routeInfo.getTbName()),
+                                                  counter);
+            if (old != null) {
+                counter = old;
+            }
+        }
+        counter.total.incrementAndGet();
+        counter.recent.incrementAndGet();
+    }
+
+    /**
+     * 记录一次分表值路由
+     *
+     * @param scName 逻辑库名
+     * @param tbName 逻辑表名
+     * @param sdValue 分表值
+     */
+    public void record(String scName, String tbName, Object sdValue) {
+        decayIfNecessary(System.currentTimeMillis());
+        ConcurrentCountMinSketch sketch = this.sketch;
+        int hash = hash(scName, tbName, sdValue);
+        long count = sketch.increment(hash);
+        offer(sketch, hash, scName, tbName, sdValue, count);
+    }
+
+    /**
+     * 候选槽按hash线性探测PROBES个位置:已存在则返回;有空位则占用;否则替换其中估计值最小且小于count的候选
+     */
+    private void offer(ConcurrentCountMinSketch sketch, int hash, String scName, String tbName, Object sdValue,
+                       long count) {
+        AtomicReferenceArray<Candidate> slots = this.candidates;
+        int mask = slots.length() - 1;
+        int start = hash & mask;
+        int victimIndex = -1;
+        Candidate victim = null;
+        long victimCount = Long.MAX_VALUE;
+        for (int i = 0; i < PROBES; i++) {
+            int index = (start + i) & mask;
+            Candidate candidate = slots.get(index);
+            if (candidate == null) {
+                if (slots.compareAndSet(index, null, new Candidate(hash, scName, tbName, sdValue))) {
+                    return;
+                }
+                candidate = slots.get(index);
+                if (candidate == null) {
+                    continue;
+                }
+            }
+            if (candidate.matches(hash, scName, tbName, sdValue)) {
+                return;
+            }
+            long c = sketch.estimate(candidate.hash);
+            if (c < victimCount) {
+                victimIndex = index;
+                victim = candidate;
+                victimCount = c;
+            }
+        }
+        if (victim != null && count > victimCount) {
+            slots.compareAndSet(victimIndex, victim, new Candidate(hash, scName, tbName, sdValue));
+        }
+    }
+
+    private void decayIfNecessary(long now) {
+        long next = nextDecayTime.get();
+        if (next == 0) {
+            nextDecayTime.compareAndSet(0, now + windowMillis);
+        } else if (now >= next) {
+            long windows = (now - next) / windowMillis + 1;
+            if (nextDecayTime.compareAndSet(next, next + windows * windowMillis)) {
+                int shift = (int) Math.min(windows, 63);
+                sketch.decay(shift);
+                for (TableCounter counter : tables.values()) {
+                    counter.decay(shift);
+                }
+            }
+        }
+    }
+
+    /**
+     * 分表值的估计访问次数(衰减后)
+     */
+    public long estimate(String scName, String tbName, Object sdValue) {
+        decayIfNecessary(System.currentTimeMillis());
+        return sketch.estimate(hash(scName, tbName, sdValue));
+    }
+
+    /**
+     * 按recentCount降序排列的物理表热度
+     */
+    public List<TableHeat> getTableHeats() {
+        decayIfNecessary(System.currentTimeMillis());
+        List<TableHeat> list = new ArrayList<>(tables.size());
+        for (Map.Entry<ShardRouteInfo, TableCounter> entry : tables.entrySet()) {
+            TableCounter counter = entry.getValue();
+            list.add(new TableHeat(entry.getKey(), counter.total.get(), counter.recent.get()));
+        }
+        Collections.sort(list, new Comparator<TableHeat>() {
+
+            @Override
+            public int compare(TableHeat o1, TableHeat o2) {
+                int c = compareDesc(o1.getRecentCount(), o2.getRecentCount());
+                return c != 0 ? c : compareDesc(o1.getTotalCount(), o2.getTotalCount());
+            }
+        });
+        return list;
+    }
+
+    /**
+     * 按估计访问次数降序排列的前topK个热点分表值
+     */
+    public List<HotKey> getHotKeyList() {
+        decayIfNecessary(System.currentTimeMillis());
+        ConcurrentCountMinSketch sketch = this.sketch;
+        AtomicReferenceArray<Candidate> slots = this.candidates;
+        Set<Candidate> visited = new HashSet<>();
+        List<HotKey> list = new ArrayList<>();
+        for (int i = 0; i < slots.length(); i++) {
+            Candidate candidate = slots.get(i);
+            if (candidate != null && visited.add(candidate)) {
+                long count = sketch.estimate(candidate.hash);
+                if (count > 0) {
+                    list.add(new HotKey(candidate.scName, candidate.tbName, candidate.sdValue, count));
+                }
+            }
+        }
+        Collections.sort(list, new Comparator<HotKey>() {
+
+            @Override
+            public int compare(HotKey o1, HotKey o2) {
+                return compareDesc(o1.getCount(), o2.getCount());
+            }
+        });
+        return list.size() > topK ? new ArrayList<>(list.subList(0, topK)) : list;
+    }
+
+    @Override
+    public long getRecordCount() {
+        return recordCount.sum();
+    }
+
+    @Override
+    public long getOverflowedCount() {
+        return overflowedCount.get();
+    }
+
+    @Override
+    public String getTableHeatMap() {
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (TableHeat heat : getTableHeats()) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("table", heat.getRouteInfo().toString());
+            map.put("total", heat.getTotalCount());
+            map.put("recent", heat.getRecentCount());
+            list.add(map);
+        }
+        return DDRJSONUtils.toJSONString(list);
+    }
+
+    @Override
+    public String getHotKeys() {
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (HotKey hotKey : getHotKeyList()) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("table", hotKey.getScName() == null ? hotKey.getTbName() : hotKey.getScName() + "."
+                                                                               + hotKey.getTbName());
+            map.put("sdValue", String.valueOf(hotKey.getSdValue()));
+            map.put("count", hotKey.getCount());
+            list.add(map);
+        }
+        return DDRJSONUtils.toJSONString(list);
+    }
+
+    @Override
+    public void resetStatistics() {
+        recordCount.reset();
+        overflowedCount.set(0);
+        tables.clear();
+        sketch.clear();
+        candidates = newCandidates(topK);
+        nextDecayTime.set(0);
+    }
+
+    @Override
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public void setWindowMillis(long windowMillis) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("windowMillis must be greater than 0");
+        }
+        this.windowMillis = windowMillis;
+        this.nextDecayTime.set(0);
+    }
+
+    public int getMaxTables() {
+        return maxTables;
+    }
+
+    public void setMaxTables(int maxTables) {
+        this.maxTables = maxTables;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public void setTopK(int topK) {
+        if (topK <= 0) {
+            throw new IllegalArgumentException("topK must be greater than 0");
+        }
+        this.topK = topK;
+        this.candidates = newCandidates(topK);
+    }
+
+    public int getSketchWidth() {
+        return sketchWidth;
+    }
+
+    public void setSketchWidth(int sketchWidth) {
+        this.sketch = new ConcurrentCountMinSketch(sketchWidth);
+        this.sketchWidth = sketch.getWidth();
+    }
+
+    public ShardHeatMonitorServer getMonitorServer() {
+        return monitorServer;
+    }
+
+    /**
+     * 设置后立即注册,如{@link org.hellojavaer.ddal.ddr.shard.heat.monitor.mbean.MBeanShardHeatMonitorServer}
+     */
+    public void setMonitorServer(ShardHeatMonitorServer monitorServer) {
+        this.monitorServer = monitorServer;
+        if (monitorServer != null) {
+            monitorServer.init(this);
+        }
+    }
+
+    private static AtomicReferenceArray<Candidate> newCandidates(int topK) {
+        int size = 16;
+        while (size < topK * 4 && size < (1 << 16)) {
+            size <<= 1;
+        }
+        return new AtomicReferenceArray<>(size);
+    }
+
+    private static int hash(String scName, String tbName, Object sdValue) {
+        int h = scName == null ? 0 : scName.hashCode();
+        h = 31 * h + tbName.hashCode();
+        h = 31 * h + sdValue.hashCode();
+        h = ((h >>> 16) ^ h) * 0x45d9f3b;
+        return (h >>> 16) ^ h;
+    }
+
+    private static int compareDesc(long x, long y) {
+        return x < y ? 1 : (x == y ? 0 : -1);
+    }
+
+    private static class TableCounter {
+
+        private final AtomicLong total  = new AtomicLong();
+        private final AtomicLong recent = new AtomicLong();
+
+        private void decay(int shift) {
+            while (true) {
+                long val = recent.get();
+                if (val == 0 || recent.compareAndSet(val, val >>> shift)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static class Candidate {
+
+        private final int    hash;
+        private final String scName;
+        private final String tbName;
+        private final Object sdValue;
+
+        private Candidate(int hash, String scName, String tbName, Object sdValue) {
+            this.hash = hash;
+            this.scName = scName;
+            this.tbName = tbName;
+            this.sdValue = sdValue;
+        }
+
+        private boolean matches(int hash, String scName, String tbName, Object sdValue) {
+            return this.hash == hash && Objects.equals(this.sdValue, sdValue) && Objects.equals(this.tbName, tbName)
+                   && Objects.equals(this.scName, scName);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Candidate)) {
+                return false;
+            }
+            Candidate other = (Candidate) obj;
+            return matches(other.hash, other.scName, other.tbName, other.sdValue);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard.heat;
+
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+
+/**
+ * 物理表访问热度
+ */
+public class TableHeat {
+
+    private ShardRouteInfo routeInfo;
+    private long           totalCount;
+    private long           recentCount;
+
+    public TableHeat(ShardRouteInfo routeInfo, long totalCount, long recentCount) {
+        this.routeInfo = routeInfo;
+        this.totalCount = totalCount;
+        this.recentCount = recentCount;
+    }
+
+    public ShardRouteInfo getRouteInfo() {
+        return routeInfo;
+    }
+
+    /**
+     * 自创建或上次重置以来的路由次数
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * 每个窗口减半的路由次数,反映最近的访问热度
+     */
+    public long getRecentCount() {
+        return recentCount;
+    }
+
+    @Override
+    public String toString() {
+        return routeInfo + ":" + recentCount + "/" + totalCount;
+    }
+}
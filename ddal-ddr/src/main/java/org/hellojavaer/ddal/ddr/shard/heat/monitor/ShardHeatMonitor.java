@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard.heat.monitor;
+
+public interface ShardHeatMonitor {
+
+    /**
+     * 已执行的物理表访问次数
+     */
+    long getRecordCount();
+
+    /**
+     * 物理表数量超过maxTables而未单独统计的访问次数
+     */
+    long getOverflowedCount();
+
+    /**
+     * 衰减窗口,每个窗口结束时recent计数减半
+     */
+    long getWindowMillis();
+
+    String getTableHeatMap();// [{"table":"db_01.user_0001","total":100,"recent":20}]
+
+    String getHotKeys();// [{"table":"db.user","sdValue":"5","count":20}]
+
+    void resetStatistics();
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard.heat.monitor.mbean;
+
+import org.hellojavaer.ddal.ddr.shard.heat.monitor.ShardHeatMonitor;
+import org.hellojavaer.ddal.ddr.shard.heat.monitor.ShardHeatMonitorServer;
+import org.hellojavaer.ddal.ddr.utils.DDRStringUtils;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+public class MBeanShardHeatMonitorServer implements ShardHeatMonitorServer {
+
+    private ShardHeatMonitor shardHeatMonitor;
+
+    private String           paramNameOfObjectName;
+
+    public String getParamNameOfObjectName() {
+        return paramNameOfObjectName;
+    }
+
+    public void setParamNameOfObjectName(String paramNameOfObjectName) {
+        this.paramNameOfObjectName = DDRStringUtils.trimToNull(paramNameOfObjectName);
+    }
+
+    @Override
+    public void init(ShardHeatMonitor shardHeatMonitor) {
+        this.shardHeatMonitor = shardHeatMonitor;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName mbeanName = null;
+            if (paramNameOfObjectName == null) {
+                mbeanName = new ObjectName(ShardHeatMonitor.class.getPackage().getName() + ":type="
+                                           + ShardHeatMonitor.class.getSimpleName());
+            } else {
+                mbeanName = new ObjectName(paramNameOfObjectName);
+            }
+            ShardHeatMonitorMXBean mbean = new ShardHeatMonitorMXBean() {
+
+                @Override
+                public long getRecordCount() {
+                    return getShardHeatMonitor().getRecordCount();
+                }
+
+                @Override
+                public long getOverflowedCount() {
+                    return getShardHeatMonitor().getOverflowedCount();
+                }
+
+                @Override
+                public long getWindowMillis() {
+                    return getShardHeatMonitor().getWindowMillis();
+                }
+
+                @Override
+                public String getTableHeatMap() {
+                    return getShardHeatMonitor().getTableHeatMap();
+                }
+
+                @Override
+                public String getHotKeys() {
+                    return getShardHeatMonitor().getHotKeys();
+                }
+
+                @Override
+                public void resetStatistics() {
+                    getShardHeatMonitor().resetStatistics();
+                }
+            };
+            server.registerMBean(mbean, mbeanName);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    protected ShardHeatMonitor getShardHeatMonitor() {
+        return shardHeatMonitor;
+    }
+}
@@ -20,7 +20,12 @@ import org.hellojavaer.ddal.ddr.shard.ShardParser;
 import org.hellojavaer.ddal.ddr.shard.ShardRouter;
 import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedState;
 import org.hellojavaer.ddal.ddr.sqlparse.SQLParser;
+import org.hellojavaer.ddal.ddr.sqlparse.cache.LRUSQLParserCache;
+import org.hellojavaer.ddal.ddr.sqlparse.cache.SQLManifest;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
 import java.util.Map;
 
 /**
@@ -31,6 +36,7 @@ public class SimpleShardParser implements ShardParser {
 
     private ShardRouter shardRouter;
     private SQLParser   sqlParser;
+    private String      manifestFile;
 
     private SimpleShardParser() {
     }
@@ -56,9 +62,69 @@ public class SimpleShardParser implements ShardParser {
         this.sqlParser = sqlParser;
     }
 
+    public String getManifestFile() {
+        return manifestFile;
+    }
+
+    /**
+     * sql清单文件路径,{@link #warmUp()}从中预热解析缓存,{@link #saveManifest()}将缓存中的sql写回,参考{@link SQLManifest}
+     */
+    public void setManifestFile(String manifestFile) {
+        this.manifestFile = manifestFile;
+    }
+
+    /**
+     * 可作为init-method,在数据源对外提供服务前预解析manifestFile中的sql
+     */
+    public int warmUp() throws IOException {
+        if (manifestFile == null || !new File(manifestFile).exists()) {
+            return 0;
+        }
+        return warmUp(SQLManifest.load(new File(manifestFile)));
+    }
+
+    public int warmUp(Collection<String> sqls) {
+        if (sqlParser instanceof LRUSQLParserCache) {
+            return ((LRUSQLParserCache) sqlParser).warmUp(sqls, shardRouter);
+        } else {
+            return 0;
+        }
+    }
+
+    /**
+     * 可作为destroy-method,记录本次运行的热点sql供下次启动时预热
+     */
+    public void saveManifest() throws IOException {
+        if (manifestFile != null && sqlParser instanceof LRUSQLParserCache) {
+            SQLManifest.save(new File(manifestFile), ((LRUSQLParserCache) sqlParser).getCachedSqls());
+        }
+    }
+
     @Override
     public SQLParsedResult parse(String sql, Map<Object, Object> jdbcParams) {
-        SQLParsedState sqlParsedState = sqlParser.parse(sql, shardRouter);
-        return sqlParsedState.parse(jdbcParams);
+        return route(parseState(sql), jdbcParams);
+    }
+
+    /**
+     * 解析sql,解析结果与jdbc参数无关,可以缓存
+     */
+    public SQLParsedState parseState(String sql) {
+        return sqlParser.parse(sql, shardRouter);
+    }
+
+    /**
+     * 根据jdbc参数计算路由结果
+     */
+    public SQLParsedResult route(SQLParsedState sqlParsedState, Map<Object, Object> jdbcParams) {
+        if (sqlParser instanceof LRUSQLParserCache) {
+            long start = System.nanoTime();
+            try {
+                return sqlParsedState.parse(jdbcParams);
+            } finally {
+                ((LRUSQLParserCache) sqlParser).recordRoute(System.nanoTime() - start);
+            }
+        } else {
+            return sqlParsedState.parse(jdbcParams);
+        }
     }
 }
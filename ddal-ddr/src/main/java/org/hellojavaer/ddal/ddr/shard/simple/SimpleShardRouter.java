@@ -15,12 +15,12 @@
  */
 package org.hellojavaer.ddal.ddr.shard.simple;
 
-import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
-import com.googlecode.concurrentlinkedhashmap.Weighers;
 import org.hellojavaer.ddal.ddr.expression.range.RangeExpressionItemVisitor;
 import org.hellojavaer.ddal.ddr.expression.range.RangeExpressionParser;
 import org.hellojavaer.ddal.ddr.shard.*;
 import org.hellojavaer.ddal.ddr.shard.exception.*;
+import org.hellojavaer.ddal.ddr.shard.heat.ShardHeatMap;
+import org.hellojavaer.ddal.ddr.sqlparse.cache.WTinyLFUCache;
 import org.hellojavaer.ddal.ddr.utils.DDRStringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,10 +44,10 @@ public class SimpleShardRouter implements ShardRouter {
     // schema级路由配置
     private Map<String, SimpleShardRouteRuleBinding>             schemaBindingMap              = new HashMap<>();
     private SimpleShardRouteRuleBinding                          defaultSchemaBinding          = null;
-    private Map<String, List<ShardRouteInfo>>                    routeInfosCacheForSchemaLevel = new ConcurrentLinkedHashMap.Builder<String, List<ShardRouteInfo>>()//
-                                                                                               .maximumWeightedCapacity(10000)//
-                                                                                               .weigher(Weighers.singleton())//
-                                                                                               .build();
+    private WTinyLFUCache<String, List<ShardRouteInfo>>          routeInfosCacheForSchemaLevel = new WTinyLFUCache<>(10000, null);
+
+    // 访问热度统计,为null时不统计
+    private ShardHeatMap                                         heatMap                       = null;
 
     private SimpleShardRouter() {
     }
@@ -56,6 +56,14 @@ public class SimpleShardRouter implements ShardRouter {
         setRouteRuleBindings(routeRuleBindings);
     }
 
+    public ShardHeatMap getHeatMap() {
+        return heatMap;
+    }
+
+    public void setHeatMap(ShardHeatMap heatMap) {
+        this.heatMap = heatMap;
+    }
+
     public List<SimpleShardRouteRuleBinding> getRouteRuleBindings() {
         return routeRuleBindings;
     }
@@ -254,6 +262,11 @@ public class SimpleShardRouter implements ShardRouter {
     public ShardRouteInfo getRouteInfo(String scName, String tbName, Object sdValue)
                                                                                     throws ShardValueNotFoundException,
                                                                                     ShardRouteException {
+        return getRouteInfo(scName, tbName, sdValue, heatMap);
+    }
+
+    private ShardRouteInfo getRouteInfo(String scName, String tbName, Object sdValue,
+                                        ShardHeatMap heatMap) throws ShardValueNotFoundException, ShardRouteException {
         scName = DDRStringUtils.toLowerCase(scName);
         tbName = DDRStringUtils.toLowerCase(tbName);
         if (tbName == null) {
@@ -270,6 +283,9 @@ public class SimpleShardRouter implements ShardRouter {
             return null;
         } else {// 必须使用binding中的scName,因为sql中的scName可能为空,binding.getTbName()可能为null必须使用tbName
             ShardRouteInfo info = getRouteInfo(binding, binding.getScName(), tbName, sdValue);
+            if (heatMap != null && sdValue != null) {
+                heatMap.record(binding.getScName(), tbName, sdValue);
+            }
             return info;
         }
     }
@@ -310,7 +326,8 @@ public class SimpleShardRouter implements ShardRouter {
 
                             @Override
                             public void visit(Object val) {
-                                ShardRouteInfo routeInfo = getRouteInfo(scName0, tbName0, val);
+                                // 全表路由不计入访问热度
+                                ShardRouteInfo routeInfo = getRouteInfo(scName0, tbName0, val, null);
                                 routeInfos.add(routeInfo);
                             }
                         });
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse;
+
+import org.hellojavaer.ddal.ddr.utils.DDRToStringBuilder;
+
+/**
+ *
+ * One aggregate select item(eg:'count(*)', 'sum(amount)') of a multi-routed sql, which is used to combine the partial
+ * aggregate results of multiple physical tables. 'columnIndex' starts from 1.
+ *
+ * 'avg(x)' can't be combined directly, so 'sum(x)' and 'count(x)' are appended to the select items of each physical
+ * sql, and the merged value is 'sum / count'.
+ */
+public class AggregateColumn {
+
+    public enum Type {
+        COUNT, SUM, MIN, MAX, AVG;
+    }
+
+    private Type type;
+    private int  columnIndex;
+    private int  sumColumnIndex;  // only for 'avg'
+    private int  countColumnIndex; // only for 'avg'
+
+    public AggregateColumn() {
+    }
+
+    public AggregateColumn(Type type, int columnIndex) {
+        this.type = type;
+        this.columnIndex = columnIndex;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public int getColumnIndex() {
+        return columnIndex;
+    }
+
+    public void setColumnIndex(int columnIndex) {
+        this.columnIndex = columnIndex;
+    }
+
+    public int getSumColumnIndex() {
+        return sumColumnIndex;
+    }
+
+    public void setSumColumnIndex(int sumColumnIndex) {
+        this.sumColumnIndex = sumColumnIndex;
+    }
+
+    public int getCountColumnIndex() {
+        return countColumnIndex;
+    }
+
+    public void setCountColumnIndex(int countColumnIndex) {
+        this.countColumnIndex = countColumnIndex;
+    }
+
+    @Override
+    public String toString() {
+        return new DDRToStringBuilder().append("type", type).append("columnIndex", columnIndex)//
+        .append("sumColumnIndex", sumColumnIndex).append("countColumnIndex", countColumnIndex).toString();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse;
+
+import org.hellojavaer.ddal.ddr.utils.DDRToStringBuilder;
+
+/**
+ *
+ * One sort key of an 'order by' clause, which is used to merge the sorted results of multiple physical tables.
+ * The column in result set is located by 'columnIndex'(starts from 1) when it's greater than 0, otherwise by
+ * 'columnLabel'.
+ */
+public class OrderByColumn {
+
+    private String  columnLabel;
+    private int     columnIndex;
+    private boolean asc = true;
+
+    public OrderByColumn() {
+    }
+
+    public OrderByColumn(String columnLabel, int columnIndex, boolean asc) {
+        this.columnLabel = columnLabel;
+        this.columnIndex = columnIndex;
+        this.asc = asc;
+    }
+
+    public String getColumnLabel() {
+        return columnLabel;
+    }
+
+    public void setColumnLabel(String columnLabel) {
+        this.columnLabel = columnLabel;
+    }
+
+    public int getColumnIndex() {
+        return columnIndex;
+    }
+
+    public void setColumnIndex(int columnIndex) {
+        this.columnIndex = columnIndex;
+    }
+
+    public boolean isAsc() {
+        return asc;
+    }
+
+    public void setAsc(boolean asc) {
+        this.asc = asc;
+    }
+
+    @Override
+    public String toString() {
+        return new DDRToStringBuilder().append("columnLabel", columnLabel).append("columnIndex", columnIndex)//
+        .append("asc", asc).toString();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse;
+
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.utils.DDRToStringBuilder;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ *
+ * One of the physical sqls which a logical sql is routed to when the logical sql hits more than one physical table.
+ */
+public class RoutedSQL {
+
+    private String         sql;
+    private Set<String>    schemas;
+    private ShardRouteInfo routeInfo;
+    private List<Integer>  removedJdbcParamIndexes;
+
+    public RoutedSQL() {
+    }
+
+    public RoutedSQL(String sql, Set<String> schemas, ShardRouteInfo routeInfo) {
+        this.sql = sql;
+        this.schemas = schemas;
+        this.routeInfo = routeInfo;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public void setSql(String sql) {
+        this.sql = sql;
+    }
+
+    public Set<String> getSchemas() {
+        return schemas;
+    }
+
+    public void setSchemas(Set<String> schemas) {
+        this.schemas = schemas;
+    }
+
+    /**
+     * route information of the table which is routed to multiple physical tables
+     */
+    public ShardRouteInfo getRouteInfo() {
+        return routeInfo;
+    }
+
+    public void setRouteInfo(ShardRouteInfo routeInfo) {
+        this.routeInfo = routeInfo;
+    }
+
+    /**
+     * indexes(ascending, start from 1) of the jdbc parameters in logical sql which are removed from this physical sql,
+     * such as the values of 'in' expression which belong to other physical tables. null if no parameter is removed.
+     */
+    public List<Integer> getRemovedJdbcParamIndexes() {
+        return removedJdbcParamIndexes;
+    }
+
+    public void setRemovedJdbcParamIndexes(List<Integer> removedJdbcParamIndexes) {
+        this.removedJdbcParamIndexes = removedJdbcParamIndexes;
+    }
+
+    /**
+     * convert the index of a jdbc parameter in logical sql to the index in this physical sql
+     *
+     * @return 0 if the parameter is removed from this physical sql
+     */
+    public int getPhysicalJdbcParamIndex(int index) {
+        if (removedJdbcParamIndexes == null || removedJdbcParamIndexes.isEmpty()) {
+            return index;
+        }
+        int i = Collections.binarySearch(removedJdbcParamIndexes, index);
+        if (i >= 0) {
+            return 0;
+        } else {// the number of removed parameters before 'index' is (-i - 1)
+            return index - (-i - 1);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new DDRToStringBuilder().append("sql", sql).append("schemas", schemas).append("routeInfo", routeInfo)//
+        .append("removedJdbcParamIndexes", removedJdbcParamIndexes).toString();
+    }
+}
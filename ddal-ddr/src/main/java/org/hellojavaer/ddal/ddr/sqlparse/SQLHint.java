@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse;
+
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.sqlparse.exception.SQLSyntaxErrorException;
+
+import java.util.*;
+
+/**
+ *
+ * 路由hint:sql以'/*+ ddal: sc=db_03, tb=user_0042 *&#47;'开头时,直接按hint中的路由目标执行,
+ * 不经过SQLParser和ShardRouter
+ *   1.hint中的每个路由目标由'sc=schema名[, tb=物理表名]'组成,多个路由目标之间用';'分隔
+ *     (eg:'/*+ ddal: sc=db_00, tb=user_0000; sc=db_01, tb=user_0001 *&#47;');
+ *   2.hint之后的sql不做任何解析和改写,因此sql中应使用物理表名;
+ *     有多个路由目标时,同一条sql会在每个目标schema上执行,查询结果直接拼接;
+ *   3.tb只记录在RoutedSQL.routeInfo中,不参与路由;由于sql不会按tb改写,多个路由目标的sc不能相同;
+ *   4.以'/*+'开头但不是'ddal:'的注释(如数据库自身的hint)不做处理;
+ *   5.有多个路由目标时,以select,with,show,desc,describe,explain开头(忽略开头的'(')的sql作为查询执行,其他作为更新执行;
+ */
+public final class SQLHint {
+
+    private static final String   PREFIX         = "/*+";
+    private static final String   NAME           = "ddal:";
+    private static final String   SUFFIX         = "*/";
+    private static final String[] QUERY_KEYWORDS = { "select", "with", "show", "desc", "describe", "explain" };
+
+    private SQLHint() {
+    }
+
+    /**
+     * @return null if the sql doesn't start with a ddal hint
+     */
+    public static SQLParsedResult parse(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        int start = skipWhitespace(sql, 0);
+        if (!sql.startsWith(PREFIX, start)) {
+            return null;
+        }
+        start = skipWhitespace(sql, start + PREFIX.length());
+        if (!sql.regionMatches(true, start, NAME, 0, NAME.length())) {
+            return null;
+        }
+        start += NAME.length();
+        int end = sql.indexOf(SUFFIX, start);
+        if (end < 0) {
+            throw new SQLSyntaxErrorException("ddal hint is not closed in sql [" + sql + "]");
+        }
+        String routedSql = sql.substring(skipWhitespace(sql, end + SUFFIX.length()));
+        if (routedSql.isEmpty()) {
+            throw new SQLSyntaxErrorException("No sql after ddal hint in [" + sql + "]");
+        }
+        List<ShardRouteInfo> routeInfos = parseRouteInfos(sql, sql.substring(start, end));
+        SQLParsedResult result = new SQLParsedResult();
+        if (routeInfos.size() == 1) {
+            result.setSql(routedSql);
+            result.setSchemas(Collections.singleton(routeInfos.get(0).getScName()));
+            return result;
+        }
+        Set<String> schemas = new LinkedHashSet<>();
+        List<RoutedSQL> routedSqls = new ArrayList<>(routeInfos.size());
+        for (ShardRouteInfo routeInfo : routeInfos) {
+            schemas.add(routeInfo.getScName());
+            routedSqls.add(new RoutedSQL(routedSql, Collections.singleton(routeInfo.getScName()), routeInfo));
+        }
+        result.setRoutedSqls(routedSqls);
+        result.setSchemas(schemas);
+        result.setUpdate(!isQuery(routedSql));
+        return result;
+    }
+
+    private static boolean isQuery(String sql) {
+        int start = 0;
+        while (start < sql.length() && (sql.charAt(start) == '(' || Character.isWhitespace(sql.charAt(start)))) {
+            start++;
+        }
+        int end = start;
+        while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+            end++;
+        }
+        String keyword = sql.substring(start, end);
+        for (String item : QUERY_KEYWORDS) {
+            if (item.equalsIgnoreCase(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<ShardRouteInfo> parseRouteInfos(String sql, String hint) {
+        Set<ShardRouteInfo> routeInfos = new LinkedHashSet<>();
+        for (String target : hint.split(";")) {
+            if (target.trim().isEmpty()) {
+                continue;
+            }
+            ShardRouteInfo routeInfo = new ShardRouteInfo();
+            for (String item : target.split(",")) {
+                int index = item.indexOf('=');
+                if (index < 0) {
+                    throw new SQLSyntaxErrorException("Illegal item '" + item.trim() + "' in ddal hint of sql [" + sql
+                                                      + "], item format is 'key=value'");
+                }
+                String key = item.substring(0, index).trim();
+                String value = item.substring(index + 1).trim();
+                if (value.isEmpty()) {
+                    throw new SQLSyntaxErrorException("Value of '" + key + "' is empty in ddal hint of sql [" + sql
+                                                      + "]");
+                }
+                if ("sc".equalsIgnoreCase(key)) {
+                    routeInfo.setScName(value);
+                } else if ("tb".equalsIgnoreCase(key)) {
+                    routeInfo.setTbName(value);
+                } else {
+                    throw new SQLSyntaxErrorException("Unknown key '" + key + "' in ddal hint of sql [" + sql
+                                                      + "], only 'sc' and 'tb' are supported");
+                }
+            }
+            if (routeInfo.getScName() == null) {
+                throw new SQLSyntaxErrorException("'sc' is required for each route target in ddal hint of sql ["
+                                                  + sql + "]");
+            }
+            routeInfos.add(routeInfo);
+        }
+        if (routeInfos.isEmpty()) {
+            throw new SQLSyntaxErrorException("No route target in ddal hint of sql [" + sql + "]");
+        }
+        Set<String> schemas = new HashSet<>();
+        for (ShardRouteInfo routeInfo : routeInfos) {
+            if (!schemas.add(routeInfo.getScName())) {
+                throw new SQLSyntaxErrorException("Duplicate sc '" + routeInfo.getScName()
+                                                  + "' in ddal hint of sql [" + sql
+                                                  + "], sql is not rewritten by tb and can't be executed twice "
+                                                  + "on the same schema");
+            }
+        }
+        return new ArrayList<>(routeInfos);
+    }
+
+    private static int skipWhitespace(String sql, int index) {
+        while (index < sql.length() && Character.isWhitespace(sql.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+}
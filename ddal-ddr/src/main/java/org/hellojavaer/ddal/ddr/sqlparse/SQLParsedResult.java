@@ -16,8 +16,10 @@
 package org.hellojavaer.ddal.ddr.sqlparse;
 
 import org.hellojavaer.ddal.ddr.datasource.exception.CrossPreparedStatementException;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
 import org.hellojavaer.ddal.ddr.utils.DDRToStringBuilder;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -27,8 +29,18 @@ import java.util.Set;
  */
 public class SQLParsedResult {
 
-    private String      sql;
-    private Set<String> schemas;
+    private String                sql;
+    private Set<String>           schemas;
+    private Set<ShardRouteInfo>   routeInfos;
+    private List<RoutedSQL>       routedSqls;
+    private List<OrderByColumn>   orderByColumns;
+    private Long                  offset;
+    private Long                  rowCount;
+    private Map<Integer, Object>  overriddenJdbcParams;
+    private List<Integer>         groupByColumnIndexes;
+    private List<AggregateColumn> aggregateColumns;
+    private int                   hiddenColumnCount;
+    private boolean               update;
 
     public String getSql() {
         return sql;
@@ -46,12 +58,141 @@ public class SQLParsedResult {
         this.schemas = schemas;
     }
 
+    /**
+     * physical tables which the sql is routed to, null if unknown(such as sqls routed by hint)
+     */
+    public Set<ShardRouteInfo> getRouteInfos() {
+        return routeInfos;
+    }
+
+    public void setRouteInfos(Set<ShardRouteInfo> routeInfos) {
+        this.routeInfos = routeInfos;
+    }
+
+    /**
+     * When the sql is routed to more than one physical table, 'routedSqls' holds one item for each physical table and
+     * 'sql' is null. Otherwise 'routedSqls' is null.
+     */
+    public List<RoutedSQL> getRoutedSqls() {
+        return routedSqls;
+    }
+
+    public void setRoutedSqls(List<RoutedSQL> routedSqls) {
+        this.routedSqls = routedSqls;
+    }
+
+    /**
+     * sort keys which are used to merge the results of 'routedSqls', null if the sql has no 'order by' clause
+     */
+    public List<OrderByColumn> getOrderByColumns() {
+        return orderByColumns;
+    }
+
+    public void setOrderByColumns(List<OrderByColumn> orderByColumns) {
+        this.orderByColumns = orderByColumns;
+    }
+
+    /**
+     * 'limit' and 'offset' of a multi-routed sql are applied on the merged result, and each physical sql is rewritten
+     * to 'limit offset + rowCount' without offset. 'rowCount' is null if the sql has no 'limit' clause.
+     */
+    public Long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(Long offset) {
+        this.offset = offset;
+    }
+
+    public Long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(Long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * jdbc parameters(key is the parameter index) which should be bound with a different value on each physical sql,
+     * such as the rewritten 'limit ?, ?'
+     */
+    public Map<Integer, Object> getOverriddenJdbcParams() {
+        return overriddenJdbcParams;
+    }
+
+    public void setOverriddenJdbcParams(Map<Integer, Object> overriddenJdbcParams) {
+        this.overriddenJdbcParams = overriddenJdbcParams;
+    }
+
+    /**
+     * indexes(start from 1) of 'group by' items in select items, null if the sql has no 'group by' clause
+     */
+    public List<Integer> getGroupByColumnIndexes() {
+        return groupByColumnIndexes;
+    }
+
+    public void setGroupByColumnIndexes(List<Integer> groupByColumnIndexes) {
+        this.groupByColumnIndexes = groupByColumnIndexes;
+    }
+
+    /**
+     * aggregate select items which are combined when merging the results of 'routedSqls', null if there is no
+     * aggregate function in select items
+     */
+    public List<AggregateColumn> getAggregateColumns() {
+        return aggregateColumns;
+    }
+
+    public void setAggregateColumns(List<AggregateColumn> aggregateColumns) {
+        this.aggregateColumns = aggregateColumns;
+    }
+
+    /**
+     * number of the select items which are appended to each physical sql only for merging(such as the 'sum' and
+     * 'count' of 'avg'), they are always the last columns and are invisible in the merged result
+     */
+    public int getHiddenColumnCount() {
+        return hiddenColumnCount;
+    }
+
+    public void setHiddenColumnCount(int hiddenColumnCount) {
+        this.hiddenColumnCount = hiddenColumnCount;
+    }
+
+    /**
+     * the results of 'routedSqls' need to be grouped and aggregated rather than simply concatenated
+     */
+    public boolean isAggregated() {
+        return groupByColumnIndexes != null || aggregateColumns != null;
+    }
+
+    public boolean isMultiRouted() {
+        return routedSqls != null;
+    }
+
+    /**
+     * 'routedSqls' are write sqls(such as the split rows of a multi-row 'insert') which return update counts rather
+     * than result sets
+     */
+    public boolean isUpdate() {
+        return update;
+    }
+
+    public void setUpdate(boolean update) {
+        this.update = update;
+    }
+
     public void checkIfCrossPreparedStatement(Map<Object, Object> jdbcParam) throws CrossPreparedStatementException {
 
     }
 
     @Override
     public String toString() {
-        return new DDRToStringBuilder().append("sql", sql).append("schemas", schemas).toString();
+        return new DDRToStringBuilder().append("sql", sql).append("schemas", schemas).append("routeInfos", routeInfos)//
+        .append("routedSqls", routedSqls)//
+        .append("orderByColumns", orderByColumns).append("offset", offset).append("rowCount", rowCount)//
+        .append("overriddenJdbcParams", overriddenJdbcParams).append("groupByColumnIndexes", groupByColumnIndexes)//
+        .append("aggregateColumns", aggregateColumns).append("hiddenColumnCount", hiddenColumnCount)//
+        .append("update", update).toString();
     }
 }
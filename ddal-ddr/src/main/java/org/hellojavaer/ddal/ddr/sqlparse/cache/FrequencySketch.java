@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse.cache;
+
+/**
+ * 4行count-min sketch,用于估计key最近的访问频率;每行的计数器数量为预期缓存项数量的4倍,以减少哈希冲突;
+ * 每个计数器最大为15,访问次数达到sampleSize(预期缓存项数量的10倍)时所有计数器减半,使频率随时间衰减.非线程安全
+ */
+class FrequencySketch {
+
+    private static final int[] SEEDS     = { 0x97cb3127, 0xb0b5ee17, 0x4ad1c7f1, 0xc6d2b5b3 };
+    private static final int   MAX_WIDTH = 1 << 20;
+
+    private byte[]             table;
+    private int                width;
+    private int                sampleSize;
+    private int                additions = 0;
+
+    public FrequencySketch(long expectedSize) {
+        int size = (int) Math.max(16, Math.min(expectedSize, MAX_WIDTH / 4));
+        width = Integer.highestOneBit(size * 4 - 1) << 1;
+        table = new byte[width * SEEDS.length];
+        sampleSize = size * 10;
+    }
+
+    public void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = indexOf(hash, i);
+            if (table[index] < 15) {
+                table[index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    public int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < SEEDS.length; i++) {
+            frequency = Math.min(frequency, table[indexOf(hash, i)]);
+        }
+        return frequency;
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (byte) (table[i] >>> 1);
+        }
+        additions = additions >>> 1;
+    }
+
+    private int indexOf(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * 0x9e3779b9;
+        h ^= h >>> 16;
+        return row * width + (h & (width - 1));
+    }
+
+    private static int spread(int h) {
+        h = ((h >>> 16) ^ h) * 0x45d9f3b;
+        return (h >>> 16) ^ h;
+    }
+}
@@ -15,22 +15,57 @@
  */
 package org.hellojavaer.ddal.ddr.sqlparse.cache;
 
-import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
-import com.googlecode.concurrentlinkedhashmap.Weighers;
 import org.hellojavaer.ddal.ddr.shard.ShardRouter;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
 import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedState;
 import org.hellojavaer.ddal.ddr.sqlparse.SQLParser;
+import org.hellojavaer.ddal.ddr.sqlparse.cache.monitor.SQLParserCacheMonitor;
+import org.hellojavaer.ddal.ddr.sqlparse.cache.monitor.SQLParserCacheMonitorServer;
+import org.hellojavaer.ddal.ddr.utils.DDRJSONUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * sql解析结果缓存
+ *   1.使用W-TinyLFU淘汰策略,只执行一次的sql不会淘汰热点sql;
+ *   2.缓存项的权重按sql长度计算,每SQL_LENGTH_UNIT个字符为一个单位,capacity为所有缓存项的权重之和的上限;
+ *   3.同一个sql同时只有一个线程执行解析,其他线程等待并共享解析结果;
+ *   4.normalizeLiterals为true时,常量值不同的sql共享同一个sql模板的解析结果,参考{@link SQLTemplate};
+ *   5.命中率,淘汰数,解析及路由耗时等统计通过{@link SQLParserCacheMonitor}暴露,计数使用{@link StripedCounter},不增加热点路径上的竞争;
+ *   6.启动时可通过{@link #warmUp}并行预解析sql清单,清单可由{@link #getCachedSqls}导出,参考{@link SQLManifest};
  *
  * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 11/01/2017.
  */
-public class LRUSQLParserCache implements SQLParserCache {
+public class LRUSQLParserCache implements SQLParserCache, SQLParserCacheMonitor {
+
+    public static final int                                       SQL_LENGTH_UNIT      = 512;
+
+    private static final Logger                                   logger               = LoggerFactory.getLogger(LRUSQLParserCache.class);
+
+    // sql模板无法解析时缓存的标记,此时使用原sql解析
+    private static final SQLParsedState                           UNSUPPORTED_TEMPLATE = new SQLParsedState() {
 
-    private volatile ConcurrentLinkedHashMap<InnerQueryKey, SQLParsedState> cache;
-    private Integer                                                         capacity;
-    private Integer                                                         maxSQLLength;
-    private SQLParser                                                       sqlParser;
+                                                                                           @Override
+                                                                                           public SQLParsedResult parse(Map<Object, Object> jdbcParams) {
+                                                                                               throw new UnsupportedOperationException();
+                                                                                           }
+                                                                                       };
+
+    private volatile WTinyLFUCache<InnerQueryKey, SQLParsedState> cache;
+    private Integer                                               capacity;
+    private Integer                                               maxSQLLength;
+    private SQLParser                                             sqlParser;
+    private boolean                                               normalizeLiterals    = false;
+    private SQLParserCacheMonitorServer                           monitorServer;
+
+    private final StripedCounter                                  hitCount             = new StripedCounter();
+    private final StripedCounter                                  missCount            = new StripedCounter();
+    private final StripedCounter                                  bypassedCount        = new StripedCounter();
+    private final LatencyHistogram                                parseLatency         = new LatencyHistogram();
+    private final LatencyHistogram                                routeLatency         = new LatencyHistogram();
 
     private LRUSQLParserCache() {
     }
@@ -70,6 +105,32 @@ public class LRUSQLParserCache implements SQLParserCache {
         this.sqlParser = sqlParser;
     }
 
+    public SQLParserCacheMonitorServer getMonitorServer() {
+        return monitorServer;
+    }
+
+    /**
+     * 设置后立即注册,如{@link org.hellojavaer.ddal.ddr.sqlparse.cache.monitor.mbean.MBeanSQLParserCacheMonitorServer}
+     */
+    public void setMonitorServer(SQLParserCacheMonitorServer monitorServer) {
+        this.monitorServer = monitorServer;
+        if (monitorServer != null) {
+            monitorServer.init(this);
+        }
+    }
+
+    public boolean isNormalizeLiterals() {
+        return normalizeLiterals;
+    }
+
+    /**
+     * If true, integer and string literals in conditions, 'in' lists and 'values' rows are replaced with '?' to build
+     * the cache key, so that sqls which only differ in literal values share one parse.
+     */
+    public void setNormalizeLiterals(boolean normalizeLiterals) {
+        this.normalizeLiterals = normalizeLiterals;
+    }
+
     /**
      * 
      * 并发优先
@@ -77,23 +138,234 @@ public class LRUSQLParserCache implements SQLParserCache {
     @Override
     public SQLParsedState parse(String sql, ShardRouter shardRouter) {
         if (maxSQLLength != null && sql.length() > maxSQLLength) {
-            return sqlParser.parse(sql, shardRouter);
+            bypassedCount.increment();
+            return parse0(sql, shardRouter);
         }// else
         init();
-        InnerQueryKey queryKey = new InnerQueryKey(sql, shardRouter);
-        SQLParsedState result = cache.get(queryKey);
-        if (result == null) {
-            result = sqlParser.parse(sql, shardRouter);
-            cache.put(queryKey, result);
+        InnerCacheLoader templateLoader = null;
+        if (normalizeLiterals) {
+            SQLTemplate template = SQLTemplate.parse(sql);
+            if (template != null) {
+                templateLoader = new InnerCacheLoader(true);
+                SQLParsedState state = cache.get(new InnerQueryKey(template.getSql(), shardRouter), templateLoader);
+                if (state != UNSUPPORTED_TEMPLATE) {
+                    (templateLoader.loaded ? missCount : hitCount).increment();
+                    return template.bind(state);
+                }
+            }
+        }
+        InnerCacheLoader loader = new InnerCacheLoader(false);
+        SQLParsedState state = cache.get(new InnerQueryKey(sql, shardRouter), loader);
+        if (state == UNSUPPORTED_TEMPLATE) {// 与某个无法解析的sql模板相同
+            missCount.increment();
+            return parse0(sql, shardRouter);
         }
-        return result;
+        (loader.loaded || templateLoader != null && templateLoader.loaded ? missCount : hitCount).increment();
+        return state;
+    }
+
+    private SQLParsedState parse0(String sql, ShardRouter shardRouter) {
+        long start = System.nanoTime();
+        try {
+            return sqlParser.parse(sql, shardRouter);
+        } finally {
+            parseLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    private class InnerCacheLoader implements CacheLoader<InnerQueryKey, SQLParsedState> {
+
+        private final boolean template;
+        private boolean       loaded = false;
+
+        public InnerCacheLoader(boolean template) {
+            this.template = template;
+        }
+
+        @Override
+        public SQLParsedState load(InnerQueryKey key) {
+            loaded = true;
+            if (template) {
+                try {
+                    return parse0(key.getSql(), key.getShardRouter());
+                } catch (RuntimeException e) {
+                    return UNSUPPORTED_TEMPLATE;
+                }
+            } else {
+                return parse0(key.getSql(), key.getShardRouter());
+            }
+        }
+    }
+
+    /**
+     * 记录一次路由(SQLParsedState.parse)的耗时,由{@link org.hellojavaer.ddal.ddr.shard.ShardParser}调用
+     */
+    public void recordRoute(long nanos) {
+        routeLatency.record(nanos);
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long hit = getHitCount();
+        long total = hit + getMissCount();
+        return total == 0 ? 1.0 : (double) hit / total;
+    }
+
+    @Override
+    public double getMissRatio() {
+        long miss = getMissCount();
+        long total = miss + getHitCount();
+        return total == 0 ? 0.0 : (double) miss / total;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return cache == null ? 0 : cache.getEvictionCount();
+    }
+
+    @Override
+    public long getBypassedCount() {
+        return bypassedCount.sum();
+    }
+
+    @Override
+    public long getWeightedSize() {
+        return cache == null ? 0 : cache.getWeightedSize();
+    }
+
+    @Override
+    public long getParseCount() {
+        return parseLatency.getCount();
+    }
+
+    @Override
+    public long getAverageParseNanos() {
+        return parseLatency.getMeanNanos();
+    }
+
+    @Override
+    public String getParseLatencyHistogram() {
+        return DDRJSONUtils.toJSONString(parseLatency.toMap());
+    }
+
+    @Override
+    public long getRouteCount() {
+        return routeLatency.getCount();
+    }
+
+    @Override
+    public long getAverageRouteNanos() {
+        return routeLatency.getMeanNanos();
+    }
+
+    @Override
+    public String getRouteLatencyHistogram() {
+        return DDRJSONUtils.toJSONString(routeLatency.toMap());
+    }
+
+    @Override
+    public void resetStatistics() {
+        hitCount.reset();
+        missCount.reset();
+        bypassedCount.reset();
+        parseLatency.reset();
+        routeLatency.reset();
+    }
+
+    public LatencyHistogram getParseLatency() {
+        return parseLatency;
+    }
+
+    public LatencyHistogram getRouteLatency() {
+        return routeLatency;
+    }
+
+    /**
+     * 使用所有cpu并行解析sqls并放入缓存,解析失败的sql被忽略,所有sql解析完成后返回
+     *
+     * @return 解析成功的sql数量
+     */
+    public int warmUp(Collection<String> sqls, final ShardRouter shardRouter) {
+        if (sqls == null || sqls.isEmpty()) {
+            return 0;
+        }
+        init();
+        final List<String> list = new ArrayList<>(new LinkedHashSet<>(sqls));
+        final AtomicInteger index = new AtomicInteger();
+        final AtomicInteger succeeded = new AtomicInteger();
+        int threads = Math.min(Runtime.getRuntime().availableProcessors(), list.size());
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    for (int k; (k = index.getAndIncrement()) < list.size();) {
+                        String sql = list.get(k);
+                        try {
+                            parse(sql, shardRouter);
+                            succeeded.incrementAndGet();
+                        } catch (RuntimeException e) {
+                            if (logger.isDebugEnabled()) {
+                                logger.debug("[WarmUp] parse failed, sql:" + sql, e);
+                            }
+                        }
+                    }
+                }
+            }, "ddal-sql-warm-up-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+        try {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (logger.isInfoEnabled()) {
+            logger.info("[WarmUp] parsed " + succeeded.get() + " of " + list.size() + " sqls");
+        }
+        return succeeded.get();
+    }
+
+    /**
+     * 当前缓存中的sql,按热度从高到低排列,可保存为{@link SQLManifest}供下次启动时预热
+     */
+    public List<String> getCachedSqls() {
+        if (cache == null) {
+            return Collections.emptyList();
+        }
+        Set<String> sqls = new LinkedHashSet<>();
+        for (Map.Entry<InnerQueryKey, SQLParsedState> entry : cache.snapshot().entrySet()) {
+            if (entry.getValue() != UNSUPPORTED_TEMPLATE) {
+                sqls.add(entry.getKey().getSql());
+            }
+        }
+        return new ArrayList<>(sqls);
     }
 
     private void init() {
         if (cache == null) {
             synchronized (this) {
                 if (cache == null) {
-                    cache = new ConcurrentLinkedHashMap.Builder<InnerQueryKey, SQLParsedState>().maximumWeightedCapacity(capacity).weigher(Weighers.singleton()).build();
+                    cache = new WTinyLFUCache<>(capacity, new Weigher<InnerQueryKey, SQLParsedState>() {
+
+                        @Override
+                        public int weigh(InnerQueryKey key, SQLParsedState value) {
+                            return 1 + key.getSql().length() / SQL_LENGTH_UNIT;
+                        }
+                    });
                 }
             }
         }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 耗时分布统计
+ *   1.耗时(纳秒)按2的幂分桶,第i个桶记录[2^(i-1), 2^i)区间内的次数,最后一个桶记录所有更大的值;
+ *   2.与{@link StripedCounter}相同,每个线程按线程id更新各自的分段,记录时不产生竞争;
+ */
+public final class LatencyHistogram {
+
+    static final int              BUCKETS    = 40;                   // 最后一个桶的下界约为275秒
+
+    private final AtomicLongArray buckets    = new AtomicLongArray(StripedCounter.STRIPES * BUCKETS);
+    private final StripedCounter  totalNanos = new StripedCounter();
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.getAndIncrement(StripedCounter.stripe() * BUCKETS + bucket(nanos));
+        totalNanos.add(nanos);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (long c : getBuckets()) {
+            count += c;
+        }
+        return count;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMeanNanos() {
+        long count = getCount();
+        return count == 0 ? 0 : getTotalNanos() / count;
+    }
+
+    /**
+     * @param percentile (0, 100]
+     * @return 该百分位所在桶的上界
+     */
+    public long getPercentileNanos(double percentile) {
+        long[] counts = getBuckets();
+        long count = 0;
+        for (long c : counts) {
+            count += c;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    /**
+     * 各非空桶的上界(纳秒)及次数
+     */
+    public Map<Long, Long> toMap() {
+        long[] counts = getBuckets();
+        Map<Long, Long> map = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] > 0) {
+                map.put(upperBound(i), counts[i]);
+            }
+        }
+        return map;
+    }
+
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        totalNanos.reset();
+    }
+
+    private long[] getBuckets() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < buckets.length(); i++) {
+            counts[i % BUCKETS] += buckets.get(i);
+        }
+        return counts;
+    }
+
+    static int bucket(long nanos) {
+        return Math.min(64 - Long.numberOfLeadingZeros(nanos), BUCKETS - 1);
+    }
+
+    static long upperBound(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+}
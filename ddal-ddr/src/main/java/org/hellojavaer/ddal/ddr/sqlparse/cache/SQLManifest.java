@@ -0,0 +1,174 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse.cache;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * sql清单,用于启动时预热{@link LRUSQLParserCache}
+ *   1.清单文件为utf-8编码,每行一个sql,sql中的'\'和换行符被转义为"\\","\n"和"\r",以'#'开头的行和空行被忽略;
+ *   2.清单可由上次运行时的缓存内容导出({@link LRUSQLParserCache#getCachedSqls()}),也可从mybatis mapper xml中扫描;
+ *   3.mapper中只扫描不含动态标签和'${'的select/insert/update/delete语句,'#{...}'被替换为'?';
+ */
+public final class SQLManifest {
+
+    private static final Charset  UTF_8             = Charset.forName("UTF-8");
+    private static final Pattern  MYBATIS_PARAMETER = Pattern.compile("#\\{[^}]*\\}");
+    private static final Pattern  WHITESPACES       = Pattern.compile("\\s+");
+    private static final String[] STATEMENT_TAGS    = { "select", "insert", "update", "delete" };
+
+    private SQLManifest() {
+    }
+
+    public static List<String> load(File file) throws IOException {
+        List<String> sqls = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8))) {
+            for (String line; (line = reader.readLine()) != null;) {
+                if (line.trim().isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                sqls.add(unescape(line));
+            }
+        }
+        return sqls;
+    }
+
+    /**
+     * 先写入临时文件再替换目标文件,进程中途退出不会留下不完整的清单
+     */
+    public static void save(File file, Collection<String> sqls) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists()) {
+            dir.mkdirs();
+        }
+        File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+        try {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), UTF_8))) {
+                writer.write("# ddal sql manifest\n");
+                for (String sql : sqls) {
+                    writer.write(escape(sql));
+                    writer.write('\n');
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    public static List<String> loadMyBatisMapper(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return loadMyBatisMapper(in);
+        }
+    }
+
+    public static List<String> loadMyBatisMapper(InputStream in) throws IOException {
+        Element root;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setValidating(false);
+            factory.setNamespaceAware(false);
+            // mapper的DOCTYPE指向外部dtd,不加载
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            root = builder.parse(in).getDocumentElement();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Invalid mybatis mapper", e);
+        }
+        List<String> sqls = new ArrayList<>();
+        for (String tag : STATEMENT_TAGS) {
+            NodeList list = root.getElementsByTagName(tag);
+            for (int i = 0; i < list.getLength(); i++) {
+                String sql = getStaticSql((Element) list.item(i));
+                if (sql != null) {
+                    sqls.add(sql);
+                }
+            }
+        }
+        return sqls;
+    }
+
+    private static String getStaticSql(Element element) {
+        StringBuilder sb = new StringBuilder();
+        NodeList children = element.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            Node child = children.item(i);
+            if (child.getNodeType() == Node.TEXT_NODE || child.getNodeType() == Node.CDATA_SECTION_NODE) {
+                sb.append(child.getNodeValue()).append(' ');
+            } else if (child.getNodeType() == Node.ELEMENT_NODE) {// <if>,<where>,<include>等动态sql
+                return null;
+            }
+        }
+        String sql = sb.toString();
+        if (sql.contains("${")) {
+            return null;
+        }
+        sql = WHITESPACES.matcher(MYBATIS_PARAMETER.matcher(sql).replaceAll("?")).replaceAll(" ").trim();
+        return sql.isEmpty() ? null : sql;
+    }
+
+    static String escape(String sql) {
+        StringBuilder sb = new StringBuilder(sql.length());
+        for (int i = 0; i < sql.length(); i++) {
+            char ch = sql.charAt(i);
+            if (ch == '\\') {
+                sb.append("\\\\");
+            } else if (ch == '\n') {
+                sb.append("\\n");
+            } else if (ch == '\r') {
+                sb.append("\\r");
+            } else {
+                sb.append(ch);
+            }
+        }
+        return sb.toString();
+    }
+
+    static String unescape(String line) {
+        StringBuilder sb = new StringBuilder(line.length());
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (ch == '\\' && i + 1 < line.length()) {
+                char next = line.charAt(++i);
+                if (next == 'n') {
+                    sb.append('\n');
+                } else if (next == 'r') {
+                    sb.append('\r');
+                } else {
+                    sb.append(next);
+                }
+            } else {
+                sb.append(ch);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse.cache;
+
+import org.hellojavaer.ddal.ddr.datasource.exception.CrossPreparedStatementException;
+import org.hellojavaer.ddal.ddr.sqlparse.RoutedSQL;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedState;
+
+import java.util.*;
+
+/**
+ * 将sql中的常量替换为'?'得到的sql模板,常量值不同的sql共享同一个模板的解析结果
+ *   1.只替换比较运算符({@code =,<>,<,>}等),like,between...and之后以及in列表和values行中的整数和字符串常量,
+ *     不替换order by/group by/limit等位置的常量,这些位置的常量可能会影响sql的解析结果;
+ *   2.路由时常量作为虚拟的jdbc参数传入模板的解析结果,用户的jdbc参数转换为模板中的参数索引;
+ *   3.路由后的物理sql中,常量对应的'?'被替换回原常量;
+ */
+public class SQLTemplate {
+
+    private static final Set<String> COMPARISON_OPERATORS = new HashSet<>(Arrays.asList("=", "<>", "!=", "<", ">",
+                                                                                        "<=", ">=", "<=>", "LIKE"));
+
+    private String                   sql;
+    // 模板中第i个'?'(从1开始)对应的常量,null表示用户的jdbc参数
+    private Literal[]                literals;
+    // 用户的第i个jdbc参数(从1开始)在模板中的索引
+    private int[]                    paramIndexes;
+
+    private SQLTemplate(String sql, Literal[] literals, int[] paramIndexes) {
+        this.sql = sql;
+        this.literals = literals;
+        this.paramIndexes = paramIndexes;
+    }
+
+    /**
+     * the sql which replaces literals with '?'
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return null if there is no literal can be replaced
+     */
+    public static SQLTemplate parse(String sql) {
+        StringBuilder sb = new StringBuilder(sql.length());
+        List<Literal> literals = new ArrayList<>();
+        List<Integer> paramIndexes = new ArrayList<>();
+        // 括号是否为in列表或values行
+        LinkedList<Boolean> groups = new LinkedList<>();
+        String prev = null;
+        boolean betweenPending = false;
+        boolean betweenAnd = false;
+        int valuesDepth = -1;
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            int end = i + 1;
+            String token = null;
+            boolean literal = false;
+            if (Character.isWhitespace(c)) {
+                sb.append(c);
+                i++;
+                continue;
+            } else if (c == '-' && sql.startsWith("--", i) || c == '#') {
+                end = sql.indexOf('\n', i);
+                end = end < 0 ? sql.length() : end;
+                sb.append(sql, i, end);
+                i = end;
+                continue;
+            } else if (c == '/' && sql.startsWith("/*", i)) {
+                end = sql.indexOf("*/", i + 2);
+                end = end < 0 ? sql.length() : end + 2;
+                sb.append(sql, i, end);
+                i = end;
+                continue;
+            } else if (c == '\'' || c == '"' || c == '`') {
+                end = skipQuoted(sql, i);
+                literal = c == '\'';
+                token = literal ? "'" : "ID";
+            } else if (isDigit(c) || (c == '-' || c == '+') && i + 1 < sql.length() && isDigit(sql.charAt(i + 1))
+                       && isReplaceable(prev, groups, betweenAnd)) {
+                end = i + 1;
+                while (end < sql.length() && isWordPart(sql.charAt(end))) {
+                    end++;
+                }
+                literal = true;
+                token = "0";
+            } else if (isWordPart(c)) {
+                while (end < sql.length() && isWordPart(sql.charAt(end))) {
+                    end++;
+                }
+                token = sql.substring(i, end).toUpperCase();
+            } else if (c == '?') {
+                paramIndexes.add(literals.size() + paramIndexes.size() + 1);
+                token = "?";
+            } else if (c == '<' || c == '>' || c == '=' || c == '!') {
+                while (end < sql.length() && "<>=!".indexOf(sql.charAt(end)) >= 0) {
+                    end++;
+                }
+                token = sql.substring(i, end);
+            } else {
+                token = String.valueOf(c);
+            }
+            String text = sql.substring(i, end);
+            Object value = literal ? toValue(text) : null;
+            if (value != null && isReplaceable(prev, groups, betweenAnd)) {
+                literals.add(new Literal(literals.size() + paramIndexes.size() + 1, text, value));
+                sb.append('?');
+            } else {
+                sb.append(text);
+            }
+            // 更新上下文
+            betweenAnd = false;
+            if ("(".equals(token)) {
+                groups.push("IN".equals(prev) || "VALUES".equals(prev) || "VALUE".equals(prev)
+                            || ",".equals(prev) && groups.size() == valuesDepth);
+            } else if (")".equals(token)) {
+                groups.poll();
+            } else if ("SELECT".equals(token)) {
+                if (!groups.isEmpty()) {
+                    groups.set(0, false);
+                }
+            } else if ("VALUES".equals(token) || "VALUE".equals(token)) {
+                valuesDepth = groups.size();
+            } else if ("BETWEEN".equals(token)) {
+                betweenPending = true;
+            } else if ("AND".equals(token) && betweenPending) {
+                betweenPending = false;
+                betweenAnd = true;
+            } else if (!literal && !"?".equals(token) && !",".equals(token) && groups.size() == valuesDepth) {
+                valuesDepth = -1;
+            }
+            prev = token;
+            i = end;
+        }
+        if (literals.isEmpty()) {
+            return null;
+        }
+        int count = literals.size() + paramIndexes.size();
+        Literal[] literalArray = new Literal[count + 1];
+        for (Literal item : literals) {
+            literalArray[item.index] = item;
+        }
+        int[] paramIndexArray = new int[paramIndexes.size() + 1];
+        for (int k = 0; k < paramIndexes.size(); k++) {
+            paramIndexArray[k + 1] = paramIndexes.get(k);
+        }
+        return new SQLTemplate(sb.toString(), literalArray, paramIndexArray);
+    }
+
+    private static boolean isReplaceable(String prev, LinkedList<Boolean> groups, boolean betweenAnd) {
+        if (prev == null) {
+            return false;
+        }
+        if (COMPARISON_OPERATORS.contains(prev) || "BETWEEN".equals(prev) || betweenAnd) {
+            return true;
+        }
+        return ("(".equals(prev) || ",".equals(prev)) && !groups.isEmpty() && groups.peek();
+    }
+
+    /**
+     * 与JSqlParser一致:整数常量为Long,字符串常量为引号内的原始内容
+     *
+     * @return null if the literal isn't supported
+     */
+    private static Object toValue(String text) {
+        if (text.charAt(0) == '\'') {
+            if (text.length() < 2 || text.charAt(text.length() - 1) != '\'') {
+                return null;
+            }
+            return text.substring(1, text.length() - 1);
+        }
+        int start = text.charAt(0) == '-' || text.charAt(0) == '+' ? 1 : 0;
+        if (text.length() == start || text.length() - start > 18) {
+            return null;
+        }
+        for (int k = start; k < text.length(); k++) {
+            if (!isDigit(text.charAt(k))) {
+                return null;
+            }
+        }
+        return Long.valueOf(text.charAt(0) == '+' ? text.substring(1) : text);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWordPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '.';
+    }
+
+    /**
+     * @return end index(exclusive) of the quoted string or identifier which starts at 'start'
+     */
+    private static int skipQuoted(String sql, int start) {
+        char quote = sql.charAt(start);
+        int i = start + 1;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\\' && quote != '`') {
+                i += 2;
+            } else if (c == quote) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return sql.length();
+    }
+
+    /**
+     * convert the jdbc parameters of original sql to the parameters of template
+     */
+    public Map<Object, Object> bind(Map<Object, Object> jdbcParams) {
+        Map<Object, Object> result = new HashMap<>();
+        if (jdbcParams != null) {
+            for (Map.Entry<Object, Object> entry : jdbcParams.entrySet()) {
+                Object key = entry.getKey();
+                if (key instanceof Integer && (Integer) key > 0 && (Integer) key < paramIndexes.length) {
+                    result.put(paramIndexes[(Integer) key], entry.getValue());
+                } else if (!(key instanceof Integer)) {// named parameter
+                    result.put(key, entry.getValue());
+                }
+            }
+        }
+        for (Literal literal : literals) {
+            if (literal != null) {
+                result.put(literal.index, literal.value);
+            }
+        }
+        return result;
+    }
+
+    public SQLParsedState bind(final SQLParsedState state) {
+        return new SQLParsedState() {
+
+            @Override
+            public SQLParsedResult parse(Map<Object, Object> jdbcParams) {
+                return restore(state.parse(bind(jdbcParams)));
+            }
+        };
+    }
+
+    /**
+     * 将模板的解析结果转换为原sql的解析结果:物理sql中常量对应的'?'替换为原常量,参数索引转换为原sql中的索引
+     */
+    private SQLParsedResult restore(final SQLParsedResult templateResult) {
+        SQLParsedResult result = new SQLParsedResult() {
+
+            @Override
+            public void checkIfCrossPreparedStatement(Map<Object, Object> jdbcParam)
+                                                                                    throws CrossPreparedStatementException {
+                templateResult.checkIfCrossPreparedStatement(bind(jdbcParam));
+            }
+        };
+        Map<Integer, Object> overriddenJdbcParams = templateResult.getOverriddenJdbcParams();
+        if (templateResult.getSql() != null) {
+            result.setSql(inline(templateResult.getSql(), null, overriddenJdbcParams));
+        }
+        if (templateResult.getRoutedSqls() != null) {
+            List<RoutedSQL> routedSqls = new ArrayList<>(templateResult.getRoutedSqls().size());
+            for (RoutedSQL item : templateResult.getRoutedSqls()) {
+                RoutedSQL routedSql = new RoutedSQL(inline(item.getSql(), item.getRemovedJdbcParamIndexes(),
+                                                           overriddenJdbcParams), item.getSchemas(),
+                                                    item.getRouteInfo());
+                if (item.getRemovedJdbcParamIndexes() != null) {
+                    List<Integer> removed = new ArrayList<>();
+                    for (int k = 1; k < paramIndexes.length; k++) {
+                        if (Collections.binarySearch(item.getRemovedJdbcParamIndexes(), paramIndexes[k]) >= 0) {
+                            removed.add(k);
+                        }
+                    }
+                    routedSql.setRemovedJdbcParamIndexes(removed.isEmpty() ? null : removed);
+                }
+                routedSqls.add(routedSql);
+            }
+            result.setRoutedSqls(routedSqls);
+        }
+        if (overriddenJdbcParams != null) {
+            Map<Integer, Object> map = new HashMap<>();
+            for (int k = 1; k < paramIndexes.length; k++) {
+                if (overriddenJdbcParams.containsKey(paramIndexes[k])) {
+                    map.put(k, overriddenJdbcParams.get(paramIndexes[k]));
+                }
+            }
+            result.setOverriddenJdbcParams(map.isEmpty() ? null : map);
+        }
+        result.setSchemas(templateResult.getSchemas());
+        result.setRouteInfos(templateResult.getRouteInfos());
+        result.setOrderByColumns(templateResult.getOrderByColumns());
+        result.setOffset(templateResult.getOffset());
+        result.setRowCount(templateResult.getRowCount());
+        result.setGroupByColumnIndexes(templateResult.getGroupByColumnIndexes());
+        result.setAggregateColumns(templateResult.getAggregateColumns());
+        result.setHiddenColumnCount(templateResult.getHiddenColumnCount());
+        result.setUpdate(templateResult.isUpdate());
+        return result;
+    }
+
+    /**
+     * 按顺序将物理sql中常量对应的'?'替换为原常量
+     *
+     * @param removedIndexes template parameters which are removed from the physical sql
+     */
+    private String inline(String physicalSql, List<Integer> removedIndexes, Map<Integer, Object> overriddenParams) {
+        StringBuilder sb = new StringBuilder(physicalSql.length() + 16);
+        int index = 0;
+        int i = 0;
+        while (i < physicalSql.length()) {
+            char c = physicalSql.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                int end = skipQuoted(physicalSql, i);
+                sb.append(physicalSql, i, end);
+                i = end;
+                continue;
+            }
+            if (c == '?') {
+                index++;
+                while (removedIndexes != null && Collections.binarySearch(removedIndexes, index) >= 0) {
+                    index++;
+                }
+                Literal literal = index < literals.length ? literals[index] : null;
+                if (literal != null) {
+                    if (overriddenParams != null && overriddenParams.containsKey(index)) {
+                        sb.append(overriddenParams.get(index));
+                    } else {
+                        sb.append(literal.text);
+                    }
+                    i++;
+                    continue;
+                }
+            }
+            sb.append(c);
+            i++;
+        }
+        return sb.toString();
+    }
+
+    private static class Literal {
+
+        private int    index;
+        private String text;
+        private Object value;
+
+        public Literal(int index, String text, Object value) {
+            this.index = index;
+            this.text = text;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 分段计数器,用于热点路径上的统计
+ *   1.按线程id将更新分散到多个槽,每个槽独占一个缓存行,避免多线程更新同一个AtomicLong产生的竞争;
+ *   2.sum()累加所有槽,并发更新时返回的是近似值;
+ */
+public final class StripedCounter {
+
+    static final int              STRIPES = stripes();
+    private static final int      PADDING = 8;       // 8 * 8 bytes = 64 bytes
+
+    private final AtomicLongArray cells   = new AtomicLongArray(STRIPES * PADDING);
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long x) {
+        cells.getAndAdd(stripe() * PADDING, x);
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    public void reset() {
+        for (int i = 0; i < STRIPES; i++) {
+            cells.set(i * PADDING, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(sum());
+    }
+
+    static int stripe() {
+        return (int) Thread.currentThread().getId() & (STRIPES - 1);
+    }
+
+    private static int stripes() {
+        int n = Runtime.getRuntime().availableProcessors() * 2;
+        int stripes = 1;
+        while (stripes < n && stripes < 64) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+}
@@ -0,0 +1,414 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 基于W-TinyLFU淘汰策略的并发缓存
+ *   1.缓存分为window(LRU,占最大权重的1%)和main(SLRU,probation+protected,protected占main的80%)两个区域,
+ *     新的缓存项先进入window,从window淘汰的缓存项只有在访问频率高于main中将被淘汰的缓存项时才能进入main,
+ *     避免只访问一次的缓存项(如临时拼接的sql)淘汰热点缓存项;
+ *   2.访问频率通过count-min sketch估计,并周期性衰减;
+ *   3.读操作不加锁,访问记录在tryLock成功时立即处理,否则放入有界缓冲区(缓冲区满时丢弃),在下一次获得锁时处理;
+ *   4.get(key, loader)对同一个key只有一个线程执行加载,其他线程等待加载结果;
+ */
+public class WTinyLFUCache<K, V> {
+
+    private static final int                       READ_BUFFER_SIZE = 128;
+    private static final int                       WINDOW           = 0;
+    private static final int                       PROBATION        = 1;
+    private static final int                       PROTECTED        = 2;
+
+    private final long                             maximumWeight;
+    private final long                             maximumWindowWeight;
+    private final long                             maximumProtectedWeight;
+    private final Weigher<? super K, ? super V>    weigher;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data             = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, Future<V>>  loadings         = new ConcurrentHashMap<>();
+    private final Queue<Node<K, V>>                readBuffer       = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger                    readBufferCount  = new AtomicInteger();
+    private final ReentrantLock                    lock             = new ReentrantLock();
+
+    // guarded by lock
+    private final FrequencySketch                  sketch;
+    private final AccessOrderDeque<K, V>           window           = new AccessOrderDeque<>();
+    private final AccessOrderDeque<K, V>           probation        = new AccessOrderDeque<>();
+    private final AccessOrderDeque<K, V>           protectedDeque   = new AccessOrderDeque<>();
+    private long                                   weightedSize     = 0;
+    private long                                   windowWeight     = 0;
+    private long                                   protectedWeight  = 0;
+    private volatile long                          evictionCount    = 0;
+
+    /**
+     * @param maximumWeight maximum of the sum of all entries' weights
+     * @param weigher if null, weight of each entry is 1
+     */
+    public WTinyLFUCache(long maximumWeight, Weigher<? super K, ? super V> weigher) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("maximumWeight must be greater than 0");
+        }
+        this.maximumWeight = maximumWeight;
+        this.maximumWindowWeight = Math.max(1, maximumWeight / 100);
+        this.maximumProtectedWeight = (long) ((maximumWeight - maximumWindowWeight) * 0.8);
+        this.weigher = weigher;
+        this.sketch = new FrequencySketch(maximumWeight);
+    }
+
+    public V get(K key) {
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            return null;
+        }
+        afterRead(node);
+        return node.value;
+    }
+
+    /**
+     * 缓存不存在时通过loader加载并缓存,同一个key同时只有一个线程执行加载,其他线程等待并共享加载结果(包括异常)
+     */
+    public V get(final K key, final CacheLoader<? super K, V> loader) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        FutureTask<V> task = new FutureTask<>(new Callable<V>() {
+
+            @Override
+            public V call() throws Exception {
+                V value = get(key);// 其他线程可能刚完成加载
+                if (value == null) {
+                    value = loader.load(key);
+                    if (value != null) {
+                        put(key, value);
+                    }
+                }
+                return value;
+            }
+        });
+        Future<V> loading = loadings.putIfAbsent(key, task);
+        if (loading == null) {
+            loading = task;
+            try {
+                task.run();
+            } finally {
+                loadings.remove(key, task);
+            }
+        }
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return loading.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    } else {
+                        throw new IllegalStateException(cause);
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public void put(K key, V value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("key and value can't be null");
+        }
+        Node<K, V> node = new Node<>(key, value, weigher == null ? 1 : weigher.weigh(key, value));
+        lock.lock();
+        try {
+            drainReadBuffer();
+            Node<K, V> old = data.put(key, node);
+            if (old != null) {
+                unlink(old);
+            }
+            sketch.increment(key);
+            window.addLast(node);
+            node.queue = WINDOW;
+            windowWeight += node.weight;
+            weightedSize += node.weight;
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public V remove(K key) {
+        lock.lock();
+        try {
+            drainReadBuffer();
+            Node<K, V> node = data.remove(key);
+            if (node == null) {
+                return null;
+            }
+            unlink(node);
+            return node.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            drainReadBuffer();
+            for (Node<K, V> node : data.values()) {
+                if (data.remove(node.key, node)) {
+                    unlink(node);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public long getWeightedSize() {
+        lock.lock();
+        try {
+            return weightedSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 因容量不足被淘汰的缓存项数量,不包括被remove或被put覆盖的缓存项
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * 缓存项的快照,按热度从高到低排列:依次为protected,probation和window区域,每个区域内按最近访问时间倒序
+     */
+    public Map<K, V> snapshot() {
+        lock.lock();
+        try {
+            drainReadBuffer();
+            Map<K, V> result = new LinkedHashMap<>(data.size() * 4 / 3 + 1);
+            addTo(result, protectedDeque);
+            addTo(result, probation);
+            addTo(result, window);
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static <K, V> void addTo(Map<K, V> result, AccessOrderDeque<K, V> deque) {
+        for (Node<K, V> node = deque.peekLast(); node != null; node = node.prev) {
+            result.put(node.key, node.value);
+        }
+    }
+
+    private void afterRead(Node<K, V> node) {
+        if (lock.tryLock()) {
+            try {
+                drainReadBuffer();
+                onAccess(node);
+            } finally {
+                lock.unlock();
+            }
+        } else if (readBufferCount.get() < READ_BUFFER_SIZE) {// 缓冲区满时丢弃访问记录
+            readBufferCount.incrementAndGet();
+            readBuffer.offer(node);
+        }
+    }
+
+    private void drainReadBuffer() {
+        Node<K, V> node = null;
+        while ((node = readBuffer.poll()) != null) {
+            readBufferCount.decrementAndGet();
+            onAccess(node);
+        }
+    }
+
+    private void onAccess(Node<K, V> node) {
+        sketch.increment(node.key);
+        if (node.removed) {
+            return;
+        }
+        if (node.queue == WINDOW) {
+            window.moveToLast(node);
+        } else if (node.queue == PROBATION) {// 晋升到protected区域
+            probation.remove(node);
+            protectedDeque.addLast(node);
+            node.queue = PROTECTED;
+            protectedWeight += node.weight;
+            while (protectedWeight > maximumProtectedWeight) {
+                Node<K, V> demoted = protectedDeque.pollFirst();
+                probation.addLast(demoted);
+                demoted.queue = PROBATION;
+                protectedWeight -= demoted.weight;
+            }
+        } else {
+            protectedDeque.moveToLast(node);
+        }
+    }
+
+    private void evict() {
+        // 1. window中超出的缓存项作为候选项进入probation
+        while (windowWeight > maximumWindowWeight) {
+            Node<K, V> node = window.pollFirst();
+            windowWeight -= node.weight;
+            probation.addLast(node);
+            node.queue = PROBATION;
+        }
+        // 2. 候选项与probation中最久未访问的缓存项比较访问频率,淘汰频率低的
+        while (weightedSize > maximumWeight) {
+            Node<K, V> victim = probation.peekFirst();
+            Node<K, V> candidate = probation.peekLast();
+            if (victim == null) {
+                victim = protectedDeque.peekFirst();
+                if (victim == null) {
+                    victim = window.peekFirst();
+                }
+                evict(victim);
+            } else if (candidate == victim) {
+                evict(victim);
+            } else if (candidate.weight > maximumWeight
+                       || sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                evict(candidate);
+            } else {
+                evict(victim);
+            }
+        }
+    }
+
+    private void evict(Node<K, V> node) {
+        data.remove(node.key, node);
+        unlink(node);
+        evictionCount++;
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (node.removed) {
+            return;
+        }
+        node.removed = true;
+        if (node.queue == WINDOW) {
+            window.remove(node);
+            windowWeight -= node.weight;
+        } else if (node.queue == PROBATION) {
+            probation.remove(node);
+        } else {
+            protectedDeque.remove(node);
+            protectedWeight -= node.weight;
+        }
+        weightedSize -= node.weight;
+    }
+
+    private static class Node<K, V> {
+
+        private final K    key;
+        private final V    value;
+        private final int  weight;
+
+        // guarded by lock
+        private int        queue;
+        private boolean    removed = false;
+        private Node<K, V> prev;
+        private Node<K, V> next;
+
+        public Node(K key, V value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * 按访问顺序排列的双向链表,头部为最久未访问的缓存项
+     */
+    private static class AccessOrderDeque<K, V> {
+
+        private Node<K, V> head;
+        private Node<K, V> tail;
+
+        public Node<K, V> peekFirst() {
+            return head;
+        }
+
+        public Node<K, V> peekLast() {
+            return tail;
+        }
+
+        public Node<K, V> pollFirst() {
+            Node<K, V> node = head;
+            if (node != null) {
+                remove(node);
+            }
+            return node;
+        }
+
+        public void addLast(Node<K, V> node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        public void remove(Node<K, V> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+        }
+
+        public void moveToLast(Node<K, V> node) {
+            if (node != tail) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+}
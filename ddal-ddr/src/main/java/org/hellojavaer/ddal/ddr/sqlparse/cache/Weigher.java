@@ -0,0 +1,28 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse.cache;
+
+/**
+ * 计算缓存项的权重,缓存中所有缓存项的权重之和不超过缓存的最大权重
+ */
+public interface Weigher<K, V> {
+
+    /**
+     * @return weight of the entry, must be greater than 0
+     */
+    int weigh(K key, V value);
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse.cache.monitor;
+
+public interface SQLParserCacheMonitor {
+
+    /**
+     * 缓存命中统计,不包括超过maxSQLLength而未使用缓存的sql
+     */
+    long getHitCount();
+
+    long getMissCount();
+
+    double getHitRatio();
+
+    double getMissRatio();
+
+    long getEvictionCount();
+
+    /**
+     * 超过maxSQLLength而未使用缓存的sql数量
+     */
+    long getBypassedCount();
+
+    long getWeightedSize();
+
+    /**
+     * sql解析耗时
+     */
+    long getParseCount();
+
+    long getAverageParseNanos();
+
+    String getParseLatencyHistogram();// {1024:3,2048:10} 耗时上界(纳秒):次数
+
+    /**
+     * sql路由耗时
+     */
+    long getRouteCount();
+
+    long getAverageRouteNanos();
+
+    String getRouteLatencyHistogram();
+
+    void resetStatistics();
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse.cache.monitor.mbean;
+
+import org.hellojavaer.ddal.ddr.sqlparse.cache.monitor.SQLParserCacheMonitor;
+import org.hellojavaer.ddal.ddr.sqlparse.cache.monitor.SQLParserCacheMonitorServer;
+import org.hellojavaer.ddal.ddr.utils.DDRStringUtils;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+public class MBeanSQLParserCacheMonitorServer implements SQLParserCacheMonitorServer {
+
+    private SQLParserCacheMonitor sqlParserCacheMonitor;
+
+    private String                paramNameOfObjectName;
+
+    public String getParamNameOfObjectName() {
+        return paramNameOfObjectName;
+    }
+
+    public void setParamNameOfObjectName(String paramNameOfObjectName) {
+        this.paramNameOfObjectName = DDRStringUtils.trimToNull(paramNameOfObjectName);
+    }
+
+    @Override
+    public void init(SQLParserCacheMonitor sqlParserCacheMonitor) {
+        this.sqlParserCacheMonitor = sqlParserCacheMonitor;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName mbeanName = null;
+            if (paramNameOfObjectName == null) {
+                mbeanName = new ObjectName(SQLParserCacheMonitor.class.getPackage().getName() + ":type="
+                                           + SQLParserCacheMonitor.class.getSimpleName());
+            } else {
+                mbeanName = new ObjectName(paramNameOfObjectName);
+            }
+            SQLParserCacheMonitorMXBean mbean = new SQLParserCacheMonitorMXBean() {
+
+                @Override
+                public long getHitCount() {
+                    return getSQLParserCacheMonitor().getHitCount();
+                }
+
+                @Override
+                public long getMissCount() {
+                    return getSQLParserCacheMonitor().getMissCount();
+                }
+
+                @Override
+                public double getHitRatio() {
+                    return getSQLParserCacheMonitor().getHitRatio();
+                }
+
+                @Override
+                public double getMissRatio() {
+                    return getSQLParserCacheMonitor().getMissRatio();
+                }
+
+                @Override
+                public long getEvictionCount() {
+                    return getSQLParserCacheMonitor().getEvictionCount();
+                }
+
+                @Override
+                public long getBypassedCount() {
+                    return getSQLParserCacheMonitor().getBypassedCount();
+                }
+
+                @Override
+                public long getWeightedSize() {
+                    return getSQLParserCacheMonitor().getWeightedSize();
+                }
+
+                @Override
+                public long getParseCount() {
+                    return getSQLParserCacheMonitor().getParseCount();
+                }
+
+                @Override
+                public long getAverageParseNanos() {
+                    return getSQLParserCacheMonitor().getAverageParseNanos();
+                }
+
+                @Override
+                public String getParseLatencyHistogram() {
+                    return getSQLParserCacheMonitor().getParseLatencyHistogram();
+                }
+
+                @Override
+                public long getRouteCount() {
+                    return getSQLParserCacheMonitor().getRouteCount();
+                }
+
+                @Override
+                public long getAverageRouteNanos() {
+                    return getSQLParserCacheMonitor().getAverageRouteNanos();
+                }
+
+                @Override
+                public String getRouteLatencyHistogram() {
+                    return getSQLParserCacheMonitor().getRouteLatencyHistogram();
+                }
+
+                @Override
+                public void resetStatistics() {
+                    getSQLParserCacheMonitor().resetStatistics();
+                }
+            };
+            server.registerMBean(mbean, mbeanName);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    protected SQLParserCacheMonitor getSQLParserCacheMonitor() {
+        return sqlParserCacheMonitor;
+    }
+}
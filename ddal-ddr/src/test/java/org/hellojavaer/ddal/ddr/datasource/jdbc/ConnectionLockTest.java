@@ -0,0 +1,233 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.datasource.manager.DataSourceParam;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 连接池阻塞时不持有监视器,也不阻塞同一连接上的其他线程;
+ * 在JDK 21+上压力测试使用虚拟线程执行,可以加上-Djdk.tracePinnedThreads=full观察是否有虚拟线程被固定
+ */
+public class ConnectionLockTest {
+
+    private final Map<String, AtomicInteger> opened       = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> closed       = new ConcurrentHashMap<>();
+    private final AtomicInteger              monitorHeld  = new AtomicInteger();
+    private volatile Connection              ddrConnection;
+    private volatile CountDownLatch          entered      = null;
+    private volatile CountDownLatch          blocker      = null;
+
+    @Test
+    public void testBlockedAcquisition() throws Exception {
+        ddrConnection = newDataSource().getConnection();
+        entered = new CountDownLatch(1);
+        blocker = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> blocked = executor.submit(update("update db_0.user set name = 'a'"));
+            Assert.isTrue(entered.await(5, TimeUnit.SECONDS));
+            // db_0的连接池阻塞时,其他线程仍然可以在同一连接上使用db_1
+            Future<Integer> other = executor.submit(update("update db_1.user set name = 'b'"));
+            Assert.equals(other.get(5, TimeUnit.SECONDS), 1);
+            Assert.isTrue(!blocked.isDone());
+            blocker.countDown();
+            Assert.equals(blocked.get(5, TimeUnit.SECONDS), 1);
+        } finally {
+            blocker.countDown();
+            executor.shutdownNow();
+        }
+        Assert.equals(monitorHeld.get(), 0);
+        Assert.equals(opened.get("db_0").get(), 1);
+        Assert.equals(opened.get("db_1").get(), 1);
+        ddrConnection.close();
+        Assert.equals(closed.get("db_0").get(), 1);
+        Assert.equals(closed.get("db_1").get(), 1);
+    }
+
+    @Test
+    public void testCloseDuringAcquisition() throws Exception {
+        ddrConnection = newDataSource().getConnection();
+        entered = new CountDownLatch(1);
+        blocker = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            Future<Integer> blocked = executor.submit(update("update db_0.user set name = 'a'"));
+            Assert.isTrue(entered.await(5, TimeUnit.SECONDS));
+            // 获取物理连接期间关闭连接,新获取的物理连接被关闭而不是放入已关闭的连接中
+            ddrConnection.close();
+            Assert.isTrue(ddrConnection.isClosed());
+            blocker.countDown();
+            try {
+                blocked.get(5, TimeUnit.SECONDS);
+                Assert.isTrue(false);
+            } catch (ExecutionException e) {
+                // ignore
+            }
+        } finally {
+            blocker.countDown();
+            executor.shutdownNow();
+        }
+        Assert.equals(opened.get("db_0").get(), 1);
+        Assert.equals(closed.get("db_0").get(), 1);
+        boolean failed = false;
+        try {
+            update("update db_1.user set name = 'b'").call();
+        } catch (Exception e) {
+            failed = true;
+        }
+        Assert.isTrue(failed);
+        Assert.equals(opened.get("db_1").get(), 0);
+    }
+
+    @Test
+    public void testConcurrentAcquisition() throws Exception {
+        ddrConnection = newDataSource().getConnection();
+        ExecutorService executor = newExecutor();
+        List<Future<Integer>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < 2000; i++) {
+                futures.add(executor.submit(update("update db_" + (i % 2) + ".user set name = 'a'")));
+            }
+            for (Future<Integer> future : futures) {
+                Assert.equals(future.get(10, TimeUnit.SECONDS), 1);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.equals(monitorHeld.get(), 0);
+        // 并发获取的多余物理连接被关闭,每个数据源只保留一个物理连接
+        for (String schema : new String[] { "db_0", "db_1" }) {
+            Assert.equals(opened.get(schema).get() - closed.get(schema).get(), 1);
+        }
+        ddrConnection.close();
+        for (String schema : new String[] { "db_0", "db_1" }) {
+            Assert.equals(opened.get(schema).get(), closed.get(schema).get());
+        }
+    }
+
+    private Callable<Integer> update(final String sql) {
+        return new Callable<Integer>() {
+
+            @Override
+            public Integer call() throws Exception {
+                Statement statement = ddrConnection.createStatement();
+                try {
+                    return statement.executeUpdate(sql);
+                } finally {
+                    statement.close();
+                }
+            }
+        };
+    }
+
+    private static ExecutorService newExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return Executors.newFixedThreadPool(32);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private AbstractDDRDataSource newDataSource() {
+        final Map<String, DataSourceWrapper> dataSources = new HashMap<>();
+        for (String schema : new String[] { "db_0", "db_1" }) {
+            dataSources.put(schema, new DataSourceWrapper(mock(DataSource.class, schema),
+                                                          Collections.singleton(schema)));
+            opened.put(schema, new AtomicInteger());
+            closed.put(schema, new AtomicInteger());
+        }
+        return new AbstractDDRDataSource() {
+
+            @Override
+            public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) {
+                SQLParsedResult result = new SQLParsedResult();
+                result.setSql(sql);
+                result.setSchemas(Collections.singleton(sql.substring(7, 11)));
+                return result;
+            }
+
+            @Override
+            public DataSourceWrapper getDataSource(DataSourceParam param) {
+                return dataSources.get(param.getScNames().iterator().next());
+            }
+        };
+    }
+
+    private <T> T mock(Class<T> type, final String name) {
+        return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { type }, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+                return ConnectionLockTest.this.invoke(name, proxy, method, args);
+            }
+        });
+    }
+
+    private Object invoke(String name, Object proxy, Method method, Object[] args) throws Exception {
+        String methodName = method.getName();
+        if (proxy instanceof DataSource && "getConnection".equals(methodName)) {
+            if (ddrConnection != null && Thread.holdsLock(ddrConnection)) {
+                monitorHeld.incrementAndGet();
+            }
+            if ("db_0".equals(name) && entered != null) {
+                entered.countDown();
+                blocker.await();
+            } else {
+                Thread.yield();
+            }
+            opened.get(name).incrementAndGet();
+            return mock(Connection.class, name);
+        } else if ("createStatement".equals(methodName)) {
+            return mock(Statement.class, name);
+        } else if ("hashCode".equals(methodName)) {
+            return System.identityHashCode(proxy);
+        } else if ("equals".equals(methodName)) {
+            return proxy == args[0];
+        } else if (proxy instanceof Connection) {
+            if ("close".equals(methodName)) {
+                closed.get(name).incrementAndGet();
+            } else if ("getAutoCommit".equals(methodName)) {
+                return true;
+            }
+        } else if ("executeUpdate".equals(methodName)) {
+            return 1;
+        }
+        Class<?> returnType = method.getReturnType();
+        if (returnType == boolean.class) {
+            return false;
+        } else if (returnType == int.class) {
+            return 0;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.datasource.exception.CrossDataSourceException;
+import org.hellojavaer.ddal.ddr.datasource.manager.DataSourceParam;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+public class ConnectionReuseTest {
+
+    private final List<String> log = new ArrayList<>();
+
+    @Test
+    public void testAutoCommit() throws SQLException {
+        Connection connection = newDataSource().getConnection();
+        Statement statement0 = connection.createStatement();
+        statement0.executeUpdate("update db_0.user set name = 'a'");
+        connection.createStatement().executeUpdate("update db_1.user set name = 'b'");
+        // 自动提交模式下statement不绑定已有连接的数据源
+        connection.createStatement().executeUpdate("update db_0.user set name = 'c'");
+        connection.createStatement().executeUpdate("update db_1.user set name = 'd'");
+        Assert.equals(log, Arrays.asList("getConnection db_0", "getAutoCommit db_0", "getConnection db_1"));
+        Assert.isTrue(connection.getAutoCommit());
+        // 连接属性同步到所有物理连接
+        connection.setReadOnly(false);
+        // 先前statement的物理连接没有被关闭
+        statement0.executeUpdate("update db_0.user set name = 'e'");
+        connection.close();
+        Assert.equals(log, Arrays.asList("getConnection db_0", "getAutoCommit db_0", "getConnection db_1",
+                                         "setReadOnly db_0", "setReadOnly db_1", "close db_0", "close db_1"));
+    }
+
+    @Test
+    public void testTransaction() throws SQLException {
+        Connection connection = newDataSource().getConnection();
+        connection.createStatement().executeUpdate("update db_0.user set name = 'a'");
+        connection.createStatement().executeUpdate("update db_1.user set name = 'b'");
+        log.clear();
+        // 进入事务时只保留当前连接
+        connection.setAutoCommit(false);
+        Assert.equals(log, Arrays.asList("close db_0", "setAutoCommit db_1"));
+        connection.createStatement().executeUpdate("update db_1.user set name = 'c'");
+        try {
+            connection.createStatement().executeUpdate("update db_0.user set name = 'd'");
+            throw new Error();
+        } catch (CrossDataSourceException e) {
+            // ignore
+        }
+        connection.commit();
+        Assert.equals(log, Arrays.asList("close db_0", "setAutoCommit db_1", "commit db_1", "close db_1"));
+        log.clear();
+        connection.createStatement().executeUpdate("update db_0.user set name = 'e'");
+        Assert.equals(log, Arrays.asList("getConnection db_0", "setAutoCommit db_0"));
+        connection.close();
+    }
+
+    @Test
+    public void testCommitInAutoCommit() throws SQLException {
+        Connection connection = newDataSource().getConnection();
+        ResultSet resultSet = connection.createStatement().executeQuery("select db_0.user.name from db_0.user");
+        connection.createStatement().executeUpdate("update db_1.user set name = 'a'");
+        log.clear();
+        // commit不关闭其他数据源上仍在使用的物理连接
+        connection.commit();
+        connection.rollback();
+        Assert.isTrue(resultSet.next());
+        Assert.equals(log, Arrays.asList("commit db_1", "rollback db_1", "next db_0"));
+        connection.createStatement().executeUpdate("update db_0.user set name = 'b'");
+        connection.createStatement().executeUpdate("update db_1.user set name = 'c'");
+        Assert.equals(log, Arrays.asList("commit db_1", "rollback db_1", "next db_0"));
+        connection.close();
+    }
+
+    private AbstractDDRDataSource newDataSource() {
+        final Map<String, DataSourceWrapper> dataSources = new HashMap<>();
+        for (String schema : new String[] { "db_0", "db_1" }) {
+            dataSources.put(schema, new DataSourceWrapper(mock(DataSource.class, schema),
+                                                          Collections.singleton(schema)));
+        }
+        return new AbstractDDRDataSource() {
+
+            @Override
+            public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) {
+                SQLParsedResult result = new SQLParsedResult();
+                result.setSql(sql);
+                result.setSchemas(Collections.singleton(sql.substring(7, 11)));
+                return result;
+            }
+
+            @Override
+            public DataSourceWrapper getDataSource(DataSourceParam param) {
+                // 每次返回新的wrapper,按物理数据源复用连接
+                DataSourceWrapper wrapper = dataSources.get(param.getScNames().iterator().next());
+                return new DataSourceWrapper(wrapper.getDataSource(), wrapper.getSchemas());
+            }
+        };
+    }
+
+    private <T> T mock(Class<T> type, final String name) {
+        return (T) Proxy.newProxyInstance(ConnectionReuseTest.class.getClassLoader(), new Class[] { type },
+                                          new InvocationHandler() {
+
+                                              @Override
+                                              public Object invoke(Object proxy, Method method, Object[] args) {
+                                                  return ConnectionReuseTest.this.invoke(name, proxy, method, args);
+                                              }
+                                          });
+    }
+
+    private Object invoke(String name, Object proxy, Method method, Object[] args) {
+        String methodName = method.getName();
+        if ("getConnection".equals(methodName)) {
+            log.add("getConnection " + name);
+            return mock(Connection.class, name);
+        } else if ("createStatement".equals(methodName)) {
+            return mock(Statement.class, name);
+        } else if ("executeQuery".equals(methodName)) {
+            return mock(ResultSet.class, name);
+        } else if ("hashCode".equals(methodName)) {
+            return System.identityHashCode(proxy);
+        } else if ("equals".equals(methodName)) {
+            return proxy == args[0];
+        } else if (proxy instanceof Connection) {
+            log.add(methodName + " " + name);
+            if ("getAutoCommit".equals(methodName)) {
+                return true;
+            }
+        } else if (proxy instanceof ResultSet && "next".equals(methodName)) {
+            log.add(methodName + " " + name);
+            return true;
+        } else if ("executeUpdate".equals(methodName)) {
+            return 1;
+        }
+        Class<?> returnType = method.getReturnType();
+        if (returnType == boolean.class) {
+            return false;
+        } else if (returnType == int.class) {
+            return 0;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.JdbcParameterBuffer.JdbcParamSetMethod;
+import org.hellojavaer.ddal.ddr.sqlparse.RoutedSQL;
+import org.hellojavaer.ddal.ddr.utils.DDRJSONUtils;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class JdbcParameterBufferTest {
+
+    @Test
+    public void testMapView() throws SQLException {
+        JdbcParameterBuffer buffer = new JdbcParameterBuffer();
+        buffer.putLong(1, JdbcParamSetMethod.setLong_long, 7);
+        buffer.putLong(2, JdbcParamSetMethod.setInt_int, 8);
+        buffer.putLong(3, JdbcParamSetMethod.setBoolean_boolean, 1);
+        buffer.putDouble(4, JdbcParamSetMethod.setDouble_double, 1.5);
+        buffer.putObject(5, JdbcParamSetMethod.setString_String, "a");
+        buffer.putNull(6, JdbcParamSetMethod.setNull_int, Types.VARCHAR, null);
+        Assert.equals(buffer.size(), 6);
+        Assert.equals(buffer.get(1), 7L);
+        Assert.equals(buffer.get(2), 8);
+        Assert.equals(buffer.get(3), true);
+        Assert.equals(buffer.get(4), 1.5);
+        Assert.equals(buffer.get(5), "a");
+        Assert.isTrue(buffer.containsKey(6) && buffer.get(6) == null);
+        Assert.isTrue(!buffer.containsKey(7) && !buffer.containsKey("1"));
+        Assert.equals(DDRJSONUtils.toJSONString(buffer), "{1:7,2:8,3:true,4:1.5,5:\"a\",6:null}");
+        // 同一索引重复设置时覆盖
+        buffer.putObject(1, JdbcParamSetMethod.setString_String, "b");
+        Assert.equals(buffer.size(), 6);
+        Assert.equals(buffer.get(1), "b");
+        // 超过初始容量
+        buffer.putLong(100, JdbcParamSetMethod.setLong_long, 100);
+        Assert.equals(buffer.size(), 7);
+        Assert.equals(buffer.get(100), 100L);
+        // clear后复用
+        buffer.clear();
+        Assert.isTrue(buffer.isEmpty() && buffer.get(1) == null && buffer.get(100) == null);
+        Assert.equals(DDRJSONUtils.toJSONString(buffer), "{}");
+        buffer.putLong(2, JdbcParamSetMethod.setLong_long, 3);
+        Assert.equals(DDRJSONUtils.toJSONString(buffer), "{2:3}");
+        try {
+            buffer.putLong(0, JdbcParamSetMethod.setLong_long, 1);
+            throw new Error();
+        } catch (SQLException e) {
+            // ignore
+        }
+    }
+
+    @Test
+    public void testPlayback() throws SQLException {
+        JdbcParameterBuffer buffer = new JdbcParameterBuffer();
+        buffer.putObject(3, JdbcParamSetMethod.setObject_Object_int_int, 1.25, Types.DECIMAL, 2);
+        buffer.putLong(1, JdbcParamSetMethod.setShort_short, 5);
+        buffer.putNull(2, JdbcParamSetMethod.setNull_int_String, Types.STRUCT, "T");
+        buffer.putDouble(4, JdbcParamSetMethod.setFloat_float, 0.5f);
+        final List<String> log = new ArrayList<>();
+        InvocationHandler handler = new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                log.add(method.getName() + Arrays.toString(args));
+                return null;
+            }
+        };
+        Class<?>[] interfaces = new Class[] { PreparedStatement.class };
+        PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                                                                                 interfaces, handler);
+        buffer.playback(statement, null);
+        Assert.equals(log, Arrays.asList("setShort[1, 5]", "setNull[2, 2002, T]", "setObject[3, 1.25, 3, 2]",
+                                         "setFloat[4, 0.5]"));
+        // 物理sql中删除了第2个参数
+        log.clear();
+        RoutedSQL routedSql = new RoutedSQL();
+        routedSql.setRemovedJdbcParamIndexes(Arrays.asList(2));
+        buffer.playback(statement, routedSql);
+        Assert.equals(log, Arrays.asList("setShort[1, 5]", "setObject[2, 1.25, 3, 2]", "setFloat[3, 0.5]"));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.datasource.manager.SingleDataSourceManager;
+import org.hellojavaer.ddal.ddr.shard.ShardParser;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.sqlparse.RoutedSQL;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * cancel()取消多分片sql中正在执行的物理sql,尚未执行的物理sql不再执行
+ */
+public class MultiRoutedCancelTest {
+
+    private final List<String>   log     = Collections.synchronizedList(new ArrayList<String>());
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch blocker = new CountDownLatch(1);
+
+    @Test
+    public void testCancel() throws Exception {
+        Connection connection = newDataSource().getConnection();
+        final Statement statement = connection.createStatement();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ResultSet> future = executor.submit(new Callable<ResultSet>() {
+
+                @Override
+                public ResultSet call() throws Exception {
+                    return statement.executeQuery("select id from db.user");
+                }
+            });
+            Assert.isTrue(entered.await(5, TimeUnit.SECONDS));
+            statement.cancel();
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                Assert.isTrue(false);
+            } catch (ExecutionException e) {
+                // ignore
+            }
+        } finally {
+            blocker.countDown();
+            executor.shutdownNow();
+        }
+        // 两个物理sql在同一个数据源上顺序执行,第一个被取消后第二个不再执行
+        Assert.equals(log, Arrays.asList("executeQuery db_0.user_0", "cancel"));
+        statement.close();
+        connection.close();
+    }
+
+    private DefaultDDRDataSource newDataSource() {
+        ShardParser shardParser = new ShardParser() {
+
+            @Override
+            public SQLParsedResult parse(String sql, Map<Object, Object> jdbcParams) {
+                List<RoutedSQL> routedSqls = new ArrayList<>();
+                for (int i = 0; i < 2; i++) {
+                    routedSqls.add(new RoutedSQL(sql.replace("db.user", "db_" + i + ".user_" + i),
+                                                 Collections.singleton("db_" + i),
+                                                 new ShardRouteInfo("db_" + i, "user_" + i)));
+                }
+                SQLParsedResult result = new SQLParsedResult();
+                result.setRoutedSqls(routedSqls);
+                result.setSchemas(new HashSet<>(Arrays.asList("db_0", "db_1")));
+                return result;
+            }
+        };
+        return new DefaultDDRDataSource(new SingleDataSourceManager(mock(DataSource.class)), shardParser);
+    }
+
+    private <T> T mock(Class<T> type) {
+        return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { type }, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+                return MultiRoutedCancelTest.this.invoke(proxy, method, args);
+            }
+        });
+    }
+
+    private Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+        String name = method.getName();
+        if ("hashCode".equals(name)) {
+            return System.identityHashCode(proxy);
+        } else if ("equals".equals(name)) {
+            return proxy == args[0];
+        } else if ("getConnection".equals(name)) {
+            return mock(Connection.class);
+        } else if ("createStatement".equals(name)) {
+            return mock(Statement.class);
+        } else if ("getAutoCommit".equals(name)) {
+            return true;
+        } else if ("executeQuery".equals(name)) {
+            log.add(name + " " + ((String) args[0]).substring(15));
+            entered.countDown();
+            blocker.await();
+            throw new SQLException("Query execution was interrupted");
+        } else if ("cancel".equals(name)) {
+            log.add(name);
+            blocker.countDown();
+        }
+        Class<?> returnType = method.getReturnType();
+        if (returnType == boolean.class) {
+            return false;
+        } else if (returnType == int.class) {
+            return 0;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.datasource.exception.CrossDataSourceException;
+import org.hellojavaer.ddal.ddr.datasource.exception.CrossPreparedStatementException;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.merge.MockResultSet;
+import org.hellojavaer.ddal.ddr.datasource.manager.DataSourceParam;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+public class MultiTargetPreparedStatementTest {
+
+    private static final String SQL = "select * from user where id = ?";
+
+    private final List<String>  log = new ArrayList<>();
+
+    @Test
+    public void testSwitch() throws SQLException {
+        Connection connection = newDataSource().getConnection();
+        PreparedStatement statement = connection.prepareStatement(SQL);
+        statement.setFetchSize(10);
+        statement.setLong(1, 1);
+        ResultSet resultSet = statement.executeQuery();
+        Assert.isTrue(resultSet.next());
+        Assert.equals(resultSet.getString(1), "db_1.user_1");
+        Assert.equals(log, Arrays.asList("prepare db_1.user_1", "db_1.user_1 setFetchSize 10",
+                                         "db_1.user_1 setLong 1", "db_1.user_1 executeQuery"));
+        log.clear();
+        // 属性设置在绑定后也会记录,创建新的物理preparedStatement时回放
+        statement.setQueryTimeout(3);
+        statement.setLong(1, 6);
+        resultSet = statement.executeQuery();
+        Assert.isTrue(resultSet.next());
+        Assert.equals(resultSet.getString(1), "db_0.user_2");
+        Assert.equals(log, Arrays.asList("db_1.user_1 setQueryTimeout 3", "db_1.user_1 setLong 6",
+                                         "prepare db_0.user_2", "db_0.user_2 setFetchSize 10",
+                                         "db_0.user_2 setQueryTimeout 3", "db_0.user_2 setLong 6",
+                                         "db_0.user_2 executeQuery"));
+        log.clear();
+        // 切换回已创建的物理preparedStatement时只回放jdbc参数
+        statement.setLong(1, 5);
+        statement.executeQuery();
+        Assert.equals(log, Arrays.asList("db_0.user_2 setLong 5", "db_1.user_1 setLong 5",
+                                         "db_1.user_1 executeQuery"));
+        log.clear();
+        statement.setLong(1, 9);
+        statement.executeQuery();
+        Assert.equals(log, Arrays.asList("db_1.user_1 setLong 9", "db_1.user_1 executeQuery"));
+        log.clear();
+        statement.close();
+        Assert.equals(new HashSet<>(log), new HashSet<>(Arrays.asList("db_0.user_2 close", "db_1.user_1 close")));
+    }
+
+    @Test
+    public void testBatch() throws SQLException {
+        Connection connection = newDataSource().getConnection();
+        PreparedStatement statement = connection.prepareStatement(SQL);
+        statement.setLong(1, 1);
+        statement.addBatch();
+        statement.setLong(1, 2);
+        try {
+            statement.addBatch();
+            throw new Error();
+        } catch (CrossPreparedStatementException e) {
+            // ignore
+        }
+        statement.clearBatch();
+        statement.addBatch();
+        statement.executeBatch();
+        Assert.isTrue(log.contains("db_0.user_2 executeBatch"));
+    }
+
+    @Test
+    public void testTransaction() throws SQLException {
+        Connection connection = newDataSource().getConnection();
+        connection.setAutoCommit(false);
+        PreparedStatement statement = connection.prepareStatement(SQL);
+        statement.setLong(1, 1);
+        statement.executeQuery();
+        // 事务中只能切换到同一个数据源上的物理表
+        statement.setLong(1, 3);
+        statement.executeQuery();
+        Assert.isTrue(log.contains("prepare db_1.user_3"));
+        statement.setLong(1, 2);
+        try {
+            statement.executeQuery();
+            throw new Error();
+        } catch (SQLException | RuntimeException e) {
+            Assert.isTrue(e.getCause() instanceof CrossDataSourceException);
+        }
+    }
+
+    private AbstractDDRDataSource newDataSource() {
+        final Map<String, DataSourceWrapper> dataSources = new HashMap<>();
+        for (String schema : new String[] { "db_0", "db_1" }) {
+            dataSources.put(schema, new DataSourceWrapper(mock(DataSource.class, schema),
+                                                          Collections.singleton(schema)));
+        }
+        return new AbstractDDRDataSource() {
+
+            @Override
+            public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) {
+                final String table = route(jdbcParams);
+                SQLParsedResult result = new SQLParsedResult() {
+
+                    @Override
+                    public void checkIfCrossPreparedStatement(Map<Object, Object> jdbcParams) {
+                        if (!table.equals(route(jdbcParams))) {
+                            throw new CrossPreparedStatementException(table);
+                        }
+                    }
+                };
+                result.setSql(table);
+                result.setSchemas(Collections.singleton(table.substring(0, 4)));
+                return result;
+            }
+
+            @Override
+            public DataSourceWrapper getDataSource(DataSourceParam param) {
+                return dataSources.get(param.getScNames().iterator().next());
+            }
+        };
+    }
+
+    private static String route(Map<Object, Object> jdbcParams) {
+        long id = ((Number) jdbcParams.get(1)).longValue();
+        return "db_" + id % 2 + ".user_" + id % 4;
+    }
+
+    private <T> T mock(Class<T> type, final String name) {
+        return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { type }, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return MultiTargetPreparedStatementTest.this.invoke(name, proxy, method, args);
+            }
+        });
+    }
+
+    private Object invoke(String name, Object proxy, Method method, Object[] args) {
+        String methodName = method.getName();
+        if ("getConnection".equals(methodName)) {
+            return mock(Connection.class, name);
+        } else if ("prepareStatement".equals(methodName)) {
+            log.add("prepare " + args[0]);
+            return mock(PreparedStatement.class, (String) args[0]);
+        } else if ("getAutoCommit".equals(methodName)) {
+            return true;
+        } else if ("hashCode".equals(methodName)) {
+            return System.identityHashCode(proxy);
+        } else if ("equals".equals(methodName)) {
+            return proxy == args[0];
+        } else if (proxy instanceof PreparedStatement) {
+            log.add(name + " " + methodName + (args == null ? "" : " " + args[args.length - 1]));
+            if ("executeQuery".equals(methodName)) {
+                return MockResultSet.create(new String[] { "table" }, new Object[] { name });
+            } else if ("executeBatch".equals(methodName)) {
+                return new int[] { 1 };
+            }
+        }
+        Class<?> returnType = method.getReturnType();
+        if (returnType == boolean.class) {
+            return false;
+        } else if (returnType == int.class) {
+            return 0;
+        }
+        return null;
+    }
+}
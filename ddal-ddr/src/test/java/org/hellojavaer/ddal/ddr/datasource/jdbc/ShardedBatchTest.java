@@ -0,0 +1,194 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.datasource.manager.DataSourceParam;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * 分片批处理:每条参数按路由结果添加到各物理表的batch中,影响行数按addBatch的顺序返回
+ */
+public class ShardedBatchTest {
+
+    private static final String           SQL        = "update user set name = 'x' where id = ?";
+    private static final String           FAILED_SQL = "db_1.user_3";
+
+    private final Map<String, Long>       params     = new HashMap<>();
+    private final Map<String, List<Long>> batches    = new HashMap<>();
+    private final List<String>            log        = new ArrayList<>();
+
+    @Test
+    public void testOrder() throws SQLException {
+        Connection connection = newDataSource().getConnection();
+        PreparedStatement statement = connection.prepareStatement(SQL);
+        long[] ids = { 5, 2, 8, 4, 1, 6, 9, 12 };
+        for (long id : ids) {
+            statement.setLong(1, id);
+            statement.addBatch();
+        }
+        int[] updateCounts = statement.executeBatch();
+        Assert.equals(updateCounts.length, ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            Assert.equals(updateCounts[i], (int) ids[i]);
+        }
+        synchronized (log) {
+            // 同一数据源的物理表共享一个物理连接,执行后全部关闭
+            Assert.equals(Collections.frequency(log, "db_0 getConnection"), 1);
+            Assert.equals(Collections.frequency(log, "db_1 getConnection"), 1);
+            Assert.equals(Collections.frequency(log, "db_0 close"), 1);
+            Assert.equals(Collections.frequency(log, "db_1 close"), 1);
+            for (String table : new String[] { "db_0.user_0", "db_0.user_2", "db_1.user_1" }) {
+                Assert.equals(Collections.frequency(log, table + " executeBatch"), 1);
+                Assert.equals(Collections.frequency(log, table + " close"), 1);
+            }
+        }
+        // 执行后batch被清空,可以重新添加
+        statement.setLong(1, 13L);
+        statement.addBatch();
+        updateCounts = statement.executeBatch();
+        Assert.equals(updateCounts.length, 1);
+        Assert.equals(updateCounts[0], 13);
+    }
+
+    @Test
+    public void testFailure() throws SQLException {
+        Connection connection = newDataSource().getConnection();
+        PreparedStatement statement = connection.prepareStatement(SQL);
+        // db_1.user_3执行第一条后失败,同一连接上其后的db_1.user_1不再执行
+        long[] ids = { 3, 1, 7, 2, 4 };
+        for (long id : ids) {
+            statement.setLong(1, id);
+            statement.addBatch();
+        }
+        try {
+            statement.executeBatch();
+            throw new Error();
+        } catch (BatchUpdateException e) {
+            int[] updateCounts = e.getUpdateCounts();
+            Assert.equals(updateCounts.length, ids.length);
+            Assert.equals(updateCounts[0], 3);
+            Assert.equals(updateCounts[1], Statement.EXECUTE_FAILED);
+            Assert.equals(updateCounts[2], Statement.EXECUTE_FAILED);
+            Assert.equals(updateCounts[3], 2);
+            Assert.equals(updateCounts[4], 4);
+            Assert.isTrue(e.getCause() instanceof BatchUpdateException);
+        }
+        synchronized (log) {
+            Assert.isTrue(!log.contains("db_1.user_1 executeBatch"));
+            Assert.equals(Collections.frequency(log, "db_0 close"), 1);
+            Assert.equals(Collections.frequency(log, "db_1 close"), 1);
+        }
+    }
+
+    private AbstractDDRDataSource newDataSource() {
+        final Map<String, DataSourceWrapper> dataSources = new HashMap<>();
+        for (String schema : new String[] { "db_0", "db_1" }) {
+            dataSources.put(schema, new DataSourceWrapper(mock(DataSource.class, schema),
+                                                          Collections.singleton(schema)));
+        }
+        AbstractDDRDataSource dataSource = new AbstractDDRDataSource() {
+
+            @Override
+            public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) {
+                long id = ((Number) jdbcParams.get(1)).longValue();
+                String table = "db_" + id % 2 + ".user_" + id % 4;
+                SQLParsedResult result = new SQLParsedResult();
+                result.setSql(table);
+                result.setSchemas(Collections.singleton(table.substring(0, 4)));
+                return result;
+            }
+
+            @Override
+            public DataSourceWrapper getDataSource(DataSourceParam param) {
+                return dataSources.get(param.getScNames().iterator().next());
+            }
+        };
+        dataSource.setEnableShardedBatch(true);
+        return dataSource;
+    }
+
+    private <T> T mock(Class<T> type, final String name) {
+        return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { type }, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                return ShardedBatchTest.this.invoke(name, proxy, method, args);
+            }
+        });
+    }
+
+    private Object invoke(String name, Object proxy, Method method, Object[] args) throws Throwable {
+        String methodName = method.getName();
+        if ("hashCode".equals(methodName)) {
+            return System.identityHashCode(proxy);
+        } else if ("equals".equals(methodName)) {
+            return proxy == args[0];
+        } else if ("getAutoCommit".equals(methodName)) {
+            return true;
+        }
+        synchronized (log) {
+            log.add(name + " " + methodName);
+        }
+        if ("getConnection".equals(methodName)) {
+            return mock(Connection.class, name);
+        } else if ("prepareStatement".equals(methodName)) {
+            return mock(PreparedStatement.class, (String) args[0]);
+        } else if ("setLong".equals(methodName)) {
+            synchronized (batches) {
+                params.put(name, (Long) args[1]);
+            }
+        } else if ("addBatch".equals(methodName)) {
+            synchronized (batches) {
+                List<Long> batch = batches.get(name);
+                if (batch == null) {
+                    batch = new ArrayList<>();
+                    batches.put(name, batch);
+                }
+                batch.add(params.get(name));
+            }
+        } else if ("executeBatch".equals(methodName)) {
+            List<Long> batch;
+            synchronized (batches) {
+                batch = batches.remove(name);
+            }
+            // 影响行数取参数值,用于校验返回顺序
+            int[] updateCounts = new int[batch.size()];
+            for (int i = 0; i < updateCounts.length; i++) {
+                updateCounts[i] = batch.get(i).intValue();
+            }
+            if (FAILED_SQL.equals(name)) {
+                throw new BatchUpdateException("error", Arrays.copyOf(updateCounts, 1));
+            }
+            return updateCounts;
+        }
+        Class<?> returnType = method.getReturnType();
+        if (returnType == boolean.class) {
+            return false;
+        } else if (returnType == int.class) {
+            return 0;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.merge.MockResultSet;
+import org.hellojavaer.ddal.ddr.datasource.manager.SingleDataSourceManager;
+import org.hellojavaer.ddal.ddr.shard.ShardParser;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.sqlparse.RoutedSQL;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * SingleDataSourceManager返回的数据源不限定schema,多分片sql的所有物理sql在同一个数据源上执行
+ */
+public class SingleDataSourceFanOutTest {
+
+    private final List<String> log = Collections.synchronizedList(new ArrayList<String>());
+
+    @Test
+    public void testQuery() throws SQLException {
+        Connection connection = newDataSource().getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery("select id from db.user");
+        List<Object> rows = new ArrayList<>();
+        while (resultSet.next()) {
+            rows.add(resultSet.getObject(1));
+        }
+        resultSet.close();
+        Collections.sort((List) rows);
+        Assert.equals(rows, Arrays.<Object> asList("db_0.user_0", "db_1.user_1"));
+        Assert.equals(Collections.frequency(log, "getConnection"), 1);
+        statement.close();
+        connection.close();
+    }
+
+    @Test
+    public void testUpdate() throws SQLException {
+        Connection connection = newDataSource().getConnection();
+        Statement statement = connection.createStatement();
+        Assert.equals(statement.executeUpdate("delete from db.user"), 2);
+        Assert.equals(Collections.frequency(log, "getConnection"), 1);
+        statement.close();
+        connection.close();
+    }
+
+    private DefaultDDRDataSource newDataSource() {
+        ShardParser shardParser = new ShardParser() {
+
+            @Override
+            public SQLParsedResult parse(String sql, Map<Object, Object> jdbcParams) {
+                List<RoutedSQL> routedSqls = new ArrayList<>();
+                for (int i = 0; i < 2; i++) {
+                    routedSqls.add(new RoutedSQL(sql.replace("db.user", "db_" + i + ".user_" + i),
+                                                 Collections.singleton("db_" + i),
+                                                 new ShardRouteInfo("db_" + i, "user_" + i)));
+                }
+                SQLParsedResult result = new SQLParsedResult();
+                result.setRoutedSqls(routedSqls);
+                result.setSchemas(new HashSet<>(Arrays.asList("db_0", "db_1")));
+                result.setUpdate(sql.startsWith("delete"));
+                return result;
+            }
+        };
+        return new DefaultDDRDataSource(new SingleDataSourceManager(mock(DataSource.class)), shardParser);
+    }
+
+    private <T> T mock(Class<T> type) {
+        return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { type }, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return SingleDataSourceFanOutTest.this.invoke(proxy, method, args);
+            }
+        });
+    }
+
+    private Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if ("hashCode".equals(name)) {
+            return System.identityHashCode(proxy);
+        } else if ("equals".equals(name)) {
+            return proxy == args[0];
+        } else if ("getConnection".equals(name)) {
+            log.add(name);
+            return mock(Connection.class);
+        } else if ("createStatement".equals(name)) {
+            return mock(Statement.class);
+        } else if ("getAutoCommit".equals(name)) {
+            return true;
+        } else if ("executeQuery".equals(name)) {
+            String sql = (String) args[0];
+            return MockResultSet.create(new String[] { "id" }, new Object[] { sql.substring(15) });
+        } else if ("executeUpdate".equals(name)) {
+            return 1;
+        }
+        Class<?> returnType = method.getReturnType();
+        if (returnType == boolean.class) {
+            return false;
+        } else if (returnType == int.class) {
+            return 0;
+        }
+        return null;
+    }
+}
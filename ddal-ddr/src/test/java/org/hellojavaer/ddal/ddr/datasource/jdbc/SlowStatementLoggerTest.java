@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class SlowStatementLoggerTest {
+
+    @Test
+    public void testThreshold() throws InterruptedException {
+        final List<String> lines = Collections.synchronizedList(new ArrayList<String>());
+        SlowStatementLogger logger = new SlowStatementLogger(50) {
+
+            @Override
+            protected void write(StatementEvent event) {
+                lines.add(format(event));
+            }
+        };
+        logger.onCompleted(newEvent("select * from db.user where id = 1", 0));
+        Map<Object, Object> jdbcParams = new HashMap<>();
+        jdbcParams.put(1, 5);
+        StatementEvent slow = new StatementEvent("select * from db.user where id = ?", jdbcParams, true);
+        SQLParsedResult parsedResult = new SQLParsedResult();
+        parsedResult.setSql("select * from db_1.user_5 where id = ?");
+        slow.setParsedResult(parsedResult);
+        slow.addDataSource(new DataSourceWrapper(null, Collections.singleton("db_1")));
+        slow.addExecuteNanos(TimeUnit.MILLISECONDS.toNanos(60));
+        slow.setResultSetOpened();
+        slow.incrementRowCount();
+        Thread.sleep(60);
+        slow.complete();
+        logger.onCompleted(slow);
+        logger.close();
+        Assert.equals(logger.getRecordedCount(), 1L);
+        Assert.equals(lines.size(), 1);
+        String line = lines.get(0);
+        Assert.isTrue(line.startsWith("[SlowStatement] elapsed:"));
+        Assert.isTrue(line.contains(" sql:select * from db.user where id = ?"));
+        Assert.isTrue(line.contains(" routedSqls:[select * from db_1.user_5 where id = ?]"));
+        Assert.isTrue(line.contains(" jdbcParams:{1:5}"));
+        Assert.isTrue(line.contains(" dataSources:[[db_1]] readOnly:true"));
+        Assert.isTrue(line.contains(",execute:60.000ms,"));
+        Assert.isTrue(line.endsWith(" rowCount:1"));
+    }
+
+    @Test
+    public void testDrop() throws InterruptedException {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> sqls = Collections.synchronizedList(new ArrayList<String>());
+        SlowStatementLogger logger = new SlowStatementLogger(0) {
+
+            @Override
+            protected void write(StatementEvent event) {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                sqls.add(event.getSql());
+            }
+        };
+        logger.setBufferSize(2);
+        logger.onCompleted(newEvent("sql1", 0));
+        writing.await();
+        // 后台线程阻塞时缓冲区满,后续记录被丢弃而不阻塞执行线程
+        logger.onCompleted(newEvent("sql2", 0));
+        logger.onCompleted(newEvent("sql3", 0));
+        logger.onCompleted(newEvent("sql4", 0));
+        Assert.equals(logger.getPendingCount(), 2);
+        Assert.equals(logger.getDroppedCount(), 1L);
+        release.countDown();
+        logger.close();
+        Assert.equals(sqls, Arrays.asList("sql1", "sql2", "sql3"));
+        Assert.equals(logger.getPendingCount(), 0);
+    }
+
+    @Test
+    public void testRingBuffer() throws InterruptedException {
+        final RingBuffer<Integer> buffer = new RingBuffer<>(1000);
+        Assert.equals(buffer.capacity(), 1024);
+        Thread[] producers = new Thread[4];
+        for (int i = 0; i < producers.length; i++) {
+            final int base = i * 1000;
+            producers[i] = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        while (!buffer.offer(base + j)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            producers[i].start();
+        }
+        int[] last = new int[producers.length];
+        Arrays.fill(last, -1);
+        int count = 0;
+        while (count < 4000) {
+            Integer val = buffer.poll();
+            if (val == null) {
+                Thread.yield();
+                continue;
+            }
+            // 同一生产者的记录保持顺序
+            Assert.isTrue(val % 1000 > last[val / 1000]);
+            last[val / 1000] = val % 1000;
+            count++;
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        Assert.isTrue(buffer.poll() == null);
+    }
+
+    private static StatementEvent newEvent(String sql, long executeMillis) {
+        StatementEvent event = new StatementEvent(sql, null, false);
+        event.addExecuteNanos(TimeUnit.MILLISECONDS.toNanos(executeMillis));
+        event.complete();
+        return event;
+    }
+}
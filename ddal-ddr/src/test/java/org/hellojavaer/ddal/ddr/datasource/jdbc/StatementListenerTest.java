@@ -0,0 +1,186 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.merge.MockResultSet;
+import org.hellojavaer.ddal.ddr.datasource.manager.DataSourceParam;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.sqlparse.RoutedSQL;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+
+public class StatementListenerTest {
+
+    private final DataSourceWrapper    dataSource0 = new DataSourceWrapper(mock(DataSource.class),
+                                                                           Collections.singleton("db_0"));
+    private final DataSourceWrapper    dataSource1 = new DataSourceWrapper(mock(DataSource.class),
+                                                                           Collections.singleton("db_1"));
+    private final List<StatementEvent> events      = new ArrayList<>();
+
+    private AbstractDDRDataSource newDataSource() {
+        AbstractDDRDataSource dataSource = new AbstractDDRDataSource() {
+
+            @Override
+            public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) {
+                SQLParsedResult result = new SQLParsedResult();
+                if (sql.startsWith("select")) {
+                    result.setSql(sql.replace("db.user", "db_0.user_0"));
+                    result.setSchemas(Collections.singleton("db_0"));
+                    result.setRouteInfos(Collections.singleton(new ShardRouteInfo("db_0", "user_0")));
+                } else {
+                    List<RoutedSQL> routedSqls = new ArrayList<>();
+                    for (int i = 0; i < 2; i++) {
+                        routedSqls.add(new RoutedSQL(sql.replace("db.user", "db_" + i + ".user_" + i),
+                                                     Collections.singleton("db_" + i),
+                                                     new ShardRouteInfo("db_" + i, "user_" + i)));
+                    }
+                    result.setRoutedSqls(routedSqls);
+                    result.setSchemas(new HashSet<>(Arrays.asList("db_0", "db_1")));
+                    result.setUpdate(true);
+                }
+                return result;
+            }
+
+            @Override
+            public DataSourceWrapper getDataSource(DataSourceParam param) {
+                return param.getScNames().contains("db_0") ? dataSource0 : dataSource1;
+            }
+        };
+        dataSource.addStatementListener(new StatementListener() {
+
+            @Override
+            public void onCompleted(StatementEvent event) {
+                events.add(event);
+            }
+        });
+        // failures of listeners are ignored
+        dataSource.addStatementListener(new StatementListener() {
+
+            @Override
+            public void onCompleted(StatementEvent event) {
+                throw new IllegalStateException();
+            }
+        });
+        return dataSource;
+    }
+
+    @Test
+    public void testQuery() throws SQLException {
+        Connection connection = newDataSource().getConnection();
+        PreparedStatement statement = connection.prepareStatement("select * from db.user where id = ?");
+        statement.setInt(1, 8);
+        ResultSet resultSet = statement.executeQuery();
+        Assert.isTrue(events.isEmpty());
+        while (resultSet.next()) {
+        }
+        resultSet.close();
+        Assert.equals(events.size(), 1);
+        StatementEvent event = events.get(0);
+        Assert.equals(event.getSql(), "select * from db.user where id = ?");
+        Assert.equals(event.getJdbcParams().get(1), 8);
+        Assert.equals(event.getRoutedSqls(), Arrays.asList("select * from db_0.user_0 where id = ?"));
+        Assert.equals(event.getRouteInfos().iterator().next().toString(), "db_0.user_0");
+        Assert.isTrue(event.getDataSources().equals(Collections.singleton(dataSource0)));
+        Assert.equals(event.getRowCount(), 2);
+        Assert.isTrue(event.getError() == null);
+        Assert.isTrue(event.getElapsedNanos() > 0);
+        Assert.isTrue(event.getElapsedNanos() >= event.getParseNanos() + event.getConnectionNanos()
+                                                 + event.getPrepareNanos() + event.getExecuteNanos()
+                                                 + event.getResultNanos());
+        // the physical statement is reused, the pending event is completed by the next execution
+        statement.executeQuery();
+        Assert.equals(events.size(), 1);
+        statement.close();
+        Assert.equals(events.size(), 2);
+        Assert.equals(events.get(1).getConnectionNanos(), 0L);
+        Assert.isTrue(events.get(1).getDataSources().equals(Collections.singleton(dataSource0)));
+    }
+
+    @Test
+    public void testMultiRoutedUpdate() throws SQLException {
+        Connection connection = newDataSource().getConnection();
+        Statement statement = connection.createStatement();
+        Assert.equals(statement.executeUpdate("insert into db.user(id) values(1),(2)"), 2);
+        Assert.equals(events.size(), 1);
+        StatementEvent event = events.get(0);
+        Assert.equals(event.getRoutedSqls(), Arrays.asList("insert into db_0.user_0(id) values(1),(2)",
+                                                           "insert into db_1.user_1(id) values(1),(2)"));
+        Assert.isTrue(event.getDataSources().equals(new HashSet<>(Arrays.asList(dataSource0, dataSource1))));
+        Assert.equals(event.getUpdateCount(), 2);
+        Assert.equals(event.getRowCount(), -1);
+    }
+
+    @Test
+    public void testError() throws SQLException {
+        Connection connection = newDataSource().getConnection();
+        Statement statement = connection.createStatement();
+        try {
+            statement.executeQuery("select error from db.user");
+            throw new Error();
+        } catch (SQLException e) {
+            Assert.equals(events.size(), 1);
+            Assert.isTrue(events.get(0).getError() == e);
+        }
+    }
+
+    private static <T> T mock(Class<T> type) {
+        return (T) Proxy.newProxyInstance(StatementListenerTest.class.getClassLoader(), new Class[] { type },
+                                          new MockHandler());
+    }
+
+    private static class MockHandler implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("getConnection".equals(name)) {
+                return mock(Connection.class);
+            } else if ("createStatement".equals(name)) {
+                return mock(Statement.class);
+            } else if ("prepareStatement".equals(name)) {
+                return mock(PreparedStatement.class);
+            } else if ("getAutoCommit".equals(name)) {
+                return true;
+            } else if ("executeQuery".equals(name)) {
+                if (args != null && ((String) args[0]).contains("error")) {
+                    throw new SQLException("error");
+                }
+                return MockResultSet.create(new String[] { "id" }, new Object[] { 1 }, new Object[] { 2 });
+            } else if ("executeUpdate".equals(name)) {
+                return 1;
+            } else if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            } else if ("equals".equals(name)) {
+                return proxy == args[0];
+            }
+            Class<?> returnType = method.getReturnType();
+            if (returnType == boolean.class) {
+                return false;
+            } else if (returnType == int.class) {
+                return 0;
+            }
+            return null;
+        }
+    }
+}
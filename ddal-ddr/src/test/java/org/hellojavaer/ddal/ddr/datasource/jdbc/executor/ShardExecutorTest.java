@@ -0,0 +1,230 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc.executor;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.DataSourceWrapper;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteContext;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ShardExecutorTest {
+
+    private static Callable<Void> blockingTask(final CountDownLatch latch, final AtomicInteger running,
+                                               final AtomicInteger maxRunning) {
+        return new Callable<Void>() {
+
+            @Override
+            public Void call() throws Exception {
+                int n = running.incrementAndGet();
+                synchronized (maxRunning) {
+                    maxRunning.set(Math.max(maxRunning.get(), n));
+                }
+                try {
+                    latch.await();
+                } finally {
+                    running.decrementAndGet();
+                }
+                return null;
+            }
+        };
+    }
+
+    private static DataSource newDataSource() {
+        InvocationHandler handler = new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("hashCode".equals(method.getName())) {
+                    return System.identityHashCode(proxy);
+                } else if ("equals".equals(method.getName())) {
+                    return proxy == args[0];
+                }
+                return null;
+            }
+        };
+        return (DataSource) Proxy.newProxyInstance(ShardExecutorTest.class.getClassLoader(),
+                                                   new Class[] { DataSource.class }, handler);
+    }
+
+    @Test
+    public void testDataSourceLimit() throws Exception {
+        ShardExecutor executor = new ShardExecutor();
+        executor.setMaxConcurrency(8);
+        executor.setMaxConcurrencyPerDataSource(2);
+        DataSourceWrapper slow = new DataSourceWrapper();
+        DataSourceWrapper fast = new DataSourceWrapper();
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(executor.submit(slow, blockingTask(latch, running, maxRunning)));
+        }
+        // a slow datasource doesn't block other datasources
+        Future<String> future = executor.submit(fast, new Callable<String>() {
+
+            @Override
+            public String call() throws Exception {
+                return "ok";
+            }
+        });
+        Assert.equals(future.get(5, TimeUnit.SECONDS), "ok");
+        // the first two slow tasks may not have started yet
+        long deadline = System.currentTimeMillis() + 5000;
+        while (running.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(50);
+        Assert.isTrue(running.get() == 2);
+        latch.countDown();
+        for (Future<Void> item : futures) {
+            item.get(5, TimeUnit.SECONDS);
+        }
+        Assert.isTrue(maxRunning.get() == 2);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testGlobalLimit() throws Exception {
+        ShardExecutor executor = new ShardExecutor();
+        executor.setMaxConcurrency(3);
+        executor.setMaxConcurrencyPerDataSource(3);
+        ThreadPoolExecutor executorService = (ThreadPoolExecutor) Executors.newCachedThreadPool();
+        executor.setExecutorService(executorService);
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            DataSourceWrapper dataSourceWrapper = new DataSourceWrapper();
+            for (int j = 0; j < 3; j++) {
+                futures.add(executor.submit(dataSourceWrapper, blockingTask(latch, running, maxRunning)));
+            }
+        }
+        Thread.sleep(200);
+        Assert.isTrue(running.get() == 3);
+        // tasks over the limit wait in the queue instead of blocking threads of the executor
+        Assert.equals(executorService.getActiveCount(), 3);
+        latch.countDown();
+        for (Future<Void> item : futures) {
+            item.get(5, TimeUnit.SECONDS);
+        }
+        Assert.isTrue(maxRunning.get() == 3);
+        executor.getExecutorService().shutdown();
+    }
+
+    @Test
+    public void testSharedDataSource() throws Exception {
+        ShardExecutor executor = new ShardExecutor();
+        executor.setMaxConcurrency(8);
+        executor.setMaxConcurrencyPerDataSource(2);
+        DataSource dataSource = newDataSource();
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Future<Void>> futures = new ArrayList<>();
+        // wrappers of the same datasource share one limit
+        for (int i = 0; i < 10; i++) {
+            DataSourceWrapper dataSourceWrapper = new DataSourceWrapper(dataSource,
+                                                                        Collections.singleton("db_" + i));
+            futures.add(executor.submit(dataSourceWrapper, blockingTask(latch, running, maxRunning)));
+        }
+        Assert.equals(executor.getLaneCount(), 1);
+        Thread.sleep(100);
+        latch.countDown();
+        for (Future<Void> item : futures) {
+            item.get(5, TimeUnit.SECONDS);
+        }
+        Assert.isTrue(maxRunning.get() == 2);
+        // idle datasources are removed, the lane is released after the future is completed
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executor.getLaneCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.equals(executor.getLaneCount(), 0);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testCancelPendingTask() throws Exception {
+        ShardExecutor executor = new ShardExecutor();
+        executor.setMaxConcurrencyPerDataSource(1);
+        DataSourceWrapper dataSourceWrapper = new DataSourceWrapper();
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Future<Void> first = executor.submit(dataSourceWrapper, blockingTask(latch, running, maxRunning));
+        Future<Void> second = executor.submit(dataSourceWrapper, blockingTask(latch, running, maxRunning));
+        Assert.isTrue(second.cancel(false));
+        latch.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        // the cancelled task doesn't hold the permit of the datasource
+        for (int i = 0; i < 3; i++) {
+            executor.submit(dataSourceWrapper, blockingTask(latch, running, maxRunning)).get(5, TimeUnit.SECONDS);
+        }
+        Assert.isTrue(maxRunning.get() == 1);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testRouteContext() throws Exception {
+        ShardExecutor executor = new ShardExecutor();
+        executor.setMaxConcurrency(1);
+        DataSourceWrapper dataSourceWrapper = new DataSourceWrapper();
+        Callable<Object> task = new Callable<Object>() {
+
+            @Override
+            public Object call() throws Exception {
+                return ShardRouteContext.getRouteInfo("db", "user");
+            }
+        };
+        ShardRouteContext.pushContext();
+        try {
+            ShardRouteContext.setRouteInfo("db", "user", 5);
+            Assert.equals(executor.submit(dataSourceWrapper, task).get(), 5);
+        } finally {
+            ShardRouteContext.popContext();
+        }
+        // context of the executor thread is restored
+        Assert.isTrue(executor.submit(dataSourceWrapper, task).get() == null);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testVirtualThreads() throws Exception {
+        ShardExecutor executor = new ShardExecutor();
+        executor.setUseVirtualThreads(true);
+        Future<Integer> future = executor.submit(new DataSourceWrapper(), new Callable<Integer>() {
+
+            @Override
+            public Integer call() throws Exception {
+                return 1;
+            }
+        });
+        Assert.isTrue(future.get() == 1);
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc.executor;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.DataSourceWrapper;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ShardFutureTest {
+
+    private static Callable<String> task(final CountDownLatch latch, final String value) {
+        return new Callable<String>() {
+
+            @Override
+            public String call() throws Exception {
+                latch.await();
+                if (value == null) {
+                    throw new IllegalStateException("failed");
+                }
+                return value;
+            }
+        };
+    }
+
+    private static <T> ShardCallback<T> callback(final AtomicReference<Object> ref, final CountDownLatch done) {
+        return new ShardCallback<T>() {
+
+            @Override
+            public void onSuccess(T result) {
+                ref.set(result);
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                ref.set(e);
+                done.countDown();
+            }
+        };
+    }
+
+    @Test
+    public void testCallback() throws Exception {
+        ShardExecutor executor = new ShardExecutor();
+        CountDownLatch latch = new CountDownLatch(1);
+        ShardFuture<String> future = executor.submit(new DataSourceWrapper(), task(latch, "a"));
+        AtomicReference<Object> ref = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        future.addCallback(callback(ref, done));
+        Assert.isTrue(ref.get() == null);
+        latch.countDown();
+        done.await(5, TimeUnit.SECONDS);
+        Assert.equals(ref.get(), "a");
+        // registered after completion
+        AtomicReference<Object> ref2 = new AtomicReference<>();
+        future.addCallback(callback(ref2, new CountDownLatch(1)));
+        Assert.equals(ref2.get(), "a");
+        executor.shutdown();
+    }
+
+    @Test
+    public void testAllAsList() throws Exception {
+        ShardExecutor executor = new ShardExecutor();
+        CountDownLatch latch = new CountDownLatch(1);
+        List<ShardFuture<String>> futures = new ArrayList<>();
+        futures.add(executor.submit(new DataSourceWrapper(), task(latch, "a")));
+        futures.add(executor.submit(new DataSourceWrapper(), task(latch, "b")));
+        ShardFuture<List<String>> all = ShardFuture.allAsList(futures);
+        Assert.isTrue(!all.isDone());
+        latch.countDown();
+        Assert.equals(all.get(5, TimeUnit.SECONDS), Arrays.asList("a", "b"));
+        // failure
+        futures.clear();
+        futures.add(executor.submit(new DataSourceWrapper(), task(latch, "a")));
+        futures.add(executor.submit(new DataSourceWrapper(), task(latch, null)));
+        AtomicReference<Object> ref = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        ShardFuture.allAsList(futures).addCallback(callback(ref, done));
+        done.await(5, TimeUnit.SECONDS);
+        Assert.isTrue(ref.get() instanceof IllegalStateException);
+        // empty
+        Assert.isTrue(ShardFuture.allAsList(new ArrayList<ShardFuture<String>>()).get().isEmpty());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        ShardExecutor executor = new ShardExecutor();
+        executor.setMaxConcurrencyPerDataSource(1);
+        DataSourceWrapper dataSourceWrapper = new DataSourceWrapper();
+        CountDownLatch latch = new CountDownLatch(1);
+        ShardFuture<String> running = executor.submit(dataSourceWrapper, task(latch, "a"));
+        ShardFuture<String> pending = executor.submit(dataSourceWrapper, task(latch, "b"));
+        AtomicReference<Object> ref = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        ShardFuture<List<String>> all = ShardFuture.allAsList(Arrays.asList(running, pending));
+        pending.addCallback(callback(ref, done));
+        all.cancel(false);
+        done.await(5, TimeUnit.SECONDS);
+        Assert.isTrue(running.isCancelled());
+        Assert.isTrue(pending.isCancelled());
+        Assert.isTrue(ref.get() instanceof CancellationException);
+        latch.countDown();
+        // the datasource is released after the cancelled task finished
+        Assert.equals(executor.submit(dataSourceWrapper, task(latch, "c")).get(5, TimeUnit.SECONDS), "c");
+        executor.shutdown();
+    }
+}
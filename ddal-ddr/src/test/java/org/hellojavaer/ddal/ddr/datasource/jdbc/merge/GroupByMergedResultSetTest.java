@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc.merge;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.sqlparse.AggregateColumn;
+import org.hellojavaer.ddal.ddr.sqlparse.OrderByColumn;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class GroupByMergedResultSetTest {
+
+    // select status, count(*), sum(amount), min(amount), max(amount), avg(amount) ... group by status
+    // with the appended 'sum(amount)' and 'count(amount)' of avg
+    private static final String[] COLUMNS = { "status", "c", "s", "mi", "ma", "a", "SUM(amount)", "COUNT(amount)" };
+
+    private static List<AggregateColumn> buildAggregateColumns() {
+        List<AggregateColumn> list = new ArrayList<>();
+        list.add(new AggregateColumn(AggregateColumn.Type.COUNT, 2));
+        list.add(new AggregateColumn(AggregateColumn.Type.SUM, 3));
+        list.add(new AggregateColumn(AggregateColumn.Type.MIN, 4));
+        list.add(new AggregateColumn(AggregateColumn.Type.MAX, 5));
+        AggregateColumn avg = new AggregateColumn(AggregateColumn.Type.AVG, 6);
+        avg.setSumColumnIndex(7);
+        avg.setCountColumnIndex(8);
+        list.add(avg);
+        list.add(new AggregateColumn(AggregateColumn.Type.SUM, 7));
+        list.add(new AggregateColumn(AggregateColumn.Type.COUNT, 8));
+        return list;
+    }
+
+    @Test
+    public void testGroupBy() throws SQLException {
+        ResultSet rs0 = MockResultSet.create(COLUMNS, row(1, 2L, "30", 10, 20, "15", "30", 2L),
+                                             row(2, 1L, "5", 5, 5, "5", "5", 1L));
+        ResultSet rs1 = MockResultSet.create(COLUMNS);
+        ResultSet rs2 = MockResultSet.create(COLUMNS, row(1, 1L, "1", 1, 1, "1", "1", 1L),
+                                             row(null, 3L, null, null, null, null, null, 0L));
+        ResultSet rs = new GroupByMergedResultSet(null, Arrays.asList(rs0, rs1, rs2), null, Arrays.asList(1),
+                                                  buildAggregateColumns(), 2, null);
+        Assert.isTrue(rs.getMetaData().getColumnCount() == 6);
+        Assert.isTrue(rs.next());
+        Assert.isTrue(rs.getInt("status") == 1);
+        Assert.isTrue(rs.getLong("c") == 3);
+        Assert.equals(rs.getBigDecimal("s"), new BigDecimal("31"));
+        Assert.isTrue(rs.getInt("mi") == 1);
+        Assert.isTrue(rs.getInt("ma") == 20);
+        Assert.equals(rs.getString("a"), "10.3333");
+        Assert.isTrue(rs.next());
+        Assert.isTrue(rs.getInt(1) == 2);
+        Assert.equals(rs.getString(6), "5.0000");
+        Assert.isTrue(rs.next());
+        Assert.isTrue(rs.getObject(1) == null && rs.wasNull());
+        Assert.isTrue(rs.getLong(2) == 3);
+        Assert.isTrue(rs.getObject(6) == null);
+        Assert.isTrue(!rs.next());
+        rs.close();
+        Assert.isTrue(rs0.isClosed() && rs1.isClosed() && rs2.isClosed());
+    }
+
+    @Test
+    public void testOrderByAndLimit() throws SQLException {
+        String[] columns = { "status", "type", "c" };
+        ResultSet rs0 = MockResultSet.create(columns, new Object[] { "a", 1, 1L }, new Object[] { "b", 1, 5L });
+        ResultSet rs1 = MockResultSet.create(columns, new Object[] { "b", 1, 1L }, new Object[] { "a", 2, 3L },
+                                             new Object[] { "a", 1, 1L });
+        List<AggregateColumn> aggregateColumns = Arrays.asList(new AggregateColumn(AggregateColumn.Type.COUNT, 3));
+        List<OrderByColumn> orderByColumns = Arrays.asList(new OrderByColumn("c", 0, false));
+        GroupByMergedResultSet rs = new GroupByMergedResultSet(null, Arrays.asList(rs0, rs1), null,
+                                                               Arrays.asList(1, 2), aggregateColumns, 0,
+                                                               orderByColumns);
+        rs.setLimit(1, 2);
+        List<String> list = new ArrayList<>();
+        while (rs.next()) {
+            list.add(rs.getString(1) + rs.getInt(2) + ":" + rs.getLong(3));
+        }
+        Assert.equals(list, Arrays.asList("a2:3", "a1:2"));
+    }
+
+    @Test
+    public void testWithoutGroupBy() throws SQLException {
+        String[] columns = { "count(*)" };
+        List<ResultSet> resultSets = new ArrayList<>();
+        for (int i = 0; i < 1024; i++) {
+            resultSets.add(MockResultSet.create(columns, new Object[] { (long) i }));
+        }
+        ResultSet rs = new GroupByMergedResultSet(null, resultSets, null, null,
+                                                  Arrays.asList(new AggregateColumn(AggregateColumn.Type.COUNT, 1)),
+                                                  0, null);
+        Assert.isTrue(rs.next());
+        Assert.isTrue(rs.getLong("count(*)") == 1023L * 1024 / 2);
+        Assert.isTrue(!rs.next());
+    }
+
+    @Test
+    public void testCombine() {
+        Assert.equals(GroupByMergedResultSet.combine(AggregateColumn.Type.SUM, Long.MAX_VALUE, 1L),
+                      new BigDecimal(Long.MAX_VALUE).add(BigDecimal.ONE));
+        Assert.equals(GroupByMergedResultSet.combine(AggregateColumn.Type.SUM, 1.5d, 1L), 2.5d);
+        Assert.equals(GroupByMergedResultSet.combine(AggregateColumn.Type.MIN, "b", "a"), "a");
+        Assert.equals(GroupByMergedResultSet.combine(AggregateColumn.Type.MAX, null, 2), 2);
+        Assert.equals(GroupByMergedResultSet.avg(3d, 2L), 1.5d);
+        Assert.isTrue(GroupByMergedResultSet.avg(null, 0L) == null);
+    }
+
+    private static Object[] row(Object status, Long count, String sum, Integer min, Integer max, String avg,
+                                String avgSum, Long avgCount) {
+        return new Object[] { status, count, sum == null ? null : new BigDecimal(sum), min, max,
+                avg == null ? null : new BigDecimal(avg), avgSum == null ? null : new BigDecimal(avgSum), avgCount };
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc.merge;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.junit.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+public class IteratorMergedResultSetTest {
+
+    private static final String[] COLUMNS = { "id" };
+
+    private ResultSet build() {
+        ResultSet rs0 = MockResultSet.create(COLUMNS, new Object[] { 1 }, new Object[] { 2 });
+        ResultSet rs1 = MockResultSet.create(COLUMNS);
+        ResultSet rs2 = MockResultSet.create(COLUMNS, new Object[] { 3 }, new Object[] { 4 }, new Object[] { 5 });
+        return new IteratorMergedResultSet(null, Arrays.asList(rs0, rs1, rs2), null);
+    }
+
+    @Test
+    public void testNext() throws SQLException {
+        ResultSet rs = build();
+        Assert.isTrue(rs.isBeforeFirst());
+        Assert.equals(OrderByMergedResultSetTest.readColumn(rs, "id"), Arrays.asList(1, 2, 3, 4, 5));
+        Assert.isTrue(rs.isAfterLast());
+        Assert.isTrue(!rs.next());
+    }
+
+    @Test
+    public void testLimit() throws SQLException {
+        AbstractMergedResultSet rs = (AbstractMergedResultSet) build();
+        rs.setLimit(1, 3);
+        Assert.equals(OrderByMergedResultSetTest.readColumn(rs, "id"), Arrays.asList(2, 3, 4));
+        //
+        rs = (AbstractMergedResultSet) build();
+        rs.setLimit(4, 3);
+        Assert.equals(OrderByMergedResultSetTest.readColumn(rs, "id"), Arrays.asList(5));
+        //
+        rs = (AbstractMergedResultSet) build();
+        rs.setLimit(6, -1);
+        Assert.isTrue(!rs.next());
+        //
+        rs = (AbstractMergedResultSet) build();
+        rs.setLimit(0, 0);
+        Assert.isTrue(!rs.next());
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc.merge;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * in-memory result set for merge tests
+ */
+public class MockResultSet implements InvocationHandler {
+
+    private List<String>   columns;
+    private List<Object[]> rows;
+    private int            cursor = -1;
+    private boolean        closed = false;
+
+    private MockResultSet(List<String> columns, List<Object[]> rows) {
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    public static ResultSet create(String[] columns, Object[]... rows) {
+        return (ResultSet) Proxy.newProxyInstance(MockResultSet.class.getClassLoader(),
+                                                  new Class[] { ResultSet.class },
+                                                  new MockResultSet(Arrays.asList(columns), Arrays.asList(rows)));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if ("next".equals(name)) {
+            cursor++;
+            return cursor < rows.size();
+        } else if ("close".equals(name)) {
+            closed = true;
+            return null;
+        } else if ("isClosed".equals(name)) {
+            return closed;
+        } else if ("findColumn".equals(name)) {
+            return findColumn((String) args[0]);
+        } else if ("getObject".equals(name) || "getString".equals(name) || "getInt".equals(name)
+                   || "getLong".equals(name)) {
+            int index = args[0] instanceof String ? findColumn((String) args[0]) : (Integer) args[0];
+            Object value = rows.get(cursor)[index - 1];
+            if ("getString".equals(name)) {
+                return value == null ? null : value.toString();
+            } else if ("getInt".equals(name)) {
+                return value == null ? 0 : ((Number) value).intValue();
+            } else if ("getLong".equals(name)) {
+                return value == null ? 0L : ((Number) value).longValue();
+            }
+            return value;
+        } else if ("getMetaData".equals(name)) {
+            return createMetaData();
+        } else if ("toString".equals(name)) {
+            return "MockResultSet" + columns;
+        }
+        throw new UnsupportedOperationException(name);
+    }
+
+    private ResultSetMetaData createMetaData() {
+        return (ResultSetMetaData) Proxy.newProxyInstance(MockResultSet.class.getClassLoader(),
+                                                          new Class[] { ResultSetMetaData.class },
+                                                          new InvocationHandler() {
+
+                                                              @Override
+                                                              public Object invoke(Object proxy, Method method,
+                                                                                   Object[] args) throws Throwable {
+                                                                  String name = method.getName();
+                                                                  if ("getColumnCount".equals(name)) {
+                                                                      return columns.size();
+                                                                  } else if ("getColumnLabel".equals(name)
+                                                                             || "getColumnName".equals(name)) {
+                                                                      return columns.get((Integer) args[0] - 1);
+                                                                  }
+                                                                  throw new UnsupportedOperationException(name);
+                                                              }
+                                                          });
+    }
+
+    private int findColumn(String label) throws SQLException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).equalsIgnoreCase(label)) {
+                return i + 1;
+            }
+        }
+        throw new SQLException("Column '" + label + "' not found");
+    }
+}
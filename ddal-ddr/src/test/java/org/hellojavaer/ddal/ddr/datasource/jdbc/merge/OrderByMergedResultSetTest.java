@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc.merge;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.sqlparse.OrderByColumn;
+import org.junit.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class OrderByMergedResultSetTest {
+
+    private static final String[] COLUMNS = { "id", "name" };
+
+    @Test
+    public void testAsc() throws SQLException {
+        ResultSet rs0 = MockResultSet.create(COLUMNS, new Object[] { 1, "a" }, new Object[] { 4, "d" });
+        ResultSet rs1 = MockResultSet.create(COLUMNS);
+        ResultSet rs2 = MockResultSet.create(COLUMNS, new Object[] { 2L, "b" }, new Object[] { 3L, "c" },
+                                             new Object[] { 5L, "e" });
+        ResultSet rs = new OrderByMergedResultSet(null, Arrays.asList(rs0, rs1, rs2), null,
+                                                  Arrays.asList(new OrderByColumn("id", 0, true)));
+        Assert.equals(readColumn(rs, "name"), Arrays.asList("a", "b", "c", "d", "e"));
+        Assert.isTrue(rs.getRow() == 0);
+        rs.close();
+        Assert.isTrue(rs0.isClosed() && rs1.isClosed() && rs2.isClosed());
+    }
+
+    @Test
+    public void testMultipleColumns() throws SQLException {
+        ResultSet rs0 = MockResultSet.create(COLUMNS, new Object[] { null, "b" }, new Object[] { 2, "b" },
+                                             new Object[] { 1, "a" });
+        ResultSet rs1 = MockResultSet.create(COLUMNS, new Object[] { 3, "b" }, new Object[] { null, "a" },
+                                             new Object[] { 2, "a" });
+        List<OrderByColumn> orderByColumns = new ArrayList<>();
+        orderByColumns.add(new OrderByColumn(null, 2, false));
+        orderByColumns.add(new OrderByColumn(null, 1, true));
+        ResultSet rs = new OrderByMergedResultSet(null, Arrays.asList(rs0, rs1), null, orderByColumns);
+        List<String> list = new ArrayList<>();
+        while (rs.next()) {
+            list.add(rs.getString(2) + rs.getObject(1));
+        }
+        Assert.equals(list, Arrays.asList("bnull", "b2", "b3", "anull", "a1", "a2"));
+    }
+
+    static List<Object> readColumn(ResultSet rs, String column) throws SQLException {
+        List<Object> list = new ArrayList<>();
+        while (rs.next()) {
+            list.add(rs.getObject(column));
+        }
+        return list;
+    }
+}
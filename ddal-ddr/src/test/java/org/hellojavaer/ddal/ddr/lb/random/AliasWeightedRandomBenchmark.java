@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.lb.random;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 与WeightedRandom对比1~64个线程并发选择时的吞吐量;
+ * 结果依赖运行环境,因此不作为单元测试执行,需要手动运行main方法,参数为每轮测量的毫秒数(默认1000)
+ */
+public class AliasWeightedRandomBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        List<WeightItem> items = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            items.add(new WeightItem(i + 1, i));
+        }
+        final WeightedRandom weightedRandom = new WeightedRandom(System.currentTimeMillis(), items);
+        final AliasWeightedRandom aliasWeightedRandom = new AliasWeightedRandom(items);
+        Runnable weightedRandomTask = new Runnable() {
+
+            @Override
+            public void run() {
+                weightedRandom.nextValue();
+            }
+        };
+        Runnable aliasWeightedRandomTask = new Runnable() {
+
+            @Override
+            public void run() {
+                aliasWeightedRandom.nextValue();
+            }
+        };
+        // warm up
+        measure(1, millis, weightedRandomTask);
+        measure(1, millis, aliasWeightedRandomTask);
+        for (int threads = 1; threads <= 64; threads <<= 1) {
+            long ops0 = measure(threads, millis, weightedRandomTask);
+            long ops1 = measure(threads, millis, aliasWeightedRandomTask);
+            System.out.println("[AliasWeightedRandomBenchmark] threads:" + threads + " WeightedRandom:" + ops0
+                               + " ops/ms AliasWeightedRandom:" + ops1 + " ops/ms");
+        }
+    }
+
+    /**
+     * @return operations per millisecond of wall-clock time
+     */
+    private static long measure(int threads, long millis, final Runnable task) throws InterruptedException {
+        final AtomicLong ops = new AtomicLong();
+        final AtomicBoolean stop = new AtomicBoolean();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> list = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread() {
+
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    long count = 0;
+                    while (!stop.get()) {
+                        for (int j = 0; j < 64; j++) {
+                            task.run();
+                        }
+                        count += 64;
+                    }
+                    ops.addAndGet(count);
+                }
+            };
+            thread.start();
+            list.add(thread);
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        Thread.sleep(millis);
+        stop.set(true);
+        for (Thread thread : list) {
+            thread.join();
+        }
+        return ops.get() / Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+    }
+}
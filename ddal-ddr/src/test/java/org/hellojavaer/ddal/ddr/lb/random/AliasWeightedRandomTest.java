@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.lb.random;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+public class AliasWeightedRandomTest {
+
+    @Test
+    public void testDistribution() {
+        int[] weights = { 1, 0, 2, 7, 5, 1 };
+        List<WeightItem> items = new ArrayList<>();
+        for (int i = 0; i < weights.length; i++) {
+            items.add(new WeightItem(weights[i], i));
+        }
+        AliasWeightedRandom random = new AliasWeightedRandom(items);
+        Assert.equals(random.getAllWeight(), 16L);
+        int times = 1600000;
+        int[] counts = new int[weights.length];
+        for (int i = 0; i < times; i++) {
+            counts[(Integer) random.nextValue()]++;
+        }
+        Assert.equals(counts[1], 0);
+        for (int i = 0; i < weights.length; i++) {
+            double expected = (double) times * weights[i] / 16;
+            Assert.isTrue(Math.abs(counts[i] - expected) <= times * 0.005, "index " + i + " expected " + expected
+                                                                           + " but was " + counts[i]);
+        }
+    }
+
+    @Test
+    public void testSingleValue() {
+        AliasWeightedRandom random = new AliasWeightedRandom(Collections.singletonList(new WeightItem(3, "a")));
+        Assert.equals(random.nextValue(), "a");
+        random = new AliasWeightedRandom(Arrays.asList(new WeightItem(0, "a"), new WeightItem(4, "b")));
+        for (int i = 0; i < 1000; i++) {
+            Assert.equals(random.nextValue(), "b");
+        }
+    }
+
+    @Test
+    public void testIllegalArgument() {
+        List<List<WeightItem>> lists = new ArrayList<>();
+        lists.add(Collections.<WeightItem> emptyList());
+        lists.add(Arrays.asList(new WeightItem(0, "a"), new WeightItem(0, "b")));
+        lists.add(Arrays.asList(new WeightItem(-1, "a"), new WeightItem(2, "b")));
+        for (List<WeightItem> list : lists) {
+            try {
+                new AliasWeightedRandom(list);
+                throw new Error();
+            } catch (IllegalArgumentException e) {
+                // ignore
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard.heat;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.shard.heat.monitor.mbean.MBeanShardHeatMonitorServer;
+import org.hellojavaer.ddal.ddr.shard.rule.SpelShardRouteRule;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouteRuleBinding;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouter;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class ShardHeatMapTest {
+
+    @Test
+    public void testHeavyHitters() {
+        ShardHeatMap heatMap = new ShardHeatMap(60000, 3);
+        Random random = new Random(0);
+        for (int i = 0; i < 20000; i++) {
+            long id = random.nextInt(10000);
+            if (i % 10 == 0) {
+                id = 1000001;
+            } else if (i % 20 == 1) {
+                id = 1000002;
+            }
+            heatMap.record("db", "user", id);
+            heatMap.record(new ShardRouteInfo("db_" + id % 2, "user_" + id % 4));
+        }
+        List<HotKey> hotKeys = heatMap.getHotKeyList();
+        Assert.equals(hotKeys.size(), 3);
+        Assert.equals(hotKeys.get(0).getSdValue(), 1000001L);
+        Assert.equals(hotKeys.get(1).getSdValue(), 1000002L);
+        Assert.isTrue(hotKeys.get(0).getCount() >= 2000);
+        Assert.isTrue(hotKeys.get(1).getCount() >= 1000);
+        Assert.isTrue(heatMap.estimate("db", "user", 1000001L) >= 2000);
+
+        List<TableHeat> tableHeats = heatMap.getTableHeats();
+        Assert.equals(tableHeats.size(), 4);
+        long total = 0;
+        for (TableHeat heat : tableHeats) {
+            total += heat.getTotalCount();
+            Assert.equals(heat.getRecentCount(), heat.getTotalCount());
+        }
+        Assert.equals(total, 20000L);
+        Assert.equals(heatMap.getRecordCount(), 20000L);
+    }
+
+    @Test
+    public void testDecay() throws InterruptedException {
+        ShardHeatMap heatMap = new ShardHeatMap(500, 10);
+        for (int i = 0; i < 64; i++) {
+            heatMap.record("db", "user", 1);
+            heatMap.record(new ShardRouteInfo("db_1", "user_1"));
+        }
+        Assert.equals(heatMap.estimate("db", "user", 1), 64L);
+        Thread.sleep(600);
+        TableHeat heat = heatMap.getTableHeats().get(0);
+        Assert.equals(heat.getTotalCount(), 64L);
+        Assert.equals(heat.getRecentCount(), 32L);
+        Assert.equals(heatMap.estimate("db", "user", 1), 32L);
+        heatMap.resetStatistics();
+        Assert.isTrue(heatMap.getTableHeats().isEmpty());
+        Assert.isTrue(heatMap.getHotKeyList().isEmpty());
+    }
+
+    @Test
+    public void testMaxTables() {
+        ShardHeatMap heatMap = new ShardHeatMap();
+        heatMap.setMaxTables(2);
+        for (int i = 0; i < 4; i++) {
+            heatMap.record(new ShardRouteInfo("db", "user_" + i));
+        }
+        Assert.equals(heatMap.getTableHeats().size(), 2);
+        Assert.equals(heatMap.getOverflowedCount(), 2L);
+    }
+
+    @Test
+    public void testRouter() throws Exception {
+        SimpleShardRouteRuleBinding binding = new SimpleShardRouteRuleBinding();
+        binding.setScName("db");
+        binding.setTbName("user");
+        binding.setSdKey("id");
+        binding.setSdValues("[0..7]");
+        binding.setRule(new SpelShardRouteRule("{scName}_{sdValue % 2}", "{tbName}_{sdValue % 4}"));
+        List<SimpleShardRouteRuleBinding> bindings = new ArrayList<>();
+        bindings.add(binding);
+        SimpleShardRouter router = new SimpleShardRouter(bindings);
+        ShardHeatMap heatMap = new ShardHeatMap();
+        router.setHeatMap(heatMap);
+        // 路由只统计分表值,物理表热度在执行完成后统计
+        router.getRouteInfos("db", "user");
+        for (int i = 0; i < 5; i++) {
+            router.getRouteInfo("DB", "User", 3);
+        }
+        router.getRouteInfo("db", "user", 4);
+        Assert.equals(heatMap.getRecordCount(), 0L);
+        Assert.isTrue(heatMap.getTableHeats().isEmpty());
+        for (int i = 0; i < 5; i++) {
+            heatMap.record(new ShardRouteInfo("db_1", "user_3"));
+        }
+        heatMap.record(new ShardRouteInfo("db_0", "user_0"));
+
+        MBeanShardHeatMonitorServer server = new MBeanShardHeatMonitorServer();
+        server.setParamNameOfObjectName("org.hellojavaer.ddal.test:type=ShardHeatMonitor");
+        heatMap.setMonitorServer(server);
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("org.hellojavaer.ddal.test:type=ShardHeatMonitor");
+        try {
+            Assert.equals(mBeanServer.getAttribute(name, "RecordCount"), 6L);
+            Assert.equals(mBeanServer.getAttribute(name, "TableHeatMap"),
+                          "[{\"table\":\"db_1.user_3\",\"total\":5,\"recent\":5},"
+                                  + "{\"table\":\"db_0.user_0\",\"total\":1,\"recent\":1}]");
+            Assert.equals(mBeanServer.getAttribute(name, "HotKeys"),
+                          "[{\"table\":\"db.user\",\"sdValue\":\"3\",\"count\":5},"
+                                  + "{\"table\":\"db.user\",\"sdValue\":\"4\",\"count\":1}]");
+        } finally {
+            mBeanServer.unregisterMBean(name);
+        }
+    }
+}
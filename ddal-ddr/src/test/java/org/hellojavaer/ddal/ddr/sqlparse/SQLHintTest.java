@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.sqlparse.exception.SQLSyntaxErrorException;
+import org.junit.Test;
+
+public class SQLHintTest {
+
+    @Test
+    public void testSingleTarget() {
+        SQLParsedResult result = SQLHint.parse("  /*+ ddal: sc=db_03, tb=user_0042 */ "
+                                               + "select * from db_03.user_0042 where id = ?");
+        Assert.isTrue(!result.isMultiRouted());
+        Assert.equals(result.getSql(), "select * from db_03.user_0042 where id = ?");
+        Assert.isTrue(result.getSchemas().size() == 1 && result.getSchemas().contains("db_03"));
+        // 其他hint及普通sql
+        Assert.isTrue(SQLHint.parse("/*+ INDEX(user idx_id) */ select * from user") == null);
+        Assert.isTrue(SQLHint.parse("select /*+ ddal: sc=db_00 */ * from user") == null);
+    }
+
+    @Test
+    public void testMultiTarget() {
+        SQLParsedResult result = SQLHint.parse("/*+DDAL:sc=db_00,tb=user;sc=db_01,tb=user;sc=db_00,tb=user*/"
+                                               + "update user set a = 1");
+        Assert.isTrue(result.isMultiRouted());
+        Assert.isTrue(result.isUpdate());
+        Assert.isTrue(result.getRoutedSqls().size() == 2);
+        Assert.equals(result.getRoutedSqls().get(1).getSql(), "update user set a = 1");
+        Assert.equals(result.getRoutedSqls().get(1).getRouteInfo(), new ShardRouteInfo("db_01", "user"));
+        Assert.isTrue(result.getRoutedSqls().get(1).getSchemas().contains("db_01"));
+        Assert.isTrue(result.getSchemas().size() == 2);
+        result = SQLHint.parse("/*+ ddal: sc=db_00; sc=db_01 */ SELECT * from user");
+        Assert.isTrue(!result.isUpdate());
+        // 开头的括号及其他返回结果集的语句
+        String[] queries = { " (select * from user) union (select * from user_bak)",
+                "with t as (select 1) select * from t", "show tables", "DESC user", "explain select * from user" };
+        for (String query : queries) {
+            Assert.isTrue(!SQLHint.parse("/*+ ddal: sc=db_00; sc=db_01 */" + query).isUpdate());
+        }
+        Assert.isTrue(SQLHint.parse("/*+ ddal: sc=db_00; sc=db_01 */ delete from user").isUpdate());
+    }
+
+    @Test
+    public void testIllegalHint() {
+        String[] sqls = { "/*+ ddal: sc=db_00 select * from user", "/*+ ddal: sc=db_00 */ ",
+                "/*+ ddal: tb=user */ select * from user", "/*+ ddal: sc=db_00, db=x */ select * from user",
+                "/*+ ddal: sc= */ select * from user", "/*+ ddal: */ select * from user",
+                "/*+ ddal: sc=db_00, tb=user_0000; sc=db_00, tb=user_0001 */ select * from user" };
+        for (String sql : sqls) {
+            try {
+                SQLHint.parse(sql);
+                throw new Error(sql);
+            } catch (SQLSyntaxErrorException e) {
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse.cache;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.shard.ShardRouter;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouteRuleBinding;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouter;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedState;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParser;
+import org.hellojavaer.ddal.ddr.sqlparse.cache.monitor.mbean.MBeanSQLParserCacheMonitorServer;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Map;
+
+public class LRUSQLParserCacheTest {
+
+    private static final SQLParser   SQL_PARSER   = new SQLParser() {
+
+                                                      @Override
+                                                      public SQLParsedState parse(String sql, ShardRouter shardRouter) {
+                                                          return new SQLParsedState() {
+
+                                                              @Override
+                                                              public SQLParsedResult parse(Map<Object, Object> jdbcParams) {
+                                                                  return null;
+                                                              }
+                                                          };
+                                                      }
+                                                  };
+
+    private static final ShardRouter SHARD_ROUTER = new SimpleShardRouter(
+                                                                          new ArrayList<SimpleShardRouteRuleBinding>());
+
+    @Test
+    public void testStatistics() {
+        LRUSQLParserCache cache = new LRUSQLParserCache(SQL_PARSER, 10, 20);
+        cache.parse("select 1", SHARD_ROUTER);
+        cache.parse("select 1", SHARD_ROUTER);
+        cache.parse("select 1", SHARD_ROUTER);
+        cache.parse("select 2", SHARD_ROUTER);
+        cache.parse("select * from db.user where id = 1", SHARD_ROUTER);// longer than maxSQLLength
+        Assert.equals(cache.getHitCount(), 2L);
+        Assert.equals(cache.getMissCount(), 2L);
+        Assert.equals(cache.getHitRatio(), 0.5);
+        Assert.equals(cache.getBypassedCount(), 1L);
+        Assert.equals(cache.getParseCount(), 3L);
+        Assert.equals(cache.getWeightedSize(), 2L);
+        for (int i = 0; i < 20; i++) {
+            cache.parse("select " + (i + 10), SHARD_ROUTER);
+        }
+        Assert.equals(cache.getWeightedSize(), 10L);
+        Assert.equals(cache.getEvictionCount(), 12L);
+        cache.recordRoute(1000);
+        Assert.equals(cache.getRouteCount(), 1L);
+        Assert.equals(cache.getAverageRouteNanos(), 1000L);
+        Assert.equals(cache.getRouteLatencyHistogram(), "{1024:1}");
+        cache.resetStatistics();
+        Assert.equals(cache.getHitCount(), 0L);
+        Assert.equals(cache.getParseCount(), 0L);
+    }
+
+    @Test
+    public void testLatencyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 10);
+        }
+        Assert.equals(histogram.getCount(), 100L);
+        Assert.equals(histogram.getMeanNanos(), 505L);
+        Assert.equals(histogram.getPercentileNanos(50), 512L);
+        Assert.equals(histogram.getPercentileNanos(99), 1024L);
+        histogram.record(Long.MAX_VALUE);
+        Assert.equals(histogram.getPercentileNanos(100), Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        LRUSQLParserCache cache = new LRUSQLParserCache(SQL_PARSER, 10);
+        MBeanSQLParserCacheMonitorServer server = new MBeanSQLParserCacheMonitorServer();
+        server.setParamNameOfObjectName("org.hellojavaer.ddal.test:type=SQLParserCacheMonitor");
+        cache.setMonitorServer(server);
+        cache.parse("select 1", SHARD_ROUTER);
+        cache.parse("select 1", SHARD_ROUTER);
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("org.hellojavaer.ddal.test:type=SQLParserCacheMonitor");
+        try {
+            Assert.equals(mBeanServer.getAttribute(name, "HitCount"), 1L);
+            Assert.equals(mBeanServer.getAttribute(name, "HitRatio"), 0.5);
+            Assert.equals(mBeanServer.getAttribute(name, "WeightedSize"), 1L);
+        } finally {
+            mBeanServer.unregisterMBean(name);
+        }
+    }
+}
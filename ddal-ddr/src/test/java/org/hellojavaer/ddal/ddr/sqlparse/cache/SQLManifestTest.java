@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse.cache;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.shard.ShardRouter;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouteRuleBinding;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouter;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedState;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParser;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SQLManifestTest {
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        File file = File.createTempFile("ddal-manifest", ".sql");
+        try {
+            List<String> sqls = Arrays.asList("select * from db.user where id = ?",
+                                              "select 'a\\nb' from db.user\nwhere id = ?\r\n");
+            SQLManifest.save(file, sqls);
+            Assert.equals(SQLManifest.load(file), sqls);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testLoadMyBatisMapper() throws Exception {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+                     + "<!DOCTYPE mapper PUBLIC \"-//mybatis.org//DTD Mapper 3.0//EN\" "
+                     + "\"http://mybatis.org/dtd/mybatis-3-mapper.dtd\">\n" //
+                     + "<mapper namespace=\"UserMapper\">\n" //
+                     + "  <select id=\"getById\" resultType=\"map\">\n" //
+                     + "    select * from db.user\n" //
+                     + "    where id = #{id}\n" //
+                     + "  </select>\n" //
+                     + "  <update id=\"update\"><![CDATA[ update db.user set age = #{age} where id < #{id} ]]></update>\n"
+                     + "  <delete id=\"delete\">delete from db.user <where><if test=\"id != null\">id = #{id}</if>"
+                     + "</where></delete>\n" //
+                     + "  <select id=\"getFrom\">select * from ${table}</select>\n" //
+                     + "</mapper>";
+        List<String> sqls = SQLManifest.loadMyBatisMapper(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+        Assert.equals(sqls, Arrays.asList("select * from db.user where id = ?",
+                                          "update db.user set age = ? where id < ?"));
+    }
+
+    @Test
+    public void testWarmUp() throws Exception {
+        final AtomicInteger parses = new AtomicInteger();
+        SQLParser sqlParser = new SQLParser() {
+
+            @Override
+            public SQLParsedState parse(String sql, ShardRouter shardRouter) {
+                parses.incrementAndGet();
+                if (sql.startsWith("error")) {
+                    throw new IllegalArgumentException(sql);
+                }
+                return new SQLParsedState() {
+
+                    @Override
+                    public SQLParsedResult parse(Map<Object, Object> jdbcParams) {
+                        return null;
+                    }
+                };
+            }
+        };
+        ShardRouter shardRouter = new SimpleShardRouter(new ArrayList<SimpleShardRouteRuleBinding>());
+        LRUSQLParserCache cache = new LRUSQLParserCache(sqlParser, 1000);
+        List<String> sqls = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            sqls.add("select " + i);
+        }
+        sqls.add("select 0");
+        sqls.add("error sql");
+        Assert.equals(cache.warmUp(sqls, shardRouter), 100);
+        Assert.equals(parses.get(), 101);
+        // warmed sqls are served from the cache
+        cache.parse("select 1", shardRouter);
+        Assert.equals(parses.get(), 101);
+        List<String> cachedSqls = cache.getCachedSqls();
+        Assert.equals(cachedSqls.size(), 100);
+        Assert.isTrue(cachedSqls.containsAll(sqls.subList(0, 100)));
+    }
+}
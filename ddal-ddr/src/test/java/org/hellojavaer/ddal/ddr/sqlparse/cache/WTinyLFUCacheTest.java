@@ -0,0 +1,154 @@
+/*
+ * Copyright 2016-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse.cache;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WTinyLFUCacheTest {
+
+    @Test
+    public void testFrequencyAdmission() {
+        WTinyLFUCache<String, String> cache = new WTinyLFUCache<>(100, null);
+        for (int i = 0; i < 100; i++) {
+            cache.put("hot" + i, "v" + i);
+        }
+        for (int k = 0; k < 3; k++) {
+            for (int i = 0; i < 100; i++) {
+                Assert.equals(cache.get("hot" + i), "v" + i);
+            }
+        }
+        // one-off keys can't evict hot keys
+        for (int i = 0; i < 1000; i++) {
+            cache.put("once" + i, "v");
+        }
+        int hit = 0;
+        for (int i = 0; i < 100; i++) {
+            if (cache.get("hot" + i) != null) {
+                hit++;
+            }
+        }
+        Assert.isTrue(hit >= 95);
+        Assert.isTrue(cache.size() <= 100);
+    }
+
+    @Test
+    public void testWeight() {
+        WTinyLFUCache<String, String> cache = new WTinyLFUCache<>(100, new Weigher<String, String>() {
+
+            @Override
+            public int weigh(String key, String value) {
+                return value.length();
+            }
+        });
+        cache.put("a", "0123456789");
+        Assert.equals(cache.getWeightedSize(), 10L);
+        cache.put("a", "01234");
+        Assert.equals(cache.getWeightedSize(), 5L);
+        for (int i = 0; i < 100; i++) {
+            cache.put("k" + i, "0123456789");
+        }
+        Assert.isTrue(cache.getWeightedSize() <= 100);
+        // an entry heavier than the maximum weight isn't cached
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 101; i++) {
+            sb.append('x');
+        }
+        cache.put("big", sb.toString());
+        Assert.isTrue(cache.get("big") == null);
+        cache.clear();
+        Assert.equals(cache.size(), 0);
+        Assert.equals(cache.getWeightedSize(), 0L);
+    }
+
+    @Test
+    public void testSingleFlight() throws Exception {
+        final WTinyLFUCache<String, String> cache = new WTinyLFUCache<>(100, null);
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CacheLoader<String, String> loader = new CacheLoader<String, String>() {
+
+            @Override
+            public String load(String key) {
+                loads.incrementAndGet();
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return key + "-value";
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            futures.add(executor.submit(new Callable<String>() {
+
+                @Override
+                public String call() throws Exception {
+                    start.await();
+                    return cache.get("sql", loader);
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<String> future : futures) {
+            Assert.equals(future.get(5, TimeUnit.SECONDS), "sql-value");
+        }
+        Assert.equals(loads.get(), 1);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testLoadFailure() {
+        WTinyLFUCache<String, String> cache = new WTinyLFUCache<>(100, null);
+        try {
+            cache.get("sql", new CacheLoader<String, String>() {
+
+                @Override
+                public String load(String key) {
+                    throw new IllegalArgumentException("parse error");
+                }
+            });
+            throw new Error();
+        } catch (IllegalArgumentException e) {
+            Assert.equals(e.getMessage(), "parse error");
+        }
+        Assert.isTrue(cache.get("sql") == null);
+    }
+
+    @Test
+    public void testSnapshot() {
+        WTinyLFUCache<String, String> cache = new WTinyLFUCache<>(100, null);
+        for (int i = 0; i < 10; i++) {
+            cache.put("k" + i, "v" + i);
+        }
+        for (int k = 0; k < 3; k++) {
+            cache.get("k3");
+        }
+        Map<String, String> snapshot = cache.snapshot();
+        Assert.equals(snapshot.size(), 10);
+        Assert.equals(snapshot.get("k7"), "v7");
+        // the most recently used entry comes first
+        Assert.equals(snapshot.keySet().iterator().next(), "k3");
+    }
+}
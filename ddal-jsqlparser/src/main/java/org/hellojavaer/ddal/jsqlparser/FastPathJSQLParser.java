@@ -0,0 +1,46 @@
+/*
+ * #%L
+ * ddal-jsqlparser
+ * %%
+ * Copyright (C) 2016 - 2017 the original author or authors.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.hellojavaer.ddal.jsqlparser;
+
+import net.sf.jsqlparser.statement.Statement;
+import org.hellojavaer.ddal.ddr.shard.ShardRouter;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedState;
+
+/**
+ *
+ * 简单的单表增删改查语句(eg:'select * from user where id = ?')由{@link SimpleSQLScanner}直接扫描生成语法树,
+ * 其他语句使用JSqlParser解析;两种方式的解析结果相同,配置项与{@link JSQLParser}一致
+ */
+public class FastPathJSQLParser extends JSQLParser {
+
+    @Override
+    public SQLParsedState parse(String sql, ShardRouter shardRouter) {
+        Statement statement = SimpleSQLScanner.scan(sql);
+        if (statement == null) {
+            return super.parse(sql, shardRouter);
+        }
+        JSQLParserAdapter sqlParser = new JSQLParserAdapter(sql, statement, shardRouter, isEnableLimitCheck(),
+                                                            isEnableMultiRoute(), isEnableFullTableScan());
+        return sqlParser.parse();
+    }
+
+}
@@ -31,7 +31,19 @@ import org.hellojavaer.ddal.ddr.sqlparse.SQLParser;
  */
 public class JSQLParser implements SQLParser {
 
-    private boolean enableLimitCheck = false;
+    private boolean enableLimitCheck    = false;
+
+    /**
+     * allow a 'select' statement to be routed to multiple physical tables(eg:'id in(1,2,3)'),
+     * the statement will be executed on each physical table and the results will be merged
+     */
+    private boolean enableMultiRoute    = false;
+
+    /**
+     * when 'enableMultiRoute' is true, a table without shard value(neither in sql nor in ShardRouteContext) is routed
+     * to all physical tables returned by {@link ShardRouter#getRouteInfos(String, String)}
+     */
+    private boolean enableFullTableScan = false;
 
     public boolean isEnableLimitCheck() {
         return enableLimitCheck;
@@ -41,9 +53,26 @@ public class JSQLParser implements SQLParser {
         this.enableLimitCheck = enableLimitCheck;
     }
 
+    public boolean isEnableMultiRoute() {
+        return enableMultiRoute;
+    }
+
+    public void setEnableMultiRoute(boolean enableMultiRoute) {
+        this.enableMultiRoute = enableMultiRoute;
+    }
+
+    public boolean isEnableFullTableScan() {
+        return enableFullTableScan;
+    }
+
+    public void setEnableFullTableScan(boolean enableFullTableScan) {
+        this.enableFullTableScan = enableFullTableScan;
+    }
+
     @Override
     public SQLParsedState parse(String sql, ShardRouter shardRouter) {
-        JSQLParserAdapter sqlParser = new JSQLParserAdapter(sql, shardRouter, enableLimitCheck);
+        JSQLParserAdapter sqlParser = new JSQLParserAdapter(sql, shardRouter, enableLimitCheck, enableMultiRoute,
+                                                            enableFullTableScan);
         return sqlParser.parse();
     }
 
@@ -35,8 +35,10 @@ import net.sf.jsqlparser.statement.delete.Delete;
 import net.sf.jsqlparser.statement.insert.Insert;
 import net.sf.jsqlparser.statement.select.*;
 import net.sf.jsqlparser.statement.update.Update;
+import org.hellojavaer.ddal.ddr.datasource.exception.AmbiguousDataSourceBindingException;
 import org.hellojavaer.ddal.ddr.datasource.exception.CrossPreparedStatementException;
 import org.hellojavaer.ddal.ddr.shard.RangeShardValue;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteContext;
 import org.hellojavaer.ddal.ddr.shard.ShardRouteConfig;
 import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
 import org.hellojavaer.ddal.ddr.shard.ShardRouter;
@@ -44,6 +46,9 @@ import org.hellojavaer.ddal.ddr.shard.rule.SpelShardRouteRule;
 import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardParser;
 import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouteRuleBinding;
 import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouter;
+import org.hellojavaer.ddal.ddr.sqlparse.AggregateColumn;
+import org.hellojavaer.ddal.ddr.sqlparse.OrderByColumn;
+import org.hellojavaer.ddal.ddr.sqlparse.RoutedSQL;
 import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
 import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedState;
 import org.hellojavaer.ddal.ddr.sqlparse.exception.*;
@@ -54,6 +59,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.StringReader;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  *
@@ -70,23 +77,48 @@ import java.util.*;
  *         若ShardRouteContext中也未获取到匹配的路由信息则抛异常;
  *     (注:在指定分表字段后支持ShardRouteContext方式是为了能够提供'扫表'功能)
  *   3.如果解析过程如果没有匹配到分表配置,sql语句中的关键字格式化后返回(关键字大写);
+ *   4.如果开启了enableMultiRoute,select语句中一个分表可以路由到多张物理表(eg:'id in(1,2,3)'),
+ *     解析结果中每张物理表对应一条RoutedSQL;
+ *     4.1 如果同时开启了enableFullTableScan,未命中路由值且ShardRouteContext中也没有路由信息的分表会路由到
+ *         ShardRouter.getRouteInfos返回的所有物理表;
+ *     4.2 select项中的count,sum,min,max,avg聚合函数及group by会在结果合并时重新聚合,avg会在物理sql中追加sum和count;
+ *     4.3 分表字段的in列表会按物理表拆分,每条RoutedSQL的in列表中只包含路由到该物理表的值,被移除的jdbc参数记录在
+ *         RoutedSQL.removedJdbcParamIndexes中;
+ *   5.如果开启了enableMultiRoute,多行insert语句(eg:'insert into user(id, name) values(1, 'a'), (2, 'b')')中的行
+ *     会按分表字段的路由结果分组,每张物理表对应一条只包含该表数据行的RoutedSQL;
+ *     要求每行的分表字段值为sql常量或'?'参数,否则路由到多张物理表时抛异常;
  *
  * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 12/11/2016.
  */
 public class JSQLParserAdapter extends JSQLBaseVisitor {
 
-    private Logger             logger              = LoggerFactory.getLogger(this.getClass());
+    private Logger                logger                 = LoggerFactory.getLogger(this.getClass());
 
-    private String             sql;
-    private ShardRouter        shardRouter;
-    private Statement          statement;
+    private String                sql;
+    private ShardRouter           shardRouter;
+    private Statement             statement;
 
     // the schemas which used in current sql
-    private Set<String>        schemas             = new HashSet<>();
+    private Set<String>           schemas                = new HashSet<>();
+    // the route infos of the tables which are routed by sql literals
+    private Set<ShardRouteInfo>   routeInfos             = new LinkedHashSet<>();
 
-    private boolean            enableLimitCheck    = false;
+    private boolean               enableLimitCheck       = false;
 
-    private List<TableWrapper> toBeConvertedTables = new ArrayList<>();
+    private boolean               enableMultiRoute       = false;
+
+    private boolean               enableFullTableScan    = false;
+
+    private List<TableWrapper>    toBeConvertedTables    = new ArrayList<>();
+
+    // 多分片查询结果合并所需的信息
+    private List<OrderByColumn>   orderByColumns;
+    private LimitWrapper          limitWrapper;
+    private String                unsupportedMergeReason;
+    private List<Integer>         groupByColumnIndexes;
+    private List<AggregateColumn> aggregateColumns;
+    private List<SelectItem>      hiddenSelectItems;
+    private List<SplitItemsList>  splitItemsLists        = new ArrayList<>();
 
     static {
         try {
@@ -177,14 +209,29 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
     }
 
     public JSQLParserAdapter(String sql, ShardRouter shardRouter, boolean enableLimitCheck) {
+        this(sql, shardRouter, enableLimitCheck, false);
+    }
+
+    public JSQLParserAdapter(String sql, ShardRouter shardRouter, boolean enableLimitCheck, boolean enableMultiRoute) {
+        this(sql, shardRouter, enableLimitCheck, enableMultiRoute, false);
+    }
+
+    public JSQLParserAdapter(String sql, ShardRouter shardRouter, boolean enableLimitCheck, boolean enableMultiRoute,
+                             boolean enableFullTableScan) {
+        this(sql, parseStatement(sql), shardRouter, enableLimitCheck, enableMultiRoute, enableFullTableScan);
+    }
+
+    /**
+     * @param statement 已解析出的sql语句(eg:{@link SimpleSQLScanner}直接构建的语法树),每次解析都需要一个新的语法树
+     */
+    JSQLParserAdapter(String sql, Statement statement, ShardRouter shardRouter, boolean enableLimitCheck,
+                      boolean enableMultiRoute, boolean enableFullTableScan) {
         this.sql = sql;
         this.shardRouter = shardRouter;
         this.enableLimitCheck = enableLimitCheck;
-        try {
-            this.statement = CCJSqlParserUtil.parse(sql);
-        } catch (Throwable e) {
-            throw new SQLSyntaxErrorException("sql is [" + sql + "]", e);
-        }
+        this.enableMultiRoute = enableMultiRoute;
+        this.enableFullTableScan = enableFullTableScan;
+        this.statement = statement;
         if (statement instanceof Select //
             || statement instanceof Update//
             || statement instanceof Insert//
@@ -198,6 +245,14 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
         }
     }
 
+    private static Statement parseStatement(String sql) {
+        try {
+            return CCJSqlParserUtil.parse(sql);
+        } catch (Throwable e) {
+            throw new SQLSyntaxErrorException("sql is [" + sql + "]", e);
+        }
+    }
+
     private String generateSplitString(String str) {
         Random random = new Random(System.currentTimeMillis());
         while (true) {
@@ -215,6 +270,7 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
     public SQLParsedState parse() {
         try {
             statement.accept(this);
+            initMergeInfo();
             String targetSql = statement.toString();
             //
             String splitString = generateSplitString(targetSql);
@@ -224,55 +280,32 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
                 tab.setSchemaName(null);
                 tab.setName("_" + i + splitString);
             }
+            if (limitWrapper != null) {
+                limitWrapper.setPlaceholder("_" + toBeConvertedTables.size() + splitString);
+            }
+            for (int i = 0; i < splitItemsLists.size(); i++) {
+                splitItemsLists.get(i).setPlaceholder("_" + (toBeConvertedTables.size() + 1 + i) + splitString);
+            }
             //
-            targetSql = statement.toString();
-            //
-            final List<Object> splitSqls = new ArrayList<>();
-            String[] sqls = targetSql.split(splitString);// table切分
-            for (int i = 0; i < sqls.length - 1; i++) {
-                String s = sqls[i];
-                int index = s.lastIndexOf('_');
-                splitSqls.add(s.substring(0, index));
-                Integer paramIndex = Integer.valueOf(s.substring(index + 1));
-                splitSqls.add(toBeConvertedTables.get(paramIndex));
+            final List<Object> splitSqls = splitSql(splitString);
+            // 多分片合并时使用的sql模板,追加了仅用于合并的select项
+            final List<Object> mergeSplitSqls;
+            if (hiddenSelectItems != null && !hiddenSelectItems.isEmpty()) {
+                ((PlainSelect) ((Select) statement).getSelectBody()).getSelectItems().addAll(hiddenSelectItems);
+                mergeSplitSqls = splitSql(splitString);
+            } else {
+                mergeSplitSqls = splitSqls;
             }
-            splitSqls.add(sqls[sqls.length - 1]);
             //
+            final CompiledSql compiledSql = new CompiledSql(splitSqls);
             SQLParsedState parsedResult = new SQLParsedState() {
 
                 @Override
                 public SQLParsedResult parse(final Map<Object, Object> jdbcParams) {
-
-                    final Map<TableWrapper, String> convertedTables = new HashMap<>();
-                    final Set<String> schemas = new HashSet<>(JSQLParserAdapter.this.schemas);
-                    final SQLParsedResult result = new SQLParsedResult() {
-
-                        @Override
-                        public void checkIfCrossPreparedStatement(final Map<Object, Object> jdbcParams)
-                                                                                                       throws CrossPreparedStatementException {
-                            for (Map.Entry<TableWrapper, String> entry : convertedTables.entrySet()) {
-                                TableWrapper tab = entry.getKey();
-                                route1(tab, jdbcParams, entry.getValue(), this.getSql());
-                            }
-                        }
-                    };
-
-                    StringBuilder sb = new StringBuilder();
-                    for (Object obj : splitSqls) {
-                        if (obj instanceof TableWrapper) {
-                            TableWrapper tab = (TableWrapper) obj;
-                            ShardRouteInfo routeInfo = route1(tab, jdbcParams, tab.getRoutedFullTableName(), null);
-                            schemas.add(routeInfo.getScName());
-                            String routedFullTableName = routeInfo.toString();
-                            convertedTables.put(tab, routedFullTableName);
-                            sb.append(routedFullTableName);
-                        } else {
-                            sb.append(obj);
-                        }
+                    if (isMultiRouteSupported()) {
+                        return parseWithMultiRoute(compiledSql, mergeSplitSqls, jdbcParams);
                     }
-                    result.setSql(sb.toString());
-                    result.setSchemas(schemas);
-                    return result;
+                    return compiledSql.render(jdbcParams);
                 }
             };
             return parsedResult;
@@ -282,6 +315,578 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
         }
     }
 
+    private List<Object> splitSql(String splitString) {
+        String targetSql = statement.toString();
+        List<Object> splitSqls = new ArrayList<>();
+        String[] sqls = targetSql.split(splitString, -1);// table切分
+        for (int i = 0; i < sqls.length - 1; i++) {
+            String s = sqls[i];
+            int index = s.lastIndexOf('_');
+            splitSqls.add(s.substring(0, index));
+            Integer paramIndex = Integer.valueOf(s.substring(index + 1));
+            if (paramIndex < toBeConvertedTables.size()) {
+                splitSqls.add(toBeConvertedTables.get(paramIndex));
+            } else if (paramIndex == toBeConvertedTables.size()) {
+                splitSqls.add(limitWrapper);
+            } else {
+                splitSqls.add(splitItemsLists.get(paramIndex - toBeConvertedTables.size() - 1));
+            }
+        }
+        splitSqls.add(sqls[sqls.length - 1]);
+        return splitSqls;
+    }
+
+    /**
+     * only 'select' statement and multi-row 'insert ... values' statement can be routed to multiple physical tables
+     */
+    private boolean isMultiRouteSupported() {
+        if (!enableMultiRoute) {
+            return false;
+        }
+        return statement instanceof Select
+               || statement instanceof Insert && ((Insert) statement).getItemsList() instanceof MultiExpressionList;
+    }
+
+    private SQLParsedResult parseWithMultiRoute(CompiledSql compiledSql, List<Object> mergeSplitSqls,
+                                                Map<Object, Object> jdbcParams) {
+        final Map<TableWrapper, ShardRouteInfo> fixedRouteInfos = new HashMap<>();
+        TableWrapper multiRoutedTable = null;
+        Set<ShardRouteInfo> multiRouteInfos = null;
+        for (TableWrapper tab : toBeConvertedTables) {
+            if (tab == multiRoutedTable || fixedRouteInfos.containsKey(tab)) {
+                continue;
+            }
+            Set<ShardRouteInfo> routeInfos = routeN(tab, jdbcParams);
+            if (routeInfos.size() == 1) {
+                fixedRouteInfos.put(tab, routeInfos.iterator().next());
+            } else if (multiRoutedTable == null) {
+                multiRoutedTable = tab;
+                multiRouteInfos = routeInfos;
+            } else {
+                throw new AmbiguousRouteResultException("In sql[" + sql + "], both table:'"
+                                                        + multiRoutedTable.getOriginalConfig().toString()
+                                                        + "' and table:'" + tab.getOriginalConfig().toString()
+                                                        + "' are routed to multiple physical tables, but only one "
+                                                        + "table is allowed. Jdbc parameter is "
+                                                        + DDRJSONUtils.toJSONString(jdbcParams));
+            }
+        }
+        if (multiRoutedTable == null) {
+            return compiledSql.renderRouted(fixedRouteInfos);
+        } else {
+            if (unsupportedMergeReason != null) {
+                throw new UnsupportedSQLExpressionException("Sql [" + sql + "] is routed to physical tables "
+                                                            + multiRouteInfos + ", but results can't be merged. "
+                                                            + unsupportedMergeReason);
+            }
+            if (statement instanceof Insert && splitItemsLists.isEmpty()) {
+                throw new AmbiguousRouteResultException("In sql[" + sql + "], rows of table:'"
+                                                        + multiRoutedTable.getOriginalConfig().toString()
+                                                        + "' are routed to multiple physical tables " + multiRouteInfos
+                                                        + ", but the rows can't be split. Shard value of each row "
+                                                        + "should be a constant or '?'. Jdbc parameter is "
+                                                        + DDRJSONUtils.toJSONString(jdbcParams));
+            }
+            SQLParsedResult result = new SQLParsedResult();
+            result.setUpdate(statement instanceof Insert);
+            boolean aggregated = groupByColumnIndexes != null || aggregateColumns != null;
+            String limitString = null;
+            if (limitWrapper != null) {
+                // 分组聚合后的结果才能确定前n行,因此不能下推limit
+                limitString = rewriteLimit(limitWrapper, jdbcParams, result, !aggregated);
+            }
+            Map<SplitItemsList, List<ShardRouteInfo>> itemRouteInfos = routeSplitItems(multiRoutedTable, jdbcParams);
+            Set<String> schemas = new HashSet<>(this.schemas);
+            for (ShardRouteInfo routeInfo : fixedRouteInfos.values()) {
+                schemas.add(routeInfo.getScName());
+            }
+            Set<String> allSchemas = new HashSet<>(schemas);
+            List<RoutedSQL> routedSqls = new ArrayList<>(multiRouteInfos.size());
+            for (ShardRouteInfo routeInfo : multiRouteInfos) {
+                Set<String> routedSchemas = new HashSet<>(schemas);
+                routedSchemas.add(routeInfo.getScName());
+                allSchemas.add(routeInfo.getScName());
+                List<Integer> removedJdbcParamIndexes = new ArrayList<>();
+                String routedSql = buildRoutedSql(mergeSplitSqls, fixedRouteInfos, multiRoutedTable, routeInfo,
+                                                  limitString, itemRouteInfos, removedJdbcParamIndexes);
+                RoutedSQL item = new RoutedSQL(routedSql, routedSchemas, routeInfo);
+                if (!removedJdbcParamIndexes.isEmpty()) {
+                    Collections.sort(removedJdbcParamIndexes);
+                    item.setRemovedJdbcParamIndexes(removedJdbcParamIndexes);
+                }
+                routedSqls.add(item);
+            }
+            result.setRoutedSqls(routedSqls);
+            result.setSchemas(allSchemas);
+            Set<ShardRouteInfo> allRouteInfos = new LinkedHashSet<>(this.routeInfos);
+            allRouteInfos.addAll(fixedRouteInfos.values());
+            allRouteInfos.addAll(multiRouteInfos);
+            result.setRouteInfos(allRouteInfos);
+            result.setOrderByColumns(orderByColumns);
+            result.setGroupByColumnIndexes(groupByColumnIndexes);
+            result.setAggregateColumns(aggregateColumns);
+            result.setHiddenColumnCount(hiddenSelectItems == null ? 0 : hiddenSelectItems.size());
+            return result;
+        }
+    }
+
+    /**
+     * 解析多分片查询结果合并时需要的分组,聚合及排序字段
+     */
+    private void initMergeInfo() {
+        if (!isMultiRouteSupported() || !(statement instanceof Select)) {
+            return;
+        }
+        SelectBody selectBody = ((Select) statement).getSelectBody();
+        if (selectBody instanceof PlainSelect) {
+            PlainSelect plainSelect = (PlainSelect) selectBody;
+            initAggregateInfo(plainSelect);
+            if (unsupportedMergeReason != null) {
+                return;
+            }
+            List<OrderByElement> orderByElements = plainSelect.getOrderByElements();
+            if (orderByElements != null && !orderByElements.isEmpty()) {
+                List<OrderByColumn> list = new ArrayList<>(orderByElements.size());
+                for (OrderByElement element : orderByElements) {
+                    OrderByColumn orderByColumn = toOrderByColumn(plainSelect, element);
+                    if (orderByColumn == null) {
+                        unsupportedMergeReason = "Order by item '" + element + "' isn't in select items";
+                        return;
+                    }
+                    list.add(orderByColumn);
+                }
+                orderByColumns = list;
+            }
+            initLimitWrapper(plainSelect);
+        } else if (selectBody instanceof SetOperationList) {
+            List<OrderByElement> orderByElements = ((SetOperationList) selectBody).getOrderByElements();
+            if (orderByElements != null && !orderByElements.isEmpty()) {
+                unsupportedMergeReason = "'order by' of set operation isn't supported";
+            }
+        }
+    }
+
+    private void initAggregateInfo(PlainSelect plainSelect) {
+        List<SelectItem> selectItems = plainSelect.getSelectItems();
+        List<AggregateColumn> aggregates = new ArrayList<>();
+        List<SelectItem> hiddenItems = new ArrayList<>();
+        boolean containsAllColumns = false;
+        for (int i = 0; i < selectItems.size(); i++) {
+            SelectItem selectItem = selectItems.get(i);
+            if (!(selectItem instanceof SelectExpressionItem)) {// '*' or 'table.*'
+                containsAllColumns = true;
+                continue;
+            }
+            Expression expression = ((SelectExpressionItem) selectItem).getExpression();
+            AggregateColumn.Type type = getAggregateType(expression);
+            if (type != null) {
+                Function function = (Function) expression;
+                if (function.isDistinct()) {
+                    unsupportedMergeReason = "Aggregate function '" + function + "' with 'distinct' isn't supported";
+                    return;
+                }
+                AggregateColumn aggregateColumn = new AggregateColumn(type, i + 1);
+                aggregates.add(aggregateColumn);
+                if (type == AggregateColumn.Type.AVG) {// avg(x) -> sum(x), count(x)
+                    hiddenItems.add(new SelectExpressionItem(newFunction("SUM", function)));
+                    aggregateColumn.setSumColumnIndex(selectItems.size() + hiddenItems.size());
+                    aggregates.add(new AggregateColumn(AggregateColumn.Type.SUM, aggregateColumn.getSumColumnIndex()));
+                    hiddenItems.add(new SelectExpressionItem(newFunction("COUNT", function)));
+                    aggregateColumn.setCountColumnIndex(selectItems.size() + hiddenItems.size());
+                    aggregates.add(new AggregateColumn(AggregateColumn.Type.COUNT,
+                                                       aggregateColumn.getCountColumnIndex()));
+                }
+            } else if (containsAggregateFunction(expression)) {
+                unsupportedMergeReason = "Aggregate function in expression '" + expression + "' isn't supported";
+                return;
+            }
+        }
+        List<Expression> groupByExpressions = plainSelect.getGroupByColumnReferences();
+        boolean grouped = groupByExpressions != null && !groupByExpressions.isEmpty();
+        if (!grouped && aggregates.isEmpty()) {
+            return;
+        }
+        if (containsAllColumns) {
+            unsupportedMergeReason = "'*' can't be used together with aggregate functions or 'group by'";
+            return;
+        }
+        if (plainSelect.getHaving() != null) {
+            unsupportedMergeReason = "'having' isn't supported";
+            return;
+        }
+        if (plainSelect.getDistinct() != null) {
+            unsupportedMergeReason = "'distinct' can't be used together with aggregate functions or 'group by'";
+            return;
+        }
+        if (grouped) {
+            List<Integer> indexes = new ArrayList<>(groupByExpressions.size());
+            for (Expression expression : groupByExpressions) {
+                int index = indexOfSelectItem(selectItems, expression);
+                if (index <= 0) {// 不在select项中的分组字段追加到select项
+                    hiddenItems.add(new SelectExpressionItem(expression));
+                    index = selectItems.size() + hiddenItems.size();
+                }
+                indexes.add(index);
+            }
+            groupByColumnIndexes = indexes;
+        }
+        if (!aggregates.isEmpty()) {
+            aggregateColumns = aggregates;
+        }
+        if (!hiddenItems.isEmpty()) {
+            hiddenSelectItems = hiddenItems;
+        }
+    }
+
+    private static AggregateColumn.Type getAggregateType(Expression expression) {
+        if (expression instanceof Function) {
+            String name = ((Function) expression).getName();
+            for (AggregateColumn.Type type : AggregateColumn.Type.values()) {
+                if (type.name().equalsIgnoreCase(name)) {
+                    return type;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean containsAggregateFunction(Expression expression) {
+        final boolean[] result = new boolean[1];
+        expression.accept(new ExpressionVisitorAdapter() {
+
+            @Override
+            public void visit(Function function) {
+                if (getAggregateType(function) != null) {
+                    result[0] = true;
+                } else {
+                    super.visit(function);
+                }
+            }
+        });
+        return result[0];
+    }
+
+    private static Function newFunction(String name, Function parameterSource) {
+        Function function = new Function();
+        function.setName(name);
+        function.setParameters(parameterSource.getParameters());
+        return function;
+    }
+
+    /**
+     * 匹配表达式对应的select项: 1.序号(eg:'group by 1'); 2.select项的别名; 3.相同表达式的select项;
+     *
+     * @return index starts from 1, 0 if not found
+     */
+    private static int indexOfSelectItem(List<SelectItem> selectItems, Expression expression) {
+        if (expression instanceof LongValue) {
+            return (int) ((LongValue) expression).getValue();
+        }
+        if (expression instanceof Column
+            && (((Column) expression).getTable() == null || ((Column) expression).getTable().getName() == null)) {
+            String columnName = unquote(((Column) expression).getColumnName());
+            for (int i = 0; i < selectItems.size(); i++) {
+                Alias alias = ((SelectExpressionItem) selectItems.get(i)).getAlias();
+                if (alias != null && unquote(alias.getName()).equalsIgnoreCase(columnName)) {
+                    return i + 1;
+                }
+            }
+        }
+        String expressionString = expression.toString();
+        for (int i = 0; i < selectItems.size(); i++) {
+            if (((SelectExpressionItem) selectItems.get(i)).getExpression().toString().equalsIgnoreCase(expressionString)) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private void initLimitWrapper(PlainSelect plainSelect) {
+        Limit limit = plainSelect.getLimit();
+        Offset offset = plainSelect.getOffset();
+        if ((limit == null || limit.isLimitAll() || limit.isLimitNull()) && offset == null) {
+            return;
+        }
+        LimitWrapper wrapper = new LimitWrapper();
+        wrapper.setOriginalString((limit == null ? "" : limit.toString()) + (offset == null ? "" : offset.toString()));
+        if (limit != null && !limit.isLimitAll() && !limit.isLimitNull()) {
+            Expression rowCount = limit.getRowCount();
+            if (rowCount instanceof LongValue) {
+                wrapper.setRowCountValue(((LongValue) rowCount).getValue());
+            } else if (rowCount instanceof JdbcParameter) {
+                wrapper.setRowCountParamIndex(((JdbcParameter) rowCount).getIndex());
+            } else {
+                unsupportedMergeReason = "Unsupported 'limit' expression '" + rowCount + "'";
+                return;
+            }
+            wrapper.setContainsRowCount(true);
+            if (limit.getOffset() != null) {
+                wrapper.setOffsetFirst(true);
+                if (limit.getOffset() instanceof LongValue) {
+                    wrapper.setOffsetValue(((LongValue) limit.getOffset()).getValue());
+                } else if (limit.getOffset() instanceof JdbcParameter) {
+                    wrapper.setOffsetParamIndex(((JdbcParameter) limit.getOffset()).getIndex());
+                } else {
+                    unsupportedMergeReason = "Unsupported 'offset' expression '" + limit.getOffset() + "'";
+                    return;
+                }
+            }
+        }
+        if (offset != null) {
+            if (offset.getOffsetJdbcParameter() != null) {
+                wrapper.setOffsetParamIndex(offset.getOffsetJdbcParameter().getIndex());
+            } else {
+                wrapper.setOffsetValue(offset.getOffset());
+            }
+        }
+        plainSelect.setLimit(wrapper);
+        plainSelect.setOffset(null);
+        limitWrapper = wrapper;
+    }
+
+    /**
+     * 排序字段按以下顺序匹配结果集中的列: 1.序号(eg:'order by 1'); 2.select项的别名; 3.相同表达式的select项;
+     * 4.select项中含有'*'时按列名匹配
+     */
+    private OrderByColumn toOrderByColumn(PlainSelect plainSelect, OrderByElement element) {
+        Expression expression = element.getExpression();
+        boolean asc = element.isAsc();
+        if (expression instanceof LongValue) {
+            return new OrderByColumn(null, (int) ((LongValue) expression).getValue(), asc);
+        }
+        List<SelectItem> selectItems = plainSelect.getSelectItems();
+        if (expression instanceof Column
+            && (((Column) expression).getTable() == null || ((Column) expression).getTable().getName() == null)) {
+            String columnName = unquote(((Column) expression).getColumnName());
+            for (SelectItem selectItem : selectItems) {
+                if (selectItem instanceof SelectExpressionItem) {
+                    Alias alias = ((SelectExpressionItem) selectItem).getAlias();
+                    if (alias != null && unquote(alias.getName()).equalsIgnoreCase(columnName)) {
+                        return new OrderByColumn(unquote(alias.getName()), 0, asc);
+                    }
+                }
+            }
+        }
+        String expressionString = expression.toString();
+        boolean containsAllColumns = false;
+        for (int i = 0; i < selectItems.size(); i++) {
+            SelectItem selectItem = selectItems.get(i);
+            if (selectItem instanceof SelectExpressionItem) {
+                SelectExpressionItem item = (SelectExpressionItem) selectItem;
+                if (item.getExpression().toString().equalsIgnoreCase(expressionString)) {
+                    if (item.getAlias() != null) {
+                        return new OrderByColumn(unquote(item.getAlias().getName()), 0, asc);
+                    } else if (!containsAllColumns) {
+                        return new OrderByColumn(null, i + 1, asc);
+                    } else if (expression instanceof Column) {
+                        return new OrderByColumn(unquote(((Column) expression).getColumnName()), 0, asc);
+                    }
+                }
+            } else {// '*' or 'table.*'
+                containsAllColumns = true;
+            }
+        }
+        if (containsAllColumns && expression instanceof Column) {
+            return new OrderByColumn(unquote(((Column) expression).getColumnName()), 0, asc);
+        }
+        return null;
+    }
+
+    private static String unquote(String name) {
+        if (name != null && name.length() >= 2) {
+            char first = name.charAt(0);
+            char last = name.charAt(name.length() - 1);
+            if ((first == '`' || first == '"') && first == last) {
+                return name.substring(1, name.length() - 1);
+            }
+        }
+        return name;
+    }
+
+    /**
+     * 多分片查询时'limit n offset m'改写为'limit n+m',由结果集合并时跳过前m行;
+     * 如果limit或offset使用了jdbc参数,则保留参数占位符,在执行时使用改写后的值绑定参数;
+     * 如果不能下推(pushDown为false),物理sql中去掉limit,limit和offset只在合并后的结果上生效
+     */
+    private String rewriteLimit(LimitWrapper limit, Map<Object, Object> jdbcParams, SQLParsedResult result,
+                                boolean pushDown) {
+        Map<Integer, Object> overriddenJdbcParams = new HashMap<>();
+        long offset = 0;
+        if (limit.getOffsetValue() != null) {
+            offset = limit.getOffsetValue();
+        } else if (limit.getOffsetParamIndex() != null) {
+            offset = getLongJdbcParam(jdbcParams, limit.getOffsetParamIndex());
+            overriddenJdbcParams.put(limit.getOffsetParamIndex(), 0L);
+        }
+        StringBuilder sb = new StringBuilder();
+        String rowCountString = null;
+        if (limit.isContainsRowCount()) {
+            long rowCount = 0;
+            long pushedRowCount = 0;
+            if (limit.getRowCountValue() != null) {
+                rowCount = limit.getRowCountValue();
+                pushedRowCount = pushDown ? saturatedAdd(rowCount, offset) : Long.MAX_VALUE;
+                rowCountString = String.valueOf(pushedRowCount);
+            } else {
+                rowCount = getLongJdbcParam(jdbcParams, limit.getRowCountParamIndex());
+                pushedRowCount = pushDown ? saturatedAdd(rowCount, offset) : Long.MAX_VALUE;
+                overriddenJdbcParams.put(limit.getRowCountParamIndex(), pushedRowCount);
+                rowCountString = "?";
+            }
+            result.setRowCount(rowCount);
+        }
+        result.setOffset(offset);
+        if (!overriddenJdbcParams.isEmpty()) {
+            result.setOverriddenJdbcParams(overriddenJdbcParams);
+        } else if (!pushDown) {// 不含jdbc参数时直接去掉limit
+            return "";
+        }
+        if (limit.isOffsetFirst()) {// mysql: 'limit m, n'
+            sb.append(" LIMIT ");
+            if (limit.getOffsetParamIndex() != null) {
+                sb.append("?, ");
+            }
+            sb.append(rowCountString);
+        } else {// 'limit n offset m'
+            if (rowCountString != null) {
+                sb.append(" LIMIT ").append(rowCountString);
+            }
+            if (limit.getOffsetParamIndex() != null) {
+                sb.append(" OFFSET ?");
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * limit和offset都不小于0,相加溢出时取Long.MAX_VALUE
+     */
+    private static long saturatedAdd(long a, long b) {
+        return a > Long.MAX_VALUE - b ? Long.MAX_VALUE : a + b;
+    }
+
+    private long getLongJdbcParam(Map<Object, Object> jdbcParams, Integer index) {
+        Object value = jdbcParams == null ? null : jdbcParams.get(index);
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        } else {
+            throw new IllegalSQLParameterException("Jdbc parameter of 'limit' or 'offset' must be a number, but "
+                                                   + "parameter index " + index + " is " + value
+                                                   + ". Jdbc parameter map is "
+                                                   + DDRJSONUtils.toJSONString(jdbcParams) + " and sql is [" + sql
+                                                   + "]");
+        }
+    }
+
+    /**
+     * @param itemRouteInfos route information of each item in the 'in' lists or 'values' rows which need to be split
+     * @param removedJdbcParamIndexes output parameter, collects the jdbc parameters which are removed from the split
+     *                                'in' lists or 'values' rows
+     */
+    private String buildRoutedSql(List<Object> splitSqls, Map<TableWrapper, ShardRouteInfo> fixedRouteInfos,
+                                  TableWrapper multiRoutedTable, ShardRouteInfo routeInfo, String limitString,
+                                  Map<SplitItemsList, List<ShardRouteInfo>> itemRouteInfos,
+                                  List<Integer> removedJdbcParamIndexes) {
+        StringBuilder sb = new StringBuilder(sql.length() + 64);
+        for (Object obj : splitSqls) {
+            if (obj instanceof TableWrapper) {
+                if (obj == multiRoutedTable) {
+                    sb.append(routeInfo.toString());
+                } else {
+                    sb.append(fixedRouteInfos.get(obj).toString());
+                }
+            } else if (obj instanceof LimitWrapper) {
+                sb.append(limitString);
+            } else if (obj instanceof SplitItemsList) {
+                SplitItemsList itemsList = (SplitItemsList) obj;
+                List<ShardRouteInfo> routeInfos = itemRouteInfos == null ? null : itemRouteInfos.get(itemsList);
+                if (routeInfos == null) {
+                    sb.append(itemsList.getOriginalString());
+                } else {
+                    itemsList.appendTo(sb, routeInfos, routeInfo, removedJdbcParamIndexes);
+                }
+            } else {
+                sb.append(obj);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * route each item of the 'in' lists or 'values' rows which belong to the multi-routed table
+     */
+    private Map<SplitItemsList, List<ShardRouteInfo>> routeSplitItems(TableWrapper multiRoutedTable,
+                                                                      Map<Object, Object> jdbcParams) {
+        Map<SplitItemsList, List<ShardRouteInfo>> result = null;
+        for (SplitItemsList itemsList : splitItemsLists) {
+            if (itemsList.getTable() != multiRoutedTable) {
+                continue;
+            }
+            List<ShardRouteInfo> routeInfos = new ArrayList<>(itemsList.getRouteKeys().size());
+            for (Object routeKey : itemsList.getRouteKeys()) {
+                if (routeKey instanceof SqlParam) {
+                    routeInfos.add(getJdbcRouteInfo(multiRoutedTable, routeKey, jdbcParams));
+                } else {
+                    routeInfos.add((ShardRouteInfo) routeKey);
+                }
+            }
+            if (result == null) {
+                result = new HashMap<>();
+            }
+            result.put(itemsList, routeInfos);
+        }
+        return result;
+    }
+
+    /**
+     * get all route information of the table, including the results of sql parameters and jdbc parameters
+     */
+    private Set<ShardRouteInfo> routeN(TableWrapper tab, Map<Object, Object> jdbcParams) {
+        Set<ShardRouteInfo> routeInfos = new LinkedHashSet<>(tab.getSqlRouteInfos());
+        if (tab.getJdbcParamKeys() == null || tab.getJdbcParamKeys().isEmpty()) {
+            if (routeInfos.isEmpty()) {
+                List<ShardRouteInfo> allRouteInfos = getAllRouteInfos(tab);
+                if (allRouteInfos != null) {
+                    routeInfos.addAll(allRouteInfos);
+                } else {
+                    routeInfos.add(route1(tab, jdbcParams, null, null));
+                }
+            }
+            return routeInfos;
+        }
+        for (Object sqlParam : tab.getJdbcParamKeys()) {
+            routeInfos.add(getJdbcRouteInfo(tab, sqlParam, jdbcParams));
+        }
+        return routeInfos;
+    }
+
+    /**
+     * 扫表: 返回分表对应的所有物理表,如果未开启扫表,或ShardRouteContext中设置了该表的路由信息,或路由规则中没有配置物理表范围则返回null
+     */
+    private List<ShardRouteInfo> getAllRouteInfos(TableWrapper tab) {
+        if (!enableFullTableScan || !(statement instanceof Select)) {// 写操作不能扫表
+            return null;
+        }
+        String scName = tab.getOriginalConfig().getSchemaName();
+        String tbName = tab.getOriginalConfig().getName();
+        try {
+            if (ShardRouteContext.getRouteInfo(scName, tbName) != null) {
+                return null;
+            }
+        } catch (AmbiguousDataSourceBindingException e) {// 交给route1处理
+            return null;
+        }
+        List<ShardRouteInfo> routeInfos = null;
+        try {
+            routeInfos = shardRouter.getRouteInfos(scName, tbName);
+        } catch (Throwable e) {
+            throw new GetRouteInfoException("Get all route information failed for table:'"
+                                            + tab.getOriginalConfig().toString() + "' and 'routeConfig':"
+                                            + tab.getRouteConfig().toString() + ". Sql is [" + sql + "]", e);
+        }
+        return routeInfos == null || routeInfos.isEmpty() ? null : routeInfos;
+    }
+
     private ShardRouteInfo route1(TableWrapper tab, Map<Object, Object> jdbcParams, String routedFullTableName,
                                   String routedSql) {
         ShardRouteInfo routeInfo = null;
@@ -309,67 +914,63 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
         }
         // 2. jdbc param
         for (Object sqlParam : tab.getJdbcParamKeys()) {// size > 0
-            if (sqlParam instanceof SqlParam) {
-                Object sdValue = null;
-                Object key = ((SqlParam) sqlParam).getValue();
-                if (jdbcParams != null) {
-                    sdValue = jdbcParams.get(key);
-                }
-                if (sdValue == null) {// sql中指定的sdValue不能为空
-                    throw new IllegalSQLParameterException("For jdbc parameter key " + key
-                                                           + ", jdbc parameter value is null. Jdbc parameter map is "
+            routeInfo = getJdbcRouteInfo(tab, sqlParam, jdbcParams);
+            String newRoutedFulltableName = routeInfo.toString();
+            if (routedFullTableName == null) {
+                routedFullTableName = newRoutedFulltableName;
+            } else {
+                verifyRoutedFullTableName(tab, jdbcParams, routedFullTableName, routedSql, newRoutedFulltableName);
+            }
+        }
+        return routeInfo;
+    }
+
+    private ShardRouteInfo getJdbcRouteInfo(TableWrapper tab, Object sqlParam, Map<Object, Object> jdbcParams) {
+        if (sqlParam instanceof SqlParam) {
+            Object sdValue = null;
+            Object key = ((SqlParam) sqlParam).getValue();
+            if (jdbcParams != null) {
+                sdValue = jdbcParams.get(key);
+            }
+            if (sdValue == null) {// sql中指定的sdValue不能为空
+                throw new IllegalSQLParameterException("For jdbc parameter key " + key
+                                                       + ", jdbc parameter value is null. Jdbc parameter map is "
+                                                       + DDRJSONUtils.toJSONString(jdbcParams) + " and sql is [" + sql
+                                                       + "]");
+            }
+            return getRouteInfo(tab, sdValue);
+        } else {// range
+            RangeParam rangeParam = (RangeParam) sqlParam;
+            SqlParam begin = rangeParam.getBeginValue();
+            SqlParam end = rangeParam.getEndValue();
+            long s0 = 0;
+            long e0 = 0;
+            if (begin.isJdbcParamType()) {
+                Number number = (Number) jdbcParams.get(begin.getValue());
+                if (number == null) {
+                    throw new IllegalSQLParameterException("Jdbc parameter can't be null. Jdbc parameter key is "
+                                                           + begin.getValue() + ", jdbc parameter is "
                                                            + DDRJSONUtils.toJSONString(jdbcParams) + " and sql is ["
                                                            + sql + "]");
                 }
-                routeInfo = getRouteInfo(tab, sdValue);
-                String newRoutedFulltableName = routeInfo.toString();
-                if (routedFullTableName == null) {
-                    routedFullTableName = newRoutedFulltableName;
-                } else {
-                    verifyRoutedFullTableName(tab, jdbcParams, routedFullTableName, routedSql, newRoutedFulltableName);
-                }
-            } else {// range
-                RangeParam rangeParam = (RangeParam) sqlParam;
-                SqlParam begin = rangeParam.getBeginValue();
-                SqlParam end = rangeParam.getEndValue();
-                long s0 = 0;
-                long e0 = 0;
-                if (begin.isJdbcParamType()) {
-                    Number number = (Number) jdbcParams.get(begin.getValue());
-                    if (number == null) {
-                        throw new IllegalSQLParameterException("Jdbc parameter can't be null. Jdbc parameter key is "
-                                                               + begin.getValue() + ", jdbc parameter is "
-                                                               + DDRJSONUtils.toJSONString(jdbcParams)
-                                                               + " and sql is [" + sql + "]");
-                    }
-                    s0 = number.longValue();
-                } else {
-                    s0 = ((Number) begin.getValue()).longValue();
-                }
-                if (end.isJdbcParamType()) {
-                    Number number = (Number) jdbcParams.get(end.getValue());
-                    if (number == null) {
-                        throw new IllegalSQLParameterException("Jdbc parameter can't be null. Jdbc parameter key is "
-                                                               + end.getValue() + ", jdbc parameter is "
-                                                               + DDRJSONUtils.toJSONString(jdbcParams)
-                                                               + " and sql is [" + sql + "]");
-                    }
-                    e0 = number.longValue();
-                } else {
-                    e0 = ((Number) end.getValue()).longValue();
-                }
-
-                routeInfo = getRouteInfo(tab, new RangeShardValue(s0, e0));
-                String next = routeInfo.toString();
-                if (routedFullTableName == null) {
-                    routedFullTableName = next;
-                } else {
-                    verifyRoutedFullTableName(tab, jdbcParams, routedFullTableName, routedSql, next);
+                s0 = number.longValue();
+            } else {
+                s0 = ((Number) begin.getValue()).longValue();
+            }
+            if (end.isJdbcParamType()) {
+                Number number = (Number) jdbcParams.get(end.getValue());
+                if (number == null) {
+                    throw new IllegalSQLParameterException("Jdbc parameter can't be null. Jdbc parameter key is "
+                                                           + end.getValue() + ", jdbc parameter is "
+                                                           + DDRJSONUtils.toJSONString(jdbcParams) + " and sql is ["
+                                                           + sql + "]");
                 }
-
+                e0 = number.longValue();
+            } else {
+                e0 = ((Number) end.getValue()).longValue();
             }
+            return getRouteInfo(tab, new RangeShardValue(s0, e0));
         }
-        return routeInfo;
     }
 
     private void verifyRoutedFullTableName(TableWrapper tab, Map<Object, Object> jdbcParams,
@@ -405,7 +1006,14 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
             } else {// 不含jdbc路由
                 if (tab.getRoutedFullTableName() == null) {// sql未路由
                     toBeConvertedTables.add(tab);
-                }// else ok
+                } else if (tab.getSqlRouteInfos().size() > 1) {// sql路由到多张表
+                    toBeConvertedTables.add(tab);
+                } else {
+                    schemas.add(tab.getSchemaName());
+                    ShardRouteInfo routeInfo = tab.getSqlRouteInfos().iterator().next();
+                    // 复制路由信息,编译结果会被缓存
+                    routeInfos.add(new ShardRouteInfo(routeInfo.getScName(), routeInfo.getTbName()));
+                }
             }
         }
     }
@@ -447,6 +1055,9 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
                 for (ExpressionList expressionList : ((MultiExpressionList) itemsList).getExprList()) {
                     procInsertColumns(columns, expressionList);
                 }
+                if (isMultiRouteSupported()) {
+                    initInsertRowsWrapper(insert, columns, (MultiExpressionList) itemsList);
+                }
             } else {
                 throw new UnsupportedSQLExpressionException(insert.toString());
             }
@@ -454,6 +1065,75 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
         afterVisitBaseStatement();
     }
 
+    /**
+     * 多行insert:记录每行分表字段的路由信息,用于按物理表拆分数据行
+     */
+    private void initInsertRowsWrapper(Insert insert, List<Column> columns, MultiExpressionList itemsList) {
+        List<ExpressionList> rows = itemsList.getExprList();
+        if (rows.size() <= 1) {
+            return;
+        }
+        TableWrapper tab = null;
+        Column column = null;
+        int columnIndex = -1;
+        for (int i = 0; i < columns.size(); i++) {
+            tab = getTableFromContext(columns.get(i));
+            if (tab != null) {
+                column = columns.get(i);
+                columnIndex = i;
+                break;
+            }
+        }
+        if (tab == null || tab == AMBIGUOUS_TABLE) {
+            return;
+        }
+        InsertRowsWrapper rowsWrapper = new InsertRowsWrapper(tab, itemsList);
+        for (ExpressionList row : rows) {
+            List<Integer> jdbcParamIndexes = getJdbcParamIndexes(row);
+            Expression exp = row.getExpressions().get(columnIndex);
+            if (jdbcParamIndexes == null || !isSplittable(Collections.singletonList(exp))) {
+                return;
+            }
+            if (exp instanceof JdbcParameter) {
+                rowsWrapper.getRouteKeys().add(new SqlParam(column, exp));
+            } else {
+                rowsWrapper.getRouteKeys().add(getRouteInfo(tab, getRouteValue(column, exp)));
+            }
+            rowsWrapper.getJdbcParamIndexes().add(jdbcParamIndexes);
+        }
+        insert.setItemsList(rowsWrapper);
+        splitItemsLists.add(rowsWrapper);
+    }
+
+    /**
+     * @return indexes of the '?' parameters in the row, null if the row contains named parameters or sub queries
+     */
+    private static List<Integer> getJdbcParamIndexes(ExpressionList row) {
+        final List<Integer> indexes = new ArrayList<>();
+        final boolean[] unsupported = new boolean[1];
+        ExpressionVisitorAdapter visitor = new ExpressionVisitorAdapter() {
+
+            @Override
+            public void visit(JdbcParameter parameter) {
+                indexes.add(parameter.getIndex());
+            }
+
+            @Override
+            public void visit(JdbcNamedParameter parameter) {
+                unsupported[0] = true;
+            }
+
+            @Override
+            public void visit(SubSelect subSelect) {
+                unsupported[0] = true;
+            }
+        };
+        for (Expression expression : row.getExpressions()) {
+            expression.accept(visitor);
+        }
+        return unsupported[0] ? null : indexes;
+    }
+
     private void procInsertColumns(List<Column> columns, ExpressionList expressionList) {
         List<Expression> valueList = expressionList.getExpressions();
         for (int i = 0; i < columns.size(); i++) {
@@ -597,16 +1277,43 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
             List<Expression> list = itemsList.getExpressions();
             if (list == null || list.isEmpty()) {
                 visit0(inExpression);
+                return;
             }
             for (Expression exp : list) {
                 routeTable(tab, column, exp);
             }
+            if (isMultiRouteSupported() && list.size() > 1 && isSplittable(list)) {
+                InListWrapper inList = new InListWrapper(tab, itemsList);
+                for (Expression exp : list) {
+                    if (exp instanceof JdbcParameter) {
+                        inList.getRouteKeys().add(new SqlParam(column, exp));
+                    } else {
+                        inList.getRouteKeys().add(getRouteInfo(tab, getRouteValue(column, exp)));
+                    }
+                }
+                inExpression.setRightItemsList(inList);
+                splitItemsLists.add(inList);
+            }
         } else {
             visit0(inExpression);
             return;
         }
     }
 
+    /**
+     * 'in'列表中只包含sql常量和'?'参数时才能按物理表拆分
+     */
+    private static boolean isSplittable(List<Expression> list) {
+        for (Expression exp : list) {
+            if (!(exp instanceof JdbcParameter || exp instanceof LongValue || exp instanceof StringValue
+                  || exp instanceof HexValue || exp instanceof DateValue || exp instanceof DoubleValue
+                  || exp instanceof TimeValue || exp instanceof TimestampValue)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public void visit(Between between) {
         if (between.isNot()) {
@@ -697,16 +1404,21 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
         String fullTableName = routeInfo.toString();
         if (tab.getRoutedFullTableName() != null) {// 多重路由
             if (!tab.getRoutedFullTableName().equals(fullTableName)) {
-                throw new AmbiguousRouteResultException("In sql[" + sql + "], table:'"
-                                                        + tab.getOriginalConfig().toString()
-                                                        + "' has multiple routing results["
-                                                        + tab.getRoutedFullTableName() + "," + fullTableName + "]");
+                if (isMultiRouteSupported()) {
+                    tab.getSqlRouteInfos().add(routeInfo);
+                } else {
+                    throw new AmbiguousRouteResultException("In sql[" + sql + "], table:'"
+                                                            + tab.getOriginalConfig().toString()
+                                                            + "' has multiple routing results["
+                                                            + tab.getRoutedFullTableName() + "," + fullTableName
+                                                            + "]");
+                }
             }
         } else {// 是否使用alias在put的时候设置,这里只需要设置scName和tbName
             tab.setRoutedFullTableName(fullTableName);//
             tab.setSchemaName(routeInfo.getScName());
             tab.setName(routeInfo.getTbName());
-            schemas.add(routeInfo.getScName());
+            tab.getSqlRouteInfos().add(routeInfo);
         }
     }
 
@@ -800,6 +1512,411 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
         return context.get();
     }
 
+    /**
+     * placeholder of 'limit' and 'offset' clause in sql template
+     */
+    private static class LimitWrapper extends Limit {
+
+        private String  placeholder;
+        private String  originalString;
+        private boolean containsRowCount   = false;
+        private Long    rowCountValue;
+        private Integer rowCountParamIndex;
+        private boolean offsetFirst        = false;
+        private Long    offsetValue;
+        private Integer offsetParamIndex;
+
+        public String getPlaceholder() {
+            return placeholder;
+        }
+
+        public void setPlaceholder(String placeholder) {
+            this.placeholder = placeholder;
+        }
+
+        public String getOriginalString() {
+            return originalString;
+        }
+
+        public void setOriginalString(String originalString) {
+            this.originalString = originalString;
+        }
+
+        public boolean isContainsRowCount() {
+            return containsRowCount;
+        }
+
+        public void setContainsRowCount(boolean containsRowCount) {
+            this.containsRowCount = containsRowCount;
+        }
+
+        public Long getRowCountValue() {
+            return rowCountValue;
+        }
+
+        public void setRowCountValue(Long rowCountValue) {
+            this.rowCountValue = rowCountValue;
+        }
+
+        public Integer getRowCountParamIndex() {
+            return rowCountParamIndex;
+        }
+
+        public void setRowCountParamIndex(Integer rowCountParamIndex) {
+            this.rowCountParamIndex = rowCountParamIndex;
+        }
+
+        public boolean isOffsetFirst() {
+            return offsetFirst;
+        }
+
+        public void setOffsetFirst(boolean offsetFirst) {
+            this.offsetFirst = offsetFirst;
+        }
+
+        public Long getOffsetValue() {
+            return offsetValue;
+        }
+
+        public void setOffsetValue(Long offsetValue) {
+            this.offsetValue = offsetValue;
+        }
+
+        public Integer getOffsetParamIndex() {
+            return offsetParamIndex;
+        }
+
+        public void setOffsetParamIndex(Integer offsetParamIndex) {
+            this.offsetParamIndex = offsetParamIndex;
+        }
+
+        @Override
+        public String toString() {
+            return placeholder;
+        }
+    }
+
+    /**
+     * 单分片sql的渲染模板:sql在表名处切分为固定的片段,每个路由目标(各表路由结果的组合)渲染后的sql和schemas缓存在路由树中;
+     * 物理表的数量是有限的,缓存命中时渲染只需要计算路由并创建解析结果对象.多分片sql的各表都只路由到一张物理表时同样使用该模板
+     */
+    private class CompiledSql {
+
+        private static final int MAX_CACHED_ROUTES = 4096;
+
+        private final String[]       fragments;
+        private final TableWrapper[] tables;
+        private final int            length;
+        private final RouteNode      root         = new RouteNode(null, null, true);
+        private final AtomicInteger  cachedRoutes = new AtomicInteger();
+
+        public CompiledSql(List<Object> splitSqls) {
+            List<String> fragmentList = new ArrayList<>();
+            List<TableWrapper> tableList = new ArrayList<>();
+            StringBuilder sb = new StringBuilder();
+            for (Object obj : splitSqls) {
+                if (obj instanceof TableWrapper) {
+                    fragmentList.add(sb.toString());
+                    sb.setLength(0);
+                    tableList.add((TableWrapper) obj);
+                } else if (obj instanceof LimitWrapper) {
+                    sb.append(((LimitWrapper) obj).getOriginalString());
+                } else if (obj instanceof SplitItemsList) {
+                    sb.append(((SplitItemsList) obj).getOriginalString());
+                } else {
+                    sb.append(obj);
+                }
+            }
+            fragmentList.add(sb.toString());
+            this.fragments = fragmentList.toArray(new String[fragmentList.size()]);
+            this.tables = tableList.toArray(new TableWrapper[tableList.size()]);
+            int length = 0;
+            for (String fragment : fragments) {
+                length += fragment.length();
+            }
+            this.length = length;
+        }
+
+        public SQLParsedResult render(Map<Object, Object> jdbcParams) {
+            RouteNode node = root;
+            for (TableWrapper tab : tables) {
+                ShardRouteInfo routeInfo = route1(tab, jdbcParams, tab.getRoutedFullTableName(), null);
+                node = node.getChild(routeInfo);
+            }
+            return new CompiledSqlResult(node.getRoutedSql());
+        }
+
+        /**
+         * 使用已计算出的各表路由结果渲染
+         */
+        public SQLParsedResult renderRouted(Map<TableWrapper, ShardRouteInfo> routeInfos) {
+            RouteNode node = root;
+            for (TableWrapper tab : tables) {
+                node = node.getChild(routeInfos.get(tab));
+            }
+            return new CompiledSqlResult(node.getRoutedSql());
+        }
+
+        private class RouteNode {
+
+            private final RouteNode                                    parent;
+            private final ShardRouteInfo                               routeInfo;
+            private final boolean                                      cached;
+            private final ConcurrentHashMap<ShardRouteInfo, RouteNode> children = new ConcurrentHashMap<>();
+            private volatile RoutedSqlTemplate                         routedSql;
+
+            public RouteNode(RouteNode parent, ShardRouteInfo routeInfo, boolean cached) {
+                this.parent = parent;
+                this.routeInfo = routeInfo;
+                this.cached = cached;
+            }
+
+            public RouteNode getChild(ShardRouteInfo routeInfo) {
+                RouteNode child = children.get(routeInfo);
+                if (child != null) {
+                    return child;
+                }
+                // 复制路由信息,避免缓存的key被修改
+                ShardRouteInfo copy = new ShardRouteInfo(routeInfo.getScName(), routeInfo.getTbName());
+                if (!cached || cachedRoutes.get() >= MAX_CACHED_ROUTES) {// 不再缓存
+                    return new RouteNode(this, copy, false);
+                }
+                child = new RouteNode(this, copy, true);
+                RouteNode old = children.putIfAbsent(child.routeInfo, child);
+                if (old != null) {
+                    return old;
+                }
+                cachedRoutes.incrementAndGet();
+                return child;
+            }
+
+            public RoutedSqlTemplate getRoutedSql() {
+                RoutedSqlTemplate result = routedSql;
+                if (result == null) {
+                    result = new RoutedSqlTemplate(this);
+                    routedSql = result;
+                }
+                return result;
+            }
+        }
+
+        private class RoutedSqlTemplate {
+
+            private final String              sql;
+            private final Set<String>         schemas;
+            private final Set<ShardRouteInfo> routeInfos;
+            private final String[]            routedFullTableNames;
+
+            public RoutedSqlTemplate(RouteNode leaf) {
+                routedFullTableNames = new String[tables.length];
+                Set<String> schemas = new HashSet<>(JSQLParserAdapter.this.schemas);
+                Set<ShardRouteInfo> routeInfos = new LinkedHashSet<>(JSQLParserAdapter.this.routeInfos);
+                RouteNode node = leaf;
+                for (int i = tables.length - 1; i >= 0; i--) {
+                    routedFullTableNames[i] = node.routeInfo.toString();
+                    schemas.add(node.routeInfo.getScName());
+                    routeInfos.add(node.routeInfo);
+                    node = node.parent;
+                }
+                int capacity = length;
+                for (String name : routedFullTableNames) {
+                    capacity += name.length();
+                }
+                StringBuilder sb = new StringBuilder(capacity);
+                for (int i = 0; i < tables.length; i++) {
+                    sb.append(fragments[i]).append(routedFullTableNames[i]);
+                }
+                sb.append(fragments[tables.length]);
+                // 同一物理sql只保留一个实例,便于驱动端的语句缓存命中;未缓存的路由每次重新渲染,不驻留
+                this.sql = leaf.cached ? sb.toString().intern() : sb.toString();
+                this.schemas = Collections.unmodifiableSet(schemas);
+                this.routeInfos = Collections.unmodifiableSet(routeInfos);
+            }
+        }
+
+        private class CompiledSqlResult extends SQLParsedResult {
+
+            private final RoutedSqlTemplate routedSql;
+
+            public CompiledSqlResult(RoutedSqlTemplate routedSql) {
+                this.routedSql = routedSql;
+                setSql(routedSql.sql);
+                setSchemas(routedSql.schemas);
+                // ShardRouteInfo是可变的,并且是路由树中缓存的key,每个解析结果使用复制的路由信息
+                Set<ShardRouteInfo> routeInfos = new LinkedHashSet<>(routedSql.routeInfos.size());
+                for (ShardRouteInfo routeInfo : routedSql.routeInfos) {
+                    routeInfos.add(new ShardRouteInfo(routeInfo.getScName(), routeInfo.getTbName()));
+                }
+                setRouteInfos(routeInfos);
+            }
+
+            @Override
+            public void checkIfCrossPreparedStatement(Map<Object, Object> jdbcParams)
+                                                                                     throws CrossPreparedStatementException {
+                for (int i = 0; i < tables.length; i++) {
+                    route1(tables[i], jdbcParams, routedSql.routedFullTableNames[i], this.getSql());
+                }
+            }
+        }
+    }
+
+    /**
+     * placeholder of a list whose items are routed separately and rendered for each physical table, each physical
+     * table only keeps the items which are routed to it
+     */
+    private interface SplitItemsList {
+
+        TableWrapper getTable();
+
+        void setPlaceholder(String placeholder);
+
+        String getOriginalString();
+
+        /**
+         * ShardRouteInfo of sql parameter or SqlParam of jdbc parameter, one for each item
+         */
+        List<Object> getRouteKeys();
+
+        void appendTo(StringBuilder sb, List<ShardRouteInfo> itemRouteInfos, ShardRouteInfo routeInfo,
+                      List<Integer> removedJdbcParamIndexes);
+    }
+
+    /**
+     * placeholder of the 'in' list of a shard column in sql template, which is rendered for each physical table
+     */
+    private class InListWrapper extends ExpressionList implements SplitItemsList {
+
+        private TableWrapper table;
+        private String       placeholder;
+        private String       originalString;
+        private List<Object> routeKeys = new ArrayList<>(); // ShardRouteInfo of sql parameter or SqlParam of jdbc parameter
+
+        public InListWrapper(TableWrapper table, ExpressionList expressionList) {
+            super(expressionList.getExpressions());
+            this.table = table;
+            this.originalString = expressionList.toString();
+        }
+
+        public TableWrapper getTable() {
+            return table;
+        }
+
+        public String getPlaceholder() {
+            return placeholder;
+        }
+
+        public void setPlaceholder(String placeholder) {
+            this.placeholder = placeholder;
+        }
+
+        public String getOriginalString() {
+            return originalString;
+        }
+
+        public List<Object> getRouteKeys() {
+            return routeKeys;
+        }
+
+        /**
+         * 只保留路由到当前物理表的值,如果没有值路由到当前物理表则使用'(NULL)'(该物理表中不存在满足条件的行)
+         */
+        @Override
+        public void appendTo(StringBuilder sb, List<ShardRouteInfo> itemRouteInfos, ShardRouteInfo routeInfo,
+                             List<Integer> removedJdbcParamIndexes) {
+            List<Expression> items = getExpressions();
+            sb.append('(');
+            boolean empty = true;
+            for (int i = 0; i < items.size(); i++) {
+                Expression item = items.get(i);
+                if (routeInfo.equals(itemRouteInfos.get(i))) {
+                    if (!empty) {
+                        sb.append(", ");
+                    }
+                    sb.append(item);
+                    empty = false;
+                } else if (item instanceof JdbcParameter) {
+                    removedJdbcParamIndexes.add(((JdbcParameter) item).getIndex());
+                }
+            }
+            if (empty) {
+                sb.append("NULL");
+            }
+            sb.append(')');
+        }
+
+        @Override
+        public String toString() {
+            return placeholder == null ? originalString : placeholder;
+        }
+    }
+
+    /**
+     * placeholder of the 'values' rows of a multi-row 'insert' in sql template, which is rendered for each physical
+     * table
+     */
+    private class InsertRowsWrapper extends MultiExpressionList implements SplitItemsList {
+
+        private TableWrapper        table;
+        private String              placeholder;
+        private String              originalString;
+        private List<Object>        routeKeys        = new ArrayList<>();
+        private List<List<Integer>> jdbcParamIndexes = new ArrayList<>(); // '?' parameters of each row
+
+        public InsertRowsWrapper(TableWrapper table, MultiExpressionList itemsList) {
+            for (ExpressionList row : itemsList.getExprList()) {
+                addExpressionList(row);
+            }
+            this.table = table;
+            this.originalString = itemsList.toString();
+        }
+
+        public TableWrapper getTable() {
+            return table;
+        }
+
+        public void setPlaceholder(String placeholder) {
+            this.placeholder = placeholder;
+        }
+
+        public String getOriginalString() {
+            return originalString;
+        }
+
+        public List<Object> getRouteKeys() {
+            return routeKeys;
+        }
+
+        public List<List<Integer>> getJdbcParamIndexes() {
+            return jdbcParamIndexes;
+        }
+
+        /**
+         * 只保留路由到当前物理表的数据行,被移除行中的jdbc参数全部记录到removedJdbcParamIndexes中
+         */
+        @Override
+        public void appendTo(StringBuilder sb, List<ShardRouteInfo> itemRouteInfos, ShardRouteInfo routeInfo,
+                             List<Integer> removedJdbcParamIndexes) {
+            List<ExpressionList> rows = getExprList();
+            boolean empty = true;
+            for (int i = 0; i < rows.size(); i++) {
+                if (routeInfo.equals(itemRouteInfos.get(i))) {
+                    if (!empty) {
+                        sb.append(", ");
+                    }
+                    sb.append(rows.get(i));
+                    empty = false;
+                } else {
+                    removedJdbcParamIndexes.addAll(jdbcParamIndexes.get(i));
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return placeholder == null ? originalString : placeholder;
+        }
+    }
+
     private static class TableWrapper extends Table {
 
         public TableWrapper(Table table, ShardRouteConfig routeConfig) {
@@ -825,6 +1942,8 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
 
         private List<Object>     jdbcParamKeys  = new ArrayList<>(); // table 关联的jdbc列
 
+        private Set<ShardRouteInfo> sqlRouteInfos = new LinkedHashSet<>(); // sql参数的路由结果
+
         public ShardRouteConfig getRouteConfig() {
             return routeConfig;
         }
@@ -849,6 +1968,10 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
             this.jdbcParamKeys = jdbcParamKeys;
         }
 
+        public Set<ShardRouteInfo> getSqlRouteInfos() {
+            return sqlRouteInfos;
+        }
+
         public Table getOriginalConfig() {
             return originalConfig;
         }
@@ -0,0 +1,547 @@
+/*
+ * #%L
+ * ddal-jsqlparser
+ * %%
+ * Copyright (C) 2016 - 2017 the original author or authors.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.hellojavaer.ddal.jsqlparser;
+
+import net.sf.jsqlparser.expression.*;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.conditional.OrExpression;
+import net.sf.jsqlparser.expression.operators.relational.*;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.delete.Delete;
+import net.sf.jsqlparser.statement.insert.Insert;
+import net.sf.jsqlparser.statement.select.*;
+import net.sf.jsqlparser.statement.update.Update;
+
+import java.util.*;
+
+/**
+ *
+ * 简单sql的快速扫描器:直接扫描sql的词法单元并构建JSqlParser的语法树,跳过JSqlParser完整的语法解析
+ *   1.只支持以下单表语句,其他语句返回null,由JSqlParser解析;
+ *     1.1 select 列名[[as] 别名]|*|表名.*, ... from 表 [[as] 别名] [where 条件] [order by 列名 [asc|desc], ...] [limit n[, n]]
+ *     1.2 update 表 set 列名 = 值, ... [where 条件] [limit n]
+ *     1.3 delete from 表 [where 条件] [limit n]
+ *     1.4 insert into 表 (列名, ...) values (值, ...)
+ *   2.条件由and和or连接(不支持括号),每一项为'列名 比较符 值','列名 [not] in (值, ...)','列名 [not] between 值 and 值',
+ *     '列名 [not] like 值'或'列名 is [not] null';
+ *   3.值只支持'?',null,整数和不含反斜杠的字符串常量;标识符是关键字,或者sql中含有注释及其他语法时返回null;
+ *   4.构建出的语法树和JSqlParser的解析结果等价,toString()的结果相同;
+ */
+final class SimpleSQLScanner {
+
+    private static final int                        EOF            = 0;
+    private static final int                        WORD           = 1;
+    private static final int                        QUOTED         = 2;
+    private static final int                        NUMBER         = 3;
+    private static final int                        STRING         = 4;
+    private static final int                        PARAM          = 5;
+    private static final int                        SYMBOL         = 6;
+
+    private static final int                        MAX_NUMBER_LEN = 18;
+
+    // 不能作为标识符的关键字,命中时交给JSqlParser处理
+    private static final Set<String>                RESERVED_WORDS = new HashSet<>();
+
+    private static final UnsupportedSyntaxException UNSUPPORTED    = new UnsupportedSyntaxException();
+
+    private final String                            sql;
+    private int                                     pos;
+    private int                                     type;
+    private String                                  token;
+    private int                                     jdbcParamIndex;
+
+    static {
+        Collections.addAll(RESERVED_WORDS, "ALL", "ALTER", "AND", "ANY", "AS", "ASC", "BETWEEN", "BY", "CASE", "CAST",
+                           "CREATE", "CROSS", "DELETE", "DESC", "DISTINCT", "DROP", "DUPLICATE", "ELSE", "END",
+                           "ESCAPE", "EXCEPT", "EXISTS", "FALSE", "FETCH", "FIRST", "FOR", "FORCE", "FROM", "FULL",
+                           "GROUP", "HAVING", "IGNORE", "IN", "INDEX", "INNER", "INSERT", "INTERSECT", "INTERVAL",
+                           "INTO", "IS", "JOIN", "KEY", "LEFT", "LIKE", "LIMIT", "MINUS", "NATURAL", "NOT", "NULL",
+                           "OFFSET", "ON", "OR", "ORDER", "OUTER", "PRIMARY", "REGEXP", "RETURNING", "RIGHT", "RLIKE",
+                           "SELECT", "SET", "SOME", "STRAIGHT_JOIN", "TABLE", "THEN", "TOP", "TRUE", "UNION", "UPDATE",
+                           "USE", "USING", "VALUE", "VALUES", "WHEN", "WHERE", "WITH", "XOR");
+    }
+
+    private SimpleSQLScanner(String sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * @return 每次调用都返回一个新的语法树,sql不在支持范围内时返回null
+     */
+    static Statement scan(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        try {
+            return new SimpleSQLScanner(sql).scanStatement();
+        } catch (UnsupportedSyntaxException e) {
+            return null;
+        }
+    }
+
+    private Statement scanStatement() {
+        next();
+        Statement statement;
+        if (acceptKeyword("SELECT")) {
+            statement = scanSelect();
+        } else if (acceptKeyword("UPDATE")) {
+            statement = scanUpdate();
+        } else if (acceptKeyword("DELETE")) {
+            statement = scanDelete();
+        } else if (acceptKeyword("INSERT")) {
+            statement = scanInsert();
+        } else {
+            throw UNSUPPORTED;
+        }
+        if (type != EOF) {
+            throw UNSUPPORTED;
+        }
+        return statement;
+    }
+
+    private Select scanSelect() {
+        PlainSelect plainSelect = new PlainSelect();
+        List<SelectItem> selectItems = new ArrayList<>();
+        do {
+            selectItems.add(scanSelectItem());
+        } while (acceptSymbol(","));
+        plainSelect.setSelectItems(selectItems);
+        expectKeyword("FROM");
+        Table table = scanTable();
+        if (acceptKeyword("AS")) {
+            table.setAlias(new Alias(scanIdentifier(), true));
+        } else if (isIdentifier()) {
+            table.setAlias(new Alias(scanIdentifier(), false));
+        }
+        plainSelect.setFromItem(table);
+        if (acceptKeyword("WHERE")) {
+            plainSelect.setWhere(scanCondition());
+        }
+        if (acceptKeyword("ORDER")) {
+            expectKeyword("BY");
+            List<OrderByElement> orderByElements = new ArrayList<>();
+            do {
+                OrderByElement orderByElement = new OrderByElement();
+                orderByElement.setExpression(scanColumn(scanIdentifier()));
+                if (acceptKeyword("ASC")) {
+                    orderByElement.setAscDescPresent(true);
+                } else if (acceptKeyword("DESC")) {
+                    orderByElement.setAsc(false);
+                    orderByElement.setAscDescPresent(true);
+                }
+                orderByElements.add(orderByElement);
+            } while (acceptSymbol(","));
+            plainSelect.setOrderByElements(orderByElements);
+        }
+        if (acceptKeyword("LIMIT")) {
+            Limit limit = new Limit();
+            Expression value = scanLimitValue();
+            if (acceptSymbol(",")) {
+                limit.setOffset(value);
+                limit.setRowCount(scanLimitValue());
+            } else {
+                limit.setRowCount(value);
+            }
+            plainSelect.setLimit(limit);
+        }
+        Select select = new Select();
+        select.setSelectBody(plainSelect);
+        return select;
+    }
+
+    private SelectItem scanSelectItem() {
+        if (acceptSymbol("*")) {
+            return new AllColumns();
+        }
+        String name = scanIdentifier();
+        Column column;
+        if (acceptSymbol(".")) {
+            if (acceptSymbol("*")) {
+                return new AllTableColumns(new Table(name));
+            }
+            String name1 = scanIdentifier();
+            if (acceptSymbol(".")) {
+                column = new Column(new Table(name, name1), scanIdentifier());
+            } else {
+                column = new Column(new Table(name), name1);
+            }
+        } else {
+            column = new Column(new Table(), name);
+        }
+        SelectExpressionItem selectItem = new SelectExpressionItem(column);
+        if (acceptKeyword("AS")) {
+            selectItem.setAlias(new Alias(scanIdentifier(), true));
+        } else if (isIdentifier()) {
+            selectItem.setAlias(new Alias(scanIdentifier(), false));
+        }
+        return selectItem;
+    }
+
+    private Update scanUpdate() {
+        Update update = new Update();
+        List<Table> tables = new ArrayList<>();
+        tables.add(scanTable());
+        update.setTables(tables);
+        expectKeyword("SET");
+        List<Column> columns = new ArrayList<>();
+        List<Expression> expressions = new ArrayList<>();
+        do {
+            columns.add(scanColumn(scanIdentifier()));
+            expectSymbol("=");
+            expressions.add(scanValue());
+        } while (acceptSymbol(","));
+        update.setColumns(columns);
+        update.setExpressions(expressions);
+        if (acceptKeyword("WHERE")) {
+            update.setWhere(scanCondition());
+        }
+        if (acceptKeyword("LIMIT")) {
+            Limit limit = new Limit();
+            limit.setRowCount(scanLimitValue());
+            update.setLimit(limit);
+        }
+        return update;
+    }
+
+    private Delete scanDelete() {
+        expectKeyword("FROM");
+        Delete delete = new Delete();
+        delete.setTables(new ArrayList<Table>());
+        delete.setTable(scanTable());
+        if (acceptKeyword("WHERE")) {
+            delete.setWhere(scanCondition());
+        }
+        if (acceptKeyword("LIMIT")) {
+            Limit limit = new Limit();
+            limit.setRowCount(scanLimitValue());
+            delete.setLimit(limit);
+        }
+        return delete;
+    }
+
+    private Insert scanInsert() {
+        expectKeyword("INTO");
+        Insert insert = new Insert();
+        insert.setTable(scanTable());
+        expectSymbol("(");
+        List<Column> columns = new ArrayList<>();
+        do {
+            columns.add(scanColumn(scanIdentifier()));
+        } while (acceptSymbol(","));
+        expectSymbol(")");
+        expectKeyword("VALUES");
+        expectSymbol("(");
+        List<Expression> values = new ArrayList<>(columns.size());
+        do {
+            values.add(scanValue());
+        } while (acceptSymbol(","));
+        expectSymbol(")");
+        if (values.size() != columns.size()) {
+            throw UNSUPPORTED;
+        }
+        insert.setColumns(columns);
+        insert.setItemsList(new ExpressionList(values));
+        insert.setUseValues(true);
+        return insert;
+    }
+
+    private Expression scanCondition() {
+        Expression left = scanAndCondition();
+        while (acceptKeyword("OR")) {
+            left = new OrExpression(left, scanAndCondition());
+        }
+        return left;
+    }
+
+    private Expression scanAndCondition() {
+        Expression left = scanPredicate();
+        while (acceptKeyword("AND")) {
+            left = new AndExpression(left, scanPredicate());
+        }
+        return left;
+    }
+
+    private Expression scanPredicate() {
+        Column column = scanColumn(scanIdentifier());
+        if (type == SYMBOL) {
+            ComparisonOperator operator;
+            switch (token) {
+                case "=":
+                    operator = new EqualsTo();
+                    break;
+                case "<>":
+                case "!=":
+                    operator = new NotEqualsTo(token);
+                    break;
+                case ">":
+                    operator = new GreaterThan();
+                    break;
+                case ">=":
+                    operator = new GreaterThanEquals();
+                    break;
+                case "<":
+                    operator = new MinorThan();
+                    break;
+                case "<=":
+                    operator = new MinorThanEquals();
+                    break;
+                default:
+                    throw UNSUPPORTED;
+            }
+            next();
+            operator.setLeftExpression(column);
+            operator.setRightExpression(scanValue());
+            return operator;
+        }
+        boolean not = acceptKeyword("NOT");
+        if (acceptKeyword("IN")) {
+            expectSymbol("(");
+            List<Expression> values = new ArrayList<>();
+            do {
+                values.add(scanValue());
+            } while (acceptSymbol(","));
+            expectSymbol(")");
+            InExpression inExpression = new InExpression(column, new ExpressionList(values));
+            inExpression.setNot(not);
+            return inExpression;
+        } else if (acceptKeyword("LIKE")) {
+            LikeExpression likeExpression = new LikeExpression();
+            likeExpression.setNot(not);
+            likeExpression.setLeftExpression(column);
+            likeExpression.setRightExpression(scanValue());
+            return likeExpression;
+        } else if (acceptKeyword("BETWEEN")) {
+            Between between = new Between();
+            between.setNot(not);
+            between.setLeftExpression(column);
+            between.setBetweenExpressionStart(scanValue());
+            expectKeyword("AND");
+            between.setBetweenExpressionEnd(scanValue());
+            return between;
+        } else if (!not && acceptKeyword("IS")) {
+            IsNullExpression isNullExpression = new IsNullExpression();
+            isNullExpression.setNot(acceptKeyword("NOT"));
+            expectKeyword("NULL");
+            isNullExpression.setLeftExpression(column);
+            return isNullExpression;
+        } else {
+            throw UNSUPPORTED;
+        }
+    }
+
+    private Table scanTable() {
+        String name = scanIdentifier();
+        if (acceptSymbol(".")) {
+            return new Table(name, scanIdentifier());
+        } else {
+            return new Table(name);
+        }
+    }
+
+    private Column scanColumn(String name) {
+        if (!acceptSymbol(".")) {
+            return new Column(new Table(), name);
+        }
+        String name1 = scanIdentifier();
+        if (acceptSymbol(".")) {
+            return new Column(new Table(name, name1), scanIdentifier());
+        } else {
+            return new Column(new Table(name), name1);
+        }
+    }
+
+    private Expression scanValue() {
+        Expression value;
+        if (type == PARAM) {
+            value = new JdbcParameter(++jdbcParamIndex, false);
+        } else if (type == NUMBER) {
+            value = new LongValue(token);
+        } else if (type == STRING) {
+            value = new StringValue(token);
+        } else if (type == WORD && token.equalsIgnoreCase("NULL")) {
+            value = new NullValue();
+        } else {
+            throw UNSUPPORTED;
+        }
+        next();
+        return value;
+    }
+
+    private Expression scanLimitValue() {
+        if (type != PARAM && type != NUMBER) {
+            throw UNSUPPORTED;
+        }
+        return scanValue();
+    }
+
+    private boolean isIdentifier() {
+        return type == QUOTED || type == WORD && !RESERVED_WORDS.contains(token.toUpperCase(Locale.ENGLISH));
+    }
+
+    private String scanIdentifier() {
+        if (!isIdentifier()) {
+            throw UNSUPPORTED;
+        }
+        String name = token;
+        next();
+        return name;
+    }
+
+    private boolean acceptKeyword(String keyword) {
+        if (type == WORD && token.equalsIgnoreCase(keyword)) {
+            next();
+            return true;
+        }
+        return false;
+    }
+
+    private void expectKeyword(String keyword) {
+        if (!acceptKeyword(keyword)) {
+            throw UNSUPPORTED;
+        }
+    }
+
+    private boolean acceptSymbol(String symbol) {
+        if (type == SYMBOL && token.equals(symbol)) {
+            next();
+            return true;
+        }
+        return false;
+    }
+
+    private void expectSymbol(String symbol) {
+        if (!acceptSymbol(symbol)) {
+            throw UNSUPPORTED;
+        }
+    }
+
+    /**
+     * 读取下一个词法单元
+     */
+    private void next() {
+        int length = sql.length();
+        while (pos < length && Character.isWhitespace(sql.charAt(pos))) {
+            pos++;
+        }
+        if (pos >= length) {
+            type = EOF;
+            token = null;
+            return;
+        }
+        int start = pos;
+        char ch = sql.charAt(pos++);
+        if (isIdentifierStart(ch)) {
+            while (pos < length && isIdentifierPart(sql.charAt(pos))) {
+                pos++;
+            }
+            type = WORD;
+        } else if (ch >= '0' && ch <= '9') {
+            while (pos < length && sql.charAt(pos) >= '0' && sql.charAt(pos) <= '9') {
+                pos++;
+            }
+            // 小数,科学计数法及超出long范围的整数
+            if (pos < length && (isIdentifierPart(sql.charAt(pos)) || sql.charAt(pos) == '.')
+                || pos - start > MAX_NUMBER_LEN) {
+                throw UNSUPPORTED;
+            }
+            type = NUMBER;
+        } else if (ch == '\'') {
+            while (true) {
+                if (pos >= length) {
+                    throw UNSUPPORTED;
+                }
+                char c = sql.charAt(pos++);
+                if (c == '\\') {// 转义规则与数据库相关
+                    throw UNSUPPORTED;
+                }
+                if (c == '\'') {
+                    if (pos < length && sql.charAt(pos) == '\'') {
+                        pos++;
+                    } else {
+                        break;
+                    }
+                }
+            }
+            type = STRING;
+        } else if (ch == '`') {
+            int end = sql.indexOf('`', pos);
+            if (end <= pos) {
+                throw UNSUPPORTED;
+            }
+            pos = end + 1;
+            type = QUOTED;
+        } else if (ch == '?') {
+            type = PARAM;
+        } else {
+            switch (ch) {
+                case ',':
+                case '.':
+                case '(':
+                case ')':
+                case '*':
+                case '=':
+                    break;
+                case '<':
+                    if (pos < length && (sql.charAt(pos) == '=' || sql.charAt(pos) == '>')) {
+                        pos++;
+                    }
+                    break;
+                case '>':
+                    if (pos < length && sql.charAt(pos) == '=') {
+                        pos++;
+                    }
+                    break;
+                case '!':
+                    if (pos < length && sql.charAt(pos) == '=') {
+                        pos++;
+                        break;
+                    }
+                    throw UNSUPPORTED;
+                default:
+                    throw UNSUPPORTED;
+            }
+            type = SYMBOL;
+        }
+        token = sql.substring(start, pos);
+    }
+
+    private static boolean isIdentifierStart(char ch) {
+        return ch >= 'a' && ch <= 'z' || ch >= 'A' && ch <= 'Z' || ch == '_';
+    }
+
+    private static boolean isIdentifierPart(char ch) {
+        return isIdentifierStart(ch) || ch >= '0' && ch <= '9' || ch == '$';
+    }
+
+    /**
+     * 不在支持范围内的语法,不记录堆栈
+     */
+    private static class UnsupportedSyntaxException extends RuntimeException {
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
@@ -38,6 +38,10 @@ import java.util.List;
  */
 public class BaseTestShardParser {
 
+    protected JSQLParser newSQLParser() {
+        return new JSQLParser();
+    }
+
     /**
      * user -1:N- shop -1:N- item  
      */
@@ -77,7 +81,7 @@ public class BaseTestShardParser {
         bindings.add(item);
 
         SimpleShardRouter shardRouter = new SimpleShardRouter(bindings);
-        SimpleShardParser parser = new SimpleShardParser(new JSQLParser(), shardRouter);
+        SimpleShardParser parser = new SimpleShardParser(newSQLParser(), shardRouter);
         return parser;
     }
 
@@ -94,7 +98,7 @@ public class BaseTestShardParser {
         b0.setRule(r0);
         bindings.add(b0);
         SimpleShardRouter shardRouter = new SimpleShardRouter(bindings);
-        SimpleShardParser parser = new SimpleShardParser(new JSQLParser(), shardRouter);
+        SimpleShardParser parser = new SimpleShardParser(newSQLParser(), shardRouter);
         return parser;
     }
 
@@ -121,7 +125,7 @@ public class BaseTestShardParser {
         bindings.add(item);
 
         SimpleShardRouter shardRouter = new SimpleShardRouter(bindings);
-        SimpleShardParser parser = new SimpleShardParser(new JSQLParser(), shardRouter);
+        SimpleShardParser parser = new SimpleShardParser(newSQLParser(), shardRouter);
         return parser;
     }
 
@@ -138,7 +142,7 @@ public class BaseTestShardParser {
         bindings.add(b0);
         bindings.add(b1);
         SimpleShardRouter shardRouter = new SimpleShardRouter(bindings);
-        SimpleShardParser parser = new SimpleShardParser(new JSQLParser(), shardRouter);
+        SimpleShardParser parser = new SimpleShardParser(newSQLParser(), shardRouter);
         return parser;
     }
 }
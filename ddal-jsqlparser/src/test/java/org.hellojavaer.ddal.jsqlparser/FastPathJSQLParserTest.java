@@ -0,0 +1,120 @@
+/*
+ * #%L
+ * ddal-jsqlparser
+ * %%
+ * Copyright (C) 2016 - 2017 the original author or authors.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.hellojavaer.ddal.jsqlparser;
+
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.Statement;
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+/**
+ * 使用{@link FastPathJSQLParser}重新执行解析相关的测试用例,并校验扫描出的语法树与JSqlParser的解析结果一致
+ */
+@RunWith(Enclosed.class)
+public class FastPathJSQLParserTest {
+
+    public static class ScannerTest {
+
+        @Test
+        public void testScan() throws Exception {
+            String[] sqls = { "SeLeCt   id ,`name`  From   `db`.`user`   WHERE\tid=?",
+                    "select u.id as uid, u.* from db.user as u where u.id = ? and u.name like 'a%' and u.x not like ? "
+                            + "or u.y is not null and u.z is null order by u.id asc, name desc, x limit ?, ?",
+                    "select id n from user where id <> 1 and id != 2 and id >= 3 and id <= 4 and id > 5 and id < 6 limit 10",
+                    "select * from user where id in (1) and id not in (?, 'x') and id not between 1 and ?",
+                    "update user set a = 'it''s', b = ?, c = null where id = ? limit 10",
+                    "update db.user set db.user.a = 1 where db.user.id = 3",
+                    "delete from db.user where id between ? and 10 limit ?", "delete from user",
+                    "insert into `db`.user(`id`,name) values('a', ?)" };
+            for (String sql : sqls) {
+                Statement statement = SimpleSQLScanner.scan(sql);
+                Assert.notNull(statement, sql);
+                Assert.equals(statement.toString(), CCJSqlParserUtil.parse(sql).toString());
+            }
+        }
+
+        @Test
+        public void testFallback() {
+            String[] sqls = { "select * from user where id = 1234567890123456789", "select * from user where id = ?1",
+                    "select * from user where id = 1.0", "select * from user where name = 'a\\'b'",
+                    "select * from user;", "select * from user where id = ? for update",
+                    "select * from user where (id = 1)", "select * from user where id = 1 and 2 = x",
+                    "select count(*) from user", "select * from user where `desc` = 1 -- comment",
+                    "select * from user u join shop s on u.id = s.user_id", "select * from user where desc = 1",
+                    "select * from user where id in (select user_id from shop)", "insert into user(id, name) values(1)",
+                    "insert into user(id) values(1), (2)", "select * from user limit 1 offset 2" };
+            for (String sql : sqls) {
+                Assert.isTrue(SimpleSQLScanner.scan(sql) == null, sql);
+            }
+        }
+    }
+
+    public static class FastPathSelectTest extends SelectTest {
+
+        @Override
+        protected JSQLParser newSQLParser() {
+            return new FastPathJSQLParser();
+        }
+    }
+
+    public static class FastPathInsertTest extends InsertTest {
+
+        @Override
+        protected JSQLParser newSQLParser() {
+            return new FastPathJSQLParser();
+        }
+    }
+
+    public static class FastPathUpdateTest extends UpdateTest {
+
+        @Override
+        protected JSQLParser newSQLParser() {
+            return new FastPathJSQLParser();
+        }
+    }
+
+    public static class FastPathDeleteTest extends DeleteTest {
+
+        @Override
+        protected JSQLParser newSQLParser() {
+            return new FastPathJSQLParser();
+        }
+    }
+
+    public static class FastPathLimitTest extends LimitTest {
+
+        @Override
+        protected JSQLParser newSQLParser() {
+            return new FastPathJSQLParser();
+        }
+    }
+
+    public static class FastPathMultiRouteTest extends MultiRouteTest {
+
+        @Override
+        protected JSQLParser newSQLParser() {
+            return new FastPathJSQLParser();
+        }
+    }
+}
@@ -181,4 +181,64 @@ public class JSQLParserAdapterTest extends BaseTestShardParser {
         } catch (AmbiguousRouteResultException e) {
         }
     }
+
+    @Test
+    public void testSqlParsedState03() {
+        String sql = "select * from user u, shop s where u.id = ? and s.user_id = ?";
+        SimpleShardParser parser = buildParserForId();
+        JSQLParserAdapter jsqlParserAdapter = new JSQLParserAdapter(sql, parser.getShardRouter(), false);
+        SQLParsedState sqlParsedState = jsqlParserAdapter.parse();
+        //
+        Map<Object, Object> jdbcParams = new HashMap<>();
+        jdbcParams.put(1, 506);
+        jdbcParams.put(2, 507);
+        SQLParsedResult result0 = sqlParsedState.parse(jdbcParams);
+        Assert.equals(result0.getSql(),
+                      "SELECT * FROM db_02.user_0122 u, db_03.shop_0123 s WHERE u.id = ? AND s.user_id = ?");
+        Assert.isTrue(result0.getSchemas().size() == 2);
+        // 相同的路由目标复用渲染结果
+        SQLParsedResult result1 = sqlParsedState.parse(jdbcParams);
+        Assert.isTrue(result0.getSql() == result1.getSql());
+        //
+        jdbcParams.put(2, 506);
+        SQLParsedResult result2 = sqlParsedState.parse(jdbcParams);
+        Assert.equals(result2.getSql(),
+                      "SELECT * FROM db_02.user_0122 u, db_02.shop_0122 s WHERE u.id = ? AND s.user_id = ?");
+        Assert.isTrue(result2.getSchemas().size() == 1);
+        result2.checkIfCrossPreparedStatement(jdbcParams);
+        jdbcParams.put(2, 507);
+        try {
+            result2.checkIfCrossPreparedStatement(jdbcParams);
+            throw new Error();
+        } catch (CrossPreparedStatementException e) {
+        }
+    }
+
+    @Test
+    public void testUncachedRoutes() {
+        String sql = "select * from user u, shop s where u.id = ? and s.user_id = ?";
+        SimpleShardParser parser = buildParserForId();
+        SQLParsedState sqlParsedState = new JSQLParserAdapter(sql, parser.getShardRouter(), false).parse();
+        Map<Object, Object> jdbcParams = new HashMap<>();
+        // 路由目标数量超过缓存上限后,渲染结果不再缓存也不驻留
+        for (int i = 0; i < 128; i++) {
+            for (int j = 0; j < 40; j++) {
+                jdbcParams.put(1, i);
+                jdbcParams.put(2, j);
+                sqlParsedState.parse(jdbcParams);
+            }
+        }
+        jdbcParams.put(1, 127);
+        jdbcParams.put(2, 127);
+        SQLParsedResult result0 = sqlParsedState.parse(jdbcParams);
+        SQLParsedResult result1 = sqlParsedState.parse(jdbcParams);
+        Assert.equals(result0.getSql(),
+                      "SELECT * FROM db_07.user_0127 u, db_07.shop_0127 s WHERE u.id = ? AND s.user_id = ?");
+        Assert.equals(result1.getSql(), result0.getSql());
+        Assert.isTrue(result0.getSql() != result1.getSql());
+        // 已缓存的路由目标仍复用渲染结果
+        jdbcParams.put(1, 0);
+        jdbcParams.put(2, 0);
+        Assert.isTrue(sqlParsedState.parse(jdbcParams).getSql() == sqlParsedState.parse(jdbcParams).getSql());
+    }
 }
@@ -0,0 +1,384 @@
+/*
+ * #%L
+ * ddal-jsqlparser
+ * %%
+ * Copyright (C) 2016 - 2017 the original author or authors.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.hellojavaer.ddal.jsqlparser;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteContext;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardParser;
+import org.hellojavaer.ddal.ddr.sqlparse.AggregateColumn;
+import org.hellojavaer.ddal.ddr.sqlparse.OrderByColumn;
+import org.hellojavaer.ddal.ddr.sqlparse.RoutedSQL;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.hellojavaer.ddal.ddr.sqlparse.exception.AmbiguousRouteResultException;
+import org.hellojavaer.ddal.ddr.sqlparse.exception.GetRouteInfoException;
+import org.hellojavaer.ddal.ddr.sqlparse.exception.UnsupportedSQLExpressionException;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MultiRouteTest extends BaseTestShardParser {
+
+    private SimpleShardParser buildMultiRouteParser() {
+        SimpleShardParser shardParser = buildParserForId();
+        ((JSQLParser) shardParser.getSqlParser()).setEnableMultiRoute(true);
+        return shardParser;
+    }
+
+    @Test
+    public void testSqlParam() {
+        SimpleShardParser shardParser = buildMultiRouteParser();
+        SQLParsedResult result = shardParser.parse("select * from db.user where id in (1, 9, 2)", null);
+        Assert.isTrue(result.isMultiRouted());
+        Assert.isTrue(result.getSql() == null);
+        Assert.isTrue(result.getRoutedSqls().size() == 3);
+        Assert.equals(result.getRoutedSqls().get(0).getSql(),
+                      "SELECT * FROM db_01.user_0001 AS user WHERE id IN (1)");
+        Assert.equals(result.getRoutedSqls().get(1).getSql(),
+                      "SELECT * FROM db_01.user_0009 AS user WHERE id IN (9)");
+        Assert.equals(result.getRoutedSqls().get(2).getSql(),
+                      "SELECT * FROM db_02.user_0002 AS user WHERE id IN (2)");
+        Assert.isTrue(result.getRoutedSqls().get(2).getSchemas().size() == 1);
+        Assert.isTrue(result.getRoutedSqls().get(2).getSchemas().contains("db_02"));
+        Assert.isTrue(result.getSchemas().size() == 2);
+        // same physical table
+        result = shardParser.parse("select * from db.user where id in (1, 129)", null);
+        Assert.isTrue(!result.isMultiRouted());
+        Assert.equals(result.getSql(), "SELECT * FROM db_01.user_0001 AS user WHERE id IN (1, 129)");
+    }
+
+    @Test
+    public void testJdbcParam() {
+        SimpleShardParser shardParser = buildMultiRouteParser();
+        Map<Object, Object> jdbcParams = new HashMap<>();
+        jdbcParams.put(1, 1);
+        jdbcParams.put(2, 2);
+        SQLParsedResult result = shardParser.parse("select * from db.user where id = ? or id = ?", jdbcParams);
+        Assert.isTrue(result.getRoutedSqls().size() == 2);
+        Assert.equals(result.getRoutedSqls().get(0).getSql(),
+                      "SELECT * FROM db_01.user_0001 AS user WHERE id = ? OR id = ?");
+        Assert.equals(result.getRoutedSqls().get(1).getSql(),
+                      "SELECT * FROM db_02.user_0002 AS user WHERE id = ? OR id = ?");
+        //
+        jdbcParams.put(2, 1);
+        result = shardParser.parse("select * from db.user where id = ? or id = ?", jdbcParams);
+        Assert.isTrue(!result.isMultiRouted());
+        Assert.equals(result.getSql(), "SELECT * FROM db_01.user_0001 AS user WHERE id = ? OR id = ?");
+    }
+
+    @Test
+    public void testSingleRouteTarget() {
+        SimpleShardParser shardParser = buildMultiRouteParser();
+        Map<Object, Object> jdbcParams = new HashMap<>();
+        jdbcParams.put(1, 1);
+        jdbcParams.put(2, 129);
+        jdbcParams.put(3, 10);
+        SQLParsedResult result0 = shardParser.parse("select * from db.user where id in (?, ?) limit ?", jdbcParams);
+        Assert.isTrue(!result0.isMultiRouted());
+        Assert.equals(result0.getSql(), "SELECT * FROM db_01.user_0001 AS user WHERE id IN (?, ?) LIMIT ?");
+        // 路由目标相同时复用同一个物理sql实例
+        SQLParsedResult result1 = shardParser.parse("select * from db.user where id in (?, ?) limit ?", jdbcParams);
+        Assert.isTrue(result0.getSql() == result1.getSql());
+        jdbcParams.put(2, 257);
+        result1.checkIfCrossPreparedStatement(jdbcParams);
+    }
+
+    @Test
+    public void testInListSplitting() {
+        SimpleShardParser shardParser = buildMultiRouteParser();
+        Map<Object, Object> jdbcParams = new HashMap<>();
+        jdbcParams.put(1, "a");
+        jdbcParams.put(2, 1);
+        jdbcParams.put(3, 2);
+        jdbcParams.put(4, 129);
+        jdbcParams.put(5, 10);
+        SQLParsedResult result = shardParser.parse("select * from db.user where name = ? and id in (?, ?, 9, ?) "
+                                                   + "or id = 3 limit ?", jdbcParams);
+        List<RoutedSQL> routedSqls = result.getRoutedSqls();
+        Assert.isTrue(routedSqls.size() == 4);
+        Assert.equals(routedSqls.get(0).getSql(),
+                      "SELECT * FROM db_01.user_0009 AS user WHERE name = ? AND id IN (9) OR id = 3 LIMIT ?");
+        Assert.equals(routedSqls.get(0).getRemovedJdbcParamIndexes(), Arrays.asList(2, 3, 4));
+        Assert.isTrue(routedSqls.get(0).getPhysicalJdbcParamIndex(1) == 1);
+        Assert.isTrue(routedSqls.get(0).getPhysicalJdbcParamIndex(3) == 0);
+        Assert.isTrue(routedSqls.get(0).getPhysicalJdbcParamIndex(5) == 2);
+        Assert.equals(routedSqls.get(1).getSql(),
+                      "SELECT * FROM db_03.user_0003 AS user WHERE name = ? AND id IN (NULL) OR id = 3 LIMIT ?");
+        Assert.equals(routedSqls.get(2).getSql(),
+                      "SELECT * FROM db_01.user_0001 AS user WHERE name = ? AND id IN (?, ?) OR id = 3 LIMIT ?");
+        Assert.equals(routedSqls.get(2).getRemovedJdbcParamIndexes(), Arrays.asList(3));
+        Assert.isTrue(routedSqls.get(2).getPhysicalJdbcParamIndex(4) == 3);
+        Assert.isTrue(routedSqls.get(2).getPhysicalJdbcParamIndex(5) == 4);
+        Assert.equals(routedSqls.get(3).getSql(),
+                      "SELECT * FROM db_02.user_0002 AS user WHERE name = ? AND id IN (?) OR id = 3 LIMIT ?");
+        Assert.isTrue(routedSqls.get(3).getPhysicalJdbcParamIndex(5) == 3);
+        // same sql with other jdbc parameters
+        jdbcParams.put(3, 1);
+        jdbcParams.put(4, 1);
+        result = shardParser.parse("select * from db.user where name = ? and id in (?, ?, 9, ?) or id = 3 limit ?",
+                                   jdbcParams);
+        Assert.isTrue(result.getRoutedSqls().size() == 3);
+        Assert.isTrue(result.getRoutedSqls().get(2).getRemovedJdbcParamIndexes() == null);
+        Assert.equals(result.getRoutedSqls().get(2).getSql(),
+                      "SELECT * FROM db_01.user_0001 AS user WHERE name = ? AND id IN (?, ?, ?) OR id = 3 LIMIT ?");
+        // not split when routed to one physical table
+        result = shardParser.parse("select * from db.user where id in (1, 129, 257)", null);
+        Assert.equals(result.getSql(), "SELECT * FROM db_01.user_0001 AS user WHERE id IN (1, 129, 257)");
+    }
+
+    @Test
+    public void testJoin() {
+        SimpleShardParser shardParser = buildMultiRouteParser();
+        SQLParsedResult result = shardParser.parse("select * from db.user u join db.shop s on u.id = s.user_id "
+                                                   + "where u.id in (1, 2) and s.user_id = 1", null);
+        Assert.isTrue(result.getRoutedSqls().size() == 2);
+        Assert.equals(result.getRoutedSqls().get(1).getSql(), "SELECT * FROM db_02.user_0002 u JOIN db_01.shop_0001 s "
+                                                              + "ON u.id = s.user_id WHERE u.id IN (2) AND s.user_id = 1");
+        Assert.isTrue(result.getRoutedSqls().get(1).getSchemas().size() == 2);
+        try {
+            shardParser.parse("select * from db.user u join db.shop s on u.id = s.user_id "
+                              + "where u.id in (1, 2) and s.user_id in (1, 2)", null);
+            throw new Error();
+        } catch (AmbiguousRouteResultException e) {
+        }
+    }
+
+    @Test
+    public void testOrderBy() {
+        SimpleShardParser shardParser = buildMultiRouteParser();
+        SQLParsedResult result = shardParser.parse("select id, name as n, `desc` from db.user where id in (1, 2) "
+                                                   + "order by n desc, `desc`, id, 1", null);
+        List<OrderByColumn> orderByColumns = result.getOrderByColumns();
+        Assert.isTrue(orderByColumns.size() == 4);
+        Assert.equals(orderByColumns.get(0).getColumnLabel(), "n");
+        Assert.isTrue(!orderByColumns.get(0).isAsc());
+        Assert.isTrue(orderByColumns.get(1).getColumnIndex() == 3);
+        Assert.isTrue(orderByColumns.get(1).isAsc());
+        Assert.isTrue(orderByColumns.get(2).getColumnIndex() == 1);
+        Assert.isTrue(orderByColumns.get(3).getColumnIndex() == 1);
+        //
+        result = shardParser.parse("select * from db.user where id in (1, 2) order by user.name", null);
+        Assert.equals(result.getOrderByColumns().get(0).getColumnLabel(), "name");
+        //
+        result = shardParser.parse("select * from db.user where id in (1, 2)", null);
+        Assert.isTrue(result.getOrderByColumns() == null);
+        try {
+            shardParser.parse("select id from db.user where id in (1, 2) order by name", null);
+            throw new Error();
+        } catch (UnsupportedSQLExpressionException e) {
+        }
+        // single route doesn't need merge
+        result = shardParser.parse("select id from db.user where id = 1 order by name", null);
+        Assert.isTrue(result.getOrderByColumns() == null);
+    }
+
+    @Test
+    public void testLimit() {
+        SimpleShardParser shardParser = buildMultiRouteParser();
+        SQLParsedResult result = shardParser.parse("select * from db.user where id in (1, 2) order by id limit 10 offset 20",
+                                                   null);
+        Assert.equals(result.getRoutedSqls().get(0).getSql(),
+                      "SELECT * FROM db_01.user_0001 AS user WHERE id IN (1) ORDER BY id LIMIT 30");
+        Assert.isTrue(result.getOffset() == 20L);
+        Assert.isTrue(result.getRowCount() == 10L);
+        Assert.isTrue(result.getOverriddenJdbcParams() == null);
+        //
+        result = shardParser.parse("select * from db.user where id in (1, 2) limit 20, 10", null);
+        Assert.equals(result.getRoutedSqls().get(1).getSql(),
+                      "SELECT * FROM db_02.user_0002 AS user WHERE id IN (2) LIMIT 30");
+        // jdbc parameter
+        Map<Object, Object> jdbcParams = new HashMap<>();
+        jdbcParams.put(1, 1);
+        jdbcParams.put(2, 2);
+        jdbcParams.put(3, 20);
+        jdbcParams.put(4, 10);
+        result = shardParser.parse("select * from db.user where id in (?, ?) limit ?, ?", jdbcParams);
+        Assert.equals(result.getRoutedSqls().get(0).getSql(),
+                      "SELECT * FROM db_01.user_0001 AS user WHERE id IN (?) LIMIT ?, ?");
+        Assert.isTrue(result.getOffset() == 20L);
+        Assert.isTrue(result.getRowCount() == 10L);
+        Assert.equals(result.getOverriddenJdbcParams().get(3), 0L);
+        Assert.equals(result.getOverriddenJdbcParams().get(4), 30L);
+        result = shardParser.parse("select * from db.user where id in (?, ?) limit ? offset ?", jdbcParams);
+        Assert.equals(result.getRoutedSqls().get(0).getSql(),
+                      "SELECT * FROM db_01.user_0001 AS user WHERE id IN (?) LIMIT ? OFFSET ?");
+        Assert.isTrue(result.getOffset() == 10L);
+        Assert.isTrue(result.getRowCount() == 20L);
+        Assert.equals(result.getOverriddenJdbcParams().get(3), 30L);
+        Assert.equals(result.getOverriddenJdbcParams().get(4), 0L);
+        // offset + row count overflow
+        result = shardParser.parse("select * from db.user where id in (1, 2) limit 20, 9223372036854775807", null);
+        Assert.equals(result.getRoutedSqls().get(0).getSql(),
+                      "SELECT * FROM db_01.user_0001 AS user WHERE id IN (1) LIMIT 9223372036854775807");
+        jdbcParams.put(3, Long.MAX_VALUE);
+        result = shardParser.parse("select * from db.user where id in (?, ?) limit ?, ?", jdbcParams);
+        Assert.equals(result.getOverriddenJdbcParams().get(4), Long.MAX_VALUE);
+        jdbcParams.put(3, 20);
+        // single route keeps original limit
+        result = shardParser.parse("select * from db.user where id = 1 limit 10 offset 20", null);
+        Assert.equals(result.getSql(), "SELECT * FROM db_01.user_0001 AS user WHERE id = 1 LIMIT 10 OFFSET 20");
+        Assert.isTrue(result.getOffset() == null);
+    }
+
+    @Test
+    public void testInsertSplitting() {
+        SimpleShardParser shardParser = buildMultiRouteParser();
+        SQLParsedResult result = shardParser.parse("insert into db.user(id, name) values(1, 'a'), (2, 'b'), (129, 'c')",
+                                                   null);
+        Assert.isTrue(result.isUpdate());
+        List<RoutedSQL> routedSqls = result.getRoutedSqls();
+        Assert.isTrue(routedSqls.size() == 2);
+        Assert.equals(routedSqls.get(0).getSql(), "INSERT INTO db_01.user_0001 (id, name) VALUES (1, 'a'), (129, 'c')");
+        Assert.equals(routedSqls.get(1).getSql(), "INSERT INTO db_02.user_0002 (id, name) VALUES (2, 'b')");
+        // jdbc parameter
+        Map<Object, Object> jdbcParams = new HashMap<>();
+        jdbcParams.put(1, 1);
+        jdbcParams.put(2, "a");
+        jdbcParams.put(3, 2);
+        jdbcParams.put(4, "b");
+        jdbcParams.put(5, "c");
+        result = shardParser.parse("insert into db.user(id, name, status) values(?, ?, 0), (?, ?, 0), (129, ?, 1)",
+                                   jdbcParams);
+        routedSqls = result.getRoutedSqls();
+        Assert.equals(routedSqls.get(0).getSql(),
+                      "INSERT INTO db_01.user_0001 (id, name, status) VALUES (?, ?, 0), (129, ?, 1)");
+        Assert.equals(routedSqls.get(0).getRemovedJdbcParamIndexes(), Arrays.asList(3, 4));
+        Assert.isTrue(routedSqls.get(0).getPhysicalJdbcParamIndex(5) == 3);
+        Assert.equals(routedSqls.get(1).getSql(), "INSERT INTO db_02.user_0002 (id, name, status) VALUES (?, ?, 0)");
+        Assert.equals(routedSqls.get(1).getRemovedJdbcParamIndexes(), Arrays.asList(1, 2, 5));
+        Assert.isTrue(routedSqls.get(1).getPhysicalJdbcParamIndex(3) == 1);
+        // all rows are routed to one physical table
+        jdbcParams.put(3, 257);
+        result = shardParser.parse("insert into db.user(id, name, status) values(?, ?, 0), (?, ?, 0), (129, ?, 1)",
+                                   jdbcParams);
+        Assert.equals(result.getSql(),
+                      "INSERT INTO db_01.user_0001 (id, name, status) VALUES (?, ?, 0), (?, ?, 0), (129, ?, 1)");
+        // rows which can't be split
+        try {
+            shardParser.parse("insert into db.user(id, name) values(1, :name), (2, 'b')", null);
+            throw new Error();
+        } catch (AmbiguousRouteResultException e) {
+        }
+        // not enabled
+        try {
+            buildParserForId().parse("insert into db.user(id, name) values(1, 'a'), (2, 'b')", null);
+            throw new Error();
+        } catch (AmbiguousRouteResultException e) {
+        }
+    }
+
+    @Test
+    public void testUnsupported() {
+        SimpleShardParser shardParser = buildParserForId();
+        try {
+            shardParser.parse("select * from db.user where id in (1, 2)", null);
+            throw new Error();
+        } catch (AmbiguousRouteResultException e) {
+        }
+        ((JSQLParser) shardParser.getSqlParser()).setEnableMultiRoute(true);
+        try {
+            shardParser.parse("update db.user set name = 'allen' where id in (1, 2)", null);
+            throw new Error();
+        } catch (AmbiguousRouteResultException e) {
+        }
+    }
+
+    @Test
+    public void testAggregate() {
+        SimpleShardParser shardParser = buildMultiRouteParser();
+        SQLParsedResult result = shardParser.parse("select name, count(*), avg(age) as a, max(id) from db.user "
+                                                   + "where id in (1, 2) group by name, status order by a desc "
+                                                   + "limit 5", null);
+        Assert.equals(result.getRoutedSqls().get(0).getSql(),
+                      "SELECT name, count(*), avg(age) AS a, max(id), SUM(age), COUNT(age), status "
+                              + "FROM db_01.user_0001 AS user WHERE id IN (1) GROUP BY name, status ORDER BY a DESC");
+        Assert.isTrue(result.getHiddenColumnCount() == 3);
+        Assert.isTrue(result.getGroupByColumnIndexes().size() == 2);
+        Assert.isTrue(result.getGroupByColumnIndexes().get(0) == 1);
+        Assert.isTrue(result.getGroupByColumnIndexes().get(1) == 7);
+        List<AggregateColumn> aggregateColumns = result.getAggregateColumns();
+        Assert.isTrue(aggregateColumns.size() == 5);
+        Assert.isTrue(aggregateColumns.get(0).getType() == AggregateColumn.Type.COUNT);
+        Assert.isTrue(aggregateColumns.get(0).getColumnIndex() == 2);
+        Assert.isTrue(aggregateColumns.get(1).getType() == AggregateColumn.Type.AVG);
+        Assert.isTrue(aggregateColumns.get(1).getSumColumnIndex() == 5);
+        Assert.isTrue(aggregateColumns.get(1).getCountColumnIndex() == 6);
+        Assert.isTrue(aggregateColumns.get(4).getType() == AggregateColumn.Type.MAX);
+        Assert.equals(result.getOrderByColumns().get(0).getColumnLabel(), "a");
+        // limit isn't pushed down
+        Assert.isTrue(result.getOffset() == 0L);
+        Assert.isTrue(result.getRowCount() == 5L);
+        // single route keeps original select items
+        result = shardParser.parse("select name, avg(age) from db.user where id = 1 group by name", null);
+        Assert.equals(result.getSql(), "SELECT name, avg(age) FROM db_01.user_0001 AS user WHERE id = 1 GROUP BY name");
+        // jdbc parameter of limit
+        Map<Object, Object> jdbcParams = new HashMap<>();
+        jdbcParams.put(1, 10);
+        result = shardParser.parse("select count(*) from db.user where id in (1, 2) limit ?", jdbcParams);
+        Assert.equals(result.getRoutedSqls().get(1).getSql(),
+                      "SELECT count(*) FROM db_02.user_0002 AS user WHERE id IN (2) LIMIT ?");
+        Assert.isTrue(result.getGroupByColumnIndexes() == null);
+        Assert.equals(result.getOverriddenJdbcParams().get(1), Long.MAX_VALUE);
+        //
+        String[] unsupportedSqls = { "select count(distinct name) from db.user where id in (1, 2)",
+                "select sum(age) / count(*) from db.user where id in (1, 2)",
+                "select * from db.user where id in (1, 2) group by name",
+                "select name, count(*) from db.user where id in (1, 2) group by name having count(*) > 1" };
+        for (String sql : unsupportedSqls) {
+            try {
+                shardParser.parse(sql, null);
+                throw new Error(sql);
+            } catch (UnsupportedSQLExpressionException e) {
+            }
+        }
+    }
+
+    @Test
+    public void testFullTableScan() {
+        SimpleShardParser shardParser = buildMultiRouteParser();
+        try {
+            shardParser.parse("select status, count(*) from db.user group by status", null);
+            throw new Error();
+        } catch (GetRouteInfoException e) {
+        }
+        // parsed state is cached by sql, so use a new parser
+        shardParser = buildMultiRouteParser();
+        ((JSQLParser) shardParser.getSqlParser()).setEnableFullTableScan(true);
+        SQLParsedResult result = shardParser.parse("select status, count(*) from db.user group by status", null);
+        Assert.isTrue(result.getRoutedSqls().size() == 128);
+        Assert.equals(result.getRoutedSqls().get(127).getSql(),
+                      "SELECT status, count(*) FROM db_00.user_0000 AS user GROUP BY status");
+        Assert.isTrue(result.getSchemas().size() == 8);
+        // route information in ShardRouteContext has higher priority
+        ShardRouteContext.pushContext();
+        try {
+            ShardRouteContext.setRouteInfo("db", "user", new ShardRouteInfo("db_03", "user_0003"));
+            result = shardParser.parse("select status, count(*) from db.user group by status", null);
+            Assert.equals(result.getSql(), "SELECT status, count(*) FROM db_03.user_0003 AS user GROUP BY status");
+        } finally {
+            ShardRouteContext.popContext();
+        }
+    }
+}
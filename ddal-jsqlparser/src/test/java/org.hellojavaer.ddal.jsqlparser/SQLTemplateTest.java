@@ -0,0 +1,176 @@
+/*
+ * #%L
+ * ddal-jsqlparser
+ * %%
+ * Copyright (C) 2016 - 2017 the original author or authors.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.hellojavaer.ddal.jsqlparser;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.shard.ShardRouter;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardParser;
+import org.hellojavaer.ddal.ddr.sqlparse.RoutedSQL;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedState;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParser;
+import org.hellojavaer.ddal.ddr.sqlparse.cache.LRUSQLParserCache;
+import org.hellojavaer.ddal.ddr.sqlparse.cache.SQLTemplate;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SQLTemplateTest extends BaseTestShardParser {
+
+    private AtomicInteger parseCount = new AtomicInteger();
+
+    private SimpleShardParser buildTemplateParser(boolean enableMultiRoute) {
+        SimpleShardParser shardParser = buildParserForId();
+        final JSQLParser jsqlParser = (JSQLParser) shardParser.getSqlParser();
+        jsqlParser.setEnableMultiRoute(enableMultiRoute);
+        LRUSQLParserCache cache = new LRUSQLParserCache(new SQLParser() {
+
+            @Override
+            public SQLParsedState parse(String sql, ShardRouter shardRouter) {
+                parseCount.incrementAndGet();
+                return jsqlParser.parse(sql, shardRouter);
+            }
+        }, 100);
+        cache.setNormalizeLiterals(true);
+        shardParser.setSqlParser(cache);
+        return shardParser;
+    }
+
+    private SimpleShardParser buildPlainParser(boolean enableMultiRoute) {
+        SimpleShardParser shardParser = buildParserForId();
+        ((JSQLParser) shardParser.getSqlParser()).setEnableMultiRoute(enableMultiRoute);
+        return shardParser;
+    }
+
+    /**
+     * parsing with sql template must get the same result as parsing original sql
+     */
+    private void assertSameResult(boolean enableMultiRoute, String sql, Map<Object, Object> jdbcParams) {
+        SQLParsedResult expected = buildPlainParser(enableMultiRoute).parse(sql, jdbcParams);
+        SQLParsedResult actual = buildTemplateParser(enableMultiRoute).parse(sql, jdbcParams);
+        Assert.equals(actual.getSql(), expected.getSql());
+        Assert.equals(actual.getSchemas(), expected.getSchemas());
+        Assert.equals(toStrings(actual.getRouteInfos()), toStrings(expected.getRouteInfos()));
+        Assert.equals(actual.getOverriddenJdbcParams(), expected.getOverriddenJdbcParams());
+        Assert.equals(actual.getOffset(), expected.getOffset());
+        Assert.equals(actual.getRowCount(), expected.getRowCount());
+        Assert.equals(actual.isMultiRouted(), expected.isMultiRouted());
+        if (expected.isMultiRouted()) {
+            // the order of routed sqls depends on the order of routing
+            Assert.equals(actual.getRoutedSqls().size(), expected.getRoutedSqls().size());
+            Map<String, RoutedSQL> map = new HashMap<>();
+            for (RoutedSQL item : actual.getRoutedSqls()) {
+                map.put(item.getRouteInfo().toString(), item);
+            }
+            for (RoutedSQL e : expected.getRoutedSqls()) {
+                RoutedSQL a = map.get(e.getRouteInfo().toString());
+                Assert.equals(a.getSql(), e.getSql());
+                Assert.equals(a.getSchemas(), e.getSchemas());
+                Assert.equals(a.getRemovedJdbcParamIndexes(), e.getRemovedJdbcParamIndexes());
+            }
+        }
+    }
+
+    @Test
+    public void testTemplate() {
+        Assert.equals(SQLTemplate.parse("select * from db.user where id = 5 and name = 'a''b' and c = ?").getSql(),
+                      "select * from db.user where id = ? and name = ? and c = ?");
+        Assert.equals(SQLTemplate.parse("select * from db.user where id in (1, -2, ?) and d between 3 and 4").getSql(),
+                      "select * from db.user where id in (?, ?, ?) and d between ? and ?");
+        Assert.equals(SQLTemplate.parse("insert into db.user(id, name) values(1, 'a'), (2, now())").getSql(),
+                      "insert into db.user(id, name) values(?, ?), (?, now())");
+        // literals which may affect parsing are kept
+        Assert.isTrue(SQLTemplate.parse("select * from db.user order by 1 limit 10") == null);
+        Assert.equals(SQLTemplate.parse("select * from db.user where name = \"x\" and c = '?' -- = 1").getSql(),
+                      "select * from db.user where name = \"x\" and c = ? -- = 1");
+        Assert.isTrue(SQLTemplate.parse("select * from db.user where id in (select id from t limit 1, 2)") == null);
+    }
+
+    @Test
+    public void testSameResult() {
+        assertSameResult(false, "select * from db.user where id = 506 and name = 'a''b'", null);
+        assertSameResult(false, "update db.user set name = 'x' where id = 506", null);
+        assertSameResult(false, "delete from db.user where id = ? and name = 'x'", paramMap(1, 506L));
+        assertSameResult(false, "insert into db.user(id, name) values(506, 'x')", null);
+        assertSameResult(false, "select * from db.user u join db.shop s on u.id = s.user_id where u.id = 3 "
+                                + "and s.user_id = 3 and s.name like 'a%'", null);
+        // multi-route
+        assertSameResult(true, "select * from db.user where id in (1, ?, 2, 9) order by id limit ?, ?",
+                         paramMap(1, 10L, 2, 0L, 3, 20L));
+        assertSameResult(true, "insert into db.user(id, name) values(1, ?), (2, 'b'), (9, ?)",
+                         paramMap(1, "a", 2, "c"));
+    }
+
+    @Test
+    public void testRouteInfos() {
+        String sql = "delete from db.user where id = ? and name = 'x'";
+        SQLParsedResult result = buildTemplateParser(false).parse(sql, paramMap(1, 506L));
+        Assert.equals(toStrings(result.getRouteInfos()), Collections.singleton("db_02.user_0122"));
+        SQLParsedResult expected = buildParserForId().parse(sql, paramMap(1, 506L));
+        Assert.equals(toStrings(result.getRouteInfos()), toStrings(expected.getRouteInfos()));
+        // route infos of cached routes are copied for each result
+        SimpleShardParser parser = buildParserForId();
+        parser.setSqlParser(new LRUSQLParserCache(parser.getSqlParser(), 100));
+        sql = "select * from db.user where id = 506";
+        result = parser.parse(sql, null);
+        ShardRouteInfo routeInfo = parser.parse(sql, null).getRouteInfos().iterator().next();
+        routeInfo.setScName("db_07");
+        routeInfo.setTbName("user_0127");
+        Assert.equals(toStrings(result.getRouteInfos()), Collections.singleton("db_02.user_0122"));
+        Assert.equals(toStrings(parser.parse(sql, null).getRouteInfos()), Collections.singleton("db_02.user_0122"));
+    }
+
+    @Test
+    public void testSharedParse() {
+        SimpleShardParser parser = buildTemplateParser(false);
+        parseCount.set(0);
+        for (int i = 1; i <= 100; i++) {
+            SQLParsedResult result = parser.parse("select * from db.user where id = " + i, null);
+            Assert.isTrue(result.getSql().endsWith("WHERE id = " + i));
+        }
+        Assert.equals(parseCount.get(), 1);
+        // unparsable template falls back to original sql
+        SQLParsedResult result = parser.parse("select * from db.user where id = 5 and c = interval 1 day", null);
+        Assert.isTrue(result.getSql().startsWith("SELECT * FROM db_05.user_0005"));
+    }
+
+    private static Set<String> toStrings(Set<ShardRouteInfo> routeInfos) {
+        if (routeInfos == null) {
+            return null;
+        }
+        Set<String> set = new TreeSet<>();
+        for (ShardRouteInfo routeInfo : routeInfos) {
+            set.add(routeInfo.toString());
+        }
+        return set;
+    }
+
+    private static Map<Object, Object> paramMap(Object... keyValues) {
+        Map<Object, Object> map = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            map.put(keyValues[i], keyValues[i + 1]);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * #%L
+ * ddal-jsqlparser
+ * %%
+ * Copyright (C) 2016 - 2017 the original author or authors.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.hellojavaer.ddal.jsqlparser;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.AbstractDDRDataSource;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.DataSourceWrapper;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.StatementEvent;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.StatementListener;
+import org.hellojavaer.ddal.ddr.datasource.manager.DataSourceParam;
+import org.hellojavaer.ddal.ddr.shard.ShardParser;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.shard.heat.ShardHeatMap;
+import org.hellojavaer.ddal.ddr.shard.heat.TableHeat;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardParser;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouter;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * the route infos reported to statement listeners must contain the tables routed by sql literals,
+ * and the heat map must count each executed statement once
+ */
+public class StatementRouteInfoTest extends BaseTestShardParser {
+
+    private final List<StatementEvent> events = new ArrayList<>();
+
+    private AbstractDDRDataSource newDataSource() {
+        return newDataSource(buildParserForId());
+    }
+
+    private AbstractDDRDataSource newDataSource(final ShardParser shardParser) {
+        final DataSourceWrapper dataSource = new DataSourceWrapper(mock(DataSource.class),
+                                                                   new HashSet<>(Arrays.asList("db_02", "db_03")));
+        AbstractDDRDataSource ddrDataSource = new AbstractDDRDataSource() {
+
+            @Override
+            public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) {
+                return shardParser.parse(sql, jdbcParams);
+            }
+
+            @Override
+            public DataSourceWrapper getDataSource(DataSourceParam param) {
+                return dataSource;
+            }
+        };
+        ddrDataSource.addStatementListener(new StatementListener() {
+
+            @Override
+            public void onCompleted(StatementEvent event) {
+                events.add(event);
+            }
+        });
+        return ddrDataSource;
+    }
+
+    @Test
+    public void testLiteralRouted() throws SQLException {
+        Connection connection = newDataSource().getConnection();
+        Statement statement = connection.createStatement();
+        statement.executeUpdate("delete from db.user where id = 506");
+        statement.executeUpdate("delete from db.user where id = 506");
+        Assert.equals(events.size(), 2);
+        for (StatementEvent event : events) {
+            Assert.equals(toStrings(event.getRouteInfos()), Collections.singleton("db_02.user_0122"));
+        }
+    }
+
+    @Test
+    public void testLiteralAndJdbcRouted() throws SQLException {
+        Connection connection = newDataSource().getConnection();
+        String sql = "update db.user set name = 'x' where id = 506 "
+                     + "and exists (select 1 from db.shop where user_id = ?)";
+        PreparedStatement statement = connection.prepareStatement(sql);
+        statement.setLong(1, 507L);
+        statement.executeUpdate();
+        statement.close();
+        Assert.equals(events.size(), 1);
+        Assert.equals(toStrings(events.get(0).getRouteInfos()),
+                      new TreeSet<>(Arrays.asList("db_02.user_0122", "db_03.shop_0123")));
+    }
+
+    @Test
+    public void testHeatMap() throws SQLException {
+        SimpleShardParser shardParser = buildParserForId();
+        ShardHeatMap heatMap = new ShardHeatMap();
+        ((SimpleShardRouter) shardParser.getShardRouter()).setHeatMap(heatMap);
+        AbstractDDRDataSource dataSource = newDataSource(shardParser);
+        dataSource.addStatementListener(heatMap);
+        Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        PreparedStatement preparedStatement = connection.prepareStatement("delete from db.user where id = ?");
+        int n = 10;
+        for (int i = 0; i < n; i++) {
+            statement.executeUpdate("delete from db.user where id = 506");
+            preparedStatement.setLong(1, 507L);
+            preparedStatement.executeUpdate();
+        }
+        preparedStatement.close();
+        Assert.equals(heatMap.getRecordCount(), 2L * n);
+        Map<String, Long> counts = new HashMap<>();
+        for (TableHeat heat : heatMap.getTableHeats()) {
+            counts.put(heat.getRouteInfo().toString(), heat.getTotalCount());
+        }
+        Assert.equals(counts.size(), 2);
+        Assert.equals(counts.get("db_02.user_0122"), (long) n);
+        Assert.equals(counts.get("db_03.user_0123"), (long) n);
+    }
+
+    private static Set<String> toStrings(Set<ShardRouteInfo> routeInfos) {
+        Set<String> set = new TreeSet<>();
+        for (ShardRouteInfo routeInfo : routeInfos) {
+            set.add(routeInfo.toString());
+        }
+        return set;
+    }
+
+    private static <T> T mock(Class<T> type) {
+        return (T) Proxy.newProxyInstance(StatementRouteInfoTest.class.getClassLoader(), new Class[] { type },
+                                          new MockHandler());
+    }
+
+    private static class MockHandler implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("getConnection".equals(name)) {
+                return mock(Connection.class);
+            } else if ("createStatement".equals(name)) {
+                return mock(Statement.class);
+            } else if ("prepareStatement".equals(name)) {
+                return mock(PreparedStatement.class);
+            } else if ("getAutoCommit".equals(name)) {
+                return true;
+            } else if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            } else if ("equals".equals(name)) {
+                return proxy == args[0];
+            }
+            Class<?> returnType = method.getReturnType();
+            if (returnType == boolean.class) {
+                return false;
+            } else if (returnType == int.class) {
+                return 1;
+            }
+            return null;
+        }
+    }
+}